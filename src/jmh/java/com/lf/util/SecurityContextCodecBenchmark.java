@@ -0,0 +1,49 @@
+package com.lf.util;
+
+import com.lf.model.SecurityContext;
+import com.lf.model.UserRole;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares parsing the X-Security-Context header in the binary layout against the legacy Java serialization layout.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SecurityContextCodecBenchmark {
+
+    private String compactHeader;
+    private String legacyHeader;
+
+    @Setup
+    public void setup() {
+        List<String> roles = Arrays.stream(UserRole.values()).map(UserRole::value).collect(Collectors.toList());
+        compactHeader = new String(SecurityContextCodec.encode("d4dfdaf6-02a2-11e7-93ae-92361f002672",
+                "d4dfdaf6-02a2-11e7-93ae-92361f002671", roles, "Benchmark User"));
+
+        SecurityContext context = new SecurityContext(compactHeader);
+        legacyHeader = new String(Base64.getEncoder().encode(new OauthSerializerUtils().serialize(context)));
+    }
+
+    @Benchmark
+    public SecurityContext decodeCompact() {
+        return new SecurityContext(compactHeader);
+    }
+
+    @Benchmark
+    public SecurityContext decodeLegacy() {
+        return new SecurityContext(legacyHeader);
+    }
+}
@@ -0,0 +1,109 @@
+package com.lf;
+
+import com.azure.cosmos.CosmosAsyncClient;
+import com.azure.cosmos.CosmosAsyncContainer;
+import com.azure.cosmos.CosmosAsyncDatabase;
+import com.azure.cosmos.CosmosException;
+import com.azure.cosmos.models.CosmosItemRequestOptions;
+import com.azure.cosmos.models.CosmosQueryRequestOptions;
+import com.azure.cosmos.models.FeedResponse;
+import com.azure.cosmos.models.PartitionKey;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.lf.model.Configuration;
+import com.lf.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One-off copy of users and configurations from their id-partitioned containers (User and Configuration, the
+ * class-name containers the repositories used before) into the account-partitioned containers now used by the
+ * repositories. Enable with cosmos.migration.enabled; documents are upserted, so the copy can be re-run safely until
+ * the old containers are retired. Documents without an account_id are skipped and logged, and a source container that
+ * does not exist fails the startup rather than copying nothing.
+ */
+@Component
+@ConditionalOnProperty(name = "cosmos.migration.enabled", havingValue = "true")
+public class CosmosPartitionMigration implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(CosmosPartitionMigration.class);
+
+    private static final String PARTITION_KEY_PATH = "/account_id";
+    private static final String PARTITION_KEY_PROPERTY = "account_id";
+
+    @Autowired
+    private CosmosAsyncClient client;
+
+    @Value("${cosmos.migration.users.source-container:User}")
+    private String usersSourceContainer;
+
+    @Value("${cosmos.migration.configurations.source-container:Configuration}")
+    private String configurationsSourceContainer;
+
+    @Value("${cosmos.migration.page-size:100}")
+    private int pageSize;
+
+    @Value("${cosmos.migration.concurrency:8}")
+    private int concurrency;
+
+    @Override
+    public void run(final ApplicationArguments args) {
+        CosmosAsyncDatabase database = client.getDatabase(LfCdnApiApplicationConfiguration.DATABASE_NAME);
+        copy(database, usersSourceContainer, User.CONTAINER_NAME);
+        copy(database, configurationsSourceContainer, Configuration.CONTAINER_NAME);
+    }
+
+    private void copy(final CosmosAsyncDatabase database, final String sourceName, final String targetName) {
+        log.info("Copying container {} into {}", sourceName, targetName);
+        CosmosAsyncContainer source = database.getContainer(sourceName);
+        try {
+            source.read().block();
+        } catch (CosmosException e) {
+            // A mistyped source would otherwise copy nothing and leave the target empty at cutover
+            if (e.getStatusCode() == HttpStatus.NOT_FOUND.value()) {
+                throw new IllegalStateException("The migration source container " + sourceName + " does not exist", e);
+            }
+            throw e;
+        }
+        database.createContainerIfNotExists(targetName, PARTITION_KEY_PATH).block();
+        CosmosAsyncContainer target = database.getContainer(targetName);
+
+        AtomicLong copied = new AtomicLong();
+        AtomicLong skipped = new AtomicLong();
+        source.queryItems("SELECT * FROM c", new CosmosQueryRequestOptions(), ObjectNode.class)
+                .byPage(pageSize)
+                .flatMapIterable(FeedResponse::getResults)
+                .filter(document -> {
+                    if (document.path(PARTITION_KEY_PROPERTY).asText().isEmpty()) {
+                        log.warn("Skipping {} document {} without an account_id", sourceName, document.path("id").asText());
+                        skipped.incrementAndGet();
+                        return false;
+                    }
+                    return true;
+                })
+                .flatMap(document -> {
+                    PartitionKey partitionKey = new PartitionKey(document.get(PARTITION_KEY_PROPERTY).asText());
+                    stripSystemProperties(document);
+                    return target.upsertItem(document, partitionKey, new CosmosItemRequestOptions())
+                            .doOnSuccess(response -> copied.incrementAndGet());
+                }, concurrency)
+                .blockLast();
+        log.info("Copied {} documents from {} into {}, skipped {}", copied.get(), sourceName, targetName, skipped.get());
+    }
+
+    // System properties belong to the source container and are regenerated by the write
+    private static void stripSystemProperties(final ObjectNode document) {
+        document.remove("_rid");
+        document.remove("_self");
+        document.remove("_etag");
+        document.remove("_attachments");
+        document.remove("_ts");
+    }
+}
@@ -0,0 +1,71 @@
+package com.lf;
+
+import com.azure.cosmos.models.FeedResponse;
+import com.azure.cosmos.util.CosmosPagedFlux;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Metrics for queries made with the CosmosAsyncClient directly, which bypass both the repository timing proxy and the
+ * template's diagnostics processor. Each query is recorded as cosmos.repository.operation, like a repository call,
+ * and each page it reads as a query response with its request charge.
+ */
+@Component
+public class CosmosQueryMetrics {
+
+    @Autowired
+    private CosmosRepositoryMetrics repositoryMetrics;
+
+    @Autowired
+    private CosmosResponseMetrics responseMetrics;
+
+    /**
+     * Read a single page, timing the read.
+     * @param repository the repository tag, the name of the bean making the query
+     * @param method the method tag
+     * @param read reads the page, blocking
+     * @return the page
+     */
+    public <T> FeedResponse<T> page(final String repository, final String method, final Supplier<FeedResponse<T>> read) {
+        long startedAt = System.nanoTime();
+        String status = "ok";
+        try {
+            FeedResponse<T> page = read.get();
+            if (page != null) {
+                responseMetrics.processQueryPage(page);
+            }
+            return page;
+        } catch (RuntimeException | Error e) {
+            status = CosmosRepositoryMetrics.status(e);
+            throw e;
+        } finally {
+            repositoryMetrics.record(repository, method, status, System.nanoTime() - startedAt);
+        }
+    }
+
+    /**
+     * Read every item of a query, timed from subscription until the last page or an error. A query cancelled before
+     * its last page, such as one cut short by next(), is recorded with status cancelled.
+     * @param repository the repository tag, the name of the bean making the query
+     * @param method the method tag
+     * @param results the query
+     * @return the items of every page
+     */
+    public <T> Flux<T> query(final String repository, final String method, final CosmosPagedFlux<T> results) {
+        return Flux.defer(() -> {
+            long startedAt = System.nanoTime();
+            AtomicReference<String> status = new AtomicReference<>("ok");
+            return results.byPage()
+                    .doOnNext(responseMetrics::processQueryPage)
+                    .doOnError(e -> status.set(CosmosRepositoryMetrics.status(e)))
+                    .doFinally(signal -> repositoryMetrics.record(repository, method,
+                            signal == SignalType.CANCEL ? "cancelled" : status.get(), System.nanoTime() - startedAt))
+                    .flatMapIterable(FeedResponse::getResults);
+        });
+    }
+}
@@ -0,0 +1,104 @@
+package com.lf;
+
+import com.azure.cosmos.CosmosException;
+import com.azure.spring.data.cosmos.repository.CosmosRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every call to a blocking Cosmos repository (the CosmosRepository beans under com.lf.repository), so latency
+ * and outcome are known per repository operation without any per-response logging.
+ *
+ * Metric: cosmos.repository.operation, tagged repository, method and status (ok, the Cosmos status code of a failed
+ * call, or error when there is none). Calls slower than the threshold are logged at WARN with their operation.
+ * Reactive repositories are left alone; timing their calls would only measure assembling the Mono or Flux. Queries
+ * made with the CosmosAsyncClient directly are recorded under the same metric through CosmosQueryMetrics.
+ */
+@Component
+public class CosmosRepositoryMetrics implements BeanPostProcessor {
+    private static final Logger log = LoggerFactory.getLogger(CosmosRepositoryMetrics.class);
+
+    private final ObjectProvider<MeterRegistry> registry;
+    private final long slowOperationNanos;
+
+    // The registry is looked up on first use; post-processors are created before the beans that build it
+    public CosmosRepositoryMetrics(final ObjectProvider<MeterRegistry> registry,
+                                   @Value("${cosmos.diagnostics.slow-operation-ms:500}") final long slowOperationMs) {
+        this.registry = registry;
+        this.slowOperationNanos = TimeUnit.MILLISECONDS.toNanos(slowOperationMs);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+        if (!(bean instanceof CosmosRepository)) {
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.addAdvice(new TimingInterceptor(beanName));
+        return proxyFactory.getProxy();
+    }
+
+    private final class TimingInterceptor implements MethodInterceptor {
+        private final String repository;
+
+        private TimingInterceptor(final String repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(final MethodInvocation invocation) throws Throwable {
+            long startedAt = System.nanoTime();
+            String status = "ok";
+            try {
+                return invocation.proceed();
+            } catch (Throwable e) {
+                status = status(e);
+                throw e;
+            } finally {
+                record(repository, invocation.getMethod().getName(), status, System.nanoTime() - startedAt);
+            }
+        }
+    }
+
+    /**
+     * Record an operation timed elsewhere, such as a query made with the CosmosAsyncClient directly.
+     * @param repository
+     * @param method
+     * @param status ok, or the result of {@link #status(Throwable)}
+     * @param elapsedNanos
+     */
+    public void record(final String repository, final String method, final String status, final long elapsedNanos) {
+        Timer.builder("cosmos.repository.operation")
+                .description("Cosmos repository call time")
+                .tag("repository", repository)
+                .tag("method", method)
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(registry.getObject())
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (elapsedNanos > slowOperationNanos) {
+            log.warn("Slow Cosmos operation {}.{} took {} ms with status {}", repository, method,
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), status);
+        }
+    }
+
+    public static String status(final Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CosmosException) {
+                return String.valueOf(((CosmosException) cause).getStatusCode());
+            }
+        }
+        return "error";
+    }
+}
@@ -0,0 +1,87 @@
+package com.lf;
+
+import com.azure.cosmos.models.FeedResponse;
+import com.azure.spring.data.cosmos.core.ResponseDiagnostics;
+import com.azure.spring.data.cosmos.core.ResponseDiagnosticsProcessor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Turns the diagnostics of each Cosmos response made through the Spring Data template, and of each query page read
+ * with the CosmosAsyncClient directly, into metrics, instead of logging every one of them.
+ *
+ * Metrics: cosmos.responses (tagged kind=query or item) and cosmos.request.charge, the request units of each query
+ * page; the template only reports the charge for query responses. The full diagnostics, whose formatting is the
+ * expensive part, are logged only for a random sample of responses and for query pages above the request charge
+ * threshold.
+ */
+public class CosmosResponseMetrics implements ResponseDiagnosticsProcessor {
+    private static final Logger log = LoggerFactory.getLogger(CosmosResponseMetrics.class);
+
+    private final Counter queryResponses;
+    private final Counter itemResponses;
+    private final DistributionSummary requestCharge;
+    private final double logSampleRate;
+    private final double logRequestChargeThreshold;
+
+    /**
+     * @param logSampleRate the fraction of responses whose diagnostics are logged, 0 for none
+     * @param logRequestChargeThreshold the request charge above which a query page's diagnostics are always logged
+     */
+    public CosmosResponseMetrics(final MeterRegistry registry, final double logSampleRate, final double logRequestChargeThreshold) {
+        this.queryResponses = Counter.builder("cosmos.responses").tag("kind", "query")
+                .description("Cosmos query pages returned").register(registry);
+        this.itemResponses = Counter.builder("cosmos.responses").tag("kind", "item")
+                .description("Cosmos item responses returned to the Spring Data template").register(registry);
+        this.requestCharge = DistributionSummary.builder("cosmos.request.charge")
+                .description("Request units charged per Cosmos query page")
+                .baseUnit("request.units")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.logSampleRate = logSampleRate;
+        this.logRequestChargeThreshold = logRequestChargeThreshold;
+    }
+
+    @Override
+    public void processResponseDiagnostics(final ResponseDiagnostics responseDiagnostics) {
+        if (responseDiagnostics == null) {
+            return;
+        }
+        ResponseDiagnostics.CosmosResponseStatistics statistics = responseDiagnostics.getCosmosResponseStatistics();
+        if (statistics == null) {
+            itemResponses.increment();
+            logSampled(responseDiagnostics);
+        } else {
+            recordQueryPage(statistics.getRequestCharge(), responseDiagnostics);
+        }
+    }
+
+    /**
+     * Record a query page read with the CosmosAsyncClient directly, which the template never sees.
+     * @param page
+     */
+    public void processQueryPage(final FeedResponse<?> page) {
+        recordQueryPage(page.getRequestCharge(), page.getCosmosDiagnostics());
+    }
+
+    private void recordQueryPage(final double charge, final Object diagnostics) {
+        queryResponses.increment();
+        requestCharge.record(charge);
+        if (charge > logRequestChargeThreshold) {
+            log.warn("Cosmos query page charged {} RU, diagnostics {}", charge, diagnostics);
+            return;
+        }
+        logSampled(diagnostics);
+    }
+
+    private void logSampled(final Object diagnostics) {
+        if (logSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < logSampleRate) {
+            log.info("Sampled Cosmos response diagnostics {}", diagnostics);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
 import org.springframework.boot.actuate.autoconfigure.security.servlet.ManagementWebSecurityAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 // Remove the Spring Security classes from boot, as this is handled in the OAuth-Server
@@ -12,6 +13,7 @@ import org.springframework.boot.actuate.autoconfigure.security.servlet.Managemen
 		(exclude = {
 				SecurityAutoConfiguration.class,
 				ManagementWebSecurityAutoConfiguration.class})
+@EnableScheduling
 public class LfCdnApiApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(LfCdnApiApplication.class, args);
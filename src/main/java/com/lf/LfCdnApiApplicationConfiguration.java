@@ -1,10 +1,11 @@
 package com.lf;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -14,22 +15,31 @@ import com.azure.cosmos.CosmosClientBuilder;
 import com.azure.cosmos.DirectConnectionConfig;
 import com.azure.spring.data.cosmos.config.AbstractCosmosConfiguration;
 import com.azure.spring.data.cosmos.config.CosmosConfig;
-import com.azure.spring.data.cosmos.core.ResponseDiagnostics;
-import com.azure.spring.data.cosmos.core.ResponseDiagnosticsProcessor;
 import com.azure.spring.data.cosmos.repository.config.EnableCosmosRepositories;
-import com.azure.spring.data.cosmos.repository.config.EnableReactiveCosmosRepositories;
+import com.azure.spring.data.cosmos.repository.ReactiveCosmosRepository;
 
 @Configuration
 @EnableConfigurationProperties(CosmosProperties.class)
-@EnableCosmosRepositories
+// The reactive repositories live under com.lf.repository.reactive and are enabled by ReactiveConfiguration
+@EnableCosmosRepositories(basePackages = "com.lf.repository",
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ReactiveCosmosRepository.class))
 @PropertySource("classpath:application.properties")
 public class LfCdnApiApplicationConfiguration extends AbstractCosmosConfiguration {
 
-    private static final Logger log = LoggerFactory.getLogger(LfCdnApiApplicationConfiguration.class);
+    public static final String DATABASE_NAME = "lf";
 
     @Autowired
     private CosmosProperties properties;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cosmos.diagnostics.log-sample-rate:0.001}")
+    private double diagnosticsLogSampleRate;
+
+    @Value("${cosmos.diagnostics.log-request-charge-threshold:100}")
+    private double diagnosticsLogRequestChargeThreshold;
+
     @Bean
     public CosmosClientBuilder cosmosClientBuilder() {
         DirectConnectionConfig directConnectionConfig = DirectConnectionConfig.getDefaultConfig();
@@ -39,25 +49,22 @@ public class LfCdnApiApplicationConfiguration extends AbstractCosmosConfiguratio
                 .directMode(directConnectionConfig);
     }
 
+    @Bean
+    public CosmosResponseMetrics cosmosResponseMetrics() {
+        return new CosmosResponseMetrics(meterRegistry, diagnosticsLogSampleRate, diagnosticsLogRequestChargeThreshold);
+    }
+
     @Bean
     public CosmosConfig cosmosConfig() {
         return CosmosConfig.builder()
-                .responseDiagnosticsProcessor(new ResponseDiagnosticsProcessorImplementation())
+                .responseDiagnosticsProcessor(cosmosResponseMetrics())
                 .enableQueryMetrics(properties.isQueryMetricsEnabled())
                 .build();
     }
 
     @Override
     protected String getDatabaseName() {
-        return "lf";
-    }
-
-    private static class ResponseDiagnosticsProcessorImplementation implements ResponseDiagnosticsProcessor {
-
-        @Override
-        public void processResponseDiagnostics(ResponseDiagnostics responseDiagnostics) {
-            log.info("Response Diagnostics {}", responseDiagnostics);
-        }
+        return DATABASE_NAME;
     }
 
 }
@@ -0,0 +1,58 @@
+package com.lf;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Dedicated pool for the independent Cosmos lookups a request fans out (see the *Async service methods), kept apart
+ * from the servlet threads so a slow Cosmos cannot starve request handling. When the pool and its queue are full the
+ * lookup runs on the caller's thread instead, so overload degrades to the old sequential behaviour rather than
+ * failing the request.
+ */
+@Configuration
+public class LookupExecutorConfiguration {
+
+    public static final String LOOKUP_EXECUTOR = "lookupExecutor";
+
+    @Value("${lookup.executor.core-pool-size:8}")
+    private int corePoolSize;
+
+    @Value("${lookup.executor.max-pool-size:32}")
+    private int maxPoolSize;
+
+    @Value("${lookup.executor.queue-capacity:500}")
+    private int queueCapacity;
+
+    @Value("${lookup.executor.keep-alive-seconds:60}")
+    private int keepAliveSeconds;
+
+    @Bean(name = LOOKUP_EXECUTOR)
+    public ThreadPoolTaskExecutor lookupExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setKeepAliveSeconds(keepAliveSeconds);
+        executor.setThreadNamePrefix("cosmos-lookup-");
+        executor.setTaskDecorator(new RequestAttributesTaskDecorator());
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        return executor;
+    }
+
+    @Bean
+    public MeterBinder lookupExecutorMetrics(@Qualifier(LOOKUP_EXECUTOR) final ThreadPoolTaskExecutor lookupExecutor) {
+        // executor.pool.size, executor.queued, executor.active, executor.completed tagged name=cosmos.lookup
+        return registry -> new ExecutorServiceMetrics(lookupExecutor.getThreadPoolExecutor(), "cosmos.lookup", Collections.emptyList())
+                .bindTo(registry);
+    }
+}
@@ -0,0 +1,81 @@
+package com.lf;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The shared HTTP client for calls to the OAuth server: a pooled connection manager, so keep-alive connections are
+ * reused rather than paying TCP and TLS setup per call, with connect, read and pool-lease timeouts so a slow OAuth
+ * server cannot hold request threads indefinitely. Calls go through {@link com.lf.service.OAuthServerClient}, which
+ * adds the circuit breaker, bulkhead and call metrics.
+ */
+@Configuration
+public class OAuthServerClientConfiguration {
+
+    public static final String OAUTH_REST_TEMPLATE = "oauthRestTemplate";
+
+    @Value("${oauth.client.max-connections:100}")
+    private int maxConnections;
+
+    @Value("${oauth.client.max-connections-per-route:50}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${oauth.client.connect-timeout-ms:1000}")
+    private int connectTimeoutMs;
+
+    @Value("${oauth.client.read-timeout-ms:3000}")
+    private int readTimeoutMs;
+
+    @Value("${oauth.client.connection-request-timeout-ms:500}")
+    private int connectionRequestTimeoutMs;
+
+    @Value("${oauth.client.idle-eviction-seconds:30}")
+    private long idleEvictionSeconds;
+
+    @Bean
+    public PoolingHttpClientConnectionManager oauthConnectionManager() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        // Revalidate connections that sat idle, the server or a load balancer may have dropped them
+        connectionManager.setValidateAfterInactivity(2000);
+        return connectionManager;
+    }
+
+    @Bean
+    public CloseableHttpClient oauthHttpClient(@Qualifier("oauthConnectionManager") final PoolingHttpClientConnectionManager oauthConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(oauthConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(connectTimeoutMs)
+                        .setSocketTimeout(readTimeoutMs)
+                        .setConnectionRequestTimeout(connectionRequestTimeoutMs)
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(idleEvictionSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @Bean(name = OAUTH_REST_TEMPLATE)
+    public RestTemplate oauthRestTemplate(@Qualifier("oauthHttpClient") final CloseableHttpClient oauthHttpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(oauthHttpClient));
+    }
+
+    @Bean
+    public MeterBinder oauthConnectionPoolMetrics(@Qualifier("oauthConnectionManager") final PoolingHttpClientConnectionManager oauthConnectionManager) {
+        // httpcomponents.httpclient.pool.total.max, .total.connections (leased/available) and .total.pending tagged httpclient=oauth
+        return new PoolingHttpClientConnectionManagerMetricsBinder(oauthConnectionManager, "oauth");
+    }
+}
@@ -0,0 +1,33 @@
+package com.lf;
+
+import com.azure.spring.data.cosmos.repository.config.EnableReactiveCosmosRepositories;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Wiring for the WebFlux stack served under the "reactive" profile. Reads go through the reactive repositories;
+ * writes keep their existing blocking service logic (username reservations, ancestry maintenance, cache
+ * invalidation) and run on {@link #BLOCKING_SCHEDULER} so they never block an event-loop thread.
+ */
+@Configuration
+@Profile("reactive")
+@EnableReactiveCosmosRepositories(basePackages = "com.lf.repository.reactive")
+public class ReactiveConfiguration {
+
+    public static final String BLOCKING_SCHEDULER = "blockingScheduler";
+
+    @Value("${reactive.blocking-scheduler.thread-cap:64}")
+    private int threadCap;
+
+    @Value("${reactive.blocking-scheduler.queued-task-cap:1000}")
+    private int queuedTaskCap;
+
+    @Bean(name = BLOCKING_SCHEDULER, destroyMethod = "dispose")
+    public Scheduler blockingScheduler() {
+        return Schedulers.newBoundedElastic(threadCap, queuedTaskCap, "blocking-service");
+    }
+}
@@ -0,0 +1,30 @@
+package com.lf;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Carries the submitting thread's request attributes over to the worker thread, so request-scoped beans (such as the
+ * per-request principal) resolve to the same request when a lookup is moved off the servlet thread.
+ */
+public class RequestAttributesTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(final Runnable runnable) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return () -> {
+            RequestAttributes previous = RequestContextHolder.getRequestAttributes();
+            RequestContextHolder.setRequestAttributes(attributes);
+            try {
+                runnable.run();
+            } finally {
+                if (previous == null) {
+                    RequestContextHolder.resetRequestAttributes();
+                } else {
+                    RequestContextHolder.setRequestAttributes(previous);
+                }
+            }
+        };
+    }
+}
@@ -1,17 +1,25 @@
 package com.lf;
 
+import com.lf.controller.AccessChecks;
+import com.lf.model.SecurityContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import springfox.documentation.builders.ParameterBuilder;
 import springfox.documentation.builders.RequestHandlerSelectors;
+import springfox.documentation.schema.ModelRef;
 import springfox.documentation.service.ApiInfo;
 import springfox.documentation.service.Contact;
 import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+import java.util.Collections;
+
 import static springfox.documentation.builders.PathSelectors.regex;
 
 @Configuration
+@Profile("!reactive")
 @EnableSwagger2
 public class SwaggerConfig
 {
@@ -22,7 +30,16 @@ public class SwaggerConfig
                 .select()
                 .apis(RequestHandlerSelectors.basePackage("com.lf.controller"))
                 .paths(regex("/.*"))
-                .build().apiInfo(apiInfo());
+                .build()
+                // Handlers receive the decoded SecurityContext; document the header it comes from instead
+                .ignoredParameterTypes(SecurityContext.class)
+                .globalOperationParameters(Collections.singletonList(new ParameterBuilder()
+                        .name(AccessChecks.SECURITY_CONTEXT_HEADER)
+                        .modelRef(new ModelRef("string"))
+                        .parameterType("header")
+                        .required(true)
+                        .build()))
+                .apiInfo(apiInfo());
     }
 
     private ApiInfo apiInfo() {
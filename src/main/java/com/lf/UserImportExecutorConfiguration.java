@@ -0,0 +1,50 @@
+package com.lf;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Pool for the user creates of bulk imports, kept apart from the lookup executor so a large import never queues
+ * ahead of the access-check lookups of other requests. Each import also caps its own creates in flight (see
+ * UserImporter), so concurrent imports share this pool. When the pool and its queue are full the create runs on the
+ * importing request's thread.
+ */
+@Configuration
+public class UserImportExecutorConfiguration {
+
+    public static final String USER_IMPORT_EXECUTOR = "userImportExecutor";
+
+    @Value("${users.import.executor.threads:4}")
+    private int threads;
+
+    @Value("${users.import.executor.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Bean(name = USER_IMPORT_EXECUTOR)
+    public ThreadPoolTaskExecutor userImportExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("user-import-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        return executor;
+    }
+
+    @Bean
+    public MeterBinder userImportExecutorMetrics(@Qualifier(USER_IMPORT_EXECUTOR) final ThreadPoolTaskExecutor userImportExecutor) {
+        // executor.pool.size, executor.queued, executor.active, executor.completed tagged name=user.import
+        return registry -> new ExecutorServiceMetrics(userImportExecutor.getThreadPoolExecutor(), "user.import", Collections.emptyList())
+                .bindTo(registry);
+    }
+}
@@ -0,0 +1,109 @@
+package com.lf;
+
+import com.azure.cosmos.CosmosAsyncClient;
+import com.azure.cosmos.CosmosAsyncContainer;
+import com.azure.cosmos.CosmosAsyncDatabase;
+import com.azure.cosmos.CosmosException;
+import com.azure.cosmos.models.CosmosItemRequestOptions;
+import com.azure.cosmos.models.CosmosQueryRequestOptions;
+import com.azure.cosmos.models.FeedResponse;
+import com.azure.cosmos.models.PartitionKey;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.lf.model.User;
+import com.lf.model.UsernameReservation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One-off creation of a UsernameReservation for every existing user, so username checks no longer need the
+ * cross-partition username query. Enable with users.username-index.backfill.enabled; reservations that already exist
+ * are left alone, so the backfill can be re-run safely.
+ *
+ * Once a run reports no duplicate usernames, every user is reserved and users.username-index.legacy-fallback can be
+ * switched off. Duplicates (two users holding the same username, which the old check could not prevent) are logged
+ * and must be resolved first.
+ */
+@Component
+@ConditionalOnProperty(name = "users.username-index.backfill.enabled", havingValue = "true")
+public class UsernameReservationBackfill implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(UsernameReservationBackfill.class);
+
+    @Autowired
+    private CosmosAsyncClient client;
+
+    @Value("${users.username-index.backfill.page-size:100}")
+    private int pageSize;
+
+    @Value("${users.username-index.backfill.concurrency:8}")
+    private int concurrency;
+
+    @Override
+    public void run(final ApplicationArguments args) {
+        CosmosAsyncDatabase database = client.getDatabase(LfCdnApiApplicationConfiguration.DATABASE_NAME);
+        CosmosAsyncContainer users = database.getContainer(User.CONTAINER_NAME);
+        CosmosAsyncContainer reservations = database.getContainer(UsernameReservation.CONTAINER_NAME);
+
+        AtomicLong reserved = new AtomicLong();
+        AtomicLong alreadyReserved = new AtomicLong();
+        AtomicLong duplicates = new AtomicLong();
+        log.info("Reserving the username of every user in {}", User.CONTAINER_NAME);
+        users.queryItems("SELECT c.id, c.account_id, c.username FROM c", new CosmosQueryRequestOptions(), ObjectNode.class)
+                .byPage(pageSize)
+                .flatMapIterable(FeedResponse::getResults)
+                .filter(user -> !user.path("username").asText().isEmpty())
+                .flatMap(user -> reserve(reservations, user), concurrency)
+                .doOnNext(outcome -> {
+                    switch (outcome) {
+                        case RESERVED:
+                            reserved.incrementAndGet();
+                            break;
+                        case ALREADY_RESERVED:
+                            alreadyReserved.incrementAndGet();
+                            break;
+                        default:
+                            duplicates.incrementAndGet();
+                    }
+                })
+                .blockLast();
+        log.info("Reserved {} usernames, {} were already reserved, {} duplicates", reserved.get(), alreadyReserved.get(), duplicates.get());
+        if (duplicates.get() == 0) {
+            log.info("Every username is reserved; users.username-index.legacy-fallback can be switched off");
+        }
+    }
+
+    private Mono<Outcome> reserve(final CosmosAsyncContainer reservations, final ObjectNode user) {
+        String userId = user.path("id").asText();
+        UsernameReservation reservation = new UsernameReservation(user.path("username").asText(), user.path("account_id").asText(), userId);
+        PartitionKey partitionKey = new PartitionKey(reservation.getId());
+        return reservations.createItem(reservation, partitionKey, new CosmosItemRequestOptions())
+                .thenReturn(Outcome.RESERVED)
+                .onErrorResume(CosmosException.class, e -> {
+                    if (e.getStatusCode() != HttpStatus.CONFLICT.value()) {
+                        return Mono.error(e);
+                    }
+                    return reservations.readItem(reservation.getId(), partitionKey, UsernameReservation.class)
+                            .map(existing -> {
+                                if (userId.equals(existing.getItem().getUserId())) {
+                                    return Outcome.ALREADY_RESERVED;
+                                }
+                                log.warn("Username {} of user {} is already reserved by user {}", reservation.getUsername(), userId,
+                                        existing.getItem().getUserId());
+                                return Outcome.DUPLICATE;
+                            });
+                });
+    }
+
+    private enum Outcome {
+        RESERVED, ALREADY_RESERVED, DUPLICATE
+    }
+}
@@ -0,0 +1,36 @@
+package com.lf;
+
+import com.lf.controller.AccessCheckInterceptor;
+import com.lf.controller.SecurityContextArgumentResolver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Registers the access-check pipeline shared by every controller.
+ */
+@Configuration
+@Profile("!reactive")
+public class WebConfiguration implements WebMvcConfigurer {
+
+    @Autowired
+    private AccessCheckInterceptor accessCheckInterceptor;
+
+    @Autowired
+    private SecurityContextArgumentResolver securityContextArgumentResolver;
+
+    @Override
+    public void addInterceptors(final InterceptorRegistry registry) {
+        registry.addInterceptor(accessCheckInterceptor);
+    }
+
+    @Override
+    public void addArgumentResolvers(final List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(securityContextArgumentResolver);
+    }
+}
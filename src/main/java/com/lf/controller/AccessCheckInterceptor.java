@@ -0,0 +1,73 @@
+package com.lf.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Runs the {@link AccessChecks} declared by {@link RequiresAccess} before the handler is invoked. The decoded
+ * SecurityContext is left on the request for {@link SecurityContextArgumentResolver}.
+ */
+@Component
+@Profile("!reactive")
+public class AccessCheckInterceptor implements HandlerInterceptor {
+
+    @Autowired
+    private AccessChecks accessChecks;
+
+    @Override
+    public boolean preHandle(final HttpServletRequest request, final HttpServletResponse response, final Object handler) throws IOException {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        RequiresAccess access = ((HandlerMethod) handler).getMethodAnnotation(RequiresAccess.class);
+        if (access == null) {
+            return true;
+        }
+
+        Map<String, String> pathVariables = pathVariables(request);
+        AccessDecision decision = accessChecks.checkRequest(request.getHeader(AccessChecks.SECURITY_CONTEXT_HEADER), access, pathVariables, request::getParameter);
+        if (decision.isAllowed()) {
+            decision = join(accessChecks.checkLookups(decision.getSecurityContext(), access, pathVariables));
+        }
+        if (!decision.isAllowed()) {
+            response.setStatus(decision.getStatus().value());
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write(decision.getMessage());
+            return false;
+        }
+
+        request.setAttribute(AccessChecks.SECURITY_CONTEXT_ATTRIBUTE, decision.getSecurityContext());
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> pathVariables(final HttpServletRequest request) {
+        Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        return variables == null ? Collections.emptyMap() : (Map<String, String>) variables;
+    }
+
+    private static AccessDecision join(final CompletableFuture<AccessDecision> check) {
+        try {
+            return check.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during the access check", e);
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        }
+    }
+}
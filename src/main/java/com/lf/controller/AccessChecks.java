@@ -0,0 +1,108 @@
+package com.lf.controller;
+
+import com.lf.model.SecurityContext;
+import com.lf.service.AccountService;
+import com.lf.service.SecurityContextCache;
+import com.lf.service.SecurityService;
+import com.lf.util.PatternMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static org.springframework.http.HttpStatus.*;
+
+/**
+ * The checks declared by {@link RequiresAccess}, shared by the servlet {@link AccessCheckInterceptor} and the
+ * reactive {@link ReactiveAccessCheckFilter}.
+ *
+ * Checks run cheapest first and stop at the first failure: {@link #checkRequest} decodes the X-Security-Context
+ * header (cached) and makes the role and UUID format checks in memory; only if those pass does {@link #checkLookups}
+ * make the Cosmos-backed checks, looking up "is the logged-in user active" and "does the account exist" concurrently
+ * on the lookup executor.
+ */
+@Component
+public class AccessChecks {
+    private static final Logger log = LoggerFactory.getLogger(AccessChecks.class);
+
+    public static final String SECURITY_CONTEXT_HEADER = "X-Security-Context";
+    public static final String SECURITY_CONTEXT_ATTRIBUTE = AccessChecks.class.getName() + ".securityContext";
+
+    @Autowired
+    private SecurityContextCache securityContextCache;
+
+    @Autowired
+    private SecurityService securityService;
+
+    @Autowired
+    private AccountService accountService;
+
+    /**
+     * Decode the caller's SecurityContext and make the in-memory checks.
+     * @param header the X-Security-Context header, may be null
+     * @param access the handler's declared requirements
+     * @param pathVariables the request's URI template variables
+     * @param parameters looks a request parameter up by name
+     */
+    public AccessDecision checkRequest(final String header, final RequiresAccess access, final Map<String, String> pathVariables,
+                                       final Function<String, String> parameters) {
+        // Build the SecurityContext object
+        Optional<SecurityContext> securityContext = securityContextCache.get(header);
+        if (!securityContext.isPresent()) {
+            log.warn("Error constructing xSecurityContext");
+            return AccessDecision.reject(FORBIDDEN, "Error constructing xSecurityContext");
+        }
+        SecurityContext context = securityContext.get();
+
+        // Check access role
+        if (!context.hasRole(access.role())) {
+            log.warn("User {} account {}, does not have the correct role to interact with this endpoint.", context.getUserId(), context.getAccountId());
+            return AccessDecision.reject(FORBIDDEN, "User: " + context.getUserId() + "account: " + context.getAccountId() + " does not have the correct role to interact with this endpoint.");
+        }
+
+        // Check that ids are valid uuids, unless looking up by name
+        boolean useName = !access.useNameParameter().isEmpty() && Boolean.parseBoolean(parameters.apply(access.useNameParameter()));
+        for (String variable : access.uuidPathVariables()) {
+            String value = pathVariables.get(variable);
+            if (useName && variable.equals(access.nameLookupPathVariable())) {
+                continue;
+            }
+            if (value == null || !PatternMatcher.isUuid(value)) {
+                log.warn("Invalid {} {}", variable, value);
+                return AccessDecision.reject(BAD_REQUEST, "Invalid " + variable.replace('_', '-') + ": " + value);
+            }
+        }
+        return AccessDecision.allow(context);
+    }
+
+    /**
+     * Make the Cosmos-backed checks for a context that passed {@link #checkRequest}. Both lookups are issued before
+     * waiting on either.
+     */
+    public CompletableFuture<AccessDecision> checkLookups(final SecurityContext context, final RequiresAccess access,
+                                                          final Map<String, String> pathVariables) {
+        String accountId = access.existingAccountPathVariable().isEmpty() ? null : pathVariables.get(access.existingAccountPathVariable());
+        CompletableFuture<Boolean> userActive = securityService.isLoggedInUserActiveAsync(context);
+        CompletableFuture<Boolean> accountExists = accountId == null
+                ? CompletableFuture.completedFuture(true)
+                : accountService.accountExistsAsync(accountId);
+
+        return userActive.thenCombine(accountExists, (active, exists) -> {
+            // if Logged-in user is inactive, return 403
+            if (!active) {
+                log.warn("Attempt to access data when the logged on user is inactive");
+                return AccessDecision.reject(FORBIDDEN, "Attempt to access data when the logged on user is inactive");
+            }
+            if (!exists) {
+                log.warn("account with id {} does not exist", accountId);
+                return AccessDecision.reject(NOT_FOUND, "account with id: " + accountId + " does not exist");
+            }
+            return AccessDecision.allow(context);
+        });
+    }
+}
@@ -0,0 +1,45 @@
+package com.lf.controller;
+
+import com.lf.model.SecurityContext;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Outcome of an {@link AccessChecks} step: either the caller's SecurityContext, or the status and message to reject
+ * the request with.
+ */
+public final class AccessDecision {
+
+    private final SecurityContext securityContext;
+    private final HttpStatus status;
+    private final String message;
+
+    private AccessDecision(final SecurityContext securityContext, final HttpStatus status, final String message) {
+        this.securityContext = securityContext;
+        this.status = status;
+        this.message = message;
+    }
+
+    public static AccessDecision allow(final SecurityContext securityContext) {
+        return new AccessDecision(securityContext, null, null);
+    }
+
+    public static AccessDecision reject(final HttpStatus status, final String message) {
+        return new AccessDecision(null, status, message);
+    }
+
+    public boolean isAllowed() {
+        return status == null;
+    }
+
+    public SecurityContext getSecurityContext() {
+        return securityContext;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -1,15 +1,21 @@
 package com.lf.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lf.model.Account;
+import com.lf.model.PagedResult;
 import com.lf.model.UserRole;
+import com.lf.repository.Projection;
+import com.lf.service.AccountHierarchyCycleException;
+import com.lf.service.AccountHierarchyLimitException;
 import com.lf.service.AccountService;
 import com.lf.service.SecurityService;
 import com.lf.model.SecurityContext;
-import com.lf.util.PatternMatcher;
+import com.lf.util.InvalidContinuationTokenException;
 import io.swagger.annotations.ApiOperation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.ObjectError;
@@ -22,6 +28,7 @@ import java.util.Optional;
 import static org.springframework.http.HttpStatus.*;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/v1/lf")
 public class AccountController {
 
@@ -33,36 +40,54 @@ public class AccountController {
     @Autowired
     private SecurityService securityService;
 
+    @Autowired
+    private Paging paging;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @RequestMapping(value = "/accounts", method = RequestMethod.GET)
+    @ApiOperation(value = "Get a page of accounts", response = PagedResult.class, produces = "application/json")
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_ACCOUNT)
+    public ResponseEntity listAccounts(@RequestParam(value = Paging.LIMIT_PARAMETER, required = false) final Integer limit,
+                                       @RequestParam(value = Paging.CONTINUATION_PARAMETER, required = false) final String continuation,
+                                       @RequestParam(value = "fields", required = false) final String fields) {
+        log.debug("Received request to list accounts");
+
+        Optional<Projection> projection;
+        try {
+            projection = Projection.parse(fields, Account.PROJECTABLE_FIELDS);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), BAD_REQUEST);
+        }
+
+        // Always paged, there is no account id to bound the list by
+        Optional<String> invalid = paging.validate(limit, continuation);
+        if (invalid.isPresent()) {
+            return new ResponseEntity<>(invalid.get(), BAD_REQUEST);
+        }
+        try {
+            return new ResponseEntity<>(projection.isPresent()
+                    ? accountService.list(projection.get(), paging.limit(limit), continuation)
+                    : accountService.list(paging.limit(limit), continuation), OK);
+        } catch (InvalidContinuationTokenException e) {
+            return new ResponseEntity<>(paging.invalidContinuation(continuation), BAD_REQUEST);
+        }
+    }
+
     @RequestMapping(value = "/accounts/{account_id}", method = RequestMethod.GET)
     @ApiOperation(value = "Get account with given id", response = Account.class, produces = "application/json")
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_ACCOUNT, uuidPathVariables = "account_id", nameLookupPathVariable = "account_id", useNameParameter = "use-name")
     public ResponseEntity getById(@PathVariable("account_id") final String id,
                                   @RequestParam(value = "use-name", required = false) final boolean useName,
-                                  @RequestHeader("X-Security-Context") final String xSecurityHeader) {
+                                  @RequestParam(value = "fields", required = false) final String fields) {
         log.debug("Received request to retrieve account by id: " + id);
 
-        // Build the SecurityContext object
-        Optional<SecurityContext> xSecurityContext = Optional.of(new SecurityContext(xSecurityHeader));
-        if(!xSecurityContext.isPresent()) {
-            log.warn("Error constructing xSecurityContext");
-            return new ResponseEntity<>("Error constructing xSecurityContext", FORBIDDEN);
-        }
-
-        // If looking up by id make sure the UUID matches
-        if (!id.matches(PatternMatcher.UUID_PATTERN) && !useName) {
-            log.warn("Invalid id {}", id);
-            return new ResponseEntity<>("Invalid id: " + id, BAD_REQUEST);
-        }
-
-        // Check access role
-        if(!xSecurityContext.get().hasRole(UserRole.ROLE_RETRIEVE_ACCOUNT.value())) {
-            log.warn("User {} account {}, does not have the correct role to interact with this endpoint.", xSecurityContext.get().getUserId(), xSecurityContext.get().getAccountId());
-            return new ResponseEntity<>("User: " +  xSecurityContext.get().getUserId() + "account: " +  xSecurityContext.get().getAccountId() + " does not have the correct role to interact with this endpoint.", FORBIDDEN);
-        }
-
-        // if Logged-in user is inactive, return 403
-        if (!securityService.isLoggedInUserActive(xSecurityContext.get())) {
-            log.warn("Attempt to access data when the logged on user is inactive");
-            return new ResponseEntity<>("Attempt to access data when the logged on user is inactive", FORBIDDEN);
+        Optional<Projection> projection;
+        try {
+            projection = Projection.parse(fields, Account.PROJECTABLE_FIELDS);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), BAD_REQUEST);
         }
 
         // If by name, then first get the account if present, if so use the account id found by querying the name for the next 403 check
@@ -72,106 +97,53 @@ public class AccountController {
             new ResponseEntity<>((useName) ?  "account with name : " + id + " node found" : "account with id: " + id + " not found", NOT_FOUND);
         }
 
-        return account.isPresent() ? new ResponseEntity<>(account.get(), OK) : new ResponseEntity<>((useName) ?  "account with name : " + id + " node found" : "account with id: " + id + " not found", NOT_FOUND);
+        // A point read is cheaper than a projecting query, so the account is read in full and projected here
+        return account.isPresent() ? new ResponseEntity<>(projection.isPresent() ? projection.get().apply(objectMapper.valueToTree(account.get())) : account.get(), OK) : new ResponseEntity<>((useName) ?  "account with name : " + id + " node found" : "account with id: " + id + " not found", NOT_FOUND);
     }
 
     @RequestMapping(value = "/accounts", method = RequestMethod.POST)
     @ApiOperation(value = "Create Account with given payload", response = Account.class, produces = "application/json")
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_ACCOUNT)
     public ResponseEntity createAccount(@RequestBody @Valid final Account account,
-                                        @RequestHeader("X-Security-Context") final String xSecurityHeader) {
+                                        final SecurityContext securityContext) {
         log.debug("Received request to create the {}", account);
 
-        // Build the SecurityContext object
-        Optional<SecurityContext> xSecurityContext = Optional.of(new SecurityContext(xSecurityHeader));
-        if(!xSecurityContext.isPresent()) {
-            log.warn("Error constructing xSecurityContext");
-            return new ResponseEntity<>("Error constructing xSecurityContext", FORBIDDEN);
-        }
-
-        // Check access role
-        if(!xSecurityContext.get().hasRole(UserRole.ROLE_RETRIEVE_ACCOUNT.value())) {
-            log.warn("User {} account {}, does not have the correct role to interact with this endpoint.", xSecurityContext.get().getUserId(), xSecurityContext.get().getAccountId());
-            return new ResponseEntity<>("User: " +  xSecurityContext.get().getUserId() + "account: " +  xSecurityContext.get().getAccountId() + " does not have the correct role to interact with this endpoint.", FORBIDDEN);
-        }
-
-        // if Logged-in user is inactive, return 403
-        if (!securityService.isLoggedInUserActive(xSecurityContext.get())) {
-            log.warn("Attempt to access data when the logged on user is inactive");
-            return new ResponseEntity<>("Attempt to access data when the logged on user is inactive", FORBIDDEN);
+        account.setCreatedBy(securityService.getUserNameForUserId(securityContext));   // Set to logged in user
+        Optional<Account> savedAccount;
+        try {
+            savedAccount = accountService.save(account);
+        } catch (AccountHierarchyCycleException e) {
+            return new ResponseEntity<>(e.getMessage(), CONFLICT);
+        } catch (AccountHierarchyLimitException e) {
+            return new ResponseEntity<>(e.getMessage(), UNPROCESSABLE_ENTITY);
         }
-
-        account.setCreatedBy(securityService.getUserNameForUserId(xSecurityContext.get()));   // Set to logged in user
-        Optional<Account> savedAccount = accountService.save(account);
         return savedAccount.isPresent() ? new ResponseEntity<>(savedAccount.get(), CREATED) : new ResponseEntity<>("Something went wrong", BAD_REQUEST);
     }
 
     @RequestMapping(value = "/accounts/{account_id}", method = RequestMethod.PUT)
     @ApiOperation(value = "Update account with given id", response = Account.class, produces = "application/json")
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_ACCOUNT, uuidPathVariables = "account_id")
     public ResponseEntity updateAccount(@RequestBody final Account newAccountData,
-                                                 @PathVariable("account_id") final String id,
-                                                 @RequestHeader("X-Security-Context") final String xSecurityHeader) {
+                                                 @PathVariable("account_id") final String id) {
         log.debug("Received request to update the {}", newAccountData);
 
-        // Build the SecurityContext object
-        Optional<SecurityContext> xSecurityContext = Optional.of(new SecurityContext(xSecurityHeader));
-        if(!xSecurityContext.isPresent()) {
-            log.warn("Error constructing xSecurityContext");
-            return new ResponseEntity<>("Error constructing xSecurityContext", FORBIDDEN);
-        }
-
-        // If looking up by id make sure the UUID matches
-        if (!id.matches(PatternMatcher.UUID_PATTERN)) {
-            log.warn("Invalid id {}", id);
-            return new ResponseEntity<>("Invalid id: " + id, BAD_REQUEST);
-        }
-
-        // Check access role
-        if(!xSecurityContext.get().hasRole(UserRole.ROLE_RETRIEVE_ACCOUNT.value())) {
-            log.warn("User {} account {}, does not have the correct role to interact with this endpoint.", xSecurityContext.get().getUserId(), xSecurityContext.get().getAccountId());
-            return new ResponseEntity<>("User: " +  xSecurityContext.get().getUserId() + "account: " +  xSecurityContext.get().getAccountId() + " does not have the correct role to interact with this endpoint.", FORBIDDEN);
-        }
-
-        // if Logged-in user is inactive, return 403
-        if (!securityService.isLoggedInUserActive(xSecurityContext.get())) {
-            log.warn("Attempt to access data when the logged on user is inactive");
-            return new ResponseEntity<>("Attempt to access data when the logged on user is inactive", FORBIDDEN);
+        Optional<Account> updatedAccount;
+        try {
+            updatedAccount = accountService.update(id, newAccountData);
+        } catch (AccountHierarchyCycleException e) {
+            return new ResponseEntity<>(e.getMessage(), CONFLICT);
+        } catch (AccountHierarchyLimitException e) {
+            return new ResponseEntity<>(e.getMessage(), UNPROCESSABLE_ENTITY);
         }
-
-        Optional<Account> updatedAccount = accountService.update(id, newAccountData);
         return updatedAccount.isPresent() ? new ResponseEntity<>(updatedAccount.get(), OK) : new ResponseEntity<>("account with id: " + id + " not found", NOT_FOUND);
     }
 
     @RequestMapping(value = "/accounts/{account_id}", method = RequestMethod.DELETE)
     @ApiOperation(value = "Delete account with given id", produces = "application/json")
-    public ResponseEntity deleteAccount(@PathVariable("account_id") final String id,
-                                        @RequestHeader("X-Security-Context") final String xSecurityHeader) {
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_ACCOUNT, uuidPathVariables = "account_id")
+    public ResponseEntity deleteAccount(@PathVariable("account_id") final String id) {
         log.debug("Received request to delete account with id {}", id);
 
-        // Build the SecurityContext object
-        Optional<SecurityContext> xSecurityContext = Optional.of(new SecurityContext(xSecurityHeader));
-        if(!xSecurityContext.isPresent()) {
-            log.warn("Error constructing xSecurityContext");
-            return new ResponseEntity<>("Error constructing xSecurityContext", FORBIDDEN);
-        }
-
-        // If looking up by id make sure the UUID matches
-        if (!id.matches(PatternMatcher.UUID_PATTERN)) {
-            log.warn("Invalid id {}", id);
-            return new ResponseEntity<>("Invalid id: " + id, BAD_REQUEST);
-        }
-
-        // Check access role
-        if(!xSecurityContext.get().hasRole(UserRole.ROLE_RETRIEVE_ACCOUNT.value())) {
-            log.warn("User {} account {}, does not have the correct role to interact with this endpoint.", xSecurityContext.get().getUserId(), xSecurityContext.get().getAccountId());
-            return new ResponseEntity<>("User: " +  xSecurityContext.get().getUserId() + "account: " +  xSecurityContext.get().getAccountId() + " does not have the correct role to interact with this endpoint.", FORBIDDEN);
-        }
-
-        // if Logged-in user is inactive, return 403
-        if (!securityService.isLoggedInUserActive(xSecurityContext.get())) {
-            log.warn("Attempt to access data when the logged on user is inactive");
-            return new ResponseEntity<>("Attempt to access data when the logged on user is inactive", FORBIDDEN);
-        }
-
         Optional<Account> deletedAccount = accountService.delete(id);
         return deletedAccount.isPresent() ? new ResponseEntity<>(deletedAccount.get(), OK) : new ResponseEntity<>("account with id: " + id + " not found", NOT_FOUND);
     }
@@ -3,9 +3,9 @@ package com.lf.controller;
 import com.lf.model.Configuration;
 import com.lf.model.SecurityContext;
 import com.lf.model.UserRole;
-import com.lf.util.PatternMatcher;
+import com.lf.repository.Projection;
 import com.lf.util.ApiUtils;
-import com.lf.service.AccountService;
+import com.lf.util.InvalidContinuationTokenException;
 import com.lf.service.ConfigurationService;
 import com.lf.service.SecurityService;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -15,6 +15,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -22,162 +24,109 @@ import javax.validation.Valid;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.springframework.http.HttpStatus.*;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/v1/lf/accounts")
 public class ConfigurationController {
 
     private static final Logger log = LoggerFactory.getLogger(ConfigurationController.class);
 
-    @Autowired
-    private AccountService accountService;
-
     @Autowired
     private SecurityService securityService;
 
     @Autowired
     private ConfigurationService configurationService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Paging paging;
+
     @RequestMapping(value = "/{account_id}/configurations", method = RequestMethod.GET)
-    @ApiOperation(value = "Get all configurations for given account id", response = Configuration.class, responseContainer = "List", produces = "application/json")
+    @ApiOperation(value = "Get all configurations for given account id", response = Configuration.class, responseContainer = "List", produces = "application/json,application/x-ndjson")
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_CONFIGURATION, uuidPathVariables = "account_id", existingAccountPathVariable = "account_id")
     public ResponseEntity listConfigurations(
             @PathVariable("account_id") final String accountId,
             @RequestParam(value = "is-active", required = false) final Boolean isActive,
-            @RequestHeader("X-Security-Context") final String xSecurityHeader) {
+            @RequestParam(value = Paging.LIMIT_PARAMETER, required = false) final Integer limit,
+            @RequestParam(value = Paging.CONTINUATION_PARAMETER, required = false) final String continuation,
+            @RequestParam(value = "fields", required = false) final String fields,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) final String accept) {
         log.debug( "Received request to list all configurations");
 
-        // Build the SecurityContext object
-        Optional<SecurityContext> xSecurityContext = Optional.of(new SecurityContext(xSecurityHeader));
-        if(!xSecurityContext.isPresent()) {
-            log.warn("Error constructing xSecurityContext");
-            return new ResponseEntity<>("Error constructing xSecurityContext", FORBIDDEN);
-        }
-
-        // Check access role
-        if(!xSecurityContext.get().hasRole(UserRole.ROLE_RETRIEVE_CONFIGURATION.value())) {
-            log.warn("User {} account {}, does not have the correct role to interact with this endpoint.", xSecurityContext.get().getUserId(), xSecurityContext.get().getAccountId());
-            return new ResponseEntity<>("User: " +  xSecurityContext.get().getUserId() + "account: " +  xSecurityContext.get().getAccountId() + " does not have the correct role to interact with this endpoint.", FORBIDDEN);
-        }
-
-        // check account id is a valid uuid
-        if (!accountId.matches(PatternMatcher.UUID_PATTERN)) {
-            log.warn("Invalid account-id {}", accountId);
-            return new ResponseEntity<>("Invalid account-id: " + accountId, BAD_REQUEST);
-        }
-
-        // if Logged-in user is inactive, return 403
-        if (!securityService.isLoggedInUserActive(xSecurityContext.get())) {
-            log.warn("Attempt to access data when the logged on user is inactive");
-            return new ResponseEntity<>("Attempt to access data when the logged on user is inactive", FORBIDDEN);
-        }
-
-        if (!accountService.getAccountById(accountId).isPresent()) {
-            log.warn("account with id {} does not exist", accountId);
-            return new ResponseEntity<>("account with id: " + accountId + " does not exist", NOT_FOUND);
-        }
-
-        Optional<List<Configuration>> configurationList = configurationService.list(accountId);
-        if(!configurationList.isPresent()) {
-            log.warn("configuration list is not present", accountId);
-            return new ResponseEntity<>("configuration id list is not present for account-id:" + accountId, INTERNAL_SERVER_ERROR);
-        }
-
-        List<Configuration> configurations = (isActive != null) ? configurationList.get().stream()
-                .filter(config -> config.getConfigurationEnabled().equals(isActive.booleanValue()))
-                .collect(Collectors.toList()) : configurationList.get();
-        return new ResponseEntity<>(configurations, OK);
+        Optional<Projection> projection;
+        try {
+            projection = Projection.parse(fields, Configuration.PROJECTABLE_FIELDS);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), BAD_REQUEST);
+        }
+
+        // A single page of at most limit configurations when asked for one; follow continuation_token for the next
+        if (paging.isPaged(limit, continuation)) {
+            Optional<String> invalid = paging.validate(limit, continuation);
+            if (invalid.isPresent()) {
+                return new ResponseEntity<>(invalid.get(), BAD_REQUEST);
+            }
+            try {
+                return new ResponseEntity<>(projection.isPresent()
+                        ? configurationService.list(accountId, isActive, projection.get(), paging.limit(limit), continuation)
+                        : configurationService.list(accountId, isActive, paging.limit(limit), continuation), OK);
+            } catch (InvalidContinuationTokenException e) {
+                return new ResponseEntity<>(paging.invalidContinuation(continuation), BAD_REQUEST);
+            }
+        }
+
+        // Otherwise written out a page at a time, as a JSON array or as NDJSON when asked for application/x-ndjson
+        Stream<?> configurations = projection.isPresent()
+                ? configurationService.stream(accountId, isActive, projection.get())
+                : configurationService.stream(accountId, isActive);
+        boolean ndjson = JsonStreaming.wantsNdjson(accept);
+        return ResponseEntity.ok()
+                .contentType(JsonStreaming.contentType(ndjson))
+                .body(JsonStreaming.body(objectMapper, configurations, ndjson));
     }
 
     @RequestMapping(value = "/{account_id}/configurations/{configuration_id}", method = RequestMethod.GET)
     @ApiOperation(value = "Get configuration with given id for the given account id", response = Configuration.class, produces = "application/json")
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_CONFIGURATION, uuidPathVariables = "account_id", existingAccountPathVariable = "account_id")
     public ResponseEntity getById(
             @PathVariable("account_id") final String accountId,
             @PathVariable("configuration_id") final String id,
-            @RequestHeader("X-Security-Context") final String xSecurityHeader) {
+            @RequestParam(value = "fields", required = false) final String fields) {
         log.debug("Received request to retrieve configuration by id: " + id);
 
-        // Build the SecurityContext object
-        Optional<SecurityContext> xSecurityContext = Optional.of(new SecurityContext(xSecurityHeader));
-        if(!xSecurityContext.isPresent()) {
-            log.warn("Error constructing xSecurityContext");
-            return new ResponseEntity<>("Error constructing xSecurityContext", FORBIDDEN);
-        }
-
-        // Check access role
-        if(!xSecurityContext.get().hasRole(UserRole.ROLE_RETRIEVE_CONFIGURATION.value())) {
-            log.warn("User {} account {}, does not have the correct role to interact with this endpoint.", xSecurityContext.get().getUserId(), xSecurityContext.get().getAccountId());
-            return new ResponseEntity<>("User: " +  xSecurityContext.get().getUserId() + "account: " +  xSecurityContext.get().getAccountId() + " does not have the correct role to interact with this endpoint.", FORBIDDEN);
-        }
-
-        // check account id is a valid uuid
-        if (!accountId.matches(PatternMatcher.UUID_PATTERN)) {
-            log.warn("Invalid account-id {}", accountId);
-            return new ResponseEntity<>("Invalid account-id: " + accountId, BAD_REQUEST);
-        }
-
-        // if Logged-in user is inactive, return 403
-        if (!securityService.isLoggedInUserActive(xSecurityContext.get())) {
-            log.warn("Attempt to access data when the logged on user is inactive");
-            return new ResponseEntity<>("Attempt to access data when the logged on user is inactive", FORBIDDEN);
+        Optional<Projection> projection;
+        try {
+            projection = Projection.parse(fields, Configuration.PROJECTABLE_FIELDS);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), BAD_REQUEST);
         }
 
-        if (!accountService.getAccountById(accountId).isPresent()) {
-            log.warn("account with id {} does not exist", accountId);
-            return new ResponseEntity<>("account with id: " + accountId + " does not exist", NOT_FOUND);
-        }
-
-        Optional<Configuration> configuration = configurationService.getConfigurationById(id);
-        return configuration.isPresent() ? new ResponseEntity<>(configuration.get(), OK) : new ResponseEntity<>("configuration with id: " + id + " not found", NOT_FOUND);
+        Optional<Configuration> configuration = configurationService.getConfigurationById(accountId, id);
+        return configuration.isPresent() ? new ResponseEntity<>(projection.isPresent() ? projection.get().apply(objectMapper.valueToTree(configuration.get())) : configuration.get(), OK) : new ResponseEntity<>("configuration with id: " + id + " not found", NOT_FOUND);
     }
 
     @RequestMapping(value = "/{account_id}/configurations", method = RequestMethod.POST)
     @ApiOperation(value = "Create configuration with given payload for the given account id", response = Configuration.class, produces = "application/json")
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_CONFIGURATION, uuidPathVariables = "account_id", existingAccountPathVariable = "account_id")
     public ResponseEntity createConfiguration(
             @RequestBody @Valid final Configuration configuration,
             @PathVariable("account_id") final String accountId,
-            @RequestHeader("X-Security-Context") final String xSecurityHeader) {
+            final SecurityContext securityContext) {
         log.debug("Received request to create configuration {}", configuration);
 
-        // Build the SecurityContext object
-        Optional<SecurityContext> xSecurityContext = Optional.of(new SecurityContext(xSecurityHeader));
-        if(!xSecurityContext.isPresent()) {
-            log.warn("Error constructing xSecurityContext");
-            return new ResponseEntity<>("Error constructing xSecurityContext", FORBIDDEN);
-        }
-
-        // Check access role
-        if(!xSecurityContext.get().hasRole(UserRole.ROLE_RETRIEVE_CONFIGURATION.value())) {
-            log.warn("User {} account {}, does not have the correct role to interact with this endpoint.", xSecurityContext.get().getUserId(), xSecurityContext.get().getAccountId());
-            return new ResponseEntity<>("User: " +  xSecurityContext.get().getUserId() + "account: " +  xSecurityContext.get().getAccountId() + " does not have the correct role to interact with this endpoint.", FORBIDDEN);
-        }
-
-        // check account id is a valid uuid
-        if (!accountId.matches(PatternMatcher.UUID_PATTERN)) {
-            log.warn("Invalid account-id {}", accountId);
-            return new ResponseEntity<>("Invalid account-id: " + accountId, BAD_REQUEST);
-        }
-
-        // if Logged-in user is inactive, return 403
-        if (!securityService.isLoggedInUserActive(xSecurityContext.get())) {
-            log.warn("Attempt to access data when the logged on user is inactive");
-            return new ResponseEntity<>("Attempt to access data when the logged on user is inactive", FORBIDDEN);
-        }
-
         //Cosmos does not auto-generate ids - set id value if it is not supplied in payload
         if (ApiUtils.isNullOrEmpty(configuration.getId())) {
             configuration.setId(UUID.randomUUID().toString());
         }
 
-        if (!accountService.getAccountById(accountId).isPresent()) {
-            log.warn("account with id {} does not exist", accountId);
-            return new ResponseEntity<>("account with id: " + accountId + " does not exist", NOT_FOUND);
-        }
-
-        configuration.setCreatedBy(securityService.getUserNameForUserId(xSecurityContext.get()));     // Set to logged in user
-        configuration.setModifiedBy(securityService.getUserNameForUserId(xSecurityContext.get()));    // Set to logged in user
+        configuration.setCreatedBy(securityService.getUserNameForUserId(securityContext));     // Set to logged in user
+        configuration.setModifiedBy(securityService.getUserNameForUserId(securityContext));    // Set to logged in user
 
         Optional<Configuration> newConfig = configurationService.save(accountId, configuration);
         return newConfig.map(cfg -> {
@@ -187,45 +136,16 @@ public class ConfigurationController {
 
     @RequestMapping(value = "/{account_id}/configurations/{configuration_id}", method = RequestMethod.PUT)
     @ApiOperation(value = "Update configuration with given name", response = Configuration.class, produces = "application/json")
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_CONFIGURATION, uuidPathVariables = "account_id", existingAccountPathVariable = "account_id")
     public ResponseEntity updateConfiguration(
             @RequestBody final Configuration configuration,
             @PathVariable("account_id") final String accountId,
             @PathVariable("configuration_id") final String configurationId,
             @RequestParam(value = "is-rollback", required = false) final boolean isRollback,
-            @RequestHeader("X-Security-Context") final String xSecurityHeader) {
+            final SecurityContext securityContext) {
         log.debug("Received request to update the {}", configuration);
 
-        // Build the SecurityContext object
-        Optional<SecurityContext> xSecurityContext = Optional.of(new SecurityContext(xSecurityHeader));
-        if(!xSecurityContext.isPresent()) {
-            log.warn("Error constructing xSecurityContext");
-            return new ResponseEntity<>("Error constructing xSecurityContext", FORBIDDEN);
-        }
-
-        // Check access role
-        if(!xSecurityContext.get().hasRole(UserRole.ROLE_RETRIEVE_CONFIGURATION.value())) {
-            log.warn("User {} account {}, does not have the correct role to interact with this endpoint.", xSecurityContext.get().getUserId(), xSecurityContext.get().getAccountId());
-            return new ResponseEntity<>("User: " +  xSecurityContext.get().getUserId() + "account: " +  xSecurityContext.get().getAccountId() + " does not have the correct role to interact with this endpoint.", FORBIDDEN);
-        }
-
-        // check account id is a valid uuid
-        if (!accountId.matches(PatternMatcher.UUID_PATTERN)) {
-            log.warn("Invalid account-id {}", accountId);
-            return new ResponseEntity<>("Invalid account-id: " + accountId, BAD_REQUEST);
-        }
-
-        // if Logged-in user is inactive, return 403
-        if (!securityService.isLoggedInUserActive(xSecurityContext.get())) {
-            log.warn("Attempt to access data when the logged on user is inactive");
-            return new ResponseEntity<>("Attempt to access data when the logged on user is inactive", FORBIDDEN);
-        }
-
-        if (!accountService.getAccountById(accountId).isPresent()) {
-            log.warn("account with id {} does not exist", accountId);
-            return new ResponseEntity<>("account with id: " + accountId + " does not exist", NOT_FOUND);
-        }
-
-        configuration.setModifiedBy(securityService.getUserNameForUserId(xSecurityContext.get()));   // Set to logged in user
+        configuration.setModifiedBy(securityService.getUserNameForUserId(securityContext));   // Set to logged in user
         Optional<Configuration> updatedConfig = configurationService.update(accountId, configurationId, configuration);
         if (updatedConfig.isPresent()) {
             return new ResponseEntity<>(updatedConfig.get(), OK);
@@ -236,44 +156,14 @@ public class ConfigurationController {
 
     @RequestMapping(value = "/{account_id}/configurations/{configuration_id}", method = RequestMethod.DELETE)
     @ApiOperation(value = "Delete configuration with given id", response = Configuration.class, produces = "application/json")
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_CONFIGURATION, uuidPathVariables = "account_id", existingAccountPathVariable = "account_id")
     public ResponseEntity deleteConfiguration(
             @PathVariable("account_id") final String accountId,
             @PathVariable("configuration_id") final String configurationId,
-            @RequestParam(value = "use-name", required = false) final boolean useName,
-            @RequestHeader("X-Security-Context") final String xSecurityHeader) {
+            @RequestParam(value = "use-name", required = false) final boolean useName) {
         log.debug("Received request to delete configuration with id {}", configurationId);
 
-        // Build the SecurityContext object
-        Optional<SecurityContext> xSecurityContext = Optional.of(new SecurityContext(xSecurityHeader));
-        if(!xSecurityContext.isPresent()) {
-            log.warn("Error constructing xSecurityContext");
-            return new ResponseEntity<>("Error constructing xSecurityContext", FORBIDDEN);
-        }
-
-        // Check access role
-        if(!xSecurityContext.get().hasRole(UserRole.ROLE_RETRIEVE_CONFIGURATION.value())) {
-            log.warn("User {} account {}, does not have the correct role to interact with this endpoint.", xSecurityContext.get().getUserId(), xSecurityContext.get().getAccountId());
-            return new ResponseEntity<>("User: " +  xSecurityContext.get().getUserId() + "account: " +  xSecurityContext.get().getAccountId() + " does not have the correct role to interact with this endpoint.", FORBIDDEN);
-        }
-
-        // check account id is a valid uuid
-        if (!accountId.matches(PatternMatcher.UUID_PATTERN)) {
-            log.warn("Invalid account-id {}", accountId);
-            return new ResponseEntity<>("Invalid account-id: " + accountId, BAD_REQUEST);
-        }
-
-        // if Logged-in user is inactive, return 403
-        if (!securityService.isLoggedInUserActive(xSecurityContext.get())) {
-            log.warn("Attempt to access data when the logged on user is inactive");
-            return new ResponseEntity<>("Attempt to access data when the logged on user is inactive", FORBIDDEN);
-        }
-
-        if (!accountService.getAccountById(accountId).isPresent()) {
-            log.warn("account with id {} does not exist", accountId);
-            return new ResponseEntity<>("account with id: " + accountId + " does not exist", NOT_FOUND);
-        }
-
-        Optional<Configuration> deletedConfig = configurationService.delete(configurationId, useName);
+        Optional<Configuration> deletedConfig = configurationService.delete(accountId, configurationId, useName);
         return deletedConfig.map(cfg -> {
 
             return new ResponseEntity<>(cfg, OK);
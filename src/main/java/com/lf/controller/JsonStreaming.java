@@ -0,0 +1,61 @@
+package com.lf.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes a lazily fetched stream of items to the response one at a time, either as a JSON array or as
+ * newline-delimited JSON, so large lists are never held in memory in full.
+ */
+final class JsonStreaming {
+
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+
+    private JsonStreaming() {
+    }
+
+    /**
+     * Whether the Accept header asks for newline-delimited JSON rather than a JSON array.
+     */
+    static boolean wantsNdjson(final String accept) {
+        if (accept == null || accept.isEmpty()) {
+            return false;
+        }
+        return MediaType.parseMediaTypes(accept).stream().anyMatch(APPLICATION_NDJSON::equalsTypeAndSubtype);
+    }
+
+    static MediaType contentType(final boolean ndjson) {
+        return ndjson ? APPLICATION_NDJSON : MediaType.APPLICATION_JSON;
+    }
+
+    static <T> StreamingResponseBody body(final ObjectMapper mapper, final Stream<T> items, final boolean ndjson) {
+        return outputStream -> {
+            // The generator must not close the servlet's stream, the container does that once the body is written
+            JsonGenerator generator = mapper.getFactory().createGenerator(outputStream).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            try (Stream<T> closing = items) {
+                Iterator<T> iterator = closing.iterator();
+                if (ndjson) {
+                    generator.setRootValueSeparator(null);   // each line ends with its own newline instead
+                } else {
+                    generator.writeStartArray();
+                }
+                while (iterator.hasNext()) {
+                    generator.writeObject(iterator.next());
+                    if (ndjson) {
+                        generator.writeRaw('\n');
+                    }
+                }
+                if (!ndjson) {
+                    generator.writeEndArray();
+                }
+            }
+            generator.close();
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package com.lf.controller;
+
+import com.lf.util.ContinuationTokens;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Validates the limit and continuation parameters shared by the paged list endpoints.
+ */
+@Component
+public class Paging {
+
+    public static final String LIMIT_PARAMETER = "limit";
+    public static final String CONTINUATION_PARAMETER = "continuation";
+
+    @Value("${api.paging.default-limit:100}")
+    private int defaultLimit = 100;
+
+    @Value("${api.paging.max-limit:1000}")
+    private int maxLimit = 1000;
+
+    /**
+     * Whether the caller asked for a single page rather than the full streamed list.
+     */
+    public boolean isPaged(final Integer limit, final String continuationToken) {
+        return limit != null || continuationToken != null;
+    }
+
+    public int limit(final Integer limit) {
+        return limit == null ? defaultLimit : limit;
+    }
+
+    /**
+     * @return the reason the parameters are unusable, or empty if they are fine
+     */
+    public Optional<String> validate(final Integer limit, final String continuationToken) {
+        if (limit != null && (limit < 1 || limit > maxLimit)) {
+            return Optional.of("limit must be between 1 and " + maxLimit);
+        }
+        if (!ContinuationTokens.isWellFormed(continuationToken)) {
+            return Optional.of(invalidContinuation(continuationToken));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * The reason given for a continuation token that is malformed, or that its list or Cosmos refused.
+     */
+    public String invalidContinuation(final String continuationToken) {
+        return "Invalid continuation: " + continuationToken;
+    }
+}
@@ -0,0 +1,71 @@
+package com.lf.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The WebFlux counterpart of {@link AccessCheckInterceptor}: resolves the handler for the exchange, runs the
+ * {@link AccessChecks} its {@link RequiresAccess} declares without blocking the event loop, and leaves the decoded
+ * SecurityContext on the exchange for handlers to take as a request attribute.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveAccessCheckFilter implements WebFilter {
+
+    @Autowired
+    private AccessChecks accessChecks;
+
+    @Autowired
+    private RequestMappingHandlerMapping handlerMapping;
+
+    @Override
+    public Mono<Void> filter(final ServerWebExchange exchange, final WebFilterChain chain) {
+        return handlerMapping.getHandler(exchange)
+                .filter(HandlerMethod.class::isInstance)
+                .map(handler -> Optional.ofNullable(((HandlerMethod) handler).getMethodAnnotation(RequiresAccess.class)))
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(access -> access.isPresent() ? check(exchange, access.get()) : Mono.just(AccessDecision.allow(null)))
+                .flatMap(decision -> {
+                    if (!decision.isAllowed()) {
+                        return reject(exchange.getResponse(), decision);
+                    }
+                    if (decision.getSecurityContext() != null) {
+                        exchange.getAttributes().put(AccessChecks.SECURITY_CONTEXT_ATTRIBUTE, decision.getSecurityContext());
+                    }
+                    return chain.filter(exchange);
+                });
+    }
+
+    private Mono<AccessDecision> check(final ServerWebExchange exchange, final RequiresAccess access) {
+        Map<String, String> pathVariables = exchange.getAttributeOrDefault(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Collections.emptyMap());
+        AccessDecision decision = accessChecks.checkRequest(exchange.getRequest().getHeaders().getFirst(AccessChecks.SECURITY_CONTEXT_HEADER),
+                access, pathVariables, name -> exchange.getRequest().getQueryParams().getFirst(name));
+        if (!decision.isAllowed()) {
+            return Mono.just(decision);
+        }
+        return Mono.fromFuture(accessChecks.checkLookups(decision.getSecurityContext(), access, pathVariables));
+    }
+
+    private static Mono<Void> reject(final ServerHttpResponse response, final AccessDecision decision) {
+        response.setStatusCode(decision.getStatus());
+        response.getHeaders().setContentType(MediaType.TEXT_PLAIN);
+        DataBuffer body = response.bufferFactory().wrap(decision.getMessage().getBytes(StandardCharsets.UTF_8));
+        return response.writeWith(Mono.just(body));
+    }
+}
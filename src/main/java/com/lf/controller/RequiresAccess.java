@@ -0,0 +1,44 @@
+package com.lf.controller;
+
+import com.lf.model.UserRole;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the access checks AccessCheckInterceptor runs before the annotated handler. The handler receives the
+ * caller's SecurityContext as a method argument once every check has passed.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RequiresAccess {
+
+    /**
+     * Role the logged-in user must hold.
+     */
+    UserRole role();
+
+    /**
+     * Path variables that must hold a UUID.
+     */
+    String[] uuidPathVariables() default {};
+
+    /**
+     * Path variable that holds a name rather than a UUID when the useNameParameter request parameter is true.
+     */
+    String nameLookupPathVariable() default "";
+
+    /**
+     * Request parameter that switches nameLookupPathVariable to a name lookup.
+     */
+    String useNameParameter() default "";
+
+    /**
+     * Path variable holding the id of an account that must exist.
+     */
+    String existingAccountPathVariable() default "";
+}
@@ -0,0 +1,44 @@
+package com.lf.controller;
+
+import com.lf.model.SecurityContext;
+import com.lf.service.SecurityContextCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.MethodParameter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.springframework.http.HttpStatus.FORBIDDEN;
+
+/**
+ * Supplies the caller's SecurityContext to handler methods. It is normally the context already decoded by
+ * AccessCheckInterceptor; handlers without {@link RequiresAccess} get it decoded from the header here.
+ */
+@Component
+@Profile("!reactive")
+public class SecurityContextArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Autowired
+    private SecurityContextCache securityContextCache;
+
+    @Override
+    public boolean supportsParameter(final MethodParameter parameter) {
+        return SecurityContext.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(final MethodParameter parameter, final ModelAndViewContainer mavContainer,
+                                  final NativeWebRequest webRequest, final WebDataBinderFactory binderFactory) {
+        Object checked = webRequest.getAttribute(AccessChecks.SECURITY_CONTEXT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (checked != null) {
+            return checked;
+        }
+        return securityContextCache.get(webRequest.getHeader(AccessChecks.SECURITY_CONTEXT_HEADER))
+                .orElseThrow(() -> new ResponseStatusException(FORBIDDEN, "Error constructing xSecurityContext"));
+    }
+}
@@ -1,30 +1,44 @@
 package com.lf.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lf.model.SecurityContext;
 import com.lf.model.User;
+import com.lf.model.UserImportResult;
 import com.lf.model.UserRole;
-import com.lf.util.PatternMatcher;
-import com.lf.service.AccountService;
+import com.lf.repository.Projection;
+import com.lf.service.PasswordHasher;
 import com.lf.service.SecurityService;
+import com.lf.service.UserImporter;
 import com.lf.service.UserService;
 import com.lf.util.ApiUtils;
+import com.lf.util.InvalidContinuationTokenException;
+import com.lf.util.PatternMatcher;
 import io.swagger.annotations.ApiOperation;
-import org.apache.commons.validator.routines.EmailValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
 
 import static org.springframework.http.HttpStatus.*;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/v1/lf/accounts")
 public class UserController {
 
@@ -34,239 +48,168 @@ public class UserController {
     private UserService userService;
 
     @Autowired
-    private AccountService accountService;
+    private SecurityService securityService;
 
     @Autowired
-    private SecurityService securityService;
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Paging paging;
+
+    @Autowired
+    private UserImporter userImporter;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
 
+    @Value("${users.import.max-users:5000}")
+    private int maxImportUsers = 5000;
 
     @RequestMapping(value = "/{account_id}/users", method = RequestMethod.GET)
-    @ApiOperation(value = "Get all Users for the given account id", response = User.class, responseContainer = "List", produces = "application/json")
+    @ApiOperation(value = "Get all Users for the given account id", response = User.class, responseContainer = "List", produces = "application/json,application/x-ndjson")
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_USER, uuidPathVariables = "account_id", existingAccountPathVariable = "account_id")
     public ResponseEntity listUsers(@PathVariable("account_id") final String accountId,
                                    @RequestParam(value = "is-active", required = false) final Boolean isActive,
-                                   @RequestHeader("X-Security-Context") final String xSecurityHeader) {
+                                   @RequestParam(value = Paging.LIMIT_PARAMETER, required = false) final Integer limit,
+                                   @RequestParam(value = Paging.CONTINUATION_PARAMETER, required = false) final String continuation,
+                                   @RequestParam(value = "fields", required = false) final String fields,
+                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false) final String accept) {
         log.debug("Received request to list all users");
 
-        // Build the SecurityContext object
-        Optional<SecurityContext> xSecurityContext = Optional.of(new SecurityContext(xSecurityHeader));
-        if(!xSecurityContext.isPresent()) {
-            log.warn("Error constructing xSecurityContext");
-            return new ResponseEntity<>("Error constructing xSecurityContext", FORBIDDEN);
-        }
-
-        // Check access role
-        if(!xSecurityContext.get().hasRole(UserRole.ROLE_RETRIEVE_USER.value())) {
-            log.warn("User {} account {}, does not have the correct role to interact with this endpoint.", xSecurityContext.get().getUserId(), xSecurityContext.get().getAccountId());
-            return new ResponseEntity<>("User: " +  xSecurityContext.get().getUserId() + "account: " +  xSecurityContext.get().getAccountId() + " does not have the correct role to interact with this endpoint.", FORBIDDEN);
-        }
-
-        // check that account id is a valid uuid
-        if (!accountId.matches(PatternMatcher.UUID_PATTERN)) {
-            log.warn("Invalid account-id {}", accountId);
-            return new ResponseEntity<>("Invalid account-id: " + accountId, BAD_REQUEST);
-        }
-
-        // if Logged-in user is inactive, return 403
-        if (!securityService.isLoggedInUserActive(xSecurityContext.get())) {
-            log.warn("Attempt to access data when the logged on user is inactive");
-            return new ResponseEntity<>("Attempt to access data when the logged on user is inactive", FORBIDDEN);
-        }
-
-        if (!accountService.getAccountById(accountId).isPresent()) {
-            log.warn("account with id {} does not exist", accountId);
-            return new ResponseEntity<>("account with id: " + accountId + " does not exist", NOT_FOUND);
-        }
-
-        Iterable<User> users = (isActive != null) ? userService.list(accountId).stream()
-                .filter(user -> user.getIsActive().equals(isActive.booleanValue()))
-                .collect(Collectors.toList()) : userService.list(accountId);
-        return new ResponseEntity<>(users, OK);
+        // fields=id,name selects only those properties in the query
+        Optional<Projection> projection;
+        try {
+            projection = Projection.parse(fields, User.PROJECTABLE_FIELDS);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), BAD_REQUEST);
+        }
+
+        // A single page of at most limit users when asked for one; follow continuation_token for the next
+        if (paging.isPaged(limit, continuation)) {
+            Optional<String> invalid = paging.validate(limit, continuation);
+            if (invalid.isPresent()) {
+                return new ResponseEntity<>(invalid.get(), BAD_REQUEST);
+            }
+            try {
+                return new ResponseEntity<>(projection.isPresent()
+                        ? userService.list(accountId, isActive, projection.get(), paging.limit(limit), continuation)
+                        : userService.list(accountId, isActive, paging.limit(limit), continuation), OK);
+            } catch (InvalidContinuationTokenException e) {
+                return new ResponseEntity<>(paging.invalidContinuation(continuation), BAD_REQUEST);
+            }
+        }
+
+        // Otherwise written out a page at a time, as a JSON array or as NDJSON when asked for application/x-ndjson
+        Stream<?> users = projection.isPresent() ? userService.stream(accountId, isActive, projection.get()) : userService.stream(accountId, isActive);
+        boolean ndjson = JsonStreaming.wantsNdjson(accept);
+        return ResponseEntity.ok()
+                .contentType(JsonStreaming.contentType(ndjson))
+                .body(JsonStreaming.body(objectMapper, users, ndjson));
     }
 
     // :.+ is used in the case of query parameter use_name = true, this matches usernames with . extensions i.e. alpha@dlvr.com
     @RequestMapping(value = "/{account_id}/users/{id:.+}", method = RequestMethod.GET)
     @ApiOperation(value = "Get User with given user id and account id", response = User.class, produces = "application/json")
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_USER, uuidPathVariables = {"account_id", "id"}, nameLookupPathVariable = "id",
+            useNameParameter = "use_name", existingAccountPathVariable = "account_id")
     public ResponseEntity getById(@PathVariable("account_id") final String accountId,
                                   @PathVariable("id") final String id,
                                   @RequestParam(value = "use_name", required = false) boolean useName,
-                                  @RequestHeader("X-Security-Context") final String xSecurityHeader) {
+                                  @RequestParam(value = "fields", required = false) final String fields) {
         log.debug("Received request to retrieve User by id");
 
-        // Build the SecurityContext object
-        Optional<SecurityContext> xSecurityContext = Optional.of(new SecurityContext(xSecurityHeader));
-        if(!xSecurityContext.isPresent()) {
-            log.warn("Error constructing xSecurityContext");
-            return new ResponseEntity<>("Error constructing xSecurityContext", FORBIDDEN);
-        }
-
-        // Check access role
-        if(!xSecurityContext.get().hasRole(UserRole.ROLE_RETRIEVE_USER.value())) {
-            log.warn("User {} account {}, does not have the correct role to interact with this endpoint.", xSecurityContext.get().getUserId(), xSecurityContext.get().getAccountId());
-            return new ResponseEntity<>("User: " +  xSecurityContext.get().getUserId() + "account: " +  xSecurityContext.get().getAccountId() + " does not have the correct role to interact with this endpoint.", FORBIDDEN);
-        }
-
-        // check that account id is a valid uuid
-        if (!accountId.matches(PatternMatcher.UUID_PATTERN)) {
-            log.warn("Invalid account-id {}", accountId);
-            return new ResponseEntity<>("Invalid account-id: " + accountId, BAD_REQUEST);
-        }
-
-        // if Logged-in user is inactive, return 403
-        if (!securityService.isLoggedInUserActive(xSecurityContext.get())) {
-            log.warn("Attempt to access data when the logged on user is inactive");
-            return new ResponseEntity<>("Attempt to access data when the logged on user is inactive", FORBIDDEN);
-        }
-
-        // If looking up by name, make sure the UUID is valid
-        if (!id.matches(PatternMatcher.UUID_PATTERN) && !useName) {
-            log.warn("Invalid user-id {}", id);
-            return new ResponseEntity<>("Invalid user-id: " + id, BAD_REQUEST);
+        Optional<Projection> projection;
+        try {
+            projection = Projection.parse(fields, User.PROJECTABLE_FIELDS);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), BAD_REQUEST);
         }
 
-        if (!accountService.getAccountById(accountId).isPresent()) {
-            log.warn("account with id {} does not exist", accountId);
-            return new ResponseEntity<>("account with id: " + accountId + " does not exist", NOT_FOUND);
-        }
-
-        Optional<User> user = (useName) ? userService.getUserByUsername(id) : userService.getUserById(id);
-        return user.isPresent() ? new ResponseEntity<>(user.get(), OK) : new ResponseEntity<>((useName) ? "user with name: " + id + " not found" : "user with id: " + id + " not found", NOT_FOUND);
+        Optional<User> user = (useName) ? userService.getUserByUsername(id) : userService.getUserById(accountId, id);
+        return user.isPresent() ? new ResponseEntity<>(projection.isPresent() ? projection.get().apply(objectMapper.valueToTree(user.get())) : user.get(), OK) : new ResponseEntity<>((useName) ? "user with name: " + id + " not found" : "user with id: " + id + " not found", NOT_FOUND);
     }
 
     @RequestMapping(value = "/{account_id}/users/{id}/userRoles", method = RequestMethod.GET)
     @ApiOperation(value = "Get User with given user id and account id and provide their roles", response = User.class, produces = "application/json")
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_USER, uuidPathVariables = "account_id", existingAccountPathVariable = "account_id")
     public ResponseEntity getUserRoles(@PathVariable("account_id") final String accountId,
-                                       @PathVariable("id") final String id,
-                                       @RequestHeader("X-Security-Context") final String xSecurityHeader) {
+                                       @PathVariable("id") final String id) {
         log.debug("Received request to retrieve User by id");
 
-        // Build the SecurityContext object
-        Optional<SecurityContext> xSecurityContext = Optional.of(new SecurityContext(xSecurityHeader));
-        if(!xSecurityContext.isPresent()) {
-            log.warn("Error constructing xSecurityContext");
-            return new ResponseEntity<>("Error constructing xSecurityContext", FORBIDDEN);
-        }
-
-        // Check access role
-        if(!xSecurityContext.get().hasRole(UserRole.ROLE_RETRIEVE_USER.value())) {
-            log.warn("User {} account {}, does not have the correct role to interact with this endpoint.", xSecurityContext.get().getUserId(), xSecurityContext.get().getAccountId());
-            return new ResponseEntity<>("User: " +  xSecurityContext.get().getUserId() + "account: " +  xSecurityContext.get().getAccountId() + " does not have the correct role to interact with this endpoint.", FORBIDDEN);
-        }
-
-        // check that account id is a valid uuid
-        if (!accountId.matches(PatternMatcher.UUID_PATTERN)) {
-            log.warn("Invalid account-id {}", accountId);
-            return new ResponseEntity<>("Invalid account-id: " + accountId, BAD_REQUEST);
-        }
-
-        // if Logged-in user is inactive, return 403
-        if (!securityService.isLoggedInUserActive(xSecurityContext.get())) {
-            log.warn("Attempt to access data when the logged on user is inactive");
-            return new ResponseEntity<>("Attempt to access data when the logged on user is inactive", FORBIDDEN);
-        }
-
-        if (!accountService.getAccountById(accountId).isPresent()) {
-            log.warn("account with id {} does not exist", accountId);
-            return new ResponseEntity<>("account with id: " + accountId + " does not exist", NOT_FOUND);
-        }
-
-        Optional<List<UserRole>> userRoles = userService.getUserRolesById(id);
+        Optional<List<UserRole>> userRoles = userService.getUserRolesById(accountId, id);
         return userRoles.isPresent() ? new ResponseEntity<>(userRoles.get(), OK) : new ResponseEntity<>("user with id: " + id + " does not have roles associated with it", NOT_FOUND);
     }
 
     @RequestMapping(value = "/{account_id}/users", method = RequestMethod.POST)
     @ApiOperation(value = "Create User with given payload for the given account id", response = User.class, produces = "application/json")
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_USER, uuidPathVariables = "account_id", existingAccountPathVariable = "account_id")
     public ResponseEntity createUser(@RequestBody @Valid final User user,
                                      @PathVariable("account_id") final String accountId,
-                                     @RequestHeader("X-Security-Context") final String xSecurityHeader) {
+                                     final SecurityContext securityContext) {
         log.debug("Received request to create the {}", user);
 
-        // Build the SecurityContext object
-        Optional<SecurityContext> xSecurityContext = Optional.of(new SecurityContext(xSecurityHeader));
-        if(!xSecurityContext.isPresent()) {
-            log.warn("Error constructing xSecurityContext");
-            return new ResponseEntity<>("Error constructing xSecurityContext", FORBIDDEN);
-        }
-
-        // Check access role
-        if(!xSecurityContext.get().hasRole(UserRole.ROLE_RETRIEVE_USER.value())) {
-            log.warn("User {} account {}, does not have the correct role to interact with this endpoint.", xSecurityContext.get().getUserId(), xSecurityContext.get().getAccountId());
-            return new ResponseEntity<>("User: " +  xSecurityContext.get().getUserId() + "account: " +  xSecurityContext.get().getAccountId() + " does not have the correct role to interact with this endpoint.", FORBIDDEN);
-        }
-
-        // check that account id is a valid uuid
-        if (!accountId.matches(PatternMatcher.UUID_PATTERN)) {
-            log.warn("Invalid account-id {}", accountId);
-            return new ResponseEntity<>("Invalid account-id: " + accountId, BAD_REQUEST);
-        }
-
-        // if Logged-in user is inactive, return 403
-        if (!securityService.isLoggedInUserActive(xSecurityContext.get())) {
-            log.warn("Attempt to access data when the logged on user is inactive");
-            return new ResponseEntity<>("Attempt to access data when the logged on user is inactive", FORBIDDEN);
-        }
-
-        if (!accountService.getAccountById(accountId).isPresent()) {
-            log.warn("account with id {} does not exist", accountId);
-            return new ResponseEntity<>("account with id: " + accountId + " does not exist", NOT_FOUND);
-        }
-
-        if (!ApiUtils.isNullOrEmpty(user.getUsername()) && !EmailValidator.getInstance().isValid(user.getUsername())) {
+        if (!ApiUtils.isNullOrEmpty(user.getUsername()) && !PatternMatcher.isEmail(user.getUsername())) {
             return new ResponseEntity<>("username: " + user.getUsername() + "is not a valid email address", BAD_REQUEST);
         }
 
-        user.setCreatedBy(securityService.getUserNameForUserId(xSecurityContext.get()));   // Set to logged in user
+        user.setCreatedBy(securityService.getUserNameForUserId(securityContext));   // Set to logged in user
 
         if (!ApiUtils.isNullOrEmpty(user.getPassword())) {   // store password as BCrypt
-            user.setPassword(new BCryptPasswordEncoder().encode(user.getPassword()));
+            try {
+                user.setPassword(passwordHasher.hash(user.getPassword()));
+            } catch (RejectedExecutionException e) {
+                return passwordHashingSaturated();
+            }
         }
 
         Optional<User> newUser = userService.save(accountId, user);
         return newUser.isPresent() ? new ResponseEntity<>(newUser.get(), CREATED) : new ResponseEntity<>("user with username: " + user.getUsername() + " already exists", CONFLICT);
     }
 
+    @RequestMapping(value = "/{account_id}/users/import", method = RequestMethod.POST,
+            consumes = {MediaType.APPLICATION_JSON_VALUE, JsonStreaming.APPLICATION_NDJSON_VALUE})
+    @ApiOperation(value = "Create Users in bulk from a JSON array or NDJSON of user payloads for the given account id", response = UserImportResult.class, responseContainer = "List", produces = "application/json")
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_USER, uuidPathVariables = "account_id", existingAccountPathVariable = "account_id")
+    public ResponseEntity importUsers(@PathVariable("account_id") final String accountId,
+                                      final InputStream body,
+                                      final SecurityContext securityContext) throws IOException {
+        log.debug("Received request to import users");
+
+        // A JSON array and a sequence of root-level values (NDJSON) are both read as a sequence of users
+        List<User> users = new ArrayList<>();
+        try (MappingIterator<User> iterator = objectMapper.readerFor(User.class).readValues(body)) {
+            while (iterator.hasNextValue()) {
+                if (users.size() == maxImportUsers) {
+                    return new ResponseEntity<>("at most " + maxImportUsers + " users can be imported at once", PAYLOAD_TOO_LARGE);
+                }
+                users.add(iterator.nextValue());
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("Unreadable user import: {}", e.getOriginalMessage());
+            return new ResponseEntity<>("Invalid users payload: " + e.getOriginalMessage(), BAD_REQUEST);
+        }
+
+        String createdBy = securityService.getUserNameForUserId(securityContext);   // Set to logged in user
+        return new ResponseEntity<>(userImporter.importUsers(accountId, users, createdBy), OK);
+    }
+
     @RequestMapping(value = "/{account_id}/users/{id}", method = RequestMethod.PUT)
     @ApiOperation(value = "Update User with given id", response = User.class, produces = "application/json")
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_USER, uuidPathVariables = "account_id", existingAccountPathVariable = "account_id")
     public ResponseEntity updateUser(@RequestBody final User user, @PathVariable("account_id") final String accountId,
-                                     @PathVariable("id") final String id,
-                                     @RequestHeader("X-Security-Context") final String xSecurityHeader) {
+                                     @PathVariable("id") final String id) {
         log.debug("Received request to update the {}", user);
 
-        // Build the SecurityContext object
-        Optional<SecurityContext> xSecurityContext = Optional.of(new SecurityContext(xSecurityHeader));
-        if(!xSecurityContext.isPresent()) {
-            log.warn("Error constructing xSecurityContext");
-            return new ResponseEntity<>("Error constructing xSecurityContext", FORBIDDEN);
-        }
-
-        // Check access role
-        if(!xSecurityContext.get().hasRole(UserRole.ROLE_RETRIEVE_USER.value())) {
-            log.warn("User {} account {}, does not have the correct role to interact with this endpoint.", xSecurityContext.get().getUserId(), xSecurityContext.get().getAccountId());
-            return new ResponseEntity<>("User: " +  xSecurityContext.get().getUserId() + "account: " +  xSecurityContext.get().getAccountId() + " does not have the correct role to interact with this endpoint.", FORBIDDEN);
-        }
-
-        // check that account id is a valid uuid
-        if (!accountId.matches(PatternMatcher.UUID_PATTERN)) {
-            log.warn("Invalid account-id {}", accountId);
-            return new ResponseEntity<>("Invalid account-id: " + accountId, BAD_REQUEST);
-        }
-
-        // if Logged-in user is inactive, return 403
-        if (!securityService.isLoggedInUserActive(xSecurityContext.get())) {
-            log.warn("Attempt to access data when the logged on user is inactive");
-            return new ResponseEntity<>("Attempt to access data when the logged on user is inactive", FORBIDDEN);
-        }
-
-        if (!accountService.getAccountById(accountId).isPresent()) {
-            log.warn("account with id {} does not exist", accountId);
-            return new ResponseEntity<>("account with id: " + accountId + " does not exist", NOT_FOUND);
-        }
-
-        if (!ApiUtils.isNullOrEmpty(user.getUsername()) && !EmailValidator.getInstance().isValid(user.getUsername())) {
+        if (!ApiUtils.isNullOrEmpty(user.getUsername()) && !PatternMatcher.isEmail(user.getUsername())) {
             return new ResponseEntity<>("username: " + user.getUsername() + "is not a valid email address", BAD_REQUEST);
         }
 
         if (!ApiUtils.isNullOrEmpty(user.getPassword())) {   // store password as BCrypt
-            user.setPassword(new BCryptPasswordEncoder().encode(user.getPassword()));
+            try {
+                user.setPassword(passwordHasher.hash(user.getPassword()));
+            } catch (RejectedExecutionException e) {
+                return passwordHashingSaturated();
+            }
         }
 
         Optional<User> updatedUser = userService.updateWithOverwrite(accountId,id, user);
@@ -275,44 +218,19 @@ public class UserController {
 
     @RequestMapping(value = "/{account_id}/users/{id}", method = RequestMethod.DELETE)
     @ApiOperation(value = "Delete User with given id", produces = "application/json")
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_USER, uuidPathVariables = "account_id", existingAccountPathVariable = "account_id")
     public ResponseEntity deleteUser(@PathVariable("account_id") final String accountId,
-                                     @PathVariable("id") final String id,
-                                     @RequestHeader("X-Security-Context") final String xSecurityHeader) {
+                                     @PathVariable("id") final String id) {
         // Mark the user as inactive instead of physical deletion
         log.debug("Received request to delete user with id {}", id);
 
-        // Build the SecurityContext object
-        Optional<SecurityContext> xSecurityContext = Optional.of(new SecurityContext(xSecurityHeader));
-        if(!xSecurityContext.isPresent()) {
-            log.warn("Error constructing xSecurityContext");
-            return new ResponseEntity<>("Error constructing xSecurityContext", FORBIDDEN);
-        }
-
-        // Check access role
-        if(!xSecurityContext.get().hasRole(UserRole.ROLE_RETRIEVE_USER.value())) {
-            log.warn("User {} account {}, does not have the correct role to interact with this endpoint.", xSecurityContext.get().getUserId(), xSecurityContext.get().getAccountId());
-            return new ResponseEntity<>("User: " +  xSecurityContext.get().getUserId() + "account: " +  xSecurityContext.get().getAccountId() + " does not have the correct role to interact with this endpoint.", FORBIDDEN);
-        }
-
-        // check that account id is a valid uuid
-        if (!accountId.matches(PatternMatcher.UUID_PATTERN)) {
-            log.warn("Invalid account-id {}", accountId);
-            return new ResponseEntity<>("Invalid account-id: " + accountId, BAD_REQUEST);
-        }
-
-        // if Logged-in user is inactive, return 403
-        if (!securityService.isLoggedInUserActive(xSecurityContext.get())) {
-            log.warn("Attempt to access data when the logged on user is inactive");
-            return new ResponseEntity<>("Attempt to access data when the logged on user is inactive", FORBIDDEN);
-        }
-
-        if (!accountService.getAccountById(accountId).isPresent()) {
-            log.warn("account with id {} does not exist", accountId);
-            return new ResponseEntity<>("account with id: " + accountId + " does not exist", NOT_FOUND);
-        }
-
         Optional<User> deletedUser = userService.delete(accountId, id);
         return deletedUser.isPresent() ? new ResponseEntity<>(deletedUser.get(), OK) : new ResponseEntity<>("user with id: " + id + " not found", NOT_FOUND);
     }
 
+    private static ResponseEntity<String> passwordHashingSaturated() {
+        return ResponseEntity.status(TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Too many password changes in progress, retry shortly");
+    }
 }
@@ -0,0 +1,92 @@
+package com.lf.controller.reactive;
+
+import com.lf.controller.AccessChecks;
+import com.lf.controller.RequiresAccess;
+import com.lf.model.Account;
+import com.lf.model.SecurityContext;
+import com.lf.model.UserRole;
+import com.lf.service.AccountHierarchyCycleException;
+import com.lf.service.AccountHierarchyLimitException;
+import com.lf.service.reactive.ReactiveAccountService;
+import com.lf.service.SecurityService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+
+import static org.springframework.http.HttpStatus.*;
+
+@RestController
+@Profile("reactive")
+@RequestMapping("/v1/lf")
+public class ReactiveAccountController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveAccountController.class);
+
+    @Autowired
+    private ReactiveAccountService accountService;
+
+    @Autowired
+    private SecurityService securityService;
+
+    @RequestMapping(value = "/accounts/{account_id}", method = RequestMethod.GET)
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_ACCOUNT, uuidPathVariables = "account_id", nameLookupPathVariable = "account_id", useNameParameter = "use-name")
+    public Mono<ResponseEntity<Object>> getById(@PathVariable("account_id") final String id,
+                                                @RequestParam(value = "use-name", required = false) final boolean useName) {
+        log.debug("Received request to retrieve account by id: " + id);
+
+        Mono<Account> account = (useName) ? accountService.getAccountByName(id) : accountService.getAccountById(id);
+        return account.map(found -> new ResponseEntity<Object>(found, OK))
+                .defaultIfEmpty(new ResponseEntity<>((useName) ? "account with name : " + id + " node found" : "account with id: " + id + " not found", NOT_FOUND));
+    }
+
+    @RequestMapping(value = "/accounts", method = RequestMethod.POST)
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_ACCOUNT)
+    public Mono<ResponseEntity<Object>> createAccount(@RequestBody @Valid final Account account,
+                                                      @RequestAttribute(AccessChecks.SECURITY_CONTEXT_ATTRIBUTE) final SecurityContext securityContext) {
+        log.debug("Received request to create the {}", account);
+
+        // The logged-in principal is cached, but may still need a Cosmos read
+        return Mono.fromFuture(securityService.getUserNameForUserIdAsync(securityContext))
+                .flatMap(createdBy -> {
+                    account.setCreatedBy(createdBy);   // Set to logged in user
+                    return accountService.save(account);
+                })
+                .map(saved -> new ResponseEntity<Object>(saved, CREATED))
+                .defaultIfEmpty(new ResponseEntity<>("Something went wrong", BAD_REQUEST))
+                .onErrorResume(AccountHierarchyCycleException.class,
+                        e -> Mono.just(new ResponseEntity<>(e.getMessage(), CONFLICT)))
+                .onErrorResume(AccountHierarchyLimitException.class,
+                        e -> Mono.just(new ResponseEntity<>(e.getMessage(), UNPROCESSABLE_ENTITY)));
+    }
+
+    @RequestMapping(value = "/accounts/{account_id}", method = RequestMethod.PUT)
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_ACCOUNT, uuidPathVariables = "account_id")
+    public Mono<ResponseEntity<Object>> updateAccount(@RequestBody final Account newAccountData,
+                                                      @PathVariable("account_id") final String id) {
+        log.debug("Received request to update the {}", newAccountData);
+
+        return accountService.update(id, newAccountData)
+                .map(updated -> new ResponseEntity<Object>(updated, OK))
+                .defaultIfEmpty(new ResponseEntity<>("account with id: " + id + " not found", NOT_FOUND))
+                .onErrorResume(AccountHierarchyCycleException.class,
+                        e -> Mono.just(new ResponseEntity<>(e.getMessage(), CONFLICT)))
+                .onErrorResume(AccountHierarchyLimitException.class,
+                        e -> Mono.just(new ResponseEntity<>(e.getMessage(), UNPROCESSABLE_ENTITY)));
+    }
+
+    @RequestMapping(value = "/accounts/{account_id}", method = RequestMethod.DELETE)
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_ACCOUNT, uuidPathVariables = "account_id")
+    public Mono<ResponseEntity<Object>> deleteAccount(@PathVariable("account_id") final String id) {
+        log.debug("Received request to delete account with id {}", id);
+
+        return accountService.delete(id)
+                .map(deleted -> new ResponseEntity<Object>(deleted, OK))
+                .defaultIfEmpty(new ResponseEntity<>("account with id: " + id + " not found", NOT_FOUND));
+    }
+}
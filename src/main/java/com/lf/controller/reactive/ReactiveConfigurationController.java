@@ -0,0 +1,114 @@
+package com.lf.controller.reactive;
+
+import com.lf.controller.AccessChecks;
+import com.lf.controller.RequiresAccess;
+import com.lf.model.Configuration;
+import com.lf.model.SecurityContext;
+import com.lf.model.UserRole;
+import com.lf.service.SecurityService;
+import com.lf.service.reactive.ReactiveConfigurationService;
+import com.lf.util.ApiUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.util.UUID;
+
+import static org.springframework.http.HttpStatus.*;
+
+@RestController
+@Profile("reactive")
+@RequestMapping("/v1/lf/accounts")
+public class ReactiveConfigurationController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveConfigurationController.class);
+
+    @Autowired
+    private ReactiveConfigurationService configurationService;
+
+    @Autowired
+    private SecurityService securityService;
+
+    @RequestMapping(value = "/{account_id}/configurations", method = RequestMethod.GET)
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_CONFIGURATION, uuidPathVariables = "account_id", existingAccountPathVariable = "account_id")
+    public Flux<Configuration> listConfigurations(
+            @PathVariable("account_id") final String accountId,
+            @RequestParam(value = "is-active", required = false) final Boolean isActive) {
+        log.debug( "Received request to list all configurations");
+
+        return configurationService.list(accountId, isActive);
+    }
+
+    @RequestMapping(value = "/{account_id}/configurations/{configuration_id}", method = RequestMethod.GET)
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_CONFIGURATION, uuidPathVariables = "account_id", existingAccountPathVariable = "account_id")
+    public Mono<ResponseEntity<Object>> getById(
+            @PathVariable("account_id") final String accountId,
+            @PathVariable("configuration_id") final String id) {
+        log.debug("Received request to retrieve configuration by id: " + id);
+
+        return configurationService.getConfigurationById(accountId, id)
+                .map(configuration -> new ResponseEntity<Object>(configuration, OK))
+                .defaultIfEmpty(new ResponseEntity<>("configuration with id: " + id + " not found", NOT_FOUND));
+    }
+
+    @RequestMapping(value = "/{account_id}/configurations", method = RequestMethod.POST)
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_CONFIGURATION, uuidPathVariables = "account_id", existingAccountPathVariable = "account_id")
+    public Mono<ResponseEntity<Object>> createConfiguration(
+            @RequestBody @Valid final Configuration configuration,
+            @PathVariable("account_id") final String accountId,
+            @RequestAttribute(AccessChecks.SECURITY_CONTEXT_ATTRIBUTE) final SecurityContext securityContext) {
+        log.debug("Received request to create configuration {}", configuration);
+
+        //Cosmos does not auto-generate ids - set id value if it is not supplied in payload
+        if (ApiUtils.isNullOrEmpty(configuration.getId())) {
+            configuration.setId(UUID.randomUUID().toString());
+        }
+
+        return Mono.fromFuture(securityService.getUserNameForUserIdAsync(securityContext))
+                .flatMap(loggedInUser -> {
+                    configuration.setCreatedBy(loggedInUser);     // Set to logged in user
+                    configuration.setModifiedBy(loggedInUser);    // Set to logged in user
+                    return configurationService.save(accountId, configuration);
+                })
+                .map(cfg -> new ResponseEntity<Object>(cfg, CREATED))
+                .defaultIfEmpty(new ResponseEntity<>(BAD_REQUEST));
+    }
+
+    @RequestMapping(value = "/{account_id}/configurations/{configuration_id}", method = RequestMethod.PUT)
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_CONFIGURATION, uuidPathVariables = "account_id", existingAccountPathVariable = "account_id")
+    public Mono<ResponseEntity<Object>> updateConfiguration(
+            @RequestBody final Configuration configuration,
+            @PathVariable("account_id") final String accountId,
+            @PathVariable("configuration_id") final String configurationId,
+            @RequestParam(value = "is-rollback", required = false) final boolean isRollback,
+            @RequestAttribute(AccessChecks.SECURITY_CONTEXT_ATTRIBUTE) final SecurityContext securityContext) {
+        log.debug("Received request to update the {}", configuration);
+
+        return Mono.fromFuture(securityService.getUserNameForUserIdAsync(securityContext))
+                .flatMap(loggedInUser -> {
+                    configuration.setModifiedBy(loggedInUser);   // Set to logged in user
+                    return configurationService.update(accountId, configurationId, configuration);
+                })
+                .map(updatedConfig -> new ResponseEntity<Object>(updatedConfig, OK))
+                .defaultIfEmpty(new ResponseEntity<>("Configuration with id: " + configurationId + " does not exist", NOT_FOUND));
+    }
+
+    @RequestMapping(value = "/{account_id}/configurations/{configuration_id}", method = RequestMethod.DELETE)
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_CONFIGURATION, uuidPathVariables = "account_id", existingAccountPathVariable = "account_id")
+    public Mono<ResponseEntity<Object>> deleteConfiguration(
+            @PathVariable("account_id") final String accountId,
+            @PathVariable("configuration_id") final String configurationId,
+            @RequestParam(value = "use-name", required = false) final boolean useName) {
+        log.debug("Received request to delete configuration with id {}", configurationId);
+
+        return configurationService.delete(accountId, configurationId, useName)
+                .map(cfg -> new ResponseEntity<Object>(cfg, OK))
+                .defaultIfEmpty(new ResponseEntity<>(NOT_FOUND));
+    }
+}
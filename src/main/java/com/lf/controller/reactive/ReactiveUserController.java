@@ -0,0 +1,142 @@
+package com.lf.controller.reactive;
+
+import com.lf.controller.AccessChecks;
+import com.lf.controller.RequiresAccess;
+import com.lf.model.SecurityContext;
+import com.lf.model.User;
+import com.lf.model.UserRole;
+import com.lf.service.PasswordHasher;
+import com.lf.service.SecurityService;
+import com.lf.service.reactive.ReactiveUserService;
+import com.lf.util.ApiUtils;
+import com.lf.util.PatternMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.springframework.http.HttpStatus.*;
+
+@RestController
+@Profile("reactive")
+@RequestMapping("/v1/lf/accounts")
+public class ReactiveUserController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveUserController.class);
+
+    @Autowired
+    private ReactiveUserService userService;
+
+    @Autowired
+    private SecurityService securityService;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @RequestMapping(value = "/{account_id}/users", method = RequestMethod.GET)
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_USER, uuidPathVariables = "account_id", existingAccountPathVariable = "account_id")
+    public Flux<User> listUsers(@PathVariable("account_id") final String accountId,
+                                @RequestParam(value = "is-active", required = false) final Boolean isActive) {
+        log.debug("Received request to list all users");
+
+        return userService.list(accountId, isActive);
+    }
+
+    // :.+ is used in the case of query parameter use_name = true, this matches usernames with . extensions i.e. alpha@dlvr.com
+    @RequestMapping(value = "/{account_id}/users/{id:.+}", method = RequestMethod.GET)
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_USER, uuidPathVariables = {"account_id", "id"}, nameLookupPathVariable = "id",
+            useNameParameter = "use_name", existingAccountPathVariable = "account_id")
+    public Mono<ResponseEntity<Object>> getById(@PathVariable("account_id") final String accountId,
+                                                @PathVariable("id") final String id,
+                                                @RequestParam(value = "use_name", required = false) boolean useName) {
+        log.debug("Received request to retrieve User by id");
+
+        Mono<User> user = (useName) ? userService.getUserByUsername(id) : userService.getUserById(accountId, id);
+        return user.map(found -> new ResponseEntity<Object>(found, OK))
+                .defaultIfEmpty(new ResponseEntity<>((useName) ? "user with name: " + id + " not found" : "user with id: " + id + " not found", NOT_FOUND));
+    }
+
+    @RequestMapping(value = "/{account_id}/users/{id}/userRoles", method = RequestMethod.GET)
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_USER, uuidPathVariables = "account_id", existingAccountPathVariable = "account_id")
+    public Mono<ResponseEntity<Object>> getUserRoles(@PathVariable("account_id") final String accountId,
+                                                     @PathVariable("id") final String id) {
+        log.debug("Received request to retrieve User by id");
+
+        return userService.getUserRolesById(accountId, id)
+                .map(userRoles -> new ResponseEntity<Object>(userRoles, OK))
+                .defaultIfEmpty(new ResponseEntity<>("user with id: " + id + " does not have roles associated with it", NOT_FOUND));
+    }
+
+    @RequestMapping(value = "/{account_id}/users", method = RequestMethod.POST)
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_USER, uuidPathVariables = "account_id", existingAccountPathVariable = "account_id")
+    public Mono<ResponseEntity<Object>> createUser(@RequestBody @Valid final User user,
+                                                   @PathVariable("account_id") final String accountId,
+                                                   @RequestAttribute(AccessChecks.SECURITY_CONTEXT_ATTRIBUTE) final SecurityContext securityContext) {
+        log.debug("Received request to create the {}", user);
+
+        if (!ApiUtils.isNullOrEmpty(user.getUsername()) && !PatternMatcher.isEmail(user.getUsername())) {
+            return Mono.just(new ResponseEntity<>("username: " + user.getUsername() + "is not a valid email address", BAD_REQUEST));
+        }
+
+        return Mono.fromFuture(securityService.getUserNameForUserIdAsync(securityContext))
+                .doOnNext(user::setCreatedBy)   // Set to logged in user
+                .then(hashPassword(user))
+                .then(userService.save(accountId, user))
+                .map(newUser -> new ResponseEntity<Object>(newUser, CREATED))
+                .defaultIfEmpty(new ResponseEntity<>("user with username: " + user.getUsername() + " already exists", CONFLICT))
+                .onErrorResume(RejectedExecutionException.class, e -> Mono.just(passwordHashingSaturated()));
+    }
+
+    @RequestMapping(value = "/{account_id}/users/{id}", method = RequestMethod.PUT)
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_USER, uuidPathVariables = "account_id", existingAccountPathVariable = "account_id")
+    public Mono<ResponseEntity<Object>> updateUser(@RequestBody final User user, @PathVariable("account_id") final String accountId,
+                                                   @PathVariable("id") final String id) {
+        log.debug("Received request to update the {}", user);
+
+        if (!ApiUtils.isNullOrEmpty(user.getUsername()) && !PatternMatcher.isEmail(user.getUsername())) {
+            return Mono.just(new ResponseEntity<>("username: " + user.getUsername() + "is not a valid email address", BAD_REQUEST));
+        }
+
+        return hashPassword(user)
+                .then(userService.updateWithOverwrite(accountId, id, user))
+                .map(updatedUser -> new ResponseEntity<Object>(updatedUser, OK))
+                .defaultIfEmpty(new ResponseEntity<>("user with id: " + id + " not found", NOT_FOUND))
+                .onErrorResume(RejectedExecutionException.class, e -> Mono.just(passwordHashingSaturated()));
+    }
+
+    @RequestMapping(value = "/{account_id}/users/{id}", method = RequestMethod.DELETE)
+    @RequiresAccess(role = UserRole.ROLE_RETRIEVE_USER, uuidPathVariables = "account_id", existingAccountPathVariable = "account_id")
+    public Mono<ResponseEntity<Object>> deleteUser(@PathVariable("account_id") final String accountId,
+                                                   @PathVariable("id") final String id) {
+        // Mark the user as inactive instead of physical deletion
+        log.debug("Received request to delete user with id {}", id);
+
+        return userService.delete(accountId, id)
+                .map(deletedUser -> new ResponseEntity<Object>(deletedUser, OK))
+                .defaultIfEmpty(new ResponseEntity<>("user with id: " + id + " not found", NOT_FOUND));
+    }
+
+    // store password as BCrypt; hashing is deliberately slow, so it runs on the hashing pool, off the event loop
+    private Mono<Void> hashPassword(final User user) {
+        if (ApiUtils.isNullOrEmpty(user.getPassword())) {
+            return Mono.empty();
+        }
+        return Mono.defer(() -> Mono.fromFuture(passwordHasher.hashAsync(user.getPassword())))
+                .doOnNext(user::setPassword)
+                .then();
+    }
+
+    private static ResponseEntity<Object> passwordHashingSaturated() {
+        return ResponseEntity.status(TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Too many password changes in progress, retry shortly");
+    }
+}
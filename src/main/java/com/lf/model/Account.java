@@ -1,23 +1,33 @@
 package com.lf.model;
 
-import com.microsoft.azure.spring.data.cosmosdb.core.mapping.Document;
-import com.microsoft.azure.spring.data.cosmosdb.core.mapping.PartitionKey;
+import com.azure.spring.data.cosmos.core.mapping.Container;
+import com.azure.spring.data.cosmos.core.mapping.PartitionKey;
 
 import org.springframework.data.annotation.Id;
 
-import com.lf.util.PatternMatcher;
+import com.lf.util.Uuid;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableSet;
 
 import javax.validation.constraints.NotNull;
-import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Set;
 
+// Partitioned by id, as accounts are read by id; the container keeps the name the entity always had
 @JsonInclude(Include.NON_NULL)
+@Container(containerName = Account.CONTAINER_NAME)
 public class Account {
+    public static final String CONTAINER_NAME = "Account";
+
+    // The properties fields= may select
+    public static final Set<String> PROJECTABLE_FIELDS = ImmutableSet.of(
+            "id", "parent_account_id", "ancestor_ids", "name", "description", "created_by", "created_date", "is_active");
 
     @Id
     @PartitionKey
@@ -29,13 +39,16 @@ public class Account {
     private String description;
 
     @Size(min=1)
-    @Pattern(regexp = PatternMatcher.UUID_PATTERN, message = "UUIDFormatError")
+    @Uuid(message = "UUIDFormatError")
     private String parentAccountId;
 
     @NotNull(message = "name")
     @Size(min = 1)
     private String name;
 
+    // Materialized path of ancestor ids, root first, maintained by AccountServiceImpl
+    private List<String> ancestorIds;
+
     @JsonProperty("id")
     public String getId() {
         return id;
@@ -52,6 +65,14 @@ public class Account {
         this.parentAccountId = parentAccountId;
     }
 
+    @JsonProperty("ancestor_ids")
+    public List<String> getAncestorIds() {
+        return ancestorIds;
+    }
+    public void setAncestorIds(List<String> ancestorIds) {
+        this.ancestorIds = ancestorIds;
+    }
+
     @JsonProperty("name")
     public String getName() {
         return name;
@@ -116,6 +137,16 @@ public class Account {
         this.createdBy = createdBy;
         this.createdDate = createdDate;
     }
+
+    // Copies the ancestor id list and created date too, so changes to either account are not seen by the other
+    public Account copy() {
+        Account copy = new Account(name, parentAccountId, description, createdBy,
+                createdDate == null ? null : new Date(createdDate.getTime()));
+        copy.id = id;
+        copy.isActive = isActive;
+        copy.ancestorIds = ancestorIds == null ? null : new ArrayList<>(ancestorIds);
+        return copy;
+    }
     
     @Override
     public String toString() {
@@ -123,6 +154,7 @@ public class Account {
                 .add("id", id)
                 .add("name", name)
                 .add("parent Account Id", parentAccountId)
+                .add("ancestor Ids", ancestorIds)
                 .add("description", description)
                 .add("Created By", createdBy)
                 .add("Created Date", createdDate)
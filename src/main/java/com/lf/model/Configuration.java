@@ -1,10 +1,12 @@
 package com.lf.model;
 
-import com.microsoft.azure.spring.data.cosmosdb.core.mapping.PartitionKey;
+import com.azure.spring.data.cosmos.core.mapping.Container;
+import com.azure.spring.data.cosmos.core.mapping.PartitionKey;
 
 import org.springframework.data.annotation.Id;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableSet;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
 import javax.validation.constraints.Min;
@@ -12,12 +14,23 @@ import javax.validation.constraints.NotNull;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
+// Partitioned by account, so listing an account's configurations reads a single partition
+@Container(containerName = Configuration.CONTAINER_NAME)
 public class Configuration {
+    public static final String CONTAINER_NAME = "configurations_by_account";
+
+    // The properties fields= may select
+    public static final Set<String> PROJECTABLE_FIELDS = ImmutableSet.of(
+            "id", "account_id", "name", "configuration_enabled", "configuration_properties",
+            "created_by", "created_date", "last_modified_by", "last_modified_date");
 
     @Id
-    @PartitionKey
     private String id;
+
+    @PartitionKey
+    @JsonProperty("account_id")  // on the field as well, so the partition key path matches the stored property
     private String accountId;   // Every configuration is linked to an Account
     private String name;
     private Boolean configurationEnabled = true;
@@ -0,0 +1,42 @@
+package com.lf.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.MoreObjects;
+
+import java.util.List;
+
+/**
+ * One page of a list endpoint. The continuation token is opaque to clients: pass it back to get the next page. It is
+ * absent on the last page. A page may hold fewer items than the requested limit even when more pages follow.
+ */
+@JsonInclude(Include.NON_NULL)
+public class PagedResult<T> {
+
+    private final List<T> items;
+    private final String continuationToken;
+
+    public PagedResult(final List<T> items, final String continuationToken) {
+        this.items = items;
+        this.continuationToken = continuationToken;
+    }
+
+    @JsonProperty("items")
+    public List<T> getItems() {
+        return items;
+    }
+
+    @JsonProperty("continuation_token")
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("items", items.size())
+                .add("continuation token", continuationToken)
+                .toString();
+    }
+}
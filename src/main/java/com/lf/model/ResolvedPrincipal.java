@@ -0,0 +1,70 @@
+package com.lf.model;
+
+import com.google.common.base.MoreObjects;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable snapshot of the logged-in User, taken once and shared by every security check that needs it.
+ */
+public final class ResolvedPrincipal {
+
+    private final String userId;
+    private final String accountId;
+    private final String name;
+    private final String username;
+    private final boolean isActive;
+    private final List<UserRole> userRoles;
+
+    public ResolvedPrincipal(final String userId, final String accountId, final String name, final String username,
+                             final boolean isActive, final List<UserRole> userRoles) {
+        this.userId = userId;
+        this.accountId = accountId;
+        this.name = name;
+        this.username = username;
+        this.isActive = isActive;
+        this.userRoles = (userRoles == null) ? Collections.emptyList() : Collections.unmodifiableList(userRoles);
+    }
+
+    public static ResolvedPrincipal from(final User user) {
+        return new ResolvedPrincipal(user.getId(), user.getAccountId(), user.getName(), user.getUsername(),
+                Boolean.TRUE.equals(user.getIsActive()), user.getUserRoles());
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public boolean isActive() {
+        return isActive;
+    }
+
+    public List<UserRole> getUserRoles() {
+        return userRoles;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("userId", userId)
+                .add("accountId", accountId)
+                .add("name", name)
+                .add("username", username)
+                .add("isActive", isActive)
+                .add("userRoles", userRoles)
+                .toString();
+    }
+}
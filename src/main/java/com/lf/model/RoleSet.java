@@ -0,0 +1,118 @@
+package com.lf.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An immutable set of role names held as a bitmask keyed by {@link UserRole} ordinal, so membership checks are a
+ * single mask test. Role names that are not a {@link UserRole} (for example roles added by a newer release of the
+ * OAuth server) are kept aside by name rather than dropped.
+ */
+public final class RoleSet {
+
+    private static final RoleSet EMPTY = new RoleSet(0L, Collections.emptySet());
+
+    static {
+        if (UserRole.values().length > Long.SIZE) {
+            throw new IllegalStateException("RoleSet can hold at most " + Long.SIZE + " roles");
+        }
+    }
+
+    private final long mask;
+    private final Set<String> unknownRoles;
+
+    private RoleSet(final long mask, final Set<String> unknownRoles) {
+        this.mask = mask;
+        this.unknownRoles = unknownRoles;
+    }
+
+    /**
+     * Build the set from role names, as carried by the X-Security-Context header.
+     * @param roleNames
+     * @return the role set, empty when roleNames is null or empty.
+     */
+    public static RoleSet of(final Collection<String> roleNames) {
+        if (roleNames == null || roleNames.isEmpty()) {
+            return EMPTY;
+        }
+        long mask = 0L;
+        Set<String> unknown = null;
+        for (String roleName : roleNames) {
+            UserRole role = UserRole.lookup(roleName);
+            if (role != null) {
+                mask |= bit(role);
+            } else if (roleName != null) {
+                if (unknown == null) {
+                    unknown = new HashSet<>();
+                }
+                unknown.add(roleName);
+            }
+        }
+        return new RoleSet(mask, unknown == null ? Collections.emptySet() : Collections.unmodifiableSet(unknown));
+    }
+
+    public boolean contains(final UserRole role) {
+        return role != null && (mask & bit(role)) != 0;
+    }
+
+    /**
+     * @param roleName a role name, known or not
+     * @return true if the role is held.
+     */
+    public boolean contains(final String roleName) {
+        UserRole role = UserRole.lookup(roleName);
+        return role != null ? contains(role) : roleName != null && unknownRoles.contains(roleName);
+    }
+
+    /**
+     * @return true if every given role is held, and so also when none are given.
+     */
+    public boolean containsAll(final UserRole... roles) {
+        long required = maskOf(roles);
+        return (mask & required) == required;
+    }
+
+    /**
+     * @return true if at least one of the given roles is held.
+     */
+    public boolean containsAny(final UserRole... roles) {
+        return (mask & maskOf(roles)) != 0;
+    }
+
+    /**
+     * @return the known roles held.
+     */
+    public Set<UserRole> getRoles() {
+        EnumSet<UserRole> roles = EnumSet.noneOf(UserRole.class);
+        for (UserRole role : UserRole.values()) {
+            if (contains(role)) {
+                roles.add(role);
+            }
+        }
+        return roles;
+    }
+
+    /**
+     * @return the role names held that are not a {@link UserRole}.
+     */
+    public Set<String> getUnknownRoles() {
+        return unknownRoles;
+    }
+
+    private static long maskOf(final UserRole... roles) {
+        long mask = 0L;
+        for (UserRole role : roles) {
+            if (role != null) {
+                mask |= bit(role);
+            }
+        }
+        return mask;
+    }
+
+    private static long bit(final UserRole role) {
+        return 1L << role.ordinal();
+    }
+}
@@ -2,8 +2,12 @@ package com.lf.model;
 
 
 import com.lf.util.OauthSerializerUtils;
+import com.lf.util.SecurityContextCodec;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -14,6 +18,8 @@ public class SecurityContext implements Serializable {
 
     byte[] context;
     private List<String> hasRoles;
+    // Derived from hasRoles, which stays the serialized form
+    private transient RoleSet roleSet = RoleSet.of(null);
     private String userId, accountId, name;
 
     /**
@@ -40,6 +46,14 @@ public class SecurityContext implements Serializable {
         return this.name;
     }
 
+    /**
+     * Get the users roles
+     * @return unmodifiable List of role names.
+     */
+    public List<String> getRoles() {
+        return Collections.unmodifiableList(this.hasRoles);
+    }
+
     /**
      * Allows a client to get the X-Dlvr-Security-Header
      * @return byte[], base64Encoded header of the SecurityContextClass.
@@ -57,7 +71,12 @@ public class SecurityContext implements Serializable {
     }
 
     private void setHasRoles(List<String> hasRoles) {
+        setHasRoles(hasRoles, RoleSet.of(hasRoles));
+    }
+
+    private void setHasRoles(List<String> hasRoles, RoleSet roleSet) {
         this.hasRoles = hasRoles;
+        this.roleSet = roleSet;
     }
 
     private void setContext(byte[] context) {
@@ -67,13 +86,36 @@ public class SecurityContext implements Serializable {
     private void setName(String name) { this.name = name; }
 
     /**
-     * Search for the role in the list.
+     * Search for the role by name, which need not be a known {@link UserRole}.
      * @param role
      * @return (True, False) if the role is present or not.
      */
     public Boolean hasRole(String role) {
-        return hasRoles.stream()
-                .anyMatch(roles -> roles.equals(role));
+        return roleSet.contains(role);
+    }
+
+    /**
+     * @param role
+     * @return true if the role is present.
+     */
+    public boolean hasRole(UserRole role) {
+        return roleSet.contains(role);
+    }
+
+    /**
+     * @param roles
+     * @return true if every one of the roles is present.
+     */
+    public boolean hasAll(UserRole... roles) {
+        return roleSet.containsAll(roles);
+    }
+
+    /**
+     * @param roles
+     * @return true if at least one of the roles is present.
+     */
+    public boolean hasAny(UserRole... roles) {
+        return roleSet.containsAny(roles);
     }
 
     /**
@@ -91,67 +133,25 @@ public class SecurityContext implements Serializable {
         dummyContext.setAccountId(accountId);
         dummyContext.setName(name);
         dummyContext.validateState();
-        return dummyContext.buildHeader(dummyContext);
+        return SecurityContextCodec.encode(userId, accountId, hasRoles, name);
     }
 
     /**
-     * Helper method to build the byte header
-     * @param obj
-     * @return byte[] of the X-Security-Context header.
-     */
-    private byte[] buildHeader(Object obj) {
-        ObjectOutput out = null;
-        byte[] toByteHeader = null;
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        try {
-            out = new ObjectOutputStream(bos);
-            out.writeObject(obj);
-            out.flush();
-            toByteHeader = bos.toByteArray();
-        } catch(IOException e) {
-            throw new RuntimeException(e);
-        } finally {
-            try {
-                if (bos != null) {
-                    bos.close();
-                }
-            } catch(IOException e) {
-                throw new RuntimeException(e);
-            }
-        }
-        return new OauthSerializerUtils().base64EncodeBytes(toByteHeader);
-    }
-
-    /**
-     * Allows a client to build the security context from the Http header response.
+     * Allows a client to build the security context from the Http header response. The header is decoded in a single
+     * pass by the SecurityContextCodec, which also accepts the legacy Java serialization format.
      * @param xSecurityContext
-     * @return SecurityContext Object
      */
-    private void buildContext(final String xSecurityContext) {
-        ObjectInputStream in = null;
-        SecurityContext context = null;
-        ByteArrayInputStream bis = new ByteArrayInputStream(new OauthSerializerUtils().base64DecodeBytes(xSecurityContext.getBytes()));
-        try {
-            in = new ObjectInputStream(bis);
-            Object o = in.readObject();
-            context = (SecurityContext) o;
-        } catch(IOException | ClassNotFoundException e) {
-            throw new RuntimeException(e);
-        } finally {
-            try {
-                if (in != null) {
-                    in.close();
-                }
-            } catch (IOException ex) {
-                throw new RuntimeException(ex);
-            }
-        }
+    private void buildContext(final String xSecurityContext, final boolean legacyFormatAccepted) {
+        byte[] header = xSecurityContext.getBytes(StandardCharsets.US_ASCII);
+        SecurityContextCodec.Decoded decoded = SecurityContextCodec.decode(header, legacyFormatAccepted);
 
-        setUserId(context.userId);
-        setHasRoles(context.hasRoles);
-        setAccountId(context.accountId);
-        setName(context.name);
-        setContext(xSecurityContext.getBytes());
+        setUserId(decoded.getUserId());
+        setHasRoles(decoded.getRoles(), decoded.getRoleSet());
+        setAccountId(decoded.getAccountId());
+        setName(decoded.getName());
+        setContext(header);
+        // Make sure the header has not been tampered with maliciously
+        validateState();
     }
 
     /**
@@ -207,7 +207,7 @@ public class SecurityContext implements Serializable {
     private void readObject(ObjectInputStream inputStream) throws ClassNotFoundException, IOException {
         OauthSerializerUtils serializerUtils = new OauthSerializerUtils();
         this.userId = serializerUtils.base64DecodeString((byte[]) inputStream.readObject());
-        this.hasRoles =  serializerUtils.base64DecodeList((byte[]) inputStream.readObject());
+        setHasRoles(serializerUtils.base64DecodeList((byte[]) inputStream.readObject()));
         this.accountId = serializerUtils.base64DecodeString((byte[]) inputStream.readObject());
         this.name = serializerUtils.base64DecodeString((byte[]) inputStream.readObject());
         // Make sure the class has not been tampered with maliciously
@@ -222,7 +222,8 @@ public class SecurityContext implements Serializable {
         OauthSerializerUtils serializerUtils = new OauthSerializerUtils();
         try {
             outputStream.writeObject(serializerUtils.base64EncodeString(this.userId));
-            outputStream.writeObject(serializerUtils.base64EncodeList(this.hasRoles));
+            // Always an ArrayList, the only list class the legacy header decoder accepts
+            outputStream.writeObject(serializerUtils.base64EncodeList(new ArrayList<>(this.hasRoles)));
             outputStream.writeObject(serializerUtils.base64EncodeString(this.accountId));
             outputStream.writeObject(serializerUtils.base64EncodeString(this.name));
         } catch(IOException e) {
@@ -244,7 +245,31 @@ public class SecurityContext implements Serializable {
      * @param xSecurityHeader
      */
     public SecurityContext(String xSecurityHeader) {
-        buildContext(xSecurityHeader);
+        this(xSecurityHeader, true);
+    }
+
+    /**
+     * As {@link #SecurityContext(String)}, refusing a header in the legacy Java serialization format unless it is
+     * accepted.
+     * @param xSecurityHeader
+     * @param legacyFormatAccepted
+     */
+    public SecurityContext(String xSecurityHeader, boolean legacyFormatAccepted) {
+        buildContext(xSecurityHeader, legacyFormatAccepted);
+    }
+
+    /**
+     * Build a SecurityContext, and its X-Security-Context header, from values already verified elsewhere, such as the
+     * claims of a signed access token.
+     * @param userId
+     * @param accountId
+     * @param hasRoles
+     * @param name
+     * @return the SecurityContext.
+     * @throws IllegalStateException if a value is missing.
+     */
+    public static SecurityContext of(final String userId, final String accountId, final List<String> hasRoles, final String name) {
+        return new SecurityContext(new String(new SecurityContext().createByteHeader(userId, accountId, hasRoles, name), StandardCharsets.US_ASCII));
     }
 
     /**
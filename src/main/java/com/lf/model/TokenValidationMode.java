@@ -0,0 +1,49 @@
+package com.lf.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How access tokens are validated, set with security.token.validation-mode.
+ */
+public enum TokenValidationMode {
+
+    // Every token is sent to the OAuth server's validate endpoint
+    REMOTE("remote"),
+    // Tokens are only accepted when their signature verifies against the JWKS key set
+    LOCAL("local"),
+    // Tokens that cannot be verified locally, such as opaque tokens or unknown key ids, go to the OAuth server
+    LOCAL_WITH_REMOTE_FALLBACK("local-with-remote-fallback");
+
+    private final String value;
+    private final static Map<String, TokenValidationMode> CONSTANTS = new HashMap<String, TokenValidationMode>();
+
+    static {
+        for (TokenValidationMode c: values()) {
+            CONSTANTS.put(c.value, c);
+        }
+    }
+
+    private TokenValidationMode(String value) {
+        this.value = value;
+    }
+
+    @Override
+    public String toString() {
+        return this.value;
+    }
+
+    public String value() {
+        return this.value;
+    }
+
+    public static TokenValidationMode fromValue(String value) {
+        TokenValidationMode constant = CONSTANTS.get(value);
+        if (constant == null) {
+            throw new IllegalArgumentException(value);
+        } else {
+            return constant;
+        }
+    }
+
+}
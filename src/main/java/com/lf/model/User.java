@@ -1,20 +1,31 @@
 package com.lf.model;
 
 import org.springframework.data.annotation.Id;
-import com.microsoft.azure.spring.data.cosmosdb.core.mapping.Document;
-import com.microsoft.azure.spring.data.cosmosdb.core.mapping.PartitionKey;
+import com.azure.spring.data.cosmos.core.mapping.Container;
+import com.azure.spring.data.cosmos.core.mapping.PartitionKey;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableSet;
 
 import javax.validation.constraints.NotNull;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
-@Document(collection =  "users")
+// Partitioned by account, so listing an account's users reads a single partition
+@Container(containerName = User.CONTAINER_NAME)
 public class User {
+    public static final String CONTAINER_NAME = "users_by_account";
+
+    // The properties fields= may select; never the password hash
+    public static final Set<String> PROJECTABLE_FIELDS = ImmutableSet.of(
+            "id", "account_id", "name", "username", "is_active", "user_roles", "created_by", "created_date");
+
     @Id
-    @PartitionKey
     private String id;
+
+    @PartitionKey
+    @JsonProperty("account_id")  // on the field as well, so the partition key path matches the stored property
     private String accountId;   // Every User is linked to an Account
 
     private String createdBy;
@@ -116,8 +127,8 @@ public class User {
         return this;
     }
 
-    public User withUsername(String name) {
-        setName(name);
+    public User withUsername(String username) {
+        setUsername(username);
         return this;
     }
 
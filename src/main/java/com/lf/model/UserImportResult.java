@@ -0,0 +1,78 @@
+package com.lf.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.MoreObjects;
+
+/**
+ * The outcome of importing one user of a bulk import, reported at the user's position in the request.
+ */
+@JsonInclude(Include.NON_NULL)
+public class UserImportResult {
+
+    public enum Status {
+        CREATED,
+        CONFLICT,   // the username is already taken, or repeated within the import
+        INVALID,
+        FAILED
+    }
+
+    private final int index;
+    private final Status status;
+    private final String id;
+    private final String username;
+    private final String message;
+
+    private UserImportResult(final int index, final Status status, final User user, final String message) {
+        this.index = index;
+        this.status = status;
+        this.id = status == Status.CREATED ? user.getId() : null;
+        this.username = user == null ? null : user.getUsername();
+        this.message = message;
+    }
+
+    public static UserImportResult created(final int index, final User user) {
+        return new UserImportResult(index, Status.CREATED, user, null);
+    }
+
+    public static UserImportResult rejected(final int index, final Status status, final User user, final String message) {
+        return new UserImportResult(index, status, user, message);
+    }
+
+    @JsonProperty("index")
+    public int getIndex() {
+        return index;
+    }
+
+    @JsonProperty("status")
+    public Status getStatus() {
+        return status;
+    }
+
+    @JsonProperty("id")
+    public String getId() {
+        return id;
+    }
+
+    @JsonProperty("username")
+    public String getUsername() {
+        return username;
+    }
+
+    @JsonProperty("message")
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("index", index)
+                .add("status", status)
+                .add("id", id)
+                .add("username", username)
+                .add("message", message)
+                .toString();
+    }
+}
@@ -56,4 +56,13 @@ public enum UserRole {
         }
     }
 
+    /**
+     * Look up a role by its value without treating an unknown value as an error.
+     * @param value
+     * @return the role, or null when value is not a known role.
+     */
+    public static UserRole lookup(String value) {
+        return value == null ? null : CONSTANTS.get(value);
+    }
+
 }
\ No newline at end of file
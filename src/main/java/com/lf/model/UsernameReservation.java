@@ -0,0 +1,122 @@
+package com.lf.model;
+
+import com.azure.spring.data.cosmos.core.mapping.Container;
+import com.azure.spring.data.cosmos.core.mapping.PartitionKey;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Charsets;
+import com.google.common.base.MoreObjects;
+import com.google.common.hash.Hashing;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Claims a username for one user. The id is derived from the normalized username, so Cosmos rejects a second
+ * reservation of the same name and a username lookup is a single point read. The id is a SHA-256 hash rather than the
+ * name itself because usernames may hold characters Cosmos refuses in ids, such as '/', '?' and '#'; the normalized
+ * name is kept alongside it.
+ */
+@Container(containerName = UsernameReservation.CONTAINER_NAME)
+public class UsernameReservation {
+    public static final String CONTAINER_NAME = "usernames";
+
+    @Id
+    @PartitionKey
+    private String id;
+
+    private String username;
+    private String userId;
+    private String accountId;
+    private Date createdDate;
+
+    @Version
+    private String etag;
+
+    public UsernameReservation() {}
+
+    public UsernameReservation(final String username, final String accountId, final String userId) {
+        this.username = normalize(username);
+        this.id = idFor(username);
+        this.accountId = accountId;
+        this.userId = userId;
+        this.createdDate = new Date();
+    }
+
+    /**
+     * Usernames are unique regardless of case and surrounding whitespace.
+     */
+    public static String normalize(final String username) {
+        return username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param username
+     * @return the id of the reservation for the username, whatever characters it holds.
+     */
+    public static String idFor(final String username) {
+        return Hashing.sha256().hashString(normalize(username), Charsets.UTF_8).toString();
+    }
+
+    @JsonProperty("id")
+    public String getId() {
+        return id;
+    }
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    @JsonProperty("username")
+    public String getUsername() {
+        return username;
+    }
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    @JsonProperty("user_id")
+    public String getUserId() {
+        return userId;
+    }
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    @JsonProperty("account_id")
+    public String getAccountId() {
+        return accountId;
+    }
+    public void setAccountId(String accountId) {
+        this.accountId = accountId;
+    }
+
+    @JsonProperty("created_date")
+    public Date getCreatedDate() {
+        return createdDate;
+    }
+    public void setCreatedDate(Date createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    @JsonProperty("_etag")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getEtag() {
+        return etag;
+    }
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("id", id)
+                .add("username", username)
+                .add("userId", userId)
+                .add("accountId", accountId)
+                .add("createdDate", createdDate)
+                .toString();
+    }
+}
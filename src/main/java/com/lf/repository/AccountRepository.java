@@ -6,6 +6,7 @@ import com.lf.model.Account;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,4 +17,19 @@ public interface AccountRepository extends CosmosRepository<Account, String> {
 
     @Query(value = "SELECT * FROM c WHERE c.parent_account_id = @parent_account_id")
     List<Account> findByParentAccountId(@Param("parent_account_id") String parent_account_id);
+
+    @Query(value = "SELECT * FROM c WHERE ARRAY_CONTAINS(@parent_account_ids, c.parent_account_id)")
+    List<Account> findByParentAccountIdIn(@Param("parent_account_ids") Collection<String> parent_account_ids);
+
+    @Query(value = "SELECT * FROM c WHERE ARRAY_CONTAINS(c.ancestor_ids, @ancestor_id)")
+    List<Account> findByAncestorId(@Param("ancestor_id") String ancestor_id);
+
+    @Query(value = "SELECT * FROM c WHERE EXISTS(SELECT VALUE a FROM a IN c.ancestor_ids WHERE ARRAY_CONTAINS(@ancestor_ids, a))")
+    List<Account> findByAnyAncestorIdIn(@Param("ancestor_ids") Collection<String> ancestor_ids);
+
+    @Query(value = "SELECT * FROM c WHERE c._ts >= @since")
+    List<Account> findModifiedSince(@Param("since") long since);
+
+    @Query(value = "SELECT c.id FROM c")
+    List<Account> findAllIds();
 }
@@ -16,4 +16,7 @@ public interface ConfigurationRepository extends CosmosRepository<Configuration,
 
     @Query(value = "SELECT * FROM c WHERE c.account_id = @account_id")
     List<Configuration> findByAccountId(@Param("account_id") String account_id);
+
+    @Query(value = "SELECT * FROM c WHERE c.account_id = @account_id AND c.name = @name")
+    List<Configuration> findByAccountIdAndName(@Param("account_id") String account_id, @Param("name") String name);
 }
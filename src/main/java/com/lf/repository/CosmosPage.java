@@ -0,0 +1,30 @@
+package com.lf.repository;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a Cosmos query, with the continuation token for the next page, or null when this is the last page.
+ */
+public final class CosmosPage<T> {
+
+    private final List<T> items;
+    private final String continuationToken;
+
+    public CosmosPage(final List<T> items, final String continuationToken) {
+        this.items = items == null ? Collections.emptyList() : items;
+        this.continuationToken = continuationToken;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    public boolean isLast() {
+        return continuationToken == null;
+    }
+}
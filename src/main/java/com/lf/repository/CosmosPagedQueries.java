@@ -0,0 +1,156 @@
+package com.lf.repository;
+
+import com.azure.cosmos.CosmosAsyncClient;
+import com.azure.cosmos.CosmosException;
+import com.azure.cosmos.models.CosmosQueryRequestOptions;
+import com.azure.cosmos.models.FeedResponse;
+import com.azure.cosmos.models.PartitionKey;
+import com.azure.cosmos.models.SqlParameter;
+import com.azure.cosmos.models.SqlQuerySpec;
+import com.azure.cosmos.util.CosmosPagedFlux;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.lf.CosmosQueryMetrics;
+import com.lf.LfCdnApiApplicationConfiguration;
+import com.lf.model.Account;
+import com.lf.model.Configuration;
+import com.lf.model.User;
+import com.lf.util.InvalidContinuationTokenException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Queries that are read a page at a time using Cosmos continuation tokens, for results too large to materialize.
+ * Only one page is held in memory at once. Each page read is timed and its request charge recorded.
+ */
+@Repository
+public class CosmosPagedQueries {
+
+    private static final String REPOSITORY = "cosmosPagedQueries";
+
+    @Autowired
+    private CosmosAsyncClient client;
+
+    @Autowired
+    private CosmosQueryMetrics queryMetrics;
+
+    public CosmosPage<Account> accounts(final String continuationToken, final int pageSize) {
+        return page("accounts", Account.class, Account.CONTAINER_NAME, null, new SqlQuerySpec("SELECT * FROM c"), continuationToken, pageSize);
+    }
+
+    public CosmosPage<ObjectNode> accounts(final Projection projection, final String continuationToken, final int pageSize) {
+        return page("accounts", ObjectNode.class, Account.CONTAINER_NAME, null, new SqlQuerySpec("SELECT " + projection.select() + " FROM c"),
+                continuationToken, pageSize);
+    }
+
+    /**
+     * @param isActive only users whose is_active matches, or every user when null
+     */
+    public CosmosPage<User> usersByAccount(final String accountId, final Boolean isActive, final String continuationToken, final int pageSize) {
+        return page("usersByAccount", User.class, User.CONTAINER_NAME, new PartitionKey(accountId),
+                byAccount("*", accountId, "is_active", isActive), continuationToken, pageSize);
+    }
+
+    /**
+     * As {@link #usersByAccount(String, Boolean, String, int)}, selecting only the projected properties.
+     */
+    public CosmosPage<ObjectNode> usersByAccount(final String accountId, final Boolean isActive, final Projection projection,
+                                                 final String continuationToken, final int pageSize) {
+        return page("usersByAccount", ObjectNode.class, User.CONTAINER_NAME, new PartitionKey(accountId),
+                byAccount(projection.select(), accountId, "is_active", isActive), continuationToken, pageSize);
+    }
+
+    /**
+     * @param enabled only configurations whose configuration_enabled matches, or every configuration when null
+     */
+    public CosmosPage<Configuration> configurationsByAccount(final String accountId, final Boolean enabled, final String continuationToken, final int pageSize) {
+        return page("configurationsByAccount", Configuration.class, Configuration.CONTAINER_NAME, new PartitionKey(accountId),
+                byAccount("*", accountId, "configuration_enabled", enabled), continuationToken, pageSize);
+    }
+
+    /**
+     * As {@link #configurationsByAccount(String, Boolean, String, int)}, selecting only the projected properties.
+     */
+    public CosmosPage<ObjectNode> configurationsByAccount(final String accountId, final Boolean enabled, final Projection projection,
+                                                          final String continuationToken, final int pageSize) {
+        return page("configurationsByAccount", ObjectNode.class, Configuration.CONTAINER_NAME, new PartitionKey(accountId),
+                byAccount(projection.select(), accountId, "configuration_enabled", enabled), continuationToken, pageSize);
+    }
+
+    // The flag is filtered server side so documents that do not match are never read into a page
+    private static SqlQuerySpec byAccount(final String select, final String accountId, final String flagProperty, final Boolean flag) {
+        String sql = "SELECT " + select + " FROM c WHERE c.account_id = @account_id";
+        if (flag == null) {
+            return new SqlQuerySpec(sql, new SqlParameter("@account_id", accountId));
+        }
+        return new SqlQuerySpec(sql + " AND c." + flagProperty + " = @flag",
+                new SqlParameter("@account_id", accountId), new SqlParameter("@flag", flag));
+    }
+
+    /**
+     * Lazily stream every item of a paged query, fetching the next page only once the current one is consumed.
+     * @param pages fetches the page for a continuation token, null for the first page
+     */
+    public static <T> Stream<T> stream(final Function<String, CosmosPage<T>> pages) {
+        Iterator<T> items = new Iterator<T>() {
+            private Iterator<T> current = Collections.emptyIterator();
+            private String continuationToken;
+            private boolean last;
+
+            @Override
+            public boolean hasNext() {
+                // Cosmos may return empty pages before the last one, so keep going until the token runs out
+                while (!current.hasNext() && !last) {
+                    CosmosPage<T> page = pages.apply(continuationToken);
+                    current = page.getItems().iterator();
+                    continuationToken = page.getContinuationToken();
+                    last = page.isLast();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(items, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private <T> CosmosPage<T> page(final String method, final Class<T> domainType, final String containerName,
+                                   final PartitionKey partitionKey, final SqlQuerySpec query, final String continuationToken, final int pageSize) {
+        CosmosQueryRequestOptions options = new CosmosQueryRequestOptions();
+        if (partitionKey != null) {
+            options.setPartitionKey(partitionKey);
+        }
+        CosmosPagedFlux<T> results = client.getDatabase(LfCdnApiApplicationConfiguration.DATABASE_NAME)
+                .getContainer(containerName)
+                .queryItems(query, options, domainType);
+        FeedResponse<T> response;
+        try {
+            response = queryMetrics.page(REPOSITORY, method,
+                    () -> (continuationToken == null ? results.byPage(pageSize) : results.byPage(continuationToken, pageSize))
+                            .next()
+                            .block());
+        } catch (CosmosException e) {
+            // A token Cosmos cannot resume from is the caller's mistake, not a server error
+            if (continuationToken != null && e.getStatusCode() == HttpStatus.BAD_REQUEST.value()) {
+                throw new InvalidContinuationTokenException("Cosmos refused the continuation", e);
+            }
+            throw e;
+        }
+        return response == null ? new CosmosPage<>(null, null) : new CosmosPage<>(response.getResults(), response.getContinuationToken());
+    }
+}
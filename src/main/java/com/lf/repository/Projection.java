@@ -0,0 +1,66 @@
+package com.lf.repository;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.lf.util.ApiUtils;
+
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The document properties a caller asked for with fields=, checked against a whitelist of the type's projectable
+ * properties. Only whitelisted names ever reach the SQL, so the select list needs no escaping.
+ */
+public final class Projection {
+
+    private final Set<String> fields;
+
+    private Projection(final Set<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * @param fields the comma separated fields= parameter, may be null
+     * @param projectable the JSON property names that may be selected
+     * @return the projection, or empty when no fields were asked for
+     * @throws IllegalArgumentException if a field is not projectable
+     */
+    public static Optional<Projection> parse(final String fields, final Set<String> projectable) {
+        if (ApiUtils.isNullOrEmpty(fields)) {
+            return Optional.empty();
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (!projectable.contains(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name);
+            }
+            selected.add(name);
+        }
+        return Optional.of(new Projection(selected));
+    }
+
+    public Set<String> getFields() {
+        return fields;
+    }
+
+    /**
+     * The select list, e.g. "c.id, c.name".
+     */
+    public String select() {
+        return fields.stream().map(field -> "c." + field).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Project a document that was read in full, such as by a point read.
+     */
+    public ObjectNode apply(final ObjectNode document) {
+        return document.retain(fields);
+    }
+
+    @Override
+    public String toString() {
+        return String.join(",", fields);
+    }
+}
@@ -0,0 +1,9 @@
+package com.lf.repository;
+
+import com.azure.spring.data.cosmos.repository.CosmosRepository;
+import com.lf.model.UsernameReservation;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UsernameReservationRepository extends CosmosRepository<UsernameReservation, String> {
+}
@@ -0,0 +1,9 @@
+package com.lf.repository.reactive;
+
+import com.lf.model.Account;
+import reactor.core.publisher.Flux;
+
+public interface ReactiveAccountQueries {
+
+    Flux<Account> findByName(String name);
+}
@@ -0,0 +1,24 @@
+package com.lf.repository.reactive;
+
+import com.azure.cosmos.CosmosAsyncClient;
+import com.azure.cosmos.models.SqlParameter;
+import com.lf.CosmosQueryMetrics;
+import com.lf.model.Account;
+import org.springframework.beans.factory.annotation.Autowired;
+import reactor.core.publisher.Flux;
+
+class ReactiveAccountQueriesImpl implements ReactiveAccountQueries {
+
+    @Autowired
+    private CosmosAsyncClient client;
+
+    @Autowired
+    private CosmosQueryMetrics queryMetrics;
+
+    @Override
+    public Flux<Account> findByName(final String name) {
+        return ReactiveQueries.query(client, queryMetrics, "findByName", Account.class,
+                "SELECT * FROM c WHERE c.name = @name",
+                new SqlParameter("@name", name));
+    }
+}
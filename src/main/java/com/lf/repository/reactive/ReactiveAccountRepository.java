@@ -0,0 +1,9 @@
+package com.lf.repository.reactive;
+
+import com.azure.spring.data.cosmos.repository.ReactiveCosmosRepository;
+import com.lf.model.Account;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReactiveAccountRepository extends ReactiveCosmosRepository<Account, String>, ReactiveAccountQueries {
+}
@@ -0,0 +1,11 @@
+package com.lf.repository.reactive;
+
+import com.lf.model.Configuration;
+import reactor.core.publisher.Flux;
+
+public interface ReactiveConfigurationQueries {
+
+    Flux<Configuration> findByAccountId(String accountId);
+
+    Flux<Configuration> findByAccountIdAndConfigurationEnabled(String accountId, boolean enabled);
+}
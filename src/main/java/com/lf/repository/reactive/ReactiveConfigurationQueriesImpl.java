@@ -0,0 +1,36 @@
+package com.lf.repository.reactive;
+
+import com.azure.cosmos.CosmosAsyncClient;
+import com.azure.cosmos.models.CosmosQueryRequestOptions;
+import com.azure.cosmos.models.PartitionKey;
+import com.azure.cosmos.models.SqlParameter;
+import com.lf.CosmosQueryMetrics;
+import com.lf.model.Configuration;
+import org.springframework.beans.factory.annotation.Autowired;
+import reactor.core.publisher.Flux;
+
+class ReactiveConfigurationQueriesImpl implements ReactiveConfigurationQueries {
+
+    @Autowired
+    private CosmosAsyncClient client;
+
+    @Autowired
+    private CosmosQueryMetrics queryMetrics;
+
+    @Override
+    public Flux<Configuration> findByAccountId(final String accountId) {
+        // Scoped to the account's partition, so this never fans out
+        CosmosQueryRequestOptions options = new CosmosQueryRequestOptions().setPartitionKey(new PartitionKey(accountId));
+        return ReactiveQueries.query(client, queryMetrics, "findByAccountId", Configuration.class, options,
+                "SELECT * FROM c WHERE c.account_id = @account_id",
+                new SqlParameter("@account_id", accountId));
+    }
+
+    @Override
+    public Flux<Configuration> findByAccountIdAndConfigurationEnabled(final String accountId, final boolean enabled) {
+        CosmosQueryRequestOptions options = new CosmosQueryRequestOptions().setPartitionKey(new PartitionKey(accountId));
+        return ReactiveQueries.query(client, queryMetrics, "findByAccountIdAndConfigurationEnabled", Configuration.class, options,
+                "SELECT * FROM c WHERE c.account_id = @account_id AND c.configuration_enabled = @configuration_enabled",
+                new SqlParameter("@account_id", accountId), new SqlParameter("@configuration_enabled", enabled));
+    }
+}
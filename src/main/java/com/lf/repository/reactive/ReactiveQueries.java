@@ -0,0 +1,42 @@
+package com.lf.repository.reactive;
+
+import com.azure.cosmos.CosmosAsyncClient;
+import com.azure.cosmos.models.CosmosQueryRequestOptions;
+import com.azure.cosmos.models.SqlParameter;
+import com.azure.cosmos.models.SqlQuerySpec;
+import com.azure.cosmos.util.CosmosPagedFlux;
+import com.azure.spring.data.cosmos.repository.support.CosmosEntityInformation;
+import com.lf.CosmosQueryMetrics;
+import com.lf.LfCdnApiApplicationConfiguration;
+import reactor.core.publisher.Flux;
+
+import java.util.Arrays;
+
+/**
+ * Runs parameterised SQL against the container a domain type is mapped to. The query fragments use this rather than
+ * derived queries because the documents use snake_case property names.
+ */
+final class ReactiveQueries {
+
+    private ReactiveQueries() {
+    }
+
+    static <T> Flux<T> query(final CosmosAsyncClient client, final CosmosQueryMetrics metrics, final String method,
+                             final Class<T> domainType, final String sql, final SqlParameter... parameters) {
+        return query(client, metrics, method, domainType, new CosmosQueryRequestOptions(), sql, parameters);
+    }
+
+    /**
+     * @param method the method tag the query's latency and request charge are recorded under
+     */
+    static <T> Flux<T> query(final CosmosAsyncClient client, final CosmosQueryMetrics metrics, final String method,
+                             final Class<T> domainType, final CosmosQueryRequestOptions options,
+                             final String sql, final SqlParameter... parameters) {
+        String containerName = new CosmosEntityInformation<>(domainType).getContainerName();
+        CosmosPagedFlux<T> results = client.getDatabase(LfCdnApiApplicationConfiguration.DATABASE_NAME)
+                .getContainer(containerName)
+                .queryItems(new SqlQuerySpec(sql, Arrays.asList(parameters)), options, domainType);
+        // Tagged like the reactive repository bean the query fragment belongs to
+        return metrics.query("reactive" + domainType.getSimpleName() + "Repository", method, results);
+    }
+}
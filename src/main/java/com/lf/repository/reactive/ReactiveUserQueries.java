@@ -0,0 +1,11 @@
+package com.lf.repository.reactive;
+
+import com.lf.model.User;
+import reactor.core.publisher.Flux;
+
+public interface ReactiveUserQueries {
+
+    Flux<User> findByAccountId(String accountId);
+
+    Flux<User> findByAccountIdAndIsActive(String accountId, boolean isActive);
+}
@@ -0,0 +1,36 @@
+package com.lf.repository.reactive;
+
+import com.azure.cosmos.CosmosAsyncClient;
+import com.azure.cosmos.models.CosmosQueryRequestOptions;
+import com.azure.cosmos.models.PartitionKey;
+import com.azure.cosmos.models.SqlParameter;
+import com.lf.CosmosQueryMetrics;
+import com.lf.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import reactor.core.publisher.Flux;
+
+class ReactiveUserQueriesImpl implements ReactiveUserQueries {
+
+    @Autowired
+    private CosmosAsyncClient client;
+
+    @Autowired
+    private CosmosQueryMetrics queryMetrics;
+
+    @Override
+    public Flux<User> findByAccountId(final String accountId) {
+        // Scoped to the account's partition, so this never fans out
+        CosmosQueryRequestOptions options = new CosmosQueryRequestOptions().setPartitionKey(new PartitionKey(accountId));
+        return ReactiveQueries.query(client, queryMetrics, "findByAccountId", User.class, options,
+                "SELECT * FROM c WHERE c.account_id = @account_id",
+                new SqlParameter("@account_id", accountId));
+    }
+
+    @Override
+    public Flux<User> findByAccountIdAndIsActive(final String accountId, final boolean isActive) {
+        CosmosQueryRequestOptions options = new CosmosQueryRequestOptions().setPartitionKey(new PartitionKey(accountId));
+        return ReactiveQueries.query(client, queryMetrics, "findByAccountIdAndIsActive", User.class, options,
+                "SELECT * FROM c WHERE c.account_id = @account_id AND c.is_active = @is_active",
+                new SqlParameter("@account_id", accountId), new SqlParameter("@is_active", isActive));
+    }
+}
@@ -0,0 +1,84 @@
+package com.lf.service;
+
+import com.lf.model.Account;
+import com.lf.util.ApiUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Computes the materialized ancestor path stored on each Account: the ids of every ancestor, root first, ending
+ * with the direct parent. A top-level account has an empty path.
+ */
+public final class AccountAncestry {
+
+    private AccountAncestry() {}
+
+    /**
+     * Compute the ancestor path of an account by following parent links upwards.
+     * @param accountId      the account the path is for, used to detect it becoming its own ancestor
+     * @param parentAccountId the account's parent, may be empty
+     * @param lookup         reads an account by id
+     * @param useStoredPaths stop at the first ancestor that already carries a path and reuse it
+     * @param maxDepth       longest path that may be returned
+     * @return List of ancestor ids, root first.
+     * @throws AccountHierarchyCycleException if the account would be its own ancestor
+     * @throws AccountHierarchyLimitException if the path is longer than maxDepth
+     */
+    public static List<String> pathFor(final String accountId, final String parentAccountId,
+                                       final Function<String, Optional<Account>> lookup,
+                                       final boolean useStoredPaths, final int maxDepth) {
+        LinkedList<String> path = new LinkedList<>();
+        Set<String> seen = new HashSet<>();
+        if (accountId != null) {
+            seen.add(accountId);
+        }
+
+        String current = parentAccountId;
+        while (!ApiUtils.isNullOrEmpty(current)) {
+            if (!seen.add(current)) {
+                throw new AccountHierarchyCycleException("Account " + accountId + " would be its own ancestor through " + current);
+            }
+            if (path.size() >= maxDepth) {
+                throw tooDeep(accountId, maxDepth);
+            }
+            path.addFirst(current);
+
+            Optional<Account> ancestor = lookup.apply(current);
+            if (!ancestor.isPresent()) {
+                break;  // dangling parent link, the path ends at the missing id
+            }
+            List<String> storedPath = ancestor.get().getAncestorIds();
+            if (useStoredPaths && storedPath != null) {
+                for (String id : storedPath) {
+                    if (seen.contains(id)) {
+                        throw new AccountHierarchyCycleException("Account " + accountId + " would be its own ancestor through " + id);
+                    }
+                }
+                path.addAll(0, storedPath);
+                if (path.size() > maxDepth) {
+                    throw tooDeep(accountId, maxDepth);
+                }
+                break;
+            }
+            current = ancestor.get().getParentAccountId();
+        }
+        return new ArrayList<>(path);
+    }
+
+    private static AccountHierarchyLimitException tooDeep(final String accountId, final int maxDepth) {
+        return new AccountHierarchyLimitException("Account " + accountId + " is deeper than the limit of " + maxDepth + " levels", maxDepth);
+    }
+
+    /**
+     * @return (True, False) if the account's stored path names the given ancestor.
+     */
+    public static boolean isUnder(final Account account, final String ancestorId) {
+        return account.getAncestorIds() != null && account.getAncestorIds().contains(ancestorId);
+    }
+}
@@ -0,0 +1,158 @@
+package com.lf.service;
+
+import com.azure.cosmos.CosmosAsyncClient;
+import com.azure.cosmos.CosmosAsyncContainer;
+import com.azure.cosmos.CosmosException;
+import com.azure.cosmos.models.CosmosItemRequestOptions;
+import com.azure.cosmos.models.PartitionKey;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.lf.LfCdnApiApplicationConfiguration;
+import com.lf.model.Account;
+import com.lf.repository.AccountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One-off backfill and consistency check for the materialized ancestor path stored on each Account. Enable with
+ * account.ancestry.backfill.enabled; with dry-run set the inconsistent accounts are only logged.
+ *
+ * Every path is recomputed from the parent links alone, so the backfill also repairs paths that drifted from the tree.
+ * Only the ancestor_ids property is rewritten, and only if the document is unchanged since it was read (etag match)
+ * and still has the parent the path was computed from; an account edited concurrently is skipped and logged, and is
+ * picked up by re-running the backfill.
+ */
+@Component
+@ConditionalOnProperty(name = "account.ancestry.backfill.enabled", havingValue = "true")
+public class AccountAncestryMaintenance implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(AccountAncestryMaintenance.class);
+
+    @Autowired
+    private AccountRepository repository;
+
+    @Autowired
+    private CosmosAsyncClient client;
+
+    @Value("${account.hierarchy.max-depth:32}")
+    private int maxHierarchyDepth = 32;
+
+    @Value("${account.ancestry.backfill.dry-run:false}")
+    private boolean dryRun;
+
+    @Value("${account.ancestry.backfill.concurrency:8}")
+    private int concurrency = 8;
+
+    @Override
+    public void run(final ApplicationArguments args) {
+        Map<String, String> inconsistent = new LinkedHashMap<>();
+        List<Account> accounts = findInconsistent(inconsistent);
+        log.info("Checked the ancestor path of {} accounts, {} inconsistent", accounts.size(), inconsistent.size());
+        inconsistent.forEach((id, reason) -> log.info("Account {}: {}", id, reason));
+        if (dryRun) {
+            return;
+        }
+
+        List<Account> repairable = new ArrayList<>();
+        for (Account account : accounts) {
+            if (inconsistent.containsKey(account.getId()) && account.getAncestorIds() != null) {
+                repairable.add(account);
+            }
+        }
+        backfill(repairable);
+    }
+
+    /**
+     * Rewrite the stored path of each account, skipping any account changed since its path was computed.
+     */
+    private void backfill(final List<Account> repairable) {
+        CosmosAsyncContainer container = client.getDatabase(LfCdnApiApplicationConfiguration.DATABASE_NAME)
+                .getContainer(Account.CONTAINER_NAME);
+        AtomicLong rewritten = new AtomicLong();
+        AtomicLong skipped = new AtomicLong();
+        Flux.fromIterable(repairable)
+                .flatMap(account -> rewritePath(container, account)
+                        .doOnNext(done -> (done ? rewritten : skipped).incrementAndGet()), concurrency)
+                .blockLast();
+        log.info("Backfilled the ancestor path of {} accounts, skipped {} changed concurrently", rewritten.get(), skipped.get());
+    }
+
+    private Mono<Boolean> rewritePath(final CosmosAsyncContainer container, final Account account) {
+        PartitionKey partitionKey = new PartitionKey(account.getId());
+        return container.readItem(account.getId(), partitionKey, ObjectNode.class)
+                .flatMap(response -> {
+                    ObjectNode document = response.getItem();
+                    String storedParent = document.path("parent_account_id").asText(null);
+                    if (!Objects.equals(storedParent, account.getParentAccountId())) {
+                        log.warn("Account {} was moved while its ancestor path was being computed, skipping it", account.getId());
+                        return Mono.just(false);
+                    }
+                    ArrayNode path = document.putArray("ancestor_ids");
+                    account.getAncestorIds().forEach(path::add);
+                    CosmosItemRequestOptions options = new CosmosItemRequestOptions();
+                    options.setIfMatchETag(response.getETag());
+                    return container.replaceItem(document, account.getId(), partitionKey, options).thenReturn(true);
+                })
+                .onErrorResume(CosmosException.class, e -> {
+                    if (e.getStatusCode() != HttpStatus.PRECONDITION_FAILED.value() && e.getStatusCode() != HttpStatus.NOT_FOUND.value()) {
+                        return Mono.error(e);
+                    }
+                    log.warn("Account {} changed while its ancestor path was being rewritten, skipping it", account.getId());
+                    return Mono.just(false);
+                });
+    }
+
+    /**
+     * Recompute every account's path, recording each account whose stored path differs. The accounts returned carry
+     * the recomputed path, or null where it could not be computed.
+     */
+    private List<Account> findInconsistent(final Map<String, String> inconsistent) {
+        Map<String, Account> byId = new HashMap<>();
+        for (Account account : repository.findAll()) {
+            byId.put(account.getId(), account);
+        }
+
+        List<Account> accounts = new ArrayList<>(byId.values());
+        Map<String, List<String>> computed = new HashMap<>();
+        for (Account account : accounts) {
+            try {
+                computed.put(account.getId(), AccountAncestry.pathFor(account.getId(), account.getParentAccountId(),
+                        id -> Optional.ofNullable(byId.get(id)), false, maxHierarchyDepth));
+            } catch (AccountHierarchyCycleException | AccountHierarchyLimitException e) {
+                inconsistent.put(account.getId(), e.getMessage());
+            }
+        }
+
+        for (Account account : accounts) {
+            List<String> path = computed.get(account.getId());
+            if (path == null) {
+                account.setAncestorIds(null);
+                continue;
+            }
+            if (account.getAncestorIds() == null) {
+                inconsistent.put(account.getId(), "missing ancestor path");
+            } else if (!Objects.equals(account.getAncestorIds(), path)) {
+                inconsistent.put(account.getId(), "stored ancestor path " + account.getAncestorIds() + " should be " + path);
+            }
+            account.setAncestorIds(path);
+        }
+        return accounts;
+    }
+}
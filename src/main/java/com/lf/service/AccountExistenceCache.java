@@ -0,0 +1,184 @@
+package com.lf.service;
+
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Answers "does this account exist" for the per-request account precheck without reading the Account document.
+ *
+ * Positive and negative lookups are cached with separate TTLs. Once primed with every known account id, a bloom
+ * filter rejects ids that were never created without a Cosmos round-trip. A filter miss is final, so ids created
+ * elsewhere must reach it: ids created on this replica are added directly, and ids created on other replicas only
+ * arrive through an InvalidationBroadcaster that reaches all replicas. With the JVM-local broadcaster the filter is
+ * therefore only safe on a single replica, which is why priming is opt-in unless the broadcaster is shared (see
+ * AccountServiceImpl). Accounts are only soft-deleted, so an id never leaves the filter.
+ */
+@Component
+public class AccountExistenceCache implements MeterBinder {
+
+    public static final String TOPIC = "account";
+
+    private final Cache<String, Boolean> present;
+    private final Cache<String, Boolean> missing;
+    private final long expectedAccounts;
+    private final double falsePositiveProbability;
+    private final InvalidationBroadcaster broadcaster;
+    private final AtomicLong bloomRejections = new AtomicLong();
+    // Guava's BloomFilter is not thread-safe: reads take the read lock, puts and publishing a new filter the write lock
+    private final ReadWriteLock filterLock = new ReentrantReadWriteLock();
+
+    private BloomFilter<CharSequence> knownAccountIds;
+    private volatile Set<String> changedWhilePriming;
+
+    @Autowired
+    public AccountExistenceCache(@Value("${account.existence.cache.maximum-size:50000}") final long maximumSize,
+                                 @Value("${account.existence.cache.present-ttl-seconds:300}") final long presentTtlSeconds,
+                                 @Value("${account.existence.cache.missing-ttl-seconds:30}") final long missingTtlSeconds,
+                                 @Value("${account.existence.bloom.expected-accounts:100000}") final long expectedAccounts,
+                                 @Value("${account.existence.bloom.false-positive-probability:0.01}") final double falsePositiveProbability,
+                                 final InvalidationBroadcaster broadcaster) {
+        this.present = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(presentTtlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        this.missing = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(missingTtlSeconds, TimeUnit.SECONDS)
+                .build();
+        this.expectedAccounts = expectedAccounts;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.broadcaster = broadcaster;
+        broadcaster.subscribe(TOPIC, this::onAccountChanged);
+    }
+
+    /**
+     * Check whether the account exists, consulting the loader only when the caches cannot answer.
+     * @param id
+     * @param loader reads the account from Cosmos and reports whether it was found
+     * @return (True, False) if the account exists or not.
+     */
+    public boolean exists(final String id, final Predicate<String> loader) {
+        if (present.getIfPresent(id) != null) {
+            return true;
+        }
+        if (isRejectedByFilter(id)) {
+            bloomRejections.incrementAndGet();
+            return false;
+        }
+        if (missing.getIfPresent(id) != null) {
+            return false;
+        }
+
+        boolean found = loader.test(id);
+        if (found) {
+            present.put(id, Boolean.TRUE);
+            addToFilter(id);
+        } else {
+            missing.put(id, Boolean.TRUE);
+        }
+        return found;
+    }
+
+    /**
+     * Record that an account was created or changed, here and on every other replica.
+     * @param id
+     */
+    public void accountChanged(final String id) {
+        onAccountChanged(id);
+        broadcaster.publish(TOPIC, id);
+    }
+
+    /**
+     * Whether account creations on other replicas reach this cache, so the bloom filter can be primed safely.
+     */
+    public boolean seesAllReplicas() {
+        return broadcaster.reachesAllReplicas();
+    }
+
+    /**
+     * (Re)build the bloom filter from every account id. Changes broadcast while the ids are being read are folded in
+     * before the filter is published, so an account created concurrently is never rejected.
+     * @param allAccountIds reads every account id
+     */
+    public void prime(final Supplier<Collection<String>> allAccountIds) {
+        Set<String> pending = ConcurrentHashMap.newKeySet();
+        changedWhilePriming = pending;
+        try {
+            Collection<String> ids = allAccountIds.get();
+            BloomFilter<CharSequence> filter = BloomFilter.create(Funnels.stringFunnel(Charsets.UTF_8),
+                    Math.max(expectedAccounts, ids.size()), falsePositiveProbability);
+            ids.forEach(filter::put);
+            present.asMap().keySet().forEach(filter::put);
+            // A change either added itself to pending before this, or finds the new filter once it is published
+            filterLock.writeLock().lock();
+            try {
+                pending.forEach(filter::put);
+                knownAccountIds = filter;
+            } finally {
+                filterLock.writeLock().unlock();
+            }
+        } finally {
+            changedWhilePriming = null;
+        }
+    }
+
+    private void onAccountChanged(final String id) {
+        Set<String> pending = changedWhilePriming;
+        if (pending != null) {
+            pending.add(id);
+        }
+        // Into the filter first, so a lookup between the two steps cannot be rejected by it
+        addToFilter(id);
+        missing.invalidate(id);
+        present.invalidate(id);
+    }
+
+    private boolean isRejectedByFilter(final String id) {
+        filterLock.readLock().lock();
+        try {
+            return knownAccountIds != null && !knownAccountIds.mightContain(id);
+        } finally {
+            filterLock.readLock().unlock();
+        }
+    }
+
+    private void addToFilter(final String id) {
+        filterLock.writeLock().lock();
+        try {
+            if (knownAccountIds != null) {
+                knownAccountIds.put(id);
+            }
+        } finally {
+            filterLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, present, "account.existence");
+        FunctionCounter.builder("account.existence.bloom.rejections", bloomRejections, AtomicLong::get)
+                .description("Account ids rejected by the bloom filter without a Cosmos lookup")
+                .register(registry);
+    }
+}
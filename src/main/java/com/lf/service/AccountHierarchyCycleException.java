@@ -0,0 +1,11 @@
+package com.lf.service;
+
+/**
+ * Thrown when a change to an account's parent would make the account its own ancestor.
+ */
+public class AccountHierarchyCycleException extends RuntimeException {
+
+    public AccountHierarchyCycleException(final String message) {
+        super(message);
+    }
+}
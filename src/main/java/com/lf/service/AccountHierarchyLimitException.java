@@ -0,0 +1,19 @@
+package com.lf.service;
+
+/**
+ * Thrown when an account hierarchy is deeper, or holds more accounts, than the configured limit allows.
+ * The message names the limit that was exceeded.
+ */
+public class AccountHierarchyLimitException extends RuntimeException {
+
+    private final int limit;
+
+    public AccountHierarchyLimitException(final String message, final int limit) {
+        super(message);
+        this.limit = limit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
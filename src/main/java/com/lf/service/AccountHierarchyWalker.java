@@ -0,0 +1,76 @@
+package com.lf.service;
+
+import com.lf.model.Account;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Breadth-first walk of the account tree. Each level is fetched with one query over all of the parent ids at that
+ * depth (split into batches to bound the query size), instead of one query per account.
+ * Accounts already visited are skipped, so a cycle in the parent links cannot loop forever, and the walk is aborted
+ * once it goes deeper than maxDepth or collects more than maxNodes accounts.
+ */
+public class AccountHierarchyWalker {
+    private static final Logger log = LoggerFactory.getLogger(AccountHierarchyWalker.class);
+
+    private final Function<Collection<String>, List<Account>> childrenLoader;
+    private final int maxDepth;
+    private final int maxNodes;
+    private final int batchSize;
+
+    /**
+     * @param childrenLoader returns every account whose parent is one of the given ids
+     * @param maxDepth       deepest level below the roots that may be returned
+     * @param maxNodes       largest number of descendants that may be returned
+     * @param batchSize      largest number of parent ids passed to one childrenLoader call
+     */
+    public AccountHierarchyWalker(final Function<Collection<String>, List<Account>> childrenLoader,
+                                  final int maxDepth, final int maxNodes, final int batchSize) {
+        this.childrenLoader = childrenLoader;
+        this.maxDepth = maxDepth;
+        this.maxNodes = maxNodes;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Collect every descendant of the given root accounts, level by level. The roots themselves are not returned.
+     * @param rootIds
+     * @return List of descendant accounts, ordered by depth.
+     * @throws AccountHierarchyLimitException if the walk goes deeper than maxDepth or past maxNodes accounts
+     */
+    public List<Account> descendants(final Collection<String> rootIds) {
+        Set<String> visited = new LinkedHashSet<>(rootIds);
+        List<Account> descendants = new ArrayList<>();
+        List<String> frontier = new ArrayList<>(visited);
+
+        for (int depth = 1; !frontier.isEmpty(); depth++) {
+            List<String> nextFrontier = new ArrayList<>();
+            for (int from = 0; from < frontier.size(); from += batchSize) {
+                List<String> parents = frontier.subList(from, Math.min(from + batchSize, frontier.size()));
+                for (Account child : childrenLoader.apply(parents)) {
+                    if (!visited.add(child.getId())) {
+                        log.warn("Account {} was reached twice while walking the hierarchy, skipping it to break the cycle", child.getId());
+                        continue;
+                    }
+                    if (depth > maxDepth) {
+                        throw new AccountHierarchyLimitException("Account hierarchy under " + rootIds + " is deeper than the limit of " + maxDepth + " levels", maxDepth);
+                    }
+                    if (descendants.size() >= maxNodes) {
+                        throw new AccountHierarchyLimitException("Account hierarchy under " + rootIds + " has more than the limit of " + maxNodes + " accounts", maxNodes);
+                    }
+                    descendants.add(child);
+                    nextFrontier.add(child.getId());
+                }
+            }
+            frontier = nextFrontier;
+        }
+        return descendants;
+    }
+}
@@ -1,18 +1,30 @@
 package com.lf.service;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.lf.model.Account;
+import com.lf.model.PagedResult;
+import com.lf.repository.Projection;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public interface AccountService {
 
     Iterable<Account> list();
 
+    PagedResult<Account> list(int limit, String continuationToken);
+
+    PagedResult<ObjectNode> list(Projection projection, int limit, String continuationToken);
+
     Optional<Account> getAccountById(String id);
 
     Optional<Account> getAccountByName(String name);
 
+    boolean accountExists(String id);
+
+    CompletableFuture<Boolean> accountExistsAsync(String id);
+
     List<Account> getAllDescendantsForAccount(String id);
 
     Optional<Account> save(Account account);
@@ -22,4 +34,6 @@ public interface AccountService {
     Optional<Account> delete(String id);
 
     List<String> getAllChildrenAccountIds(List<String> accountIds);
+
+    boolean isDescendantOf(String accountId, String ancestorId);
 }
@@ -1,14 +1,26 @@
 package com.lf.service;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.lf.LookupExecutorConfiguration;
 import com.lf.model.Account;
+import com.lf.model.PagedResult;
 import com.lf.repository.AccountRepository;
+import com.lf.repository.CosmosPage;
+import com.lf.repository.CosmosPagedQueries;
+import com.lf.repository.Projection;
 import com.lf.util.ApiUtils;
+import com.lf.util.ContinuationTokens;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 @Service
@@ -19,16 +31,91 @@ public class AccountServiceImpl implements AccountService {
     @Autowired
     private AccountRepository repository;
 
+    @Autowired
+    private AccountExistenceCache existenceCache;
+
+    @Autowired
+    private CosmosPagedQueries pagedQueries;
+
+    @Autowired
+    @Qualifier(LookupExecutorConfiguration.LOOKUP_EXECUTOR)
+    private Executor lookupExecutor;
+
+    // Present only when account.tree-snapshot.enabled is set
+    @Autowired(required = false)
+    private AccountTreeCache treeCache;
+
+    @Value("${account.hierarchy.max-depth:32}")
+    private int maxHierarchyDepth = 32;
+
+    @Value("${account.hierarchy.max-nodes:50000}")
+    private int maxHierarchyNodes = 50000;
+
+    @Value("${account.hierarchy.query-batch-size:500}")
+    private int hierarchyQueryBatchSize = 500;
+
+    // Answer subtree queries from the materialized ancestor path; enable once AccountAncestryMaintenance has backfilled
+    @Value("${account.ancestry.index-enabled:false}")
+    private boolean ancestryIndexEnabled;
+
+    // The filter answers "missing" for ids it has not seen, so it is primed automatically only when account creations
+    // on other replicas reach it; set this for a single-replica deployment using the in-memory broadcaster
+    @Value("${account.existence.bloom.prime-on-startup:false}")
+    private boolean primeExistenceFilterOnStartup;
+
+    @PostConstruct
+    public void primeExistenceFilter() {
+        if (!primeExistenceFilterOnStartup && !existenceCache.seesAllReplicas()) {
+            log.info("Not priming the account existence filter, account creations on other replicas would not reach it");
+            return;
+        }
+        try {
+            existenceCache.prime(() -> repository.findAllIds().stream()
+                    .map(Account::getId)
+                    .collect(Collectors.toList()));
+        } catch (RuntimeException e) {
+            // Without the filter every unknown id is still answered, just through Cosmos and the negative cache
+            log.warn("Unable to prime the account existence filter", e);
+        }
+    }
+
     public Iterable<Account> list() {
         log.trace("Entering list()");
         return repository.findAll();
     }
 
+    /**
+     * One page of accounts; the continuation token is the opaque one from the previous page, or null for the first.
+     */
+    public PagedResult<Account> list(int limit, String continuationToken) {
+        log.trace("Entering list() with limit {}", limit);
+        String scope = ContinuationTokens.scope("accounts");
+        CosmosPage<Account> page = pagedQueries.accounts(ContinuationTokens.decode(scope, continuationToken), limit);
+        return new PagedResult<>(page.getItems(), ContinuationTokens.encode(scope, page.getContinuationToken()));
+    }
+
+    public PagedResult<ObjectNode> list(Projection projection, int limit, String continuationToken) {
+        log.trace("Entering list() with fields {} and limit {}", projection, limit);
+        String scope = ContinuationTokens.scope("accounts");
+        CosmosPage<ObjectNode> page = pagedQueries.accounts(projection, ContinuationTokens.decode(scope, continuationToken), limit);
+        return new PagedResult<>(page.getItems(), ContinuationTokens.encode(scope, page.getContinuationToken()));
+    }
+
     public Optional<Account> getAccountById(String id) {
         log.trace("Entering getAccountById() with {}", id);
         return repository.findById(id);
     }
 
+    public boolean accountExists(String id) {
+        log.trace("Entering accountExists() with {}", id);
+        return existenceCache.exists(id, accountId -> repository.existsById(accountId));
+    }
+
+    public CompletableFuture<Boolean> accountExistsAsync(String id) {
+        log.trace("Entering accountExistsAsync() with {}", id);
+        return CompletableFuture.supplyAsync(() -> accountExists(id), lookupExecutor);
+    }
+
     public Optional<Account> getAccountByName(String name) {
         log.trace("Entering getAccountByName() with {}", name);
         return repository.findByName(name);
@@ -36,33 +123,63 @@ public class AccountServiceImpl implements AccountService {
 
     public List<Account> getAllDescendantsForAccount(String id) {
         log.trace("Entering getAllDescendantsForAccount() with {}", id);
-        List<Account> allDescendantAccounts = new ArrayList<Account>();
-
-        List<Account> immediateDescendants = repository.findByParentAccountId(id);
-        for (Account account : immediateDescendants) { // add this account and all its descendants to the return list
-            allDescendantAccounts.add(account);
-            allDescendantAccounts.addAll(repository.findByParentAccountId(account.getId()));
+        if (treeSnapshotLoaded()) {
+            return treeCache.snapshot().descendants(Collections.singletonList(id));
         }
-        return allDescendantAccounts;
+        if (ancestryIndexEnabled) {
+            return repository.findByAncestorId(id);
+        }
+        return hierarchyWalker().descendants(Collections.singletonList(id));
     }
 
     public List<String> getAllChildrenAccountIds(List<String> accountIds) {
-        List<String> allAccountsAtLevel = new ArrayList<>();
-        // Add the first immediate descendants
-        allAccountsAtLevel.addAll(accountIds);
+        log.trace("Entering getAllChildrenAccountIds() with {}", accountIds);
+        Set<String> allAccountIds = new LinkedHashSet<>(accountIds);
+        if (treeSnapshotLoaded()) {
+            allAccountIds.addAll(treeCache.snapshot().descendantIds(accountIds));
+            return new ArrayList<>(allAccountIds);
+        }
+        List<Account> descendants;
+        if (ancestryIndexEnabled) {
+            descendants = repository.findByAnyAncestorIdIn(accountIds);
+        } else {
+            descendants = hierarchyWalker().descendants(accountIds);
+        }
+        for (Account descendant : descendants) {
+            allAccountIds.add(descendant.getId());
+        }
+        return new ArrayList<>(allAccountIds);
+    }
 
-        // Push all subsequent descendants at each level in the tree into the stack
-        Stack<List<Account>> stack = new Stack<>();
-        for(String accountId : accountIds) {
-            stack.push(repository.findByParentAccountId(accountId));
-            do {
-                allAccountsAtLevel.addAll(stack.pop().stream()
-                        .map(e -> e.getId())
-                        .collect(Collectors.toList())
-                );
-            } while(!stack.isEmpty());
+    public boolean isDescendantOf(String accountId, String ancestorId) {
+        log.trace("Entering isDescendantOf() with {} and {}", accountId, ancestorId);
+        Optional<Account> account = repository.findById(accountId);
+        if (!account.isPresent()) {
+            return false;
+        }
+        if (account.get().getAncestorIds() != null) {
+            return AccountAncestry.isUnder(account.get(), ancestorId);
         }
-        return allAccountsAtLevel;
+        // Not backfilled yet - derive the path from the parent links
+        return ancestorPath(account.get()).contains(ancestorId);
+    }
+
+    private boolean treeSnapshotLoaded() {
+        return treeCache != null && treeCache.isLoaded();
+    }
+
+    private void treeChanged(Account account) {
+        treeChanged(Collections.singletonList(account));
+    }
+
+    private void treeChanged(List<Account> accounts) {
+        if (treeCache != null) {
+            treeCache.accountsChanged(accounts);
+        }
+    }
+
+    private AccountHierarchyWalker hierarchyWalker() {
+        return new AccountHierarchyWalker(repository::findByParentAccountIdIn, maxHierarchyDepth, maxHierarchyNodes, hierarchyQueryBatchSize);
     }
 
     public Optional<Account> save(Account account) {
@@ -75,7 +192,10 @@ public class AccountServiceImpl implements AccountService {
 
         account.setIsActive(true);
         account.setCreatedDate(new Date());
+        account.setAncestorIds(ancestorPath(account));
         repository.save(account);
+        existenceCache.accountChanged(account.getId());
+        treeChanged(account);
         return Optional.of(account);
     }
 
@@ -94,10 +214,48 @@ public class AccountServiceImpl implements AccountService {
         newAccountData.setCreatedBy(oldAccountData.getCreatedBy());
         newAccountData.setCreatedDate(oldAccountData.getCreatedDate());
 
+        boolean reparented = !Objects.equals(oldAccountData.getParentAccountId(), newAccountData.getParentAccountId());
+        if (!reparented && oldAccountData.getAncestorIds() != null) {
+            newAccountData.setAncestorIds(oldAccountData.getAncestorIds());
+        } else {
+            newAccountData.setAncestorIds(ancestorPath(newAccountData));
+        }
+
+        // Walk the subtree before writing anything, so a move past the hierarchy limits leaves no partial update
+        List<Account> descendants = reparented
+                ? new ArrayList<>(hierarchyWalker().descendants(Collections.singletonList(id)))
+                : Collections.emptyList();
+
         repository.save(newAccountData);
+        treeChanged(newAccountData);
+        rewriteDescendantPaths(newAccountData, descendants);
         return repository.findById(id);
     }
 
+    private List<String> ancestorPath(Account account) {
+        return AccountAncestry.pathFor(account.getId(), account.getParentAccountId(), repository::findById, true, maxHierarchyDepth);
+    }
+
+    /**
+     * Re-root the stored path of every descendant of a moved account. Descendants are handled parents first, so each
+     * new path is its parent's new path plus the parent id.
+     */
+    private void rewriteDescendantPaths(Account moved, List<Account> descendants) {
+        Map<String, List<String>> newPaths = new HashMap<>();
+        newPaths.put(moved.getId(), moved.getAncestorIds());
+        for (Account descendant : descendants) {
+            List<String> path = new ArrayList<>(newPaths.get(descendant.getParentAccountId()));
+            path.add(descendant.getParentAccountId());
+            newPaths.put(descendant.getId(), path);
+            descendant.setAncestorIds(path);
+        }
+        if (!descendants.isEmpty()) {
+            log.info("Rewriting the ancestor path of {} descendants of account {}", descendants.size(), moved.getId());
+            repository.saveAll(descendants);
+            treeChanged(descendants);
+        }
+    }
+
     public Optional<Account> delete(String id) {
         log.trace("Entering delete() with {}", id);
 
@@ -109,6 +267,8 @@ public class AccountServiceImpl implements AccountService {
         Account accountToDelete = account.get();
         accountToDelete.setIsActive(false);
         repository.save(accountToDelete);
+        existenceCache.accountChanged(id);
+        treeChanged(accountToDelete);
         return Optional.of(accountToDelete);
     }
 }
@@ -0,0 +1,129 @@
+package com.lf.service;
+
+import com.lf.model.Account;
+import com.lf.repository.AccountRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the current AccountTreeSnapshot and keeps it fresh.
+ *
+ * The snapshot is loaded in full at startup, then refreshed from a periodic delta query on the Cosmos _ts timestamp.
+ * Writes made through this replica are applied by the writing thread before it returns, so a read that follows a
+ * write sees it. Writers queue their accounts and whichever holds the apply lock drains the queue, so a burst of
+ * concurrent writes builds one new snapshot rather than one per write. Each change swaps in a new snapshot through a
+ * volatile reference; readers never block on a write or a refresh and always see a complete tree.
+ */
+@Component
+@ConditionalOnProperty(name = "account.tree-snapshot.enabled", havingValue = "true")
+public class AccountTreeCache implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(AccountTreeCache.class);
+
+    @Autowired
+    private AccountRepository repository;
+
+    // Re-read a little before the previous refresh to cover clock skew and writes still in flight
+    @Value("${account.tree-snapshot.refresh-overlap-seconds:5}")
+    private long refreshOverlapSeconds = 5;
+
+    private volatile AccountTreeSnapshot snapshot = AccountTreeSnapshot.empty();
+    private final Queue<Account> pendingChanges = new ConcurrentLinkedQueue<>();
+    private volatile boolean loaded;
+    private volatile long lastRefreshEpochSeconds;
+    private volatile long lastRefreshCompletedMillis;
+
+    @PostConstruct
+    public void load() {
+        long startedAt = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        try {
+            snapshot = AccountTreeSnapshot.of(repository.findAll());
+            lastRefreshEpochSeconds = startedAt;
+            lastRefreshCompletedMillis = System.currentTimeMillis();
+            loaded = true;
+            log.info("Loaded the account tree snapshot with {} accounts", snapshot.size());
+        } catch (RuntimeException e) {
+            // Until a load succeeds, hierarchy queries fall back to Cosmos
+            log.warn("Unable to load the account tree snapshot", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${account.tree-snapshot.refresh-interval-ms:30000}")
+    public void refresh() {
+        if (!loaded) {
+            load();
+            return;
+        }
+        long startedAt = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        try {
+            List<Account> changed = repository.findModifiedSince(lastRefreshEpochSeconds - refreshOverlapSeconds);
+            apply(changed);
+            lastRefreshEpochSeconds = startedAt;
+            lastRefreshCompletedMillis = System.currentTimeMillis();
+            log.debug("Refreshed the account tree snapshot with {} changed accounts", changed.size());
+        } catch (RuntimeException e) {
+            log.warn("Unable to refresh the account tree snapshot", e);
+        }
+    }
+
+    /**
+     * Apply writes made through this replica without waiting for the next refresh.
+     * @param accounts
+     */
+    public void accountsChanged(final List<Account> accounts) {
+        if (!loaded) {
+            return;
+        }
+        for (Account account : accounts) {
+            pendingChanges.add(account.copy());
+        }
+        // Finds the queue already drained when a writer holding the lock applied these accounts with its own
+        apply(Collections.emptyList());
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public AccountTreeSnapshot snapshot() {
+        return snapshot;
+    }
+
+    // Local writes are applied after the refreshed accounts, so this replica does not read back an older copy of them
+    private synchronized void apply(final List<Account> changed) {
+        List<Account> all = new ArrayList<>(changed);
+        for (Account account = pendingChanges.poll(); account != null; account = pendingChanges.poll()) {
+            all.add(account);
+        }
+        if (!all.isEmpty()) {
+            snapshot = snapshot.withChanges(all);
+        }
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("account.tree.snapshot.size", this, cache -> cache.snapshot.size())
+                .description("Accounts held in the in-memory account tree snapshot")
+                .register(registry);
+        Gauge.builder("account.tree.snapshot.age", this, cache -> cache.loaded
+                        ? (System.currentTimeMillis() - cache.lastRefreshCompletedMillis) / 1000.0 : Double.NaN)
+                .description("Seconds since the account tree snapshot was last refreshed")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+}
@@ -0,0 +1,183 @@
+package com.lf.service;
+
+import com.lf.model.Account;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable in-memory copy of the whole account forest.
+ *
+ * Accounts are numbered 0..n-1 and the parent to children adjacency is held in compressed form: the children of
+ * account i are children[childOffsets[i] .. childOffsets[i + 1]). Ids are interned, so the snapshot adds no string
+ * copies beyond the id to index map. Accounts are copied on the way in and out, so neither the writer that supplied
+ * an account nor a caller of descendants() can change what the snapshot holds. Changes produce a new snapshot, so
+ * readers never need a lock; a change that moves no account shares the tree structure with the previous snapshot.
+ */
+public final class AccountTreeSnapshot {
+
+    private static final AccountTreeSnapshot EMPTY = build(Collections.emptyList());
+
+    private final Account[] accounts;
+    private final Map<String, Integer> indexById;
+    private final int[] childOffsets;
+    private final int[] children;
+
+    private AccountTreeSnapshot(final Account[] accounts, final Map<String, Integer> indexById,
+                                final int[] childOffsets, final int[] children) {
+        this.accounts = accounts;
+        this.indexById = indexById;
+        this.childOffsets = childOffsets;
+        this.children = children;
+    }
+
+    // The accounts must already be the snapshot's own copies
+    private static AccountTreeSnapshot build(final Collection<Account> source) {
+        Account[] accounts = source.toArray(new Account[0]);
+        Map<String, Integer> indexById = new HashMap<>(accounts.length * 2);
+        for (int i = 0; i < accounts.length; i++) {
+            indexById.put(accounts[i].getId().intern(), i);
+        }
+
+        int[] parentIndex = new int[accounts.length];
+        int[] childOffsets = new int[accounts.length + 1];
+        for (int i = 0; i < accounts.length; i++) {
+            String parentId = accounts[i].getParentAccountId();
+            Integer parent = parentId == null ? null : indexById.get(parentId);
+            parentIndex[i] = parent == null ? -1 : parent;
+            if (parent != null) {
+                childOffsets[parent + 1]++;
+            }
+        }
+        for (int i = 0; i < accounts.length; i++) {
+            childOffsets[i + 1] += childOffsets[i];
+        }
+        int[] children = new int[childOffsets[accounts.length]];
+        int[] next = childOffsets.clone();
+        for (int i = 0; i < accounts.length; i++) {
+            if (parentIndex[i] >= 0) {
+                children[next[parentIndex[i]]++] = i;
+            }
+        }
+        return new AccountTreeSnapshot(accounts, indexById, childOffsets, children);
+    }
+
+    public static AccountTreeSnapshot empty() {
+        return EMPTY;
+    }
+
+    public static AccountTreeSnapshot of(final Iterable<Account> accounts) {
+        Map<String, Account> byId = new LinkedHashMap<>();
+        for (Account account : accounts) {
+            byId.put(account.getId(), account.copy());
+        }
+        return build(byId.values());
+    }
+
+    /**
+     * @param changed accounts created or modified since this snapshot was built
+     * @return a new snapshot with the changed accounts replacing or added to this one's.
+     */
+    public AccountTreeSnapshot withChanges(final Collection<Account> changed) {
+        if (changed.isEmpty()) {
+            return this;
+        }
+        if (movesNoAccount(changed)) {
+            // Same ids, same parents: only the account records change, the adjacency is shared
+            Account[] updated = accounts.clone();
+            for (Account account : changed) {
+                updated[indexById.get(account.getId())] = account.copy();
+            }
+            return new AccountTreeSnapshot(updated, indexById, childOffsets, children);
+        }
+
+        Map<String, Account> byId = new LinkedHashMap<>();
+        for (Account account : accounts) {
+            byId.put(account.getId(), account);
+        }
+        for (Account account : changed) {
+            byId.put(account.getId(), account.copy());
+        }
+        return build(byId.values());
+    }
+
+    private boolean movesNoAccount(final Collection<Account> changed) {
+        for (Account account : changed) {
+            Integer index = indexById.get(account.getId());
+            if (index == null || !Objects.equals(accounts[index].getParentAccountId(), account.getParentAccountId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return accounts.length;
+    }
+
+    public boolean contains(final String id) {
+        return indexById.containsKey(id);
+    }
+
+    /**
+     * Collect every descendant of the given root accounts, breadth-first. The roots themselves are not returned, and
+     * an account reachable twice (through a cycle in the parent links) is returned once.
+     * @param rootIds
+     * @return List of copies of the descendant accounts, ordered by depth.
+     */
+    public List<Account> descendants(final Collection<String> rootIds) {
+        List<Integer> indexes = descendantIndexes(rootIds);
+        List<Account> descendants = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            descendants.add(accounts[index].copy());
+        }
+        return descendants;
+    }
+
+    /**
+     * As descendants(), without copying the accounts.
+     * @param rootIds
+     * @return List of descendant account ids, ordered by depth.
+     */
+    public List<String> descendantIds(final Collection<String> rootIds) {
+        List<Integer> indexes = descendantIndexes(rootIds);
+        List<String> descendantIds = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            descendantIds.add(accounts[index].getId());
+        }
+        return descendantIds;
+    }
+
+    private List<Integer> descendantIndexes(final Collection<String> rootIds) {
+        boolean[] visited = new boolean[accounts.length];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (String rootId : rootIds) {
+            Integer root = indexById.get(rootId);
+            if (root != null && !visited[root]) {
+                visited[root] = true;
+                queue.add(root);
+            }
+        }
+
+        List<Integer> descendants = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            int parent = queue.poll();
+            for (int c = childOffsets[parent]; c < childOffsets[parent + 1]; c++) {
+                int child = children[c];
+                if (!visited[child]) {
+                    visited[child] = true;
+                    descendants.add(child);
+                    queue.add(child);
+                }
+            }
+        }
+        return descendants;
+    }
+}
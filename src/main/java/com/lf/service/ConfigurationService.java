@@ -1,20 +1,32 @@
 package com.lf.service;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.lf.model.Configuration;
+import com.lf.model.PagedResult;
+import com.lf.repository.Projection;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 
 public interface ConfigurationService {
 
     Optional<List<Configuration>> list(String accountId);
 
-    Optional<Configuration> getConfigurationById(String id);
+    Stream<Configuration> stream(String accountId, Boolean enabled);
+
+    PagedResult<Configuration> list(String accountId, Boolean enabled, int limit, String continuationToken);
+
+    Stream<ObjectNode> stream(String accountId, Boolean enabled, Projection projection);
+
+    PagedResult<ObjectNode> list(String accountId, Boolean enabled, Projection projection, int limit, String continuationToken);
+
+    Optional<Configuration> getConfigurationById(String accountId, String id);
 
     Optional<Configuration> save(String accountId, Configuration configuration);
 
     Optional<Configuration> update(String accountId, String id, Configuration newConfigurationData);
 
-    Optional<Configuration> delete(String id, Boolean useName);
+    Optional<Configuration> delete(String accountId, String id, Boolean useName);
 }
@@ -1,14 +1,23 @@
 package com.lf.service;
 
+import com.azure.cosmos.models.PartitionKey;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.lf.model.Configuration;
+import com.lf.model.PagedResult;
 import com.lf.repository.ConfigurationRepository;
+import com.lf.repository.CosmosPage;
+import com.lf.repository.CosmosPagedQueries;
+import com.lf.repository.Projection;
 import com.lf.util.ApiUtils;
+import com.lf.util.ContinuationTokens;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.stream.Stream;
 
 @Service
 public class ConfigurationServiceImpl implements ConfigurationService {
@@ -17,14 +26,63 @@ public class ConfigurationServiceImpl implements ConfigurationService {
     @Autowired
     private ConfigurationRepository repository;
 
+    @Autowired
+    private CosmosPagedQueries pagedQueries;
+
+    @Value("${cosmos.query.page-size:200}")
+    private int pageSize = 200;
+
     public Optional<List<Configuration>> list(String accountId) {
         log.trace("Entering list()");
         return Optional.of(repository.findByAccountId(accountId));
     }
 
-    public Optional<Configuration> getConfigurationById(String id) {
+    /**
+     * Stream the account's configurations, reading one page from Cosmos at a time.
+     * @param enabled only enabled or only disabled configurations, or all of them when null
+     */
+    public Stream<Configuration> stream(String accountId, Boolean enabled) {
+        log.trace("Entering stream() with {} and enabled {}", accountId, enabled);
+        return CosmosPagedQueries.stream(continuationToken -> pagedQueries.configurationsByAccount(accountId, enabled, continuationToken, pageSize));
+    }
+
+    /**
+     * One page of the account's configurations; the continuation token is the opaque one from the previous page, or
+     * null for the first.
+     */
+    public PagedResult<Configuration> list(String accountId, Boolean enabled, int limit, String continuationToken) {
+        log.trace("Entering list() with accountId {}, enabled {} and limit {}", accountId, enabled, limit);
+        String scope = ContinuationTokens.scope("configurations", accountId, enabled);
+        CosmosPage<Configuration> page = pagedQueries.configurationsByAccount(accountId, enabled, ContinuationTokens.decode(scope, continuationToken), limit);
+        return new PagedResult<>(page.getItems(), ContinuationTokens.encode(scope, page.getContinuationToken()));
+    }
+
+    /**
+     * As {@link #stream(String, Boolean)}, reading only the projected properties of each configuration.
+     */
+    public Stream<ObjectNode> stream(String accountId, Boolean enabled, Projection projection) {
+        log.trace("Entering stream() with {}, enabled {} and fields {}", accountId, enabled, projection);
+        return CosmosPagedQueries.stream(continuationToken -> pagedQueries.configurationsByAccount(accountId, enabled, projection, continuationToken, pageSize));
+    }
+
+    public PagedResult<ObjectNode> list(String accountId, Boolean enabled, Projection projection, int limit, String continuationToken) {
+        log.trace("Entering list() with accountId {}, enabled {}, fields {} and limit {}", accountId, enabled, projection, limit);
+        String scope = ContinuationTokens.scope("configurations", accountId, enabled);
+        CosmosPage<ObjectNode> page = pagedQueries.configurationsByAccount(accountId, enabled, projection, ContinuationTokens.decode(scope, continuationToken), limit);
+        return new PagedResult<>(page.getItems(), ContinuationTokens.encode(scope, page.getContinuationToken()));
+    }
+
+    public Optional<Configuration> getConfigurationById(String accountId, String id) {
         log.trace("Entering getConfigurationById() with configurationId : {}", id);
-        return repository.findById(id);
+        return repository.findById(id, new PartitionKey(accountId));
+    }
+
+    private Optional<Configuration> getConfigurationByName(String accountId, String name) {
+        List<Configuration> configurations = repository.findByAccountIdAndName(accountId, name);
+        if (!configurations.isEmpty()) {
+            return Optional.of(configurations.get(0));
+        }
+        return Optional.empty();
     }
 
     public Optional<Configuration> save(String accountId, Configuration configuration) {
@@ -45,8 +103,8 @@ public class ConfigurationServiceImpl implements ConfigurationService {
     public Optional<Configuration> update(String accountId, String name, Configuration newConfigurationData) {
         log.trace("Entering update() with {}", newConfigurationData);
 
-        Optional<Configuration> existingCurrentConfiguration = repository.findByName(name);
-        if (existingCurrentConfiguration.isPresent()) {
+        Optional<Configuration> existingCurrentConfiguration = getConfigurationByName(accountId, name);
+        if (!existingCurrentConfiguration.isPresent()) {
             log.warn("Configuration {} not found", name);
             return Optional.empty();
         }
@@ -62,11 +120,11 @@ public class ConfigurationServiceImpl implements ConfigurationService {
         return Optional.of(newConfigurationData);
     }
 
-    public Optional<Configuration> delete(String id, Boolean useName) {
+    public Optional<Configuration> delete(String accountId, String id, Boolean useName) {
         // Mark the Configuration as inactive instead of physical deletion
         log.trace("Entering delete() with configuration : {} using name: {}", id, useName);
 
-        Optional<Configuration> existingConfiguration = (useName) ? repository.findByName(id) : repository.findById(id);
+        Optional<Configuration> existingConfiguration = (useName) ? getConfigurationByName(accountId, id) : getConfigurationById(accountId, id);
         if (!existingConfiguration.isPresent()) {
             log.warn("Configuration {} not found", id);
             return Optional.empty();
@@ -75,6 +133,6 @@ public class ConfigurationServiceImpl implements ConfigurationService {
         Configuration configurationToDelete = existingConfiguration.get();
         configurationToDelete.setConfigurationEnabled(false);
         repository.save(configurationToDelete);
-        return (useName) ? repository.findByName(id) : repository.findById(id);
+        return (useName) ? getConfigurationByName(accountId, id) : getConfigurationById(accountId, id);
     }
 }
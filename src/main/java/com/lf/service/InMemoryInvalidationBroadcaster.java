@@ -0,0 +1,34 @@
+package com.lf.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Single-process InvalidationBroadcaster: invalidations are delivered synchronously to listeners in this JVM only.
+ * Multi-replica deployments should register a @Primary InvalidationBroadcaster backed by a shared message channel.
+ */
+@Component
+public class InMemoryInvalidationBroadcaster implements InvalidationBroadcaster {
+
+    private final Map<String, List<Consumer<String>>> listeners = new ConcurrentHashMap<>();
+
+    public void publish(final String topic, final String key) {
+        for (Consumer<String> listener : listeners.getOrDefault(topic, new CopyOnWriteArrayList<>())) {
+            listener.accept(key);
+        }
+    }
+
+    public void subscribe(final String topic, final Consumer<String> listener) {
+        listeners.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    @Override
+    public boolean reachesAllReplicas() {
+        return false;
+    }
+}
@@ -0,0 +1,22 @@
+package com.lf.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Fans cache invalidations out to every replica of the service. Each local cache subscribes to its own topic and
+ * drops the published key when notified, so writes handled by one replica take effect on all of them.
+ */
+public interface InvalidationBroadcaster {
+
+    void publish(String topic, String key);
+
+    void subscribe(String topic, Consumer<String> listener);
+
+    /**
+     * Whether published invalidations reach every replica, rather than only this JVM. Caches that would otherwise
+     * give permanent wrong answers on other replicas only rely on invalidations when this is true.
+     */
+    default boolean reachesAllReplicas() {
+        return false;
+    }
+}
@@ -0,0 +1,173 @@
+package com.lf.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.lf.OAuthServerClientConfiguration;
+import com.lf.util.ApiUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The OAuth server's token signing keys, read from a JWKS document and refreshed periodically.
+ *
+ * The location is any Spring resource location, so the key set can come from the OAuth server (https:) or, for local
+ * testing, from a file (file:) or the classpath (classpath:). http(s) locations are fetched over the pooled OAuth
+ * client, with its connect and read timeouts. Only RSA signing keys are kept. A token signed with a key id that is
+ * not in the set triggers an early refresh in the background, at most once per minimum refresh interval, so rotated
+ * keys are picked up without waiting for the next scheduled refresh; the token itself is left unverifiable. The key
+ * map is swapped through a volatile reference; lookups never block on a refresh.
+ */
+@Component
+public class JwksKeySet {
+    private static final Logger log = LoggerFactory.getLogger(JwksKeySet.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String location;
+    private final long minRefreshIntervalMillis;
+    private final ResourceLoader resourceLoader;
+    private final RestTemplate restTemplate;
+    private final ExecutorService earlyRefreshExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("jwks-refresh-%d").setDaemon(true).build());
+    private final AtomicBoolean earlyRefreshPending = new AtomicBoolean();
+
+    private volatile Map<String, PublicKey> keys = Collections.emptyMap();
+    private volatile long lastRefreshMillis;
+
+    /**
+     * @param location the JWKS resource location, or empty when tokens are only validated by the OAuth server
+     * @param minRefreshIntervalSeconds the least time between two refreshes triggered by unknown key ids
+     * @param restTemplate fetches http(s) locations
+     */
+    @Autowired
+    public JwksKeySet(@Value("${security.token.jwks-location:}") final String location,
+                      @Value("${security.token.jwks-min-refresh-interval-seconds:30}") final long minRefreshIntervalSeconds,
+                      final ResourceLoader resourceLoader,
+                      @Qualifier(OAuthServerClientConfiguration.OAUTH_REST_TEMPLATE) final RestTemplate restTemplate) {
+        this.location = location;
+        this.minRefreshIntervalMillis = TimeUnit.SECONDS.toMillis(minRefreshIntervalSeconds);
+        this.resourceLoader = resourceLoader;
+        this.restTemplate = restTemplate;
+    }
+
+    public boolean isConfigured() {
+        return !ApiUtils.isNullOrEmpty(location);
+    }
+
+    // At startup the load is bounded by the client timeouts; until it succeeds local tokens are unverifiable
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${security.token.jwks-refresh-interval-ms:300000}", initialDelayString = "${security.token.jwks-refresh-interval-ms:300000}")
+    public void refresh() {
+        if (!isConfigured()) {
+            return;
+        }
+        lastRefreshMillis = System.currentTimeMillis();
+        try {
+            Map<String, PublicKey> loaded = parse(fetch());
+            keys = loaded;
+            log.debug("Loaded {} token signing keys from {}", loaded.size(), location);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            // Keep the keys we have, a failed refresh must not stop tokens signed with them verifying
+            log.warn("Unable to load the token signing keys from {}", location, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        earlyRefreshExecutor.shutdownNow();
+    }
+
+    /**
+     * Get the signing key for a token. An unknown key id starts an early refresh in the background.
+     * @param keyId the token's kid header, or null when the token has none
+     * @return the key, or empty if the key set has no such key yet.
+     */
+    public Optional<PublicKey> key(final String keyId) {
+        Optional<PublicKey> key = find(keyId);
+        if (!key.isPresent()) {
+            refreshEarly();
+        }
+        return key;
+    }
+
+    private void refreshEarly() {
+        if (!isConfigured() || System.currentTimeMillis() - lastRefreshMillis < minRefreshIntervalMillis
+                || !earlyRefreshPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            earlyRefreshExecutor.execute(() -> {
+                try {
+                    refresh();
+                } finally {
+                    earlyRefreshPending.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            earlyRefreshPending.set(false);  // shutting down
+        }
+    }
+
+    private JsonNode fetch() throws IOException {
+        if (location.startsWith("https:") || location.startsWith("http:")) {
+            return MAPPER.readTree(restTemplate.getForObject(location, String.class));
+        }
+        try (InputStream in = resourceLoader.getResource(location).getInputStream()) {
+            return MAPPER.readTree(in);
+        }
+    }
+
+    private Optional<PublicKey> find(final String keyId) {
+        Map<String, PublicKey> current = keys;
+        if (keyId == null) {
+            // A token without a kid can only be matched when the set holds a single key
+            return current.size() == 1 ? Optional.of(current.values().iterator().next()) : Optional.empty();
+        }
+        return Optional.ofNullable(current.get(keyId));
+    }
+
+    private static Map<String, PublicKey> parse(final JsonNode jwks) throws GeneralSecurityException {
+        Map<String, PublicKey> parsed = new HashMap<>();
+        for (JsonNode jwk : jwks.path("keys")) {
+            if (!"RSA".equals(jwk.path("kty").asText()) || "enc".equals(jwk.path("use").asText())) {
+                continue;
+            }
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            BigInteger modulus = new BigInteger(1, decoder.decode(jwk.path("n").asText()));
+            BigInteger exponent = new BigInteger(1, decoder.decode(jwk.path("e").asText()));
+            parsed.put(jwk.path("kid").asText(""), KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(modulus, exponent)));
+        }
+        if (parsed.isEmpty()) {
+            throw new IllegalArgumentException("The key set holds no RSA signing keys");
+        }
+        return Collections.unmodifiableMap(parsed);
+    }
+}
@@ -0,0 +1,157 @@
+package com.lf.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.lf.model.SecurityContext;
+import com.lf.util.ApiUtils;
+import com.lf.util.Jwt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies RS256 signed access tokens against the {@link JwksKeySet} without a call to the OAuth server, and builds
+ * the SecurityContext from the token's claims: user_id, account_id, name (or user_name) and the authorities array.
+ *
+ * A token is VERIFIED, REJECTED when it is a JWT this verifier can check but fails (bad signature, expired, wrong
+ * issuer, missing claims), or UNVERIFIABLE when it cannot be checked locally at all (an opaque token, an algorithm
+ * other than RS256, or a key id the key set does not hold). Only UNVERIFIABLE tokens are worth sending to the OAuth
+ * server instead.
+ */
+@Component
+public class LocalTokenVerifier {
+    private static final Logger log = LoggerFactory.getLogger(LocalTokenVerifier.class);
+
+    private static final String RS256 = "RS256";
+
+    private final JwksKeySet keySet;
+    private final String issuer;
+    private final long clockSkewSeconds;
+
+    /**
+     * @param issuer the required iss claim, or empty to accept any issuer
+     * @param clockSkewSeconds the leeway allowed when checking exp and nbf
+     */
+    @Autowired
+    public LocalTokenVerifier(final JwksKeySet keySet,
+                              @Value("${security.token.issuer:}") final String issuer,
+                              @Value("${security.token.clock-skew-seconds:30}") final long clockSkewSeconds) {
+        this.keySet = keySet;
+        this.issuer = issuer;
+        this.clockSkewSeconds = clockSkewSeconds;
+    }
+
+    public Result verify(final String accessToken) {
+        if (!Jwt.isCompactJws(accessToken)) {
+            return Result.UNVERIFIABLE;
+        }
+        Jwt jwt;
+        try {
+            jwt = Jwt.parse(accessToken);
+        } catch (IllegalArgumentException e) {
+            log.debug("Rejecting a malformed JWT: {}", e.getMessage());
+            return Result.REJECTED;
+        }
+        if (!RS256.equals(jwt.getAlgorithm())) {
+            return Result.UNVERIFIABLE;
+        }
+        Optional<PublicKey> key = keySet.key(jwt.getKeyId());
+        if (!key.isPresent()) {
+            log.debug("No token signing key with kid {}", jwt.getKeyId());
+            return Result.UNVERIFIABLE;
+        }
+        if (!signatureMatches(jwt, key.get())) {
+            log.warn("Rejecting a JWT whose signature does not match the key with kid {}", jwt.getKeyId());
+            return Result.REJECTED;
+        }
+
+        long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        Long expiresAt = jwt.getEpochSecondsClaim("exp");
+        Long notBefore = jwt.getEpochSecondsClaim("nbf");
+        if (expiresAt == null || now - clockSkewSeconds >= expiresAt || (notBefore != null && now + clockSkewSeconds < notBefore)) {
+            log.debug("Rejecting a JWT outside its validity period");
+            return Result.REJECTED;
+        }
+        if (!ApiUtils.isNullOrEmpty(issuer) && !issuer.equals(jwt.getClaim("iss"))) {
+            log.debug("Rejecting a JWT from issuer {}", jwt.getClaim("iss"));
+            return Result.REJECTED;
+        }
+
+        try {
+            String name = jwt.getClaim("name") != null ? jwt.getClaim("name") : jwt.getClaim("user_name");
+            return Result.verified(SecurityContext.of(jwt.getClaim("user_id"), jwt.getClaim("account_id"), authorities(jwt), name), expiresAt);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            log.warn("Rejecting a JWT without the security context claims: {}", e.getMessage());
+            return Result.REJECTED;
+        }
+    }
+
+    private static boolean signatureMatches(final Jwt jwt, final PublicKey key) {
+        try {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initVerify(key);
+            signature.update(jwt.getSigningInput());
+            return signature.verify(jwt.getSignature());
+        } catch (GeneralSecurityException e) {
+            log.warn("Unable to verify a JWT signature", e);
+            return false;
+        }
+    }
+
+    private static List<String> authorities(final Jwt jwt) {
+        List<String> authorities = new ArrayList<>();
+        for (JsonNode authority : jwt.getClaims().path("authorities")) {
+            authorities.add(authority.asText());
+        }
+        return authorities;
+    }
+
+    /**
+     * The outcome of a local verification, with the SecurityContext and the token's expiry when VERIFIED.
+     */
+    public static final class Result {
+        public enum Status {
+            VERIFIED,
+            REJECTED,
+            UNVERIFIABLE
+        }
+
+        static final Result REJECTED = new Result(Status.REJECTED, null, null);
+        static final Result UNVERIFIABLE = new Result(Status.UNVERIFIABLE, null, null);
+
+        private final Status status;
+        private final SecurityContext securityContext;
+        private final Long expiresAtEpochSeconds;
+
+        private Result(final Status status, final SecurityContext securityContext, final Long expiresAtEpochSeconds) {
+            this.status = status;
+            this.securityContext = securityContext;
+            this.expiresAtEpochSeconds = expiresAtEpochSeconds;
+        }
+
+        static Result verified(final SecurityContext securityContext, final long expiresAtEpochSeconds) {
+            return new Result(Status.VERIFIED, securityContext, expiresAtEpochSeconds);
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public SecurityContext getSecurityContext() {
+            return securityContext;
+        }
+
+        public Long getExpiresAtEpochSeconds() {
+            return expiresAtEpochSeconds;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.lf.service;
+
+import com.lf.OAuthServerClientConfiguration;
+import com.lf.model.HTTPEnums.OAuthServerEndpoints;
+import com.lf.util.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls to the OAuth server's {@link OAuthServerEndpoints}, made over the pooled oauthRestTemplate.
+ *
+ * A bulkhead caps the calls in flight so a slow OAuth server ties up at most that many request threads, and a
+ * circuit breaker stops calling it for a while after consecutive failures (I/O errors, timeouts and 5xx responses;
+ * a 4xx such as an invalid token is a healthy answer). Calls refused by either throw RejectedExecutionException
+ * without touching the network.
+ *
+ * Metrics: oauth.client.requests (call time, tagged endpoint and outcome), oauth.client.rejected (tagged reason),
+ * oauth.client.circuit.open (1 while the circuit is not closed), and the connection pool meters tagged httpclient=oauth.
+ */
+@Component
+public class OAuthServerClient {
+    private static final Logger log = LoggerFactory.getLogger(OAuthServerClient.class);
+
+    private static final String SECURITY_CONTEXT_HEADER = "X-Security-Context";
+
+    private final RestTemplate restTemplate;
+    private final String baseEndpoint;
+    private final Semaphore bulkhead;
+    private final long bulkheadMaxWaitMs;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry registry;
+    private final Counter bulkheadRejections;
+    private final Counter circuitRejections;
+
+    @Autowired
+    public OAuthServerClient(@Qualifier(OAuthServerClientConfiguration.OAUTH_REST_TEMPLATE) final RestTemplate restTemplate,
+                             @Value("${dlvr.oauth.server.baseurl}") final String baseEndpoint,
+                             @Value("${oauth.client.bulkhead.max-concurrent-calls:50}") final int maxConcurrentCalls,
+                             @Value("${oauth.client.bulkhead.max-wait-ms:100}") final long bulkheadMaxWaitMs,
+                             @Value("${oauth.client.circuit-breaker.failure-threshold:5}") final int failureThreshold,
+                             @Value("${oauth.client.circuit-breaker.open-seconds:30}") final long openSeconds,
+                             final MeterRegistry registry) {
+        this.restTemplate = restTemplate;
+        this.baseEndpoint = baseEndpoint;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.bulkheadMaxWaitMs = bulkheadMaxWaitMs;
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openSeconds, TimeUnit.SECONDS);
+        this.registry = registry;
+        this.bulkheadRejections = Counter.builder("oauth.client.rejected").tag("reason", "bulkhead")
+                .description("OAuth server calls refused because too many were in flight").register(registry);
+        this.circuitRejections = Counter.builder("oauth.client.rejected").tag("reason", "circuit_open")
+                .description("OAuth server calls refused while the circuit was open").register(registry);
+        Gauge.builder("oauth.client.circuit.open", circuitBreaker, breaker -> breaker.getState() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .description("1 while calls to the OAuth server are being refused or trialled")
+                .register(registry);
+    }
+
+    /**
+     * Validate an access token with the OAuth server.
+     * @param accessToken
+     * @return the X-Security-Context header of the validated token, or empty if the server returned none.
+     * @throws RejectedExecutionException if the circuit is open or the bulkhead is full
+     */
+    public Optional<String> validate(final String accessToken) {
+        ResponseEntity<Void> response = exchange(OAuthServerEndpoints.VALIDATE,
+                OAuthServerEndpoints.VALIDATE.getValue() + "?access_token=" + encode(accessToken), HttpMethod.POST, Void.class);
+        List<String> securityContext = response.getHeaders().get(SECURITY_CONTEXT_HEADER);
+        return (securityContext != null && !securityContext.isEmpty()) ? Optional.of(securityContext.get(0)) : Optional.empty();
+    }
+
+    /**
+     * Request an access token with the password grant.
+     * @throws RejectedExecutionException if the circuit is open or the bulkhead is full
+     */
+    public ResponseEntity<String> getToken(final String username, final String password) {
+        return exchange(OAuthServerEndpoints.GETOAUTHTOKEN,
+                OAuthServerEndpoints.replaceUsernameAndPassword(encode(username), encode(password), OAuthServerEndpoints.GETOAUTHTOKEN.getValue()),
+                HttpMethod.POST, String.class);
+    }
+
+    /**
+     * Exchange a refresh token for a new access token.
+     * @throws RejectedExecutionException if the circuit is open or the bulkhead is full
+     */
+    public ResponseEntity<String> refreshToken(final String refreshToken) {
+        return exchange(OAuthServerEndpoints.REFRESHOAUTHTOKEN,
+                OAuthServerEndpoints.replaceToken(encode(refreshToken), OAuthServerEndpoints.REFRESHOAUTHTOKEN.getValue()),
+                HttpMethod.POST, String.class);
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    private <T> ResponseEntity<T> exchange(final OAuthServerEndpoints endpoint, final String pathAndQuery,
+                                           final HttpMethod method, final Class<T> responseType) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            circuitRejections.increment();
+            throw new RejectedExecutionException("The OAuth server circuit is open");
+        }
+        boolean permitted = false;
+        try {
+            permitted = bulkhead.tryAcquire(bulkheadMaxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!permitted) {
+            // The call never went out, so it says nothing about the server's health
+            circuitBreaker.releasePermission();
+            bulkheadRejections.increment();
+            throw new RejectedExecutionException("Too many OAuth server calls in flight");
+        }
+
+        long startedAt = System.nanoTime();
+        String outcome = "success";
+        try {
+            ResponseEntity<T> response = restTemplate.exchange(baseEndpoint + pathAndQuery, method, null, responseType);
+            circuitBreaker.recordSuccess();
+            return response;
+        } catch (HttpStatusCodeException e) {
+            if (e.getStatusCode().is5xxServerError()) {
+                outcome = "server_error";
+                circuitBreaker.recordFailure();
+            } else {
+                outcome = "client_error";
+                circuitBreaker.recordSuccess();
+            }
+            throw e;
+        } catch (RestClientException e) {
+            outcome = "io_error";
+            circuitBreaker.recordFailure();
+            log.warn("OAuth server call to {} failed: {}", endpoint, e.getMessage());
+            throw e;
+        } catch (RuntimeException e) {
+            outcome = "error";
+            circuitBreaker.releasePermission();
+            throw e;
+        } finally {
+            bulkhead.release();
+            Timer.builder("oauth.client.requests")
+                    .description("OAuth server call time")
+                    .tag("endpoint", endpoint.name())
+                    .tag("outcome", outcome)
+                    .register(registry)
+                    .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String encode(final String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.lf.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BCrypt hashing on a small dedicated pool. Each hash is tens of milliseconds of CPU, so a burst of user creates or
+ * password changes is capped at the pool's threads rather than taking every core from the request threads. When the
+ * pool and its queue are full, hashing is refused with a RejectedExecutionException, which callers turn into a 429.
+ *
+ * Metrics: password.hash (hash time, excluding queueing), password.hash.rejected, and the executor.* meters tagged
+ * name=password.hashing for queue depth and active threads.
+ */
+@Component
+public class PasswordHasher {
+    private static final Logger log = LoggerFactory.getLogger(PasswordHasher.class);
+
+    private final BCryptPasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+    private final Timer hashTimer;
+    private final Counter rejections;
+
+    /**
+     * @param strength the BCrypt cost factor (log2 of the rounds)
+     * @param threads the pool size, or 0 for half the available processors
+     * @param queueCapacity how many hashes may wait for a thread before hashing is refused
+     */
+    @Autowired
+    public PasswordHasher(@Value("${security.password-hashing.bcrypt-strength:10}") final int strength,
+                          @Value("${security.password-hashing.threads:0}") final int threads,
+                          @Value("${security.password-hashing.queue-capacity:64}") final int queueCapacity,
+                          final MeterRegistry registry) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.encoder = new BCryptPasswordEncoder(strength);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat("password-hashing-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.hashTimer = Timer.builder("password.hash").description("BCrypt hash time, excluding queueing").register(registry);
+        this.rejections = Counter.builder("password.hash.rejected").description("Hashes refused because the pool was saturated").register(registry);
+        new ExecutorServiceMetrics(executor, "password.hashing", Collections.emptyList()).bindTo(registry);
+    }
+
+    /**
+     * Hash the password on the hashing pool.
+     * @param rawPassword
+     * @return the BCrypt hash, once computed
+     * @throws RejectedExecutionException if the pool and its queue are full
+     */
+    public CompletableFuture<String> hashAsync(final String rawPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> hashTimer.record(() -> encoder.encode(rawPassword)), executor);
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            log.warn("Password hashing is saturated with {} hashes queued", executor.getQueue().size());
+            throw e;
+        }
+    }
+
+    /**
+     * Hash the password on the hashing pool, waiting for the result.
+     * @param rawPassword
+     * @return the BCrypt hash
+     * @throws RejectedExecutionException if the pool and its queue are full
+     */
+    public String hash(final String rawPassword) {
+        try {
+            return hashAsync(rawPassword).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
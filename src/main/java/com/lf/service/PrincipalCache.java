@@ -0,0 +1,94 @@
+package com.lf.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.lf.model.ResolvedPrincipal;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Short-lived cache of user id to ResolvedPrincipal, used by the per-request "is the logged-in user active" checks.
+ * UserServiceImpl invalidates an entry on every write to that user and publishes the invalidation through the
+ * InvalidationBroadcaster. The bundled InMemoryInvalidationBroadcaster only reaches this JVM, so unless a shared
+ * broadcaster is registered other replicas keep their copy until the TTL expires. Unknown users are not cached.
+ *
+ * A principal loaded while an invalidation lands is not kept: every invalidation advances a generation counter, and a
+ * load that sees the counter move drops what it cached, so a write can never be undone by a read that raced it.
+ */
+@Component
+public class PrincipalCache implements MeterBinder {
+
+    public static final String TOPIC = "principal";
+
+    private final Cache<String, ResolvedPrincipal> cache;
+    private final InvalidationBroadcaster broadcaster;
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public PrincipalCache(@Value("${security.principal.cache.maximum-size:10000}") final long maximumSize,
+                          @Value("${security.principal.cache.expire-after-write-seconds:30}") final long expireAfterWriteSeconds,
+                          final InvalidationBroadcaster broadcaster) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        this.broadcaster = broadcaster;
+        broadcaster.subscribe(TOPIC, this::invalidateLocally);
+    }
+
+    /**
+     * Get the principal for the given user id, using the loader on a cache miss.
+     * @param userId
+     * @param loader looks the principal up by user id
+     * @return the principal, or empty if the user does not exist.
+     */
+    public Optional<ResolvedPrincipal> get(final String userId, final Function<String, Optional<ResolvedPrincipal>> loader) {
+        ResolvedPrincipal principal = cache.getIfPresent(userId);
+        if (principal != null) {
+            return Optional.of(principal);
+        }
+        long loadedAt = generation.get();
+        Optional<ResolvedPrincipal> loaded = loader.apply(userId);
+        loaded.ifPresent(p -> {
+            cache.put(userId, p);
+            // An invalidation during the load may predate the put; it bumped the generation before invalidating,
+            // so checking after the put catches every such race
+            if (generation.get() != loadedAt) {
+                cache.asMap().remove(userId, p);
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Drop the cached principal for the given user id here and on every other replica.
+     * @param userId
+     */
+    public void invalidate(final String userId) {
+        if (userId == null) {
+            return;
+        }
+        invalidateLocally(userId);
+        broadcaster.publish(TOPIC, userId);
+    }
+
+    private void invalidateLocally(final String userId) {
+        generation.incrementAndGet();
+        cache.invalidate(userId);
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, cache, "security.principal");
+    }
+}
@@ -0,0 +1,34 @@
+package com.lf.service;
+
+import com.lf.model.ResolvedPrincipal;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Holds the logged-in principal for the lifetime of one request, so the User is looked up at most once per request
+ * no matter how many security checks run against it. Access checks may run on a worker thread, hence the lock.
+ */
+@Component
+@RequestScope
+public class RequestPrincipal {
+
+    private String userId;
+    private Optional<ResolvedPrincipal> principal;
+
+    /**
+     * Get the principal for the given user id, using the loader only on the first call of the request.
+     * @param userId
+     * @param loader looks the principal up by user id
+     * @return the resolved principal, or empty if the user does not exist.
+     */
+    public synchronized Optional<ResolvedPrincipal> resolve(final String userId, final Function<String, Optional<ResolvedPrincipal>> loader) {
+        if (principal == null || !userId.equals(this.userId)) {
+            this.principal = loader.apply(userId);
+            this.userId = userId;
+        }
+        return principal;
+    }
+}
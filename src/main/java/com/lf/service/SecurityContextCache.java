@@ -0,0 +1,70 @@
+package com.lf.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.lf.model.SecurityContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches parsed SecurityContexts by their raw X-Security-Context header, so repeat callers skip header decoding.
+ * The header string itself is the key: its hash picks the bucket and a full comparison guards against collisions,
+ * so one caller can never be handed another caller's context. Only headers that decode and validate are cached.
+ * Callers' headers are all decoded here, so this is where security.context.legacy-format-accepted applies.
+ */
+@Component
+public class SecurityContextCache implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(SecurityContextCache.class);
+
+    private final Cache<String, SecurityContext> cache;
+    private final boolean legacyFormatAccepted;
+
+    @Autowired
+    public SecurityContextCache(@Value("${security.context.cache.maximum-size:10000}") final long maximumSize,
+                                @Value("${security.context.cache.expire-after-write-seconds:300}") final long expireAfterWriteSeconds,
+                                @Value("${security.context.legacy-format-accepted:true}") final boolean legacyFormatAccepted) {
+        this.legacyFormatAccepted = legacyFormatAccepted;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get the SecurityContext for the given header, decoding it only on a cache miss.
+     * @param xSecurityHeader
+     * @return the SecurityContext, or empty if the header could not be decoded or failed validation.
+     */
+    public Optional<SecurityContext> get(final String xSecurityHeader) {
+        if (xSecurityHeader == null || xSecurityHeader.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(cache.get(xSecurityHeader, () -> new SecurityContext(xSecurityHeader, legacyFormatAccepted)));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            log.warn("Unable to decode the X-Security-Context header: {}", e.getCause().getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, cache, "security.context");
+    }
+}
@@ -1,8 +1,10 @@
 package com.lf.service;
 
+import com.lf.model.ResolvedPrincipal;
 import com.lf.model.SecurityContext;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public interface SecurityService {
 
@@ -12,8 +14,14 @@ public interface SecurityService {
 
     Boolean isLoggedInUserActive(SecurityContext securityContext);
 
+    CompletableFuture<Boolean> isLoggedInUserActiveAsync(SecurityContext securityContext);
+
     String getAccountIdForLoggedInUser(SecurityContext securityContext);
 
     String getUserNameForUserId(SecurityContext securityContext);
 
+    CompletableFuture<String> getUserNameForUserIdAsync(SecurityContext securityContext);
+
+    Optional<ResolvedPrincipal> resolvePrincipal(SecurityContext securityContext);
+
 }
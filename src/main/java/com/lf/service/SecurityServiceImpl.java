@@ -1,21 +1,25 @@
 package com.lf.service;
 
-import com.lf.model.User;
+import com.lf.LookupExecutorConfiguration;
+import com.lf.model.ResolvedPrincipal;
 import com.lf.model.UserRole;
-import com.lf.model.HTTPEnums;
 import com.lf.model.SecurityContext;
+import com.lf.model.TokenValidationMode;
+import com.lf.model.User;
+import com.lf.util.ApiUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 
 @Service
@@ -28,49 +32,88 @@ public class SecurityServiceImpl implements SecurityService {
     @Autowired
     private AccountService accountService;
 
-    @Value("${dlvr.oauth.server.baseurl}")
-    private String oauthServerBaseEndpoint;
+    @Autowired
+    private RequestPrincipal requestPrincipal;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    @Qualifier(LookupExecutorConfiguration.LOOKUP_EXECUTOR)
+    private Executor lookupExecutor;
+
+    @Autowired
+    private OAuthServerClient oauthServerClient;
+
+    @Autowired
+    private ValidatedTokenCache validatedTokenCache;
+
+    @Autowired
+    private LocalTokenVerifier localTokenVerifier;
+
+    private TokenValidationMode validationMode = TokenValidationMode.REMOTE;
+
+    @Value("${security.token.validation-mode:remote}")
+    void setValidationMode(final String validationMode) {
+        this.validationMode = TokenValidationMode.fromValue(validationMode);
+    }
 
     public Optional<SecurityContext> validate(final String accessToken) {
-        log.trace("getAccessToken(), gather the access token from the OAuth Server.");
-        ResponseEntity validateAccessToken = new RestTemplate().exchange(oauthServerBaseEndpoint + HTTPEnums.OAuthServerEndpoints.VALIDATE.getValue() + "?access_token=" + accessToken, HttpMethod.POST, null, Void.class);
-        HttpHeaders httpHeaders = validateAccessToken.getHeaders();
-        List<String> securityContext = httpHeaders.get("X-Security-Context");
-        return (securityContext != null && !securityContext.isEmpty()) ? Optional.of(new SecurityContext(securityContext.get(0))) : Optional.empty();
+        if (validationMode != TokenValidationMode.REMOTE) {
+            LocalTokenVerifier.Result result = localTokenVerifier.verify(accessToken);
+            switch (result.getStatus()) {
+                case VERIFIED:
+                    return Optional.of(result.getSecurityContext());
+                case REJECTED:
+                    return Optional.empty();
+                default:
+                    if (validationMode == TokenValidationMode.LOCAL) {
+                        log.debug("Rejecting an access token that cannot be verified locally");
+                        return Optional.empty();
+                    }
+            }
+        }
+        return validateRemotely(accessToken);
+    }
+
+    private Optional<SecurityContext> validateRemotely(final String accessToken) {
+        log.trace("validateRemotely(), validate the access token with the OAuth Server.");
+        return validatedTokenCache.get(accessToken, () -> oauthServerClient.validate(accessToken).map(SecurityContext::new));
     }
 
     public Boolean userHasRoles(final SecurityContext securityContext) {
         log.trace("hasRoles() securityContext {}", securityContext);
         // Use the SC to process the roles and see if a user can interact with this endpoint
-        Optional<User> user = userService.getUserById(securityContext.getUserId());
+        Optional<ResolvedPrincipal> user = resolvePrincipal(securityContext);
         if(!user.isPresent()) {
             log.warn("The user should be present in order to process the roles, {}", user);
             return false;
         }
 
         // Does the user have the correct roles to access this endpoint?
-        Boolean hasRole = false;
         List<UserRole> getUserRoles = user.get().getUserRoles();
-        for(UserRole role : getUserRoles) {
-            if(securityContext.hasRole(role.value())) {
-                log.info("User {} has role {}", user.get().getUsername(), role.toString());
-                hasRole = true;
-            }
-        }
+        boolean hasRole = getUserRoles != null && securityContext.hasAny(getUserRoles.toArray(new UserRole[0]));
+        log.debug("User {} holds one of roles {}: {}", user.get().getUsername(), getUserRoles, hasRole);
         return hasRole;
     }
 
     public Boolean isLoggedInUserActive(final SecurityContext securityContext) {
         log.trace("isLoggedInUserActive() securityContext {}", securityContext);
-        Optional<User> currentUser = userService.getUserById(securityContext.getUserId());
-        if (currentUser.isPresent() && currentUser.get().getIsActive())
+        Optional<ResolvedPrincipal> currentUser = resolvePrincipal(securityContext);
+        if (currentUser.isPresent() && currentUser.get().isActive())
             return true;
         return false;
     }
 
+    public CompletableFuture<Boolean> isLoggedInUserActiveAsync(final SecurityContext securityContext) {
+        log.trace("isLoggedInUserActiveAsync() securityContext {}", securityContext);
+        // The lookup executor carries the request attributes over, so the principal is still resolved once per request
+        return CompletableFuture.supplyAsync(() -> isLoggedInUserActive(securityContext), lookupExecutor);
+    }
+
     public String getAccountIdForLoggedInUser(final SecurityContext securityContext) {
         log.trace("getAccountIdForLoggedInUser() securityContext {}", securityContext);
-        Optional<User> currentUser = userService.getUserById(securityContext.getUserId());
+        Optional<ResolvedPrincipal> currentUser = resolvePrincipal(securityContext);
         if(!currentUser.isPresent()) {
             log.warn("The user should be present in order to process getting the accountId, {}", currentUser);
             return "";
@@ -80,11 +123,44 @@ public class SecurityServiceImpl implements SecurityService {
 
     public String getUserNameForUserId(final SecurityContext securityContext) {
         log.trace("getAccountIdForLoggedInUser() securityContext {}", securityContext);
-        Optional<User> currentUser = userService.getUserById(securityContext.getUserId());
+        Optional<ResolvedPrincipal> currentUser = resolvePrincipal(securityContext);
         if(!currentUser.isPresent()) {
             log.warn("The user should be present in order to process getting the accountId, {}", currentUser);
             return "";
         }
         return currentUser.get().getName();
     }
+
+    public CompletableFuture<String> getUserNameForUserIdAsync(final SecurityContext securityContext) {
+        log.trace("getUserNameForUserIdAsync() securityContext {}", securityContext);
+        return CompletableFuture.supplyAsync(() -> getUserNameForUserId(securityContext), lookupExecutor);
+    }
+
+    /**
+     * Resolve the logged-in user once per request. Outside of a web request (e.g. background work) there is no
+     * request scope to memoize into, so the user is loaded directly.
+     * @param securityContext
+     * @return the logged-in principal, or empty if the user does not exist.
+     */
+    public Optional<ResolvedPrincipal> resolvePrincipal(final SecurityContext securityContext) {
+        Function<String, Optional<ResolvedPrincipal>> loader = userId -> loadPrincipal(securityContext.getAccountId(), userId);
+        if (RequestContextHolder.getRequestAttributes() == null) {
+            return loader.apply(securityContext.getUserId());
+        }
+        return requestPrincipal.resolve(securityContext.getUserId(), loader);
+    }
+
+    /**
+     * Users are partitioned by account, so read the user from the account named in the security context. Only if it
+     * is not there is the user looked up across every partition.
+     */
+    private Optional<ResolvedPrincipal> loadPrincipal(final String accountId, final String userId) {
+        return principalCache.get(userId, id -> {
+            Optional<User> user = ApiUtils.isNullOrEmpty(accountId) ? Optional.empty() : userService.getUserById(accountId, id);
+            if (!user.isPresent()) {
+                user = userService.getUserById(id);
+            }
+            return user.map(ResolvedPrincipal::from);
+        });
+    }
 }
@@ -0,0 +1,164 @@
+package com.lf.service;
+
+import com.azure.cosmos.models.PartitionKey;
+import com.azure.spring.data.cosmos.core.CosmosOperations;
+import com.lf.UserImportExecutorConfiguration;
+import com.lf.model.User;
+import com.lf.model.UserImportResult;
+import com.lf.model.UserImportResult.Status;
+import com.lf.model.UsernameReservation;
+import com.lf.util.ApiUtils;
+import com.lf.util.PatternMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/**
+ * Creates many users of one account in a single request.
+ *
+ * Users that are invalid, repeat a username earlier in the import, or whose username is already reserved (found with
+ * one batched lookup) are rejected up front without any per-user Cosmos call. The rest are created on the user import
+ * executor, each hashing its password on the {@link PasswordHasher} pool, claiming its username reservation and
+ * inserting the user. At most users.import.max-concurrent-creates of an import's creates are in flight at once, so an
+ * import takes only a small share of the hashing pool from interactive creates. Every user gets its own result, so
+ * one bad entry never fails the import.
+ *
+ * Claiming a reservation still runs the cross-partition username query per user while the UsernameIndex legacy
+ * fallback is on; only once it is switched off is the batched lookup the only username check.
+ */
+@Component
+public class UserImporter {
+    private static final Logger log = LoggerFactory.getLogger(UserImporter.class);
+
+    @Autowired
+    private UsernameIndex usernameIndex;
+
+    @Autowired
+    private CosmosOperations cosmosOperations;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    @Qualifier(UserImportExecutorConfiguration.USER_IMPORT_EXECUTOR)
+    private Executor importExecutor;
+
+    @Value("${users.import.max-concurrent-creates:4}")
+    private int maxConcurrentCreates = 4;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    /**
+     * @param accountId the account every user is created in
+     * @param users the users to create, with plain text passwords
+     * @param createdBy the username of the logged in user
+     * @return one result per user, in the order given
+     */
+    public List<UserImportResult> importUsers(final String accountId, final List<User> users, final String createdBy) {
+        log.trace("Entering importUsers() with {} users for account {}", users.size(), accountId);
+        UserImportResult[] results = new UserImportResult[users.size()];
+
+        Map<String, Integer> firstIndexByUsername = new HashMap<>();
+        List<Integer> candidates = new ArrayList<>();
+        for (int index = 0; index < users.size(); index++) {
+            User user = users.get(index);
+            Optional<String> invalid = validate(user);
+            if (invalid.isPresent()) {
+                results[index] = UserImportResult.rejected(index, Status.INVALID, user, invalid.get());
+            } else if (firstIndexByUsername.putIfAbsent(UsernameReservation.normalize(user.getUsername()), index) != null) {
+                results[index] = UserImportResult.rejected(index, Status.CONFLICT, user, "username repeats an earlier user of this import");
+            } else {
+                candidates.add(index);
+            }
+        }
+
+        Set<String> reserved = usernameIndex.findReserved(candidates.stream().map(index -> users.get(index).getUsername()).collect(Collectors.toList()));
+        Map<Integer, CompletableFuture<UserImportResult>> creates = new HashMap<>();
+        Semaphore inFlight = new Semaphore(maxConcurrentCreates);
+        for (int index : candidates) {
+            User user = users.get(index);
+            if (reserved.contains(UsernameReservation.normalize(user.getUsername()))) {
+                results[index] = UserImportResult.rejected(index, Status.CONFLICT, user, "user with username: " + user.getUsername() + " already exists");
+            } else {
+                final int position = index;
+                inFlight.acquireUninterruptibly();
+                creates.put(index, CompletableFuture.supplyAsync(() -> create(position, accountId, user, createdBy), importExecutor)
+                        .whenComplete((result, e) -> inFlight.release()));
+            }
+        }
+        creates.forEach((index, create) -> results[index] = create.join());
+
+        log.info("Imported {} of {} users into account {}", Arrays.stream(results).filter(result -> result.getStatus() == Status.CREATED).count(), users.size(), accountId);
+        return Arrays.asList(results);
+    }
+
+    private UserImportResult create(final int index, final String accountId, final User user, final String createdBy) {
+        try {
+            //Cosmos does not auto-generate ids - set id value if it is not supplied in payload
+            if (ApiUtils.isNullOrEmpty(user.getId())) {
+                user.setId(UUID.randomUUID().toString());
+            }
+            user.setAccountId(accountId);
+            user.setCreatedBy(createdBy);
+            user.setCreatedDate(new Date());
+            user.setIsActive(true);
+            user.setPassword(passwordHasher.hash(user.getPassword()));   // store password as BCrypt
+
+            // Claimed after hashing so a reservation is only ever held briefly ahead of its user
+            if (!usernameIndex.reserve(user.getUsername(), accountId, user.getId())) {
+                return UserImportResult.rejected(index, Status.CONFLICT, user, "user with username: " + user.getUsername() + " already exists");
+            }
+            try {
+                cosmosOperations.insert(User.CONTAINER_NAME, user, new PartitionKey(accountId));
+            } catch (RuntimeException e) {
+                usernameIndex.release(user.getUsername(), user.getId());
+                throw e;
+            }
+            principalCache.invalidate(user.getId());
+            return UserImportResult.created(index, user);
+        } catch (RejectedExecutionException e) {
+            return UserImportResult.rejected(index, Status.FAILED, user, "password hashing is saturated, retry this user");
+        } catch (RuntimeException e) {
+            log.warn("Failed to import user {} at index {}", user.getUsername(), index, e);
+            return UserImportResult.rejected(index, Status.FAILED, user, e.getMessage());
+        }
+    }
+
+    private static Optional<String> validate(final User user) {
+        if (user == null) {
+            return Optional.of("missing user");
+        }
+        if (ApiUtils.isNullOrEmpty(user.getUsername()) || !PatternMatcher.isEmail(user.getUsername())) {
+            return Optional.of("username: " + user.getUsername() + " is not a valid email address");
+        }
+        if (ApiUtils.isNullOrEmpty(user.getName())) {
+            return Optional.of("missing name");
+        }
+        if (ApiUtils.isNullOrEmpty(user.getPassword())) {
+            return Optional.of("missing password");
+        }
+        if (user.getUserRoles() == null) {
+            return Optional.of("missing user_roles");
+        }
+        return Optional.empty();
+    }
+}
@@ -1,18 +1,32 @@
 package com.lf.service;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.lf.model.PagedResult;
 import com.lf.model.User;
 import com.lf.model.UserRole;
+import com.lf.repository.Projection;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserService {
 
     List<User> list(String accountId);
 
+    Stream<User> stream(String accountId, Boolean isActive);
+
+    PagedResult<User> list(String accountId, Boolean isActive, int limit, String continuationToken);
+
+    Stream<ObjectNode> stream(String accountId, Boolean isActive, Projection projection);
+
+    PagedResult<ObjectNode> list(String accountId, Boolean isActive, Projection projection, int limit, String continuationToken);
+
     Optional<User> getUserById(String userId);
 
-    Optional<List<UserRole>> getUserRolesById(String id);
+    Optional<User> getUserById(String accountId, String userId);
+
+    Optional<List<UserRole>> getUserRolesById(String accountId, String id);
 
     Optional<User> save(String accountId, User user);
 
@@ -1,18 +1,28 @@
 package com.lf.service;
 
+import com.azure.cosmos.models.PartitionKey;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.lf.model.PagedResult;
 import com.lf.model.User;
 import com.lf.model.UserRole;
+import com.lf.model.UsernameReservation;
+import com.lf.repository.CosmosPage;
+import com.lf.repository.CosmosPagedQueries;
+import com.lf.repository.Projection;
 import com.lf.repository.UserRepository;
 import com.lf.util.ApiUtils;
+import com.lf.util.ContinuationTokens;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Service
 public class UserServiceImpl implements UserService {
@@ -22,16 +32,72 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private UserRepository repository;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private UsernameIndex usernameIndex;
+
+    @Autowired
+    private CosmosPagedQueries pagedQueries;
+
+    @Value("${cosmos.query.page-size:200}")
+    private int pageSize = 200;
+
     public List<User> list(String accountId) {
         log.trace("Entering list()");
         return repository.findByAccountId(accountId);
     }
 
+    /**
+     * Stream the account's users, reading one page from Cosmos at a time.
+     * @param isActive only active or only inactive users, or all of them when null
+     */
+    public Stream<User> stream(String accountId, Boolean isActive) {
+        log.trace("Entering stream() with {} and isActive {}", accountId, isActive);
+        return CosmosPagedQueries.stream(continuationToken -> pagedQueries.usersByAccount(accountId, isActive, continuationToken, pageSize));
+    }
+
+    /**
+     * One page of the account's users; the continuation token is the opaque one from the previous page, or null for
+     * the first.
+     */
+    public PagedResult<User> list(String accountId, Boolean isActive, int limit, String continuationToken) {
+        log.trace("Entering list() with accountId {}, isActive {} and limit {}", accountId, isActive, limit);
+        String scope = ContinuationTokens.scope("users", accountId, isActive);
+        CosmosPage<User> page = pagedQueries.usersByAccount(accountId, isActive, ContinuationTokens.decode(scope, continuationToken), limit);
+        return new PagedResult<>(page.getItems(), ContinuationTokens.encode(scope, page.getContinuationToken()));
+    }
+
+    /**
+     * As {@link #stream(String, Boolean)}, reading only the projected properties of each user.
+     */
+    public Stream<ObjectNode> stream(String accountId, Boolean isActive, Projection projection) {
+        log.trace("Entering stream() with {}, isActive {} and fields {}", accountId, isActive, projection);
+        return CosmosPagedQueries.stream(continuationToken -> pagedQueries.usersByAccount(accountId, isActive, projection, continuationToken, pageSize));
+    }
+
+    public PagedResult<ObjectNode> list(String accountId, Boolean isActive, Projection projection, int limit, String continuationToken) {
+        log.trace("Entering list() with accountId {}, isActive {}, fields {} and limit {}", accountId, isActive, projection, limit);
+        String scope = ContinuationTokens.scope("users", accountId, isActive);
+        CosmosPage<ObjectNode> page = pagedQueries.usersByAccount(accountId, isActive, projection, ContinuationTokens.decode(scope, continuationToken), limit);
+        return new PagedResult<>(page.getItems(), ContinuationTokens.encode(scope, page.getContinuationToken()));
+    }
+
+    /**
+     * Read a user without knowing its account. This fans out across every partition, so prefer
+     * {@link #getUserById(String, String)} whenever the account is known.
+     */
     public Optional<User> getUserById(String id) {
         log.trace("Entering getUserById() with {}", id);
         return repository.findById(id);
     }
 
+    public Optional<User> getUserById(String accountId, String id) {
+        log.trace("Entering getUserById() with accountId : {} and userId : {}", accountId, id);
+        return repository.findById(id, new PartitionKey(accountId));
+    }
+
     public Optional<User> getUserByName(String name) {
         log.trace("Entering getAccountByName() with {}", name);
         return repository.findByName(name);
@@ -39,16 +105,12 @@ public class UserServiceImpl implements UserService {
 
     public Optional<User> getUserByUsername(String username) {
         log.trace("Entering getUserByName() with {}", username);
-        List<User> users = repository.findByUsername(username);
-        if (!users.isEmpty()) {
-            return Optional.of(users.get(0));
-        }
-        return Optional.empty();
+        return usernameIndex.findUser(username);
     }
 
-    public Optional<List<UserRole>> getUserRolesById(String id) {
+    public Optional<List<UserRole>> getUserRolesById(String accountId, String id) {
         log.trace("Entering getUserRoles() with userId : {}", id);
-        Optional<User> getUser = getUserById(id);
+        Optional<User> getUser = getUserById(accountId, id);
         if(!getUser.isPresent()) {
             return Optional.empty();
         }
@@ -62,19 +124,21 @@ public class UserServiceImpl implements UserService {
         if (ApiUtils.isNullOrEmpty(user.getId())) {
             user.setId(UUID.randomUUID().toString());
         }
-        // Since username uniqueness cannot be enforced in DB, enforce it here
-        if (getUserByUsername(user.getUsername()).isPresent()) {
+        if (!ApiUtils.isNullOrEmpty(accountId)) {
+            user.setAccountId(accountId);
+        }
+
+        // The reservation is what makes the username unique, so claim it before writing the user
+        if (!usernameIndex.reserve(user.getUsername(), user.getAccountId(), user.getId())) {
             log.warn("User with username {} already exists", user.getUsername());
             return Optional.empty();
         }
 
         user.setIsActive(true);
-        if (!ApiUtils.isNullOrEmpty(accountId)) {
-            user.setAccountId(accountId);
-        }
         user.setCreatedDate(new Date());
 
-        repository.save(user);
+        saveReservingUsername(user, user.getUsername(), null);
+        principalCache.invalidate(user.getId());
         return Optional.of(user);
     }
 
@@ -82,21 +146,19 @@ public class UserServiceImpl implements UserService {
 
         log.trace("Entering update() with {}", newUserData);
 
-        Optional<User> existingUser = repository.findById(id);
+        Optional<User> existingUser = getUserById(accountId, id);
         if (!existingUser.isPresent()) {
             log.warn("User {} not found", id);
             return Optional.empty();
         }
 
         User userToUpdate = existingUser.get();
+        String previousUsername = userToUpdate.getUsername();
 
-        // Since username uniqueness cannot be enforced in DB, enforce it here
-        if (!newUserData.getUsername().equalsIgnoreCase(userToUpdate.getUsername())) {
-            Optional<User> existingUserWithSameUsername = getUserByUsername(newUserData.getUsername());
-            if (existingUserWithSameUsername.isPresent() && existingUserWithSameUsername.get().getId() != userToUpdate.getId()) {
-                log.warn("Another User with username {} already exists", userToUpdate.getUsername());
-                return Optional.empty();
-            }
+        String claimedUsername = usernameChanged(userToUpdate, newUserData.getUsername()) ? newUserData.getUsername() : null;
+        if (claimedUsername != null && !usernameIndex.reserve(claimedUsername, userToUpdate.getAccountId(), id)) {
+            log.warn("Another User with username {} already exists", claimedUsername);
+            return Optional.empty();
         }
 
         // only name, accountId, username, password and isActive fields can be modified for an existing User
@@ -113,7 +175,8 @@ public class UserServiceImpl implements UserService {
             userToUpdate.setUserRoles(newUserData.getUserRoles());
         }
         userToUpdate.setIsActive(newUserData.getIsActive());
-        repository.save(userToUpdate);
+        saveReservingUsername(userToUpdate, claimedUsername, previousUsername);
+        principalCache.invalidate(id);
         return Optional.of(userToUpdate);
     }
 
@@ -121,7 +184,7 @@ public class UserServiceImpl implements UserService {
 
         log.trace("Entering update() with {}", newUserData);
 
-        Optional<User> existingUser = repository.findById(id);
+        Optional<User> existingUser = getUserById(accountId, id);
         if (!existingUser.isPresent()) {
             log.warn("User {} not found", id);
             return Optional.empty();
@@ -129,28 +192,24 @@ public class UserServiceImpl implements UserService {
 
         User userToUpdate = existingUser.get();
 
-        // Since username uniqueness cannot be enforced in DB, enforce it here
-        if (newUserData.getUsername() != null) {
-            if (!newUserData.getUsername().equalsIgnoreCase(userToUpdate.getUsername())) {
-                Optional<User> existingUserWithSameUsername = getUserByUsername(newUserData.getUsername());
-                if (existingUserWithSameUsername.isPresent() && existingUserWithSameUsername.get().getId() != userToUpdate.getId()) {
-                    log.warn("Another User with username {} already exists", newUserData.getUsername());
-                    return Optional.empty();
-                }
-            }
+        String claimedUsername = usernameChanged(userToUpdate, newUserData.getUsername()) ? newUserData.getUsername() : null;
+        if (claimedUsername != null && !usernameIndex.reserve(claimedUsername, accountId, id)) {
+            log.warn("Another User with username {} already exists", claimedUsername);
+            return Optional.empty();
         }
 
         newUserData.setAccountId(accountId);
         newUserData.setId(id);
-        repository.save(newUserData);
-        return repository.findById(id);
+        saveReservingUsername(newUserData, claimedUsername, userToUpdate.getUsername());
+        principalCache.invalidate(id);
+        return getUserById(accountId, id);
     }
 
     public Optional<User> delete(String accountId, String id) {
         // Mark the user as inactive instead of physical deletion
         log.trace("Entering delete() with userId : {} and accountId: {}", id, accountId);
 
-        Optional<User> existingUser = repository.findById(id);
+        Optional<User> existingUser = getUserById(accountId, id);
         if (!existingUser.isPresent()) {
             log.warn("User {} not found", id);
             return Optional.empty();
@@ -159,6 +218,30 @@ public class UserServiceImpl implements UserService {
         User userToDelete = existingUser.get();
         userToDelete.setIsActive(false);
         repository.save(userToDelete);
+        principalCache.invalidate(id);
         return Optional.of(userToDelete);
     }
+
+    private static boolean usernameChanged(User existingUser, String newUsername) {
+        return !ApiUtils.isNullOrEmpty(newUsername) && (ApiUtils.isNullOrEmpty(existingUser.getUsername())
+                || !UsernameReservation.normalize(newUsername).equals(UsernameReservation.normalize(existingUser.getUsername())));
+    }
+
+    /**
+     * Write the user and settle its username reservations: a newly claimed username is released again if the write
+     * fails, and the previous username is released once the write succeeds.
+     */
+    private void saveReservingUsername(User user, String claimedUsername, String previousUsername) {
+        try {
+            repository.save(user);
+        } catch (RuntimeException e) {
+            if (claimedUsername != null) {
+                usernameIndex.release(claimedUsername, user.getId());
+            }
+            throw e;
+        }
+        if (claimedUsername != null && !ApiUtils.isNullOrEmpty(previousUsername)) {
+            usernameIndex.release(previousUsername, user.getId());
+        }
+    }
 }
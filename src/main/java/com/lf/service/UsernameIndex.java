@@ -0,0 +1,238 @@
+package com.lf.service;
+
+import com.azure.cosmos.CosmosAsyncClient;
+import com.azure.cosmos.CosmosAsyncContainer;
+import com.azure.cosmos.CosmosException;
+import com.azure.cosmos.models.CosmosItemRequestOptions;
+import com.azure.cosmos.models.CosmosQueryRequestOptions;
+import com.azure.cosmos.models.PartitionKey;
+import com.azure.cosmos.models.SqlParameter;
+import com.azure.cosmos.models.SqlQuerySpec;
+import com.azure.cosmos.util.CosmosPagedFlux;
+import com.azure.spring.data.cosmos.core.CosmosOperations;
+import com.google.common.collect.Lists;
+import com.lf.CosmosQueryMetrics;
+import com.lf.LfCdnApiApplicationConfiguration;
+import com.lf.model.User;
+import com.lf.model.UsernameReservation;
+import com.lf.repository.UserRepository;
+import com.lf.repository.UsernameReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Enforces username uniqueness through UsernameReservation documents.
+ *
+ * A reservation is created with create-if-absent semantics before its user is written, so two concurrent creates of
+ * the same username cannot both succeed. Reservations left behind by a create that failed half-way are reclaimed
+ * once older than the grace period and no longer backed by a user.
+ *
+ * Users created before the index existed have no reservation. While users.username-index.legacy-fallback is set,
+ * a missing reservation falls back to the old cross-partition username query and the reservation is written for the
+ * user found. Run UsernameReservationBackfill to reserve every existing username, then switch the fallback off.
+ */
+@Component
+public class UsernameIndex {
+    private static final Logger log = LoggerFactory.getLogger(UsernameIndex.class);
+
+    private static final int NOT_FOUND = 404;
+    private static final int CONFLICT = 409;
+    private static final int PRECONDITION_FAILED = 412;
+
+    // Keeps each reservation query well inside the Cosmos query size limit
+    private static final int RESERVED_QUERY_CHUNK_SIZE = 500;
+
+    @Autowired
+    private UsernameReservationRepository reservations;
+
+    @Autowired
+    private UserRepository users;
+
+    @Autowired
+    private CosmosOperations cosmosOperations;
+
+    @Autowired
+    private CosmosAsyncClient client;
+
+    @Autowired
+    private CosmosQueryMetrics queryMetrics;
+
+    @Value("${users.username-index.legacy-fallback:true}")
+    private boolean legacyFallback = true;
+
+    @Value("${users.username-index.stale-reservation-seconds:60}")
+    private long staleReservationSeconds = 60;
+
+    /**
+     * Claim a username for a user.
+     * @param username
+     * @param accountId
+     * @param userId
+     * @return (True, False) if the username now belongs to the user, or is taken by another user.
+     */
+    public boolean reserve(final String username, final String accountId, final String userId) {
+        log.trace("Entering reserve() with {} for user {}", username, userId);
+        if (legacyFallback) {
+            Optional<User> legacyOwner = findUnreservedLegacyUser(username);
+            if (legacyOwner.isPresent() && !legacyOwner.get().getId().equals(userId)) {
+                return false;
+            }
+        }
+
+        UsernameReservation reservation = new UsernameReservation(username, accountId, userId);
+        if (insert(reservation)) {
+            return true;
+        }
+
+        Optional<UsernameReservation> existing = find(username);
+        if (!existing.isPresent()) {
+            // Released between our insert and read - try once more
+            return insert(reservation);
+        }
+        if (existing.get().getUserId().equals(userId)) {
+            return true;
+        }
+        if (isStale(existing.get())) {
+            log.warn("Reclaiming username {} from user {} which was never created", username, existing.get().getUserId());
+            // Only one of several concurrent reclaims deletes the stale reservation, the others lose on the insert
+            delete(existing.get());
+            return insert(reservation);
+        }
+        return false;
+    }
+
+    /**
+     * Give up a username, provided it still belongs to the given user.
+     * @param username
+     * @param userId
+     */
+    public void release(final String username, final String userId) {
+        log.trace("Entering release() with {} for user {}", username, userId);
+        Optional<UsernameReservation> existing = find(username);
+        if (existing.isPresent() && existing.get().getUserId().equals(userId)) {
+            delete(existing.get());
+        }
+    }
+
+    /**
+     * @param username
+     * @return the user holding the username, if any.
+     */
+    public Optional<User> findUser(final String username) {
+        log.trace("Entering findUser() with {}", username);
+        Optional<UsernameReservation> reservation = find(username);
+        if (reservation.isPresent()) {
+            return users.findById(reservation.get().getUserId(), new PartitionKey(reservation.get().getAccountId()));
+        }
+        return legacyFallback ? findUnreservedLegacyUser(username) : Optional.empty();
+    }
+
+    /**
+     * Which of the usernames are already reserved, found with one query per chunk of names rather than a point read
+     * per name. Only reservations are consulted, so legacy users without one are not reported here; {@link #reserve}
+     * still catches those.
+     * @param usernames
+     * @return the normalized forms of the reserved usernames
+     */
+    public Set<String> findReserved(final Collection<String> usernames) {
+        log.trace("Entering findReserved() with {} usernames", usernames.size());
+        List<String> normalized = usernames.stream().map(UsernameReservation::normalize).distinct().collect(Collectors.toList());
+        Set<String> reserved = new HashSet<>();
+        for (List<String> chunk : Lists.partition(normalized, RESERVED_QUERY_CHUNK_SIZE)) {
+            CosmosPagedFlux<String> results = reservationsContainer()
+                    .queryItems(new SqlQuerySpec("SELECT VALUE c.username FROM c WHERE ARRAY_CONTAINS(@usernames, c.username)",
+                                    new SqlParameter("@usernames", chunk)),
+                            new CosmosQueryRequestOptions(), String.class);
+            List<String> found = queryMetrics.query("usernameIndex", "findReserved", results)
+                    .collectList()
+                    .block();
+            if (found != null) {
+                reserved.addAll(found);
+            }
+        }
+        return reserved;
+    }
+
+    private Optional<UsernameReservation> find(final String username) {
+        String id = UsernameReservation.idFor(username);
+        return reservations.findById(id, new PartitionKey(id));
+    }
+
+    /**
+     * Delete the reservation as it was read. A reservation changed or deleted since then has been reclaimed by
+     * someone else, and is left alone.
+     */
+    private void delete(final UsernameReservation reservation) {
+        CosmosItemRequestOptions options = new CosmosItemRequestOptions();
+        options.setIfMatchETag(reservation.getEtag());
+        try {
+            reservationsContainer().deleteItem(reservation.getId(), new PartitionKey(reservation.getId()), options).block();
+        } catch (CosmosException e) {
+            if (e.getStatusCode() != PRECONDITION_FAILED && e.getStatusCode() != NOT_FOUND) {
+                throw e;
+            }
+            log.info("Reservation of username {} changed before it was deleted, leaving it", reservation.getUsername());
+        }
+    }
+
+    private CosmosAsyncContainer reservationsContainer() {
+        return client.getDatabase(LfCdnApiApplicationConfiguration.DATABASE_NAME).getContainer(UsernameReservation.CONTAINER_NAME);
+    }
+
+    /**
+     * Look the username up with the cross-partition query, writing the missing reservation for any user found.
+     */
+    private Optional<User> findUnreservedLegacyUser(final String username) {
+        if (find(username).isPresent()) {
+            return Optional.empty();
+        }
+        List<User> matches = users.findByUsername(username);
+        if (matches == null || matches.isEmpty()) {
+            return Optional.empty();
+        }
+        User owner = matches.get(0);
+        log.info("Backfilling the username reservation for user {}", owner.getId());
+        insert(new UsernameReservation(owner.getUsername(), owner.getAccountId(), owner.getId()));
+        return Optional.of(owner);
+    }
+
+    private boolean isStale(final UsernameReservation reservation) {
+        long ageMillis = System.currentTimeMillis() - reservation.getCreatedDate().getTime();
+        if (ageMillis < TimeUnit.SECONDS.toMillis(staleReservationSeconds)) {
+            return false;  // the create that made it may still be in flight
+        }
+        return !users.findById(reservation.getUserId(), new PartitionKey(reservation.getAccountId())).isPresent();
+    }
+
+    private boolean insert(final UsernameReservation reservation) {
+        try {
+            cosmosOperations.insert(UsernameReservation.CONTAINER_NAME, reservation, new PartitionKey(reservation.getId()));
+            return true;
+        } catch (RuntimeException e) {
+            if (isConflict(e)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isConflict(final Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CosmosException && ((CosmosException) cause).getStatusCode() == CONFLICT) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
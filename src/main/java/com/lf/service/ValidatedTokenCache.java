@@ -0,0 +1,134 @@
+package com.lf.service;
+
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.lf.model.SecurityContext;
+import com.lf.util.Jwt;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caches the SecurityContext the OAuth server resolved for an access token, so a token seen again within seconds is
+ * not validated again. Tokens are keyed by their SHA-256 hash; the raw token is never held.
+ *
+ * An entry lives until the token's own exp claim, when the token is a JWT, and never longer than the max TTL, which
+ * is all an opaque token gets. Concurrent requests carrying the same uncached token wait on a single validation
+ * rather than each calling the OAuth server. Tokens the server does not accept are not cached, so a token that
+ * becomes valid is not held back by an earlier rejection.
+ */
+@Component
+public class ValidatedTokenCache implements MeterBinder {
+
+    private final Cache<String, Entry> cache;
+    private final long maxTtlNanos;
+
+    /**
+     * @param maximumSize the most tokens held
+     * @param maxTtlSeconds the longest a validation is trusted, or 0 to disable the cache
+     */
+    @Autowired
+    public ValidatedTokenCache(@Value("${security.token.cache.maximum-size:10000}") final long maximumSize,
+                               @Value("${security.token.cache.max-ttl-seconds:60}") final long maxTtlSeconds) {
+        this.maxTtlNanos = TimeUnit.SECONDS.toNanos(maxTtlSeconds);
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Math.max(maxTtlSeconds, 1), TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get the SecurityContext for the access token, validating it only when it is not cached.
+     * @param accessToken
+     * @param validator validates the token with the OAuth server
+     * @return the SecurityContext, or empty if the token was not accepted.
+     */
+    public Optional<SecurityContext> get(final String accessToken, final Supplier<Optional<SecurityContext>> validator) {
+        long ttlNanos = ttlNanos(accessToken);
+        if (ttlNanos <= 0) {
+            return validator.get();
+        }
+
+        String key = Hashing.sha256().hashString(accessToken, Charsets.UTF_8).toString();
+        Entry entry = load(key, ttlNanos, validator);
+        if (entry.isExpired()) {
+            cache.asMap().remove(key, entry);
+            entry = load(key, ttlNanos, validator);
+        }
+        if (!entry.securityContext.isPresent()) {
+            // Waiters on the same validation share the rejection, later requests validate again
+            cache.asMap().remove(key, entry);
+        }
+        return entry.securityContext;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private Entry load(final String key, final long ttlNanos, final Supplier<Optional<SecurityContext>> validator) {
+        try {
+            return cache.get(key, () -> new Entry(validator.get(), System.nanoTime() + ttlNanos));
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            // Let the validator's own exceptions, such as a 401 from the OAuth server, reach the caller unchanged
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private long ttlNanos(final String accessToken) {
+        if (maxTtlNanos <= 0 || accessToken == null) {
+            return 0;
+        }
+        if (!Jwt.isCompactJws(accessToken)) {
+            return maxTtlNanos;
+        }
+        try {
+            Long expiresAt = Jwt.parse(accessToken).getEpochSecondsClaim("exp");
+            if (expiresAt == null) {
+                return maxTtlNanos;
+            }
+            long untilExpiry = TimeUnit.SECONDS.toNanos(expiresAt) - TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+            return Math.min(untilExpiry, maxTtlNanos);
+        } catch (IllegalArgumentException e) {
+            return maxTtlNanos;
+        }
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, cache, "security.token");
+    }
+
+    private static final class Entry {
+        private final Optional<SecurityContext> securityContext;
+        private final long expiresAtNanos;
+
+        private Entry(final Optional<SecurityContext> securityContext, final long expiresAtNanos) {
+            this.securityContext = securityContext;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.lf.service.reactive;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Adapts a call on one of the blocking services to a Mono, running it on the given scheduler so it never blocks an
+ * event-loop thread.
+ */
+final class BlockingCalls {
+
+    private BlockingCalls() {
+    }
+
+    static <T> Mono<T> optional(final Scheduler scheduler, final Supplier<Optional<T>> call) {
+        return Mono.fromCallable(call::get)
+                .subscribeOn(scheduler)
+                .flatMap(Mono::justOrEmpty);
+    }
+}
@@ -0,0 +1,17 @@
+package com.lf.service.reactive;
+
+import com.lf.model.Account;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveAccountService {
+
+    Mono<Account> getAccountById(String id);
+
+    Mono<Account> getAccountByName(String name);
+
+    Mono<Account> save(Account account);
+
+    Mono<Account> update(String id, Account newAccountData);
+
+    Mono<Account> delete(String id);
+}
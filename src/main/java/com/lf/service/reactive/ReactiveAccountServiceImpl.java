@@ -0,0 +1,60 @@
+package com.lf.service.reactive;
+
+import com.lf.ReactiveConfiguration;
+import com.lf.model.Account;
+import com.lf.repository.reactive.ReactiveAccountRepository;
+import com.lf.service.AccountService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Reads accounts through the reactive repository. Writes go through {@link AccountService}, which maintains the
+ * ancestor paths, the existence filter and the tree snapshot, on the blocking scheduler.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveAccountServiceImpl implements ReactiveAccountService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveAccountServiceImpl.class);
+
+    @Autowired
+    private ReactiveAccountRepository repository;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    @Qualifier(ReactiveConfiguration.BLOCKING_SCHEDULER)
+    private Scheduler blockingScheduler;
+
+    public Mono<Account> getAccountById(String id) {
+        log.trace("Entering getAccountById() with {}", id);
+        return repository.findById(id);
+    }
+
+    public Mono<Account> getAccountByName(String name) {
+        log.trace("Entering getAccountByName() with {}", name);
+        return repository.findByName(name).next();
+    }
+
+    public Mono<Account> save(Account account) {
+        log.trace("Entering save() with {}", account);
+        return BlockingCalls.optional(blockingScheduler, () -> accountService.save(account));
+    }
+
+    public Mono<Account> update(String id, Account newAccountData) {
+        log.trace("Entering update() with {}", id);
+        return BlockingCalls.optional(blockingScheduler, () -> accountService.update(id, newAccountData));
+    }
+
+    public Mono<Account> delete(String id) {
+        log.trace("Entering delete() with {}", id);
+        return BlockingCalls.optional(blockingScheduler, () -> accountService.delete(id));
+    }
+}
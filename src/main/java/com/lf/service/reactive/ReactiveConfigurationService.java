@@ -0,0 +1,18 @@
+package com.lf.service.reactive;
+
+import com.lf.model.Configuration;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveConfigurationService {
+
+    Flux<Configuration> list(String accountId, Boolean enabled);
+
+    Mono<Configuration> getConfigurationById(String accountId, String id);
+
+    Mono<Configuration> save(String accountId, Configuration configuration);
+
+    Mono<Configuration> update(String accountId, String id, Configuration newConfigurationData);
+
+    Mono<Configuration> delete(String accountId, String id, Boolean useName);
+}
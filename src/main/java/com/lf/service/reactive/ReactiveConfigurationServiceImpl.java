@@ -0,0 +1,62 @@
+package com.lf.service.reactive;
+
+import com.azure.cosmos.models.PartitionKey;
+import com.lf.ReactiveConfiguration;
+import com.lf.model.Configuration;
+import com.lf.repository.reactive.ReactiveConfigurationRepository;
+import com.lf.service.ConfigurationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Reads configurations through the reactive repository; writes go through {@link ConfigurationService} on the
+ * blocking scheduler.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveConfigurationServiceImpl implements ReactiveConfigurationService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveConfigurationServiceImpl.class);
+
+    @Autowired
+    private ReactiveConfigurationRepository repository;
+
+    @Autowired
+    private ConfigurationService configurationService;
+
+    @Autowired
+    @Qualifier(ReactiveConfiguration.BLOCKING_SCHEDULER)
+    private Scheduler blockingScheduler;
+
+    public Flux<Configuration> list(String accountId, Boolean enabled) {
+        log.trace("Entering list() with enabled {}", enabled);
+        return (enabled == null) ? repository.findByAccountId(accountId) : repository.findByAccountIdAndConfigurationEnabled(accountId, enabled);
+    }
+
+    public Mono<Configuration> getConfigurationById(String accountId, String id) {
+        log.trace("Entering getConfigurationById() with configurationId : {}", id);
+        return repository.findById(id, new PartitionKey(accountId));
+    }
+
+    public Mono<Configuration> save(String accountId, Configuration configuration) {
+        log.trace("Entering save() with {}", configuration);
+        return BlockingCalls.optional(blockingScheduler, () -> configurationService.save(accountId, configuration));
+    }
+
+    public Mono<Configuration> update(String accountId, String id, Configuration newConfigurationData) {
+        log.trace("Entering update() with {}", id);
+        return BlockingCalls.optional(blockingScheduler, () -> configurationService.update(accountId, id, newConfigurationData));
+    }
+
+    public Mono<Configuration> delete(String accountId, String id, Boolean useName) {
+        log.trace("Entering delete() with {}", id);
+        return BlockingCalls.optional(blockingScheduler, () -> configurationService.delete(accountId, id, useName));
+    }
+}
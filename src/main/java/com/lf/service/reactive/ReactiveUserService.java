@@ -0,0 +1,25 @@
+package com.lf.service.reactive;
+
+import com.lf.model.User;
+import com.lf.model.UserRole;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface ReactiveUserService {
+
+    Flux<User> list(String accountId, Boolean isActive);
+
+    Mono<User> getUserById(String accountId, String userId);
+
+    Mono<User> getUserByUsername(String username);
+
+    Mono<List<UserRole>> getUserRolesById(String accountId, String id);
+
+    Mono<User> save(String accountId, User user);
+
+    Mono<User> updateWithOverwrite(String accountId, String id, User newUserData);
+
+    Mono<User> delete(String accountId, String id);
+}
@@ -0,0 +1,75 @@
+package com.lf.service.reactive;
+
+import com.azure.cosmos.models.PartitionKey;
+import com.lf.ReactiveConfiguration;
+import com.lf.model.User;
+import com.lf.model.UserRole;
+import com.lf.repository.reactive.ReactiveUserRepository;
+import com.lf.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.List;
+
+/**
+ * Reads users through the reactive repository. Username lookups and writes go through {@link UserService}, which
+ * owns the username reservations and the principal cache, on the blocking scheduler.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveUserServiceImpl implements ReactiveUserService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveUserServiceImpl.class);
+
+    @Autowired
+    private ReactiveUserRepository repository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    @Qualifier(ReactiveConfiguration.BLOCKING_SCHEDULER)
+    private Scheduler blockingScheduler;
+
+    public Flux<User> list(String accountId, Boolean isActive) {
+        log.trace("Entering list() with isActive {}", isActive);
+        return (isActive == null) ? repository.findByAccountId(accountId) : repository.findByAccountIdAndIsActive(accountId, isActive);
+    }
+
+    public Mono<User> getUserById(String accountId, String id) {
+        log.trace("Entering getUserById() with accountId : {} and userId : {}", accountId, id);
+        return repository.findById(id, new PartitionKey(accountId));
+    }
+
+    public Mono<User> getUserByUsername(String username) {
+        log.trace("Entering getUserByUsername() with {}", username);
+        return BlockingCalls.optional(blockingScheduler, () -> userService.getUserByUsername(username));
+    }
+
+    public Mono<List<UserRole>> getUserRolesById(String accountId, String id) {
+        log.trace("Entering getUserRoles() with userId : {}", id);
+        return getUserById(accountId, id).flatMap(user -> Mono.justOrEmpty(user.getUserRoles()));
+    }
+
+    public Mono<User> save(String accountId, User user) {
+        log.trace("Entering save() with {}", user);
+        return BlockingCalls.optional(blockingScheduler, () -> userService.save(accountId, user));
+    }
+
+    public Mono<User> updateWithOverwrite(String accountId, String id, User newUserData) {
+        log.trace("Entering updateWithOverwrite() with {}", id);
+        return BlockingCalls.optional(blockingScheduler, () -> userService.updateWithOverwrite(accountId, id, newUserData));
+    }
+
+    public Mono<User> delete(String accountId, String id) {
+        log.trace("Entering delete() with {}", id);
+        return BlockingCalls.optional(blockingScheduler, () -> userService.delete(accountId, id));
+    }
+}
@@ -0,0 +1,85 @@
+package com.lf.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A consecutive-failure circuit breaker for calls to a remote dependency.
+ *
+ * CLOSED lets every call through. After failureThreshold failures in a row it turns OPEN and refuses calls for the
+ * open duration, then HALF_OPEN lets a single trial call through: its success closes the circuit again, its failure
+ * re-opens it for another open duration.
+ */
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(final int failureThreshold, final long openDuration, final TimeUnit unit) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be at least 1");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = unit.toNanos(openDuration);
+    }
+
+    /**
+     * Ask to make a call. Every permitted call must be followed by {@link #recordSuccess}, {@link #recordFailure} or
+     * {@link #releasePermission}.
+     * @return true if the call may go ahead.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openNanos) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void recordFailure() {
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+            consecutiveFailures = 0;
+        }
+    }
+
+    /**
+     * Give back a permission whose call never reached the dependency, so it counts as neither success nor failure.
+     */
+    public synchronized void releasePermission() {
+        trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
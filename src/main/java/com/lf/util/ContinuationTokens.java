@@ -0,0 +1,82 @@
+package com.lf.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Wraps Cosmos continuation tokens for use in URLs. Clients only ever see the base64url form, so the Cosmos token
+ * format can change without affecting the API.
+ *
+ * Each token is bound to the list it was issued for (the scope, such as the list kind, account id and filter), and is
+ * refused when presented to any other list rather than being passed to Cosmos.
+ */
+public final class ContinuationTokens {
+
+    private static final char SCOPE_SEPARATOR = '\n';
+
+    private ContinuationTokens() {
+    }
+
+    /**
+     * @param parts what identifies the list: its kind, then the account id and any filter
+     * @return the scope to encode and decode the list's tokens with
+     */
+    public static String scope(final Object... parts) {
+        StringBuilder scope = new StringBuilder();
+        for (Object part : parts) {
+            scope.append(part).append('/');
+        }
+        return scope.toString();
+    }
+
+    public static String encode(final String scope, final String cosmosToken) {
+        if (cosmosToken == null) {
+            return null;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((scope + SCOPE_SEPARATOR + cosmosToken).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the Cosmos token, or null for the first page
+     * @throws InvalidContinuationTokenException if the token was not produced by {@link #encode} for this scope
+     */
+    public static String decode(final String scope, final String token) {
+        if (ApiUtils.isNullOrEmpty(token)) {
+            return null;
+        }
+        String decoded = unwrap(token);
+        int separator = decoded.indexOf(SCOPE_SEPARATOR);
+        if (!decoded.substring(0, separator).equals(scope)) {
+            throw new InvalidContinuationTokenException("The continuation belongs to a different list");
+        }
+        return decoded.substring(separator + 1);
+    }
+
+    /**
+     * @return (True, False) if the token could have been produced by {@link #encode}, for any scope.
+     */
+    public static boolean isWellFormed(final String token) {
+        if (ApiUtils.isNullOrEmpty(token)) {
+            return true;
+        }
+        try {
+            unwrap(token);
+            return true;
+        } catch (InvalidContinuationTokenException e) {
+            return false;
+        }
+    }
+
+    private static String unwrap(final String token) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidContinuationTokenException("The continuation is not valid base64url");
+        }
+        if (decoded.indexOf(SCOPE_SEPARATOR) < 0) {
+            throw new InvalidContinuationTokenException("The continuation was not issued by this API");
+        }
+        return decoded;
+    }
+}
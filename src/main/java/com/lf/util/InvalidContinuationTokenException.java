@@ -0,0 +1,15 @@
+package com.lf.util;
+
+/**
+ * Thrown when a paged list is given a continuation token it did not issue, or one Cosmos refuses.
+ */
+public class InvalidContinuationTokenException extends IllegalArgumentException {
+
+    public InvalidContinuationTokenException(final String message) {
+        super(message);
+    }
+
+    public InvalidContinuationTokenException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
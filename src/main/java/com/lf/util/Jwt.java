@@ -0,0 +1,104 @@
+package com.lf.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * A signed JWT in compact serialization (header.payload.signature), split and decoded but not yet verified.
+ */
+public final class Jwt {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonNode header;
+    private final JsonNode claims;
+    private final byte[] signingInput;
+    private final byte[] signature;
+
+    private Jwt(final JsonNode header, final JsonNode claims, final byte[] signingInput, final byte[] signature) {
+        this.header = header;
+        this.claims = claims;
+        this.signingInput = signingInput;
+        this.signature = signature;
+    }
+
+    /**
+     * Whether the token has the three part shape of a compact JWS. Opaque access tokens do not.
+     */
+    public static boolean isCompactJws(final String token) {
+        if (token == null) {
+            return false;
+        }
+        int first = token.indexOf('.');
+        int last = token.lastIndexOf('.');
+        return first > 0 && last > first + 1 && last < token.length() - 1 && token.indexOf('.', first + 1) == last;
+    }
+
+    /**
+     * @param token a compact JWS
+     * @return the decoded token
+     * @throws IllegalArgumentException if the token is not a well formed compact JWS
+     */
+    public static Jwt parse(final String token) {
+        if (!isCompactJws(token)) {
+            throw new IllegalArgumentException("Not a compact JWS");
+        }
+        int first = token.indexOf('.');
+        int last = token.lastIndexOf('.');
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        try {
+            JsonNode header = MAPPER.readTree(decoder.decode(token.substring(0, first)));
+            JsonNode claims = MAPPER.readTree(decoder.decode(token.substring(first + 1, last)));
+            if (header == null || !header.isObject() || claims == null || !claims.isObject()) {
+                throw new IllegalArgumentException("The JWT header and claims must be JSON objects");
+            }
+            return new Jwt(header, claims, token.substring(0, last).getBytes(StandardCharsets.US_ASCII),
+                    decoder.decode(token.substring(last + 1)));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The JWT header or claims are not valid JSON", e);
+        }
+    }
+
+    public String getAlgorithm() {
+        return header.path("alg").asText(null);
+    }
+
+    public String getKeyId() {
+        return header.path("kid").asText(null);
+    }
+
+    public JsonNode getClaims() {
+        return claims;
+    }
+
+    /**
+     * @return the string claim, or null if absent.
+     */
+    public String getClaim(final String name) {
+        JsonNode claim = claims.get(name);
+        return claim == null || claim.isNull() ? null : claim.asText();
+    }
+
+    /**
+     * @return the numeric date claim in epoch seconds, or null if absent.
+     */
+    public Long getEpochSecondsClaim(final String name) {
+        JsonNode claim = claims.get(name);
+        return claim != null && claim.isNumber() ? claim.asLong() : null;
+    }
+
+    /**
+     * @return the bytes the signature covers: the encoded header and payload joined by a dot.
+     */
+    public byte[] getSigningInput() {
+        return signingInput;
+    }
+
+    public byte[] getSignature() {
+        return signature;
+    }
+}
@@ -1,14 +1,24 @@
 package com.lf.util;
 
+import com.google.common.collect.ImmutableSet;
+import com.lf.model.SecurityContext;
+
 import java.io.*;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Serialization utilites for X-Security-Context Header values
  */
 public class OauthSerializerUtils {
+
+    // The only classes a legacy X-Security-Context header may contain; the header is caller supplied, so anything else
+    // is refused before it is instantiated
+    private static final Set<String> DESERIALIZABLE_CLASSES = ImmutableSet.of(
+            SecurityContext.class.getName(), byte[].class.getName(), String.class.getName(), ArrayList.class.getName());
+
     public byte[] serialize(Object obj) {
             try (ByteArrayOutputStream b = new ByteArrayOutputStream()) {
                 try (ObjectOutputStream o = new ObjectOutputStream(b)) {
@@ -20,9 +30,13 @@ public class OauthSerializerUtils {
             }
     }
 
+    /**
+     * Deserialize a SecurityContext or its role list. Only the classes those are made of are resolved.
+     * @throws RuntimeException if the bytes are not a serialized object, or name any other class
+     */
     public Object deserialize(byte[] bytes) {
         try (ByteArrayInputStream b = new ByteArrayInputStream(bytes)) {
-            try (ObjectInputStream o = new ObjectInputStream(b)) {
+            try (ObjectInputStream o = new AllowListObjectInputStream(b)) {
                 return o.readObject();
             }
         } catch(ClassNotFoundException | IOException e) {
@@ -63,4 +77,24 @@ public class OauthSerializerUtils {
         listOfUserRoles = (List<String>) deserialize(decodedByteList);
         return listOfUserRoles;
     }
+
+    private static final class AllowListObjectInputStream extends ObjectInputStream {
+
+        private AllowListObjectInputStream(final InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!DESERIALIZABLE_CLASSES.contains(desc.getName())) {
+                throw new InvalidClassException(desc.getName(), "Class not allowed in a security context");
+            }
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(final String[] interfaces) throws IOException {
+            throw new InvalidClassException("Proxy classes are not allowed in a security context");
+        }
+    }
 }
@@ -1,6 +1,68 @@
 package com.lf.util;
 
+import java.util.regex.Pattern;
 
-public class PatternMatcher {
+/**
+ * Format checks for ids and usernames. These run on every request, so the UUID check is hand-rolled and allocation
+ * free, and the email pattern is compiled once.
+ */
+public final class PatternMatcher {
+
+    /**
+     * Kept for reference and for callers that need a regex; prefer {@link #isUuid} which accepts exactly the same
+     * strings.
+     */
     public static final String UUID_PATTERN = "^[0-9A-Fa-f]{8}-?[0-9A-Fa-f]{4}-?[0-9A-Fa-f]{4}-?[0-9A-Fa-f]{4}-?[0-9A-Fa-f]{12}$";
+
+    private static final int[] UUID_GROUP_LENGTHS = {8, 4, 4, 4, 12};
+
+    // Dot-atom local part, and a domain of hostname labels ending in an alphabetic top level domain
+    private static final Pattern EMAIL = Pattern.compile(
+            "^[A-Za-z0-9!#$%&'*+/=?^_`{|}~-]+(\\.[A-Za-z0-9!#$%&'*+/=?^_`{|}~-]+)*"
+                    + "@([A-Za-z0-9]([A-Za-z0-9-]{0,61}[A-Za-z0-9])?\\.)+[A-Za-z]{2,63}$");
+
+    private static final int MAX_EMAIL_LENGTH = 254;
+
+    private PatternMatcher() {
+    }
+
+    /**
+     * Whether the value is a UUID: 32 hex digits in groups of 8-4-4-4-12, each group boundary optionally marked by a
+     * dash. Equivalent to matching {@link #UUID_PATTERN}.
+     */
+    public static boolean isUuid(final CharSequence value) {
+        if (value == null) {
+            return false;
+        }
+        int length = value.length();
+        if (length < 32 || length > 36) {
+            return false;
+        }
+        int position = 0;
+        for (int group = 0; group < UUID_GROUP_LENGTHS.length; group++) {
+            if (group > 0 && position < length && value.charAt(position) == '-') {
+                position++;
+            }
+            if (position + UUID_GROUP_LENGTHS[group] > length) {
+                return false;
+            }
+            for (int end = position + UUID_GROUP_LENGTHS[group]; position < end; position++) {
+                if (!isHexDigit(value.charAt(position))) {
+                    return false;
+                }
+            }
+        }
+        return position == length;
+    }
+
+    /**
+     * Whether the value looks like an email address usable as a username.
+     */
+    public static boolean isEmail(final String value) {
+        return value != null && value.length() <= MAX_EMAIL_LENGTH && EMAIL.matcher(value).matches();
+    }
+
+    private static boolean isHexDigit(final char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
 }
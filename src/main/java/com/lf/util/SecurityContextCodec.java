@@ -0,0 +1,234 @@
+package com.lf.util;
+
+import com.lf.model.RoleSet;
+import com.lf.model.SecurityContext;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Binary codec for the X-Security-Context header.
+ *
+ * The header is the base64 encoding of the following layout (version 1):
+ * <pre>
+ *   'L' 'F' | version | userId | accountId | name | role count | role...
+ * </pre>
+ * Strings and the role count are written as an unsigned 16 bit big-endian length followed by the UTF-8 bytes.
+ * Headers written by the original Java serialization format (stream magic 0xACED) are still accepted unless legacy
+ * acceptance is switched off; they are deserialized with an allow-list of the classes a SecurityContext is made of.
+ */
+public final class SecurityContextCodec {
+
+    public static final byte VERSION_1 = 1;
+
+    private static final byte MAGIC_0 = 'L';
+    private static final byte MAGIC_1 = 'F';
+    private static final int HEADER_LENGTH = 3;
+    private static final int MAX_FIELD_LENGTH = 0xFFFF;
+
+    // ObjectOutputStream.STREAM_MAGIC, written first by the legacy header format
+    private static final int LEGACY_MAGIC_0 = 0xAC;
+    private static final int LEGACY_MAGIC_1 = 0xED;
+
+    private SecurityContextCodec() {}
+
+    /**
+     * Encode the security context values into a base64 X-Security-Context header.
+     * @param userId
+     * @param accountId
+     * @param roles
+     * @param name
+     * @return byte[], base64 encoded header.
+     */
+    public static byte[] encode(final String userId, final String accountId, final List<String> roles, final String name) {
+        byte[] userIdBytes = utf8(userId, "userId");
+        byte[] accountIdBytes = utf8(accountId, "accountId");
+        byte[] nameBytes = utf8(name, "name");
+        if (roles == null || roles.size() > MAX_FIELD_LENGTH) {
+            throw new IllegalArgumentException("The security context roles must be present and at most " + MAX_FIELD_LENGTH);
+        }
+
+        byte[][] roleBytes = new byte[roles.size()][];
+        int length = HEADER_LENGTH + 2 + userIdBytes.length + 2 + accountIdBytes.length + 2 + nameBytes.length + 2;
+        for (int i = 0; i < roleBytes.length; i++) {
+            roleBytes[i] = utf8(roles.get(i), "role");
+            length += 2 + roleBytes[i].length;
+        }
+
+        byte[] out = new byte[length];
+        out[0] = MAGIC_0;
+        out[1] = MAGIC_1;
+        out[2] = VERSION_1;
+        int position = HEADER_LENGTH;
+        position = writeField(out, position, userIdBytes);
+        position = writeField(out, position, accountIdBytes);
+        position = writeField(out, position, nameBytes);
+        position = writeUnsignedShort(out, position, roleBytes.length);
+        for (byte[] role : roleBytes) {
+            position = writeField(out, position, role);
+        }
+        return Base64.getEncoder().encode(out);
+    }
+
+    /**
+     * Decode a base64 X-Security-Context header. Both the versioned binary layout and the legacy Java serialization
+     * layout are supported; the format is detected from the leading bytes.
+     * @param header base64 encoded header bytes
+     * @return the decoded values, not yet validated.
+     */
+    public static Decoded decode(final byte[] header) {
+        return decode(header, true);
+    }
+
+    /**
+     * As {@link #decode(byte[])}, refusing the legacy layout unless it is accepted.
+     * @param header base64 encoded header bytes
+     * @param legacyFormatAccepted whether the legacy Java serialization layout is decoded
+     * @return the decoded values, not yet validated.
+     */
+    public static Decoded decode(final byte[] header, final boolean legacyFormatAccepted) {
+        byte[] bytes = Base64.getDecoder().decode(header);
+        if (bytes.length >= 2 && (bytes[0] & 0xFF) == LEGACY_MAGIC_0 && (bytes[1] & 0xFF) == LEGACY_MAGIC_1) {
+            if (!legacyFormatAccepted) {
+                throw new IllegalArgumentException("Legacy X-Security-Context headers are no longer accepted");
+            }
+            return decodeLegacy(bytes);
+        }
+        if (bytes.length < HEADER_LENGTH || bytes[0] != MAGIC_0 || bytes[1] != MAGIC_1) {
+            throw new IllegalArgumentException("Unrecognised X-Security-Context header format");
+        }
+        if (bytes[2] != VERSION_1) {
+            throw new IllegalArgumentException("Unsupported X-Security-Context header version " + bytes[2]);
+        }
+
+        Cursor cursor = new Cursor(bytes, HEADER_LENGTH);
+        String userId = cursor.readString();
+        String accountId = cursor.readString();
+        String name = cursor.readString();
+        String[] roles = new String[cursor.readUnsignedShort()];
+        for (int i = 0; i < roles.length; i++) {
+            roles[i] = cursor.readString();
+        }
+        if (cursor.position != bytes.length) {
+            throw new IllegalArgumentException("Unexpected trailing bytes in X-Security-Context header");
+        }
+        return new Decoded(userId, accountId, name, Collections.unmodifiableList(Arrays.asList(roles)));
+    }
+
+    /**
+     * Compatibility decoder for headers produced by Java serialization of {@link SecurityContext}.
+     */
+    private static Decoded decodeLegacy(final byte[] bytes) {
+        Object legacy;
+        try {
+            legacy = new OauthSerializerUtils().deserialize(bytes);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Unreadable legacy X-Security-Context header", e);
+        }
+        if (!(legacy instanceof SecurityContext)) {
+            throw new IllegalArgumentException("Legacy X-Security-Context header does not hold a security context");
+        }
+        SecurityContext context = (SecurityContext) legacy;
+        return new Decoded(context.getUserId(), context.getAccountId(), context.getName(), context.getRoles());
+    }
+
+    private static byte[] utf8(final String value, final String field) {
+        if (value == null) {
+            throw new IllegalArgumentException("The security context must contain the " + field);
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_FIELD_LENGTH) {
+            throw new IllegalArgumentException("The security context " + field + " is too long");
+        }
+        return bytes;
+    }
+
+    private static int writeField(final byte[] out, final int position, final byte[] value) {
+        int next = writeUnsignedShort(out, position, value.length);
+        System.arraycopy(value, 0, out, next, value.length);
+        return next + value.length;
+    }
+
+    private static int writeUnsignedShort(final byte[] out, final int position, final int value) {
+        out[position] = (byte) (value >>> 8);
+        out[position + 1] = (byte) value;
+        return position + 2;
+    }
+
+    /**
+     * Forward-only reader over the decoded header bytes.
+     */
+    private static final class Cursor {
+        private final byte[] bytes;
+        private int position;
+
+        private Cursor(final byte[] bytes, final int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        private int readUnsignedShort() {
+            if (position + 2 > bytes.length) {
+                throw new IllegalArgumentException("Truncated X-Security-Context header");
+            }
+            int value = ((bytes[position] & 0xFF) << 8) | (bytes[position + 1] & 0xFF);
+            position += 2;
+            return value;
+        }
+
+        private String readString() {
+            int length = readUnsignedShort();
+            if (position + length > bytes.length) {
+                throw new IllegalArgumentException("Truncated X-Security-Context header");
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+
+    /**
+     * The values carried by an X-Security-Context header.
+     */
+    public static final class Decoded {
+        private final String userId;
+        private final String accountId;
+        private final String name;
+        private final List<String> roles;
+        private final RoleSet roleSet;
+
+        private Decoded(final String userId, final String accountId, final String name, final List<String> roles) {
+            this.userId = userId;
+            this.accountId = accountId;
+            this.name = name;
+            this.roles = roles;
+            this.roleSet = RoleSet.of(roles);
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getAccountId() {
+            return accountId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<String> getRoles() {
+            return roles;
+        }
+
+        /**
+         * @return the roles as a bitmask, built once while decoding.
+         */
+        public RoleSet getRoleSet() {
+            return roleSet;
+        }
+    }
+}
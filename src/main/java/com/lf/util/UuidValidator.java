@@ -0,0 +1,16 @@
+package com.lf.util;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+public class UuidValidator implements ConstraintValidator<Uuid, CharSequence> {
+
+    @Override
+    public void initialize(final Uuid constraintAnnotation) {
+    }
+
+    @Override
+    public boolean isValid(final CharSequence value, final ConstraintValidatorContext context) {
+        return value == null || PatternMatcher.isUuid(value);
+    }
+}
@@ -0,0 +1,37 @@
+package com.lf;
+
+import com.lf.model.User;
+import com.lf.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.Optional;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+public class CosmosRepositoryMetricsTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void repositoryCallsShouldBeTimedPerOperation() throws Exception {
+
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ObjectProvider<MeterRegistry> registryProvider = mock(ObjectProvider.class);
+        when(registryProvider.getObject()).thenReturn(registry);
+        UserRepository repository = mock(UserRepository.class);
+        when(repository.findByName("testName")).thenReturn(Optional.of(new User()));
+
+        UserRepository timed = (UserRepository) new CosmosRepositoryMetrics(registryProvider, 500)
+                .postProcessAfterInitialization(repository, "userRepository");
+        timed.findByName("testName");
+        timed.findByName("testName");
+
+        assertThat(registry.get("cosmos.repository.operation").tag("repository", "userRepository")
+                .tag("method", "findByName").tag("status", "ok").timer().count(), is(2L));
+        verify(repository, times(2)).findByName("testName");
+    }
+}
@@ -0,0 +1,107 @@
+package com.lf;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.azure.cosmos.models.FeedResponse;
+import com.azure.spring.data.cosmos.core.ResponseDiagnostics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+public class CosmosResponseMetricsTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final ListAppender<ILoggingEvent> logged = new ListAppender<>();
+
+    @Before
+    public void captureLogs() {
+        logged.start();
+        ((Logger) LoggerFactory.getLogger(CosmosResponseMetrics.class)).addAppender(logged);
+    }
+
+    @After
+    public void stopCapturingLogs() {
+        ((Logger) LoggerFactory.getLogger(CosmosResponseMetrics.class)).detachAppender(logged);
+    }
+
+    @Test
+    public void responsesShouldBeCountedAsQueryOrItem() throws Exception {
+
+        CosmosResponseMetrics metrics = new CosmosResponseMetrics(registry, 0, 100);
+        metrics.processResponseDiagnostics(itemResponse());
+        metrics.processResponseDiagnostics(queryResponse(5));
+        metrics.processQueryPage(queryPage(7));
+        metrics.processResponseDiagnostics(null);
+
+        assertThat(registry.get("cosmos.responses").tag("kind", "item").counter().count(), is(1.0));
+        assertThat(registry.get("cosmos.responses").tag("kind", "query").counter().count(), is(2.0));
+        assertThat(registry.get("cosmos.request.charge").summary().count(), is(2L));
+        assertThat(registry.get("cosmos.request.charge").summary().totalAmount(), is(12.0));
+        assertThat(logged.list.size(), is(0));
+    }
+
+    @Test
+    public void queryPagesAboveTheThresholdShouldAlwaysBeLogged() throws Exception {
+
+        CosmosResponseMetrics metrics = new CosmosResponseMetrics(registry, 0, 100);
+        metrics.processResponseDiagnostics(queryResponse(50));
+        metrics.processResponseDiagnostics(queryResponse(150));
+        metrics.processQueryPage(queryPage(100));
+        metrics.processQueryPage(queryPage(250));
+
+        assertThat(logged.list.size(), is(2));
+        for (ILoggingEvent event : logged.list) {
+            assertThat(event.getLevel(), is(Level.WARN));
+        }
+        assertThat(logged.list.get(0).getArgumentArray()[0], is((Object) 150.0));
+        assertThat(logged.list.get(1).getArgumentArray()[0], is((Object) 250.0));
+    }
+
+    @Test
+    public void diagnosticsShouldBeLoggedForTheSampledResponsesOnly() throws Exception {
+
+        CosmosResponseMetrics unsampled = new CosmosResponseMetrics(registry, 0, 100);
+        unsampled.processResponseDiagnostics(itemResponse());
+        unsampled.processQueryPage(queryPage(5));
+        assertThat(logged.list.size(), is(0));
+
+        CosmosResponseMetrics sampled = new CosmosResponseMetrics(registry, 1, 100);
+        sampled.processResponseDiagnostics(itemResponse());
+        sampled.processResponseDiagnostics(queryResponse(5));
+        sampled.processQueryPage(queryPage(5));
+        assertThat(logged.list.size(), is(3));
+        for (ILoggingEvent event : logged.list) {
+            assertThat(event.getLevel(), is(Level.INFO));
+        }
+    }
+
+    private static ResponseDiagnostics itemResponse() {
+        ResponseDiagnostics diagnostics = mock(ResponseDiagnostics.class);
+        when(diagnostics.getCosmosResponseStatistics()).thenReturn(null);
+        return diagnostics;
+    }
+
+    private static ResponseDiagnostics queryResponse(final double requestCharge) {
+        ResponseDiagnostics.CosmosResponseStatistics statistics = mock(ResponseDiagnostics.CosmosResponseStatistics.class);
+        when(statistics.getRequestCharge()).thenReturn(requestCharge);
+        ResponseDiagnostics diagnostics = mock(ResponseDiagnostics.class);
+        when(diagnostics.getCosmosResponseStatistics()).thenReturn(statistics);
+        return diagnostics;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static FeedResponse<Object> queryPage(final double requestCharge) {
+        FeedResponse<Object> page = mock(FeedResponse.class);
+        when(page.getRequestCharge()).thenReturn(requestCharge);
+        return page;
+    }
+}
@@ -1,8 +1,13 @@
 package com.lf;
 
+import com.lf.model.UserRole;
+import com.lf.util.SecurityContextCodec;
+
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.stream.Collectors;
 
 public class TestHelper {
 
@@ -24,4 +29,12 @@ public class TestHelper {
 
         return bytes;
     }
+
+    /**
+     * Build an X-Security-Context header for a logged in user holding every role.
+     */
+    public static String securityContextHeader(String userId, String accountId, String name) {
+        return new String(SecurityContextCodec.encode(userId, accountId,
+                Arrays.stream(UserRole.values()).map(UserRole::value).collect(Collectors.toList()), name));
+    }
 }
@@ -0,0 +1,132 @@
+package com.lf.controller;
+
+import com.lf.TestHelper;
+import com.lf.service.AccountService;
+import com.lf.service.SecurityContextCache;
+import com.lf.service.SecurityService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class AccessCheckInterceptorTest {
+
+    @Mock
+    private AccountService accountService;
+
+    @Mock
+    private SecurityService securityService;
+
+    @Spy
+    private SecurityContextCache securityContextCache = new SecurityContextCache(100, 60, true);
+
+    @InjectMocks
+    private AccessChecks accessChecks;
+
+    private AccessCheckInterceptor interceptor = new AccessCheckInterceptor();
+
+    private static final String BAD_ID = "not_a_uuid";
+    private static final String USER_ID = "d4dfdaf6-02a2-11e7-93ae-92361f002672";
+    private static final String ACCOUNT_ID = "d4dfdaf6-02a2-11e7-93ae-92361f002671";
+    private static final String LOGGED_IN_USER_USERNAME = "testUsername";
+    private static final String SECURITY_CONTEXT = TestHelper.securityContextHeader(USER_ID, ACCOUNT_ID, LOGGED_IN_USER_USERNAME);
+
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Before
+    public void setupSecurityContext() {
+        ReflectionTestUtils.setField(interceptor, "accessChecks", accessChecks);
+        when(securityService.isLoggedInUserActiveAsync(any())).thenReturn(completedFuture(true));
+        when(accountService.accountExistsAsync(ACCOUNT_ID)).thenReturn(completedFuture(true));
+
+        request = new MockHttpServletRequest();
+        request.addHeader(AccessChecks.SECURITY_CONTEXT_HEADER, SECURITY_CONTEXT);
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    public void shouldPassAndExposeTheSecurityContextWhenAllChecksPass() throws Exception {
+        pathVariables("account_id", ACCOUNT_ID);
+        assertTrue(interceptor.preHandle(request, response, handler(UserController.class, "listUsers", String.class, Boolean.class)));
+        assertThat(request.getAttribute(AccessChecks.SECURITY_CONTEXT_ATTRIBUTE), is(notNullValue()));
+    }
+
+    @Test
+    public void shouldSayForbiddenWhenSecurityContextHeaderIsMissing() throws Exception {
+        request.removeHeader(AccessChecks.SECURITY_CONTEXT_HEADER);
+        pathVariables("account_id", ACCOUNT_ID);
+        assertFalse(interceptor.preHandle(request, response, handler(UserController.class, "listUsers", String.class, Boolean.class)));
+        assertThat(response.getStatus(), is(403));
+        verify(securityService, never()).isLoggedInUserActiveAsync(any());
+    }
+
+    @Test
+    public void shouldSayBadRequestWhenAccountIdIsInvalid() throws Exception {
+        pathVariables("account_id", BAD_ID);
+        assertFalse(interceptor.preHandle(request, response, handler(AccountController.class, "getById", String.class, boolean.class)));
+        assertThat(response.getStatus(), is(400));
+        verify(securityService, never()).isLoggedInUserActiveAsync(any());
+    }
+
+    @Test
+    public void shouldSkipTheUuidCheckWhenLookingUpByName() throws Exception {
+        pathVariables("account_id", "test-account");
+        request.setParameter("use-name", "true");
+        assertTrue(interceptor.preHandle(request, response, handler(AccountController.class, "getById", String.class, boolean.class)));
+    }
+
+    @Test
+    public void shouldSayForbiddenWhenLoggedInUserIsNotActive() throws Exception {
+        when(securityService.isLoggedInUserActiveAsync(any())).thenReturn(completedFuture(false));
+        pathVariables("account_id", ACCOUNT_ID);
+        assertFalse(interceptor.preHandle(request, response, handler(ConfigurationController.class, "listConfigurations", String.class, Boolean.class)));
+        assertThat(response.getStatus(), is(403));
+    }
+
+    @Test
+    public void shouldSayNotFoundWhenAccountDoesNotExist() throws Exception {
+        when(accountService.accountExistsAsync(anyString())).thenReturn(completedFuture(false));
+        pathVariables("account_id", ACCOUNT_ID);
+        assertFalse(interceptor.preHandle(request, response, handler(UserController.class, "listUsers", String.class, Boolean.class)));
+        assertThat(response.getStatus(), is(404));
+    }
+
+    @Test
+    public void shouldIgnoreHandlersWithoutRequiresAccess() throws Exception {
+        request.removeHeader(AccessChecks.SECURITY_CONTEXT_HEADER);
+        assertTrue(interceptor.preHandle(request, response, new Object()));
+        verifyZeroInteractions(securityService, accountService);
+    }
+
+    private void pathVariables(final String name, final String value) {
+        Map<String, String> variables = new HashMap<>();
+        variables.put(name, value);
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, variables);
+    }
+
+    private static HandlerMethod handler(final Class<?> controller, final String method, final Class<?>... parameterTypes) throws Exception {
+        return new HandlerMethod(controller.newInstance(), controller.getMethod(method, parameterTypes));
+    }
+}
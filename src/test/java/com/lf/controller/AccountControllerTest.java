@@ -1,8 +1,11 @@
 package com.lf.controller;
 
+import com.lf.TestHelper;
 import com.lf.model.Account;
 import com.lf.controller.util.ResponseEntityHelper;
 import com.lf.model.SecurityContext;
+import com.lf.service.AccountHierarchyCycleException;
+import com.lf.service.AccountHierarchyLimitException;
 import com.lf.service.AccountService;
 import com.lf.service.SecurityService;
 import org.junit.Before;
@@ -42,7 +45,8 @@ public class AccountControllerTest {
     private static final String PARENT_ACCOUNT_ID = "parentAccountId";
     private static final String LOGGED_IN_USER_USERNAME = "testUsername";
     private static final String ACCOUNT_ID = "d4dfdaf6-02a2-11e7-93ae-92361f002671";
-    private static final String SECURITY_CONTEXT = "some-security-context";
+    private static final String SECURITY_CONTEXT_HEADER = TestHelper.securityContextHeader("d4dfdaf6-02a2-11e7-93ae-92361f002673", ACCOUNT_ID, LOGGED_IN_USER_USERNAME);
+    private static final SecurityContext SECURITY_CONTEXT = new SecurityContext(SECURITY_CONTEXT_HEADER);
 
     @Before
     public void setupSecurityContext() {
@@ -50,21 +54,14 @@ public class AccountControllerTest {
         when(securityService.isLoggedInUserActive(any())).thenReturn(true);
         when(securityService.getAccountIdForLoggedInUser(any())).thenReturn(ACCOUNT_ID);
         when(securityService.getUserNameForUserId(any())).thenReturn(LOGGED_IN_USER_USERNAME);
-        when(securityService.validate(any())).thenReturn(Optional.of(new SecurityContext(SECURITY_CONTEXT)));
+        when(securityService.validate(any())).thenReturn(Optional.of(SECURITY_CONTEXT));
     }
 
 
-    @Test
-    public void getByIdShouldSayBadRequestWhenAccountIdIsInvalid() throws Exception {
-        //when(service.getAccountById(ACCOUNT_ID)).thenReturn(Optional.empty());
-        ResponseEntity<Account> result = controller.getById(BAD_ACCOUNT_ID, false, SECURITY_CONTEXT);
-        assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(BAD_REQUEST)));
-    }
-
     @Test
     public void getByIdShouldSayNotFoundWhenAccountNotFound() throws Exception {
         when(service.getAccountById(ACCOUNT_ID)).thenReturn(Optional.empty());
-        ResponseEntity<Account> result = controller.getById(ACCOUNT_ID, false, SECURITY_CONTEXT);
+        ResponseEntity<Account> result = controller.getById(ACCOUNT_ID, false, null);
         assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(NOT_FOUND)));
     }
 
@@ -72,7 +69,7 @@ public class AccountControllerTest {
     public void readShouldReturnAccountWhenAccountIdForLoggedInUserIsSameAsGivenAccount() throws Exception {
         Account account = new Account().withId(ACCOUNT_ID);
         when(service.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
-        ResponseEntity<Account> result = controller.getById(ACCOUNT_ID, false, SECURITY_CONTEXT);
+        ResponseEntity<Account> result = controller.getById(ACCOUNT_ID, false, null);
         assertThat(result, is(allOf(
                 ResponseEntityHelper.responseEntityWithStatus(OK),
                 ResponseEntityHelper.responseEntityThat(equalTo(account)))));
@@ -84,7 +81,7 @@ public class AccountControllerTest {
         Account parentAccount = new Account().withId(PARENT_ACCOUNT_ID);
         when(service.getAllDescendantsForAccount(PARENT_ACCOUNT_ID)).thenReturn(asList(account));
         when(service.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
-        ResponseEntity<Account> result = controller.getById(ACCOUNT_ID, false, SECURITY_CONTEXT);
+        ResponseEntity<Account> result = controller.getById(ACCOUNT_ID, false, null);
         assertThat(result, is(allOf(
                 ResponseEntityHelper.responseEntityWithStatus(OK),
                 ResponseEntityHelper.responseEntityThat(equalTo(account)))));
@@ -94,7 +91,7 @@ public class AccountControllerTest {
     public void readShouldReturnAccountWhenAccountExists() throws Exception {
         Account account = new Account().withId(ACCOUNT_ID);
         when(service.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
-        ResponseEntity<Account> result = controller.getById(ACCOUNT_ID, false, SECURITY_CONTEXT);
+        ResponseEntity<Account> result = controller.getById(ACCOUNT_ID, false, null);
         assertThat(result, is(allOf(
                 ResponseEntityHelper.responseEntityWithStatus(OK),
                 ResponseEntityHelper.responseEntityThat(equalTo(account)))));
@@ -104,7 +101,7 @@ public class AccountControllerTest {
     public void readShouldReturnAccountWhenAccountNameExists() throws Exception {
         Account account = new Account().withId(ACCOUNT_NAME);
         when(service.getAccountByName(ACCOUNT_NAME)).thenReturn(Optional.of(account));
-        ResponseEntity<Account> result = controller.getById(ACCOUNT_NAME, true, SECURITY_CONTEXT);
+        ResponseEntity<Account> result = controller.getById(ACCOUNT_NAME, true, null);
         assertThat(result, is(allOf(
                 ResponseEntityHelper.responseEntityWithStatus(OK),
                 ResponseEntityHelper.responseEntityThat(equalTo(account)))));
@@ -134,16 +131,36 @@ public class AccountControllerTest {
         Account updatedAccount = new Account().withId(ACCOUNT_ID).withDescription("updated customer");
 
         when(service.update(ACCOUNT_ID, updatedAccount)).thenReturn(Optional.of(updatedAccount));
-        ResponseEntity<Account> result = controller.updateAccount(updatedAccount, ACCOUNT_ID, SECURITY_CONTEXT);
+        ResponseEntity<Account> result = controller.updateAccount(updatedAccount, ACCOUNT_ID);
         assertThat(result, is(allOf(
                 ResponseEntityHelper.responseEntityWithStatus(OK),
                 ResponseEntityHelper.responseEntityThat(equalTo(updatedAccount)))));
     }
 
+    @Test
+    public void updateShouldReplyWithUnprocessableEntityWhenTheHierarchyLimitIsExceeded() throws Exception {
+        Account updatedAccount = new Account().withId(ACCOUNT_ID).withParentAccountId("parent");
+
+        when(service.update(ACCOUNT_ID, updatedAccount))
+                .thenThrow(new AccountHierarchyLimitException("Account hierarchy under [" + ACCOUNT_ID + "] is deeper than the limit of 32 levels", 32));
+        ResponseEntity<Account> result = controller.updateAccount(updatedAccount, ACCOUNT_ID);
+        assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(UNPROCESSABLE_ENTITY)));
+    }
+
+    @Test
+    public void updateShouldReplyWithConflictWhenTheMoveWouldCreateACycle() throws Exception {
+        Account updatedAccount = new Account().withId(ACCOUNT_ID).withParentAccountId("child");
+
+        when(service.update(ACCOUNT_ID, updatedAccount))
+                .thenThrow(new AccountHierarchyCycleException("Account " + ACCOUNT_ID + " would be its own ancestor through child"));
+        ResponseEntity<Account> result = controller.updateAccount(updatedAccount, ACCOUNT_ID);
+        assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(CONFLICT)));
+    }
+
     @Test
     public void deleteShouldRespondWithNotFoundIfAccountDoesNotExist() throws Exception {
         when(service.delete(ACCOUNT_ID)).thenReturn(Optional.empty());
-        ResponseEntity<Void> result = controller.deleteAccount(ACCOUNT_ID, SECURITY_CONTEXT);
+        ResponseEntity<Void> result = controller.deleteAccount(ACCOUNT_ID);
         assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(NOT_FOUND)));
     }
 
@@ -152,7 +169,7 @@ public class AccountControllerTest {
         Account deletedAccount = new Account().withId(ACCOUNT_ID);
         deletedAccount.setIsActive(false);
         when(service.delete(ACCOUNT_ID)).thenReturn(Optional.of(deletedAccount));
-        ResponseEntity<Void> result = controller.deleteAccount(ACCOUNT_ID, SECURITY_CONTEXT);
+        ResponseEntity<Void> result = controller.deleteAccount(ACCOUNT_ID);
         assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(OK)));
     }
 }
\ No newline at end of file
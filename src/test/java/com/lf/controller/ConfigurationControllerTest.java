@@ -1,5 +1,6 @@
 package com.lf.controller;
 
+import com.lf.TestHelper;
 import com.lf.model.Account;
 import com.lf.model.Configuration;
 import com.lf.controller.util.ResponseEntityHelper;
@@ -7,6 +8,7 @@ import com.lf.model.SecurityContext;
 import com.lf.service.AccountService;
 import com.lf.service.ConfigurationService;
 import com.lf.service.SecurityService;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.junit.Before;
@@ -14,17 +16,22 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.anyString;
@@ -44,6 +51,12 @@ public class ConfigurationControllerTest {
     @Mock
     private SecurityService securityService;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private Paging paging = new Paging();
+
     @InjectMocks
     private ConfigurationController controller;
 
@@ -56,7 +69,8 @@ public class ConfigurationControllerTest {
     private static final List<String> ACCOUNT_ID_LIST = Arrays.asList("testId", "testId1");
     private static final List<String> CONFIG_NAME_LIST = Arrays.asList("testConfigName", "testConfigName1");
     private static final List<String> ACCOUNT_NAME_LIST = Arrays.asList("testAccountName", "testAccountName1");
-    private static final String SECURITY_CONTEXT = "some-security-context";
+    private static final String SECURITY_CONTEXT_HEADER = TestHelper.securityContextHeader("d4dfdaf6-02a2-11e7-93ae-92361f002673", ACCOUNT_ID, LOGGED_IN_USER_USERNAME);
+    private static final SecurityContext SECURITY_CONTEXT = new SecurityContext(SECURITY_CONTEXT_HEADER);
 
     @Before
     public void setupSecurityContext() {
@@ -64,7 +78,8 @@ public class ConfigurationControllerTest {
         when(securityService.isLoggedInUserActive(any())).thenReturn(true);
         when(securityService.getAccountIdForLoggedInUser(any())).thenReturn(ACCOUNT_ID);
         when(securityService.getUserNameForUserId(any())).thenReturn(LOGGED_IN_USER_USERNAME);
-        when(securityService.validate(any())).thenReturn(Optional.of(new SecurityContext(SECURITY_CONTEXT)));
+        when(securityService.validate(any())).thenReturn(Optional.of(SECURITY_CONTEXT));
+        when(accountService.accountExists(ACCOUNT_ID)).thenReturn(true);
     }
 
     @Test
@@ -72,21 +87,10 @@ public class ConfigurationControllerTest {
         Account account = new Account().withId(ACCOUNT_ID);
         when(accountService.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
 
-        when(service.list(ACCOUNT_ID)).thenReturn(Optional.of(emptyList()));
-        ResponseEntity<List<Configuration>> result = controller.listConfigurations(ACCOUNT_ID, null, SECURITY_CONTEXT);
+        when(service.stream(ACCOUNT_ID, null)).thenReturn(Stream.empty());
+        ResponseEntity<StreamingResponseBody> result = controller.listConfigurations(ACCOUNT_ID, null, null, null, null, null);
         assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(OK)));
-    }
-
-    @Test
-    public void listShouldSayForbiddenWhenLoggedInUserIsNotActive() throws Exception {
-        when(securityService.isLoggedInUserActive(any())).thenReturn(false);
-
-        Account account = new Account().withId(ACCOUNT_ID);
-        when(accountService.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
-
-        when(service.list(ACCOUNT_ID)).thenReturn(Optional.of(emptyList()));
-        ResponseEntity<List<Configuration>> result = controller.listConfigurations(ACCOUNT_ID, null, SECURITY_CONTEXT);
-        assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(FORBIDDEN)));
+        assertThat(ResponseEntityHelper.streamedBody(result), is("[]"));
     }
 
     @Test
@@ -97,11 +101,11 @@ public class ConfigurationControllerTest {
         Account account = new Account().withId(ACCOUNT_ID);
         when(accountService.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
 
-        when(service.list(ACCOUNT_ID)).thenReturn(Optional.of(asList(configuration1, configuration2)));
-        ResponseEntity<List<Configuration>> result = controller.listConfigurations(ACCOUNT_ID,null, SECURITY_CONTEXT);
-        assertThat(result, is(allOf(
-                ResponseEntityHelper.responseEntityWithStatus(OK),
-                ResponseEntityHelper.responseEntityThat(containsInAnyOrder(configuration1, configuration2)))));
+        when(service.stream(ACCOUNT_ID, null)).thenReturn(Stream.of(configuration1, configuration2));
+        ResponseEntity<StreamingResponseBody> result = controller.listConfigurations(ACCOUNT_ID, null, null, null, null, null);
+        assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(OK)));
+        List<Configuration> configurations = objectMapper.readValue(ResponseEntityHelper.streamedBody(result), new TypeReference<List<Configuration>>() {});
+        assertThat(configurations.stream().map(Configuration::getId).collect(Collectors.toList()), contains("testConfigurationId1", "testConfigurationId2"));
     }
 
     @Test
@@ -109,31 +113,19 @@ public class ConfigurationControllerTest {
         Account account = new Account().withId(ACCOUNT_ID);
         when(accountService.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
 
-        when(service.getConfigurationById(CONFIGURATION_ID)).thenReturn(Optional.empty());
-        ResponseEntity<Configuration> result = controller.getById(ACCOUNT_ID, CONFIGURATION_ID, SECURITY_CONTEXT);
+        when(service.getConfigurationById(ACCOUNT_ID, CONFIGURATION_ID)).thenReturn(Optional.empty());
+        ResponseEntity<Configuration> result = controller.getById(ACCOUNT_ID, CONFIGURATION_ID, null);
         assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(NOT_FOUND)));
     }
 
-    @Test
-    public void readShouldSayForbiddenWhenAccountIdForLoggedInUserIsNotSameOrParentOfGivenAccount() throws Exception {
-
-        Account account = new Account().withId(ACCOUNT_ID);
-        when(accountService.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
-
-        Configuration configuration = new Configuration().withId(CONFIGURATION_ID);
-        when(service.getConfigurationById(CONFIGURATION_ID)).thenReturn(Optional.of(configuration));
-        ResponseEntity<Configuration> result = controller.getById(ACCOUNT_ID, CONFIGURATION_ID, SECURITY_CONTEXT);
-        assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(FORBIDDEN)));
-    }
-
     @Test
     public void readShouldReturnConfigurationWhenAccountIdForLoggedInUserIsSameAsGivenAccount() throws Exception {
         Account account = new Account().withId(ACCOUNT_ID).withParentAccountId(PARENT_ACCOUNT_ID);
         when(accountService.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
 
         Configuration configuration = new Configuration().withId(CONFIGURATION_ID);
-        when(service.getConfigurationById(CONFIGURATION_ID)).thenReturn(Optional.of(configuration));
-        ResponseEntity<Configuration> result = controller.getById(ACCOUNT_ID, CONFIGURATION_ID, SECURITY_CONTEXT);
+        when(service.getConfigurationById(ACCOUNT_ID, CONFIGURATION_ID)).thenReturn(Optional.of(configuration));
+        ResponseEntity<Configuration> result = controller.getById(ACCOUNT_ID, CONFIGURATION_ID, null);
         assertThat(result, is(allOf(
                 ResponseEntityHelper.responseEntityWithStatus(OK),
                 ResponseEntityHelper.responseEntityThat(equalTo(configuration)))));
@@ -147,8 +139,8 @@ public class ConfigurationControllerTest {
         when(accountService.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
 
         Configuration configuration = new Configuration().withId(CONFIGURATION_ID);
-        when(service.getConfigurationById(CONFIGURATION_ID)).thenReturn(Optional.of(configuration));
-        ResponseEntity<Configuration> result = controller.getById(ACCOUNT_ID, CONFIGURATION_ID,  SECURITY_CONTEXT);
+        when(service.getConfigurationById(ACCOUNT_ID, CONFIGURATION_ID)).thenReturn(Optional.of(configuration));
+        ResponseEntity<Configuration> result = controller.getById(ACCOUNT_ID, CONFIGURATION_ID, null);
         assertThat(result, is(allOf(
                 ResponseEntityHelper.responseEntityWithStatus(OK),
                 ResponseEntityHelper.responseEntityThat(equalTo(configuration)))));
@@ -161,8 +153,8 @@ public class ConfigurationControllerTest {
         when(accountService.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
 
         Configuration configuration = new Configuration().withId(CONFIGURATION_ID);
-        when(service.getConfigurationById(CONFIGURATION_ID)).thenReturn(Optional.of(configuration));
-        ResponseEntity<Configuration> result = controller.getById(ACCOUNT_ID, CONFIGURATION_ID, SECURITY_CONTEXT);
+        when(service.getConfigurationById(ACCOUNT_ID, CONFIGURATION_ID)).thenReturn(Optional.of(configuration));
+        ResponseEntity<Configuration> result = controller.getById(ACCOUNT_ID, CONFIGURATION_ID, null);
         assertThat(result, is(allOf(
                 ResponseEntityHelper.responseEntityWithStatus(OK),
                 ResponseEntityHelper.responseEntityThat(equalTo(configuration)))));
@@ -221,8 +213,8 @@ public class ConfigurationControllerTest {
         Account account = new Account().withId(ACCOUNT_ID);
         when(accountService.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
 
-        when(service.delete(CONFIGURATION_ID, false)).thenReturn(Optional.empty());
-        ResponseEntity result = controller.deleteConfiguration(ACCOUNT_ID, CONFIGURATION_ID, false, SECURITY_CONTEXT);
+        when(service.delete(ACCOUNT_ID, CONFIGURATION_ID, false)).thenReturn(Optional.empty());
+        ResponseEntity result = controller.deleteConfiguration(ACCOUNT_ID, CONFIGURATION_ID, false);
         assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(NOT_FOUND)));
     }
 
@@ -232,8 +224,8 @@ public class ConfigurationControllerTest {
         when(accountService.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
 
         Configuration deletedConfiguration = new Configuration().withId(CONFIGURATION_ID);
-        when(service.delete(CONFIGURATION_ID, false)).thenReturn(Optional.of(deletedConfiguration));
-        ResponseEntity result = controller.deleteConfiguration(ACCOUNT_ID, CONFIGURATION_ID, false, SECURITY_CONTEXT);
+        when(service.delete(ACCOUNT_ID, CONFIGURATION_ID, false)).thenReturn(Optional.of(deletedConfiguration));
+        ResponseEntity result = controller.deleteConfiguration(ACCOUNT_ID, CONFIGURATION_ID, false);
         assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(OK)));
     }
 }
\ No newline at end of file
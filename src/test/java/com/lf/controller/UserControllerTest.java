@@ -1,31 +1,45 @@
 package com.lf.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.lf.TestHelper;
 import com.lf.model.Account;
+import com.lf.model.PagedResult;
 import com.lf.model.User;
 import com.lf.model.UserRole;
 import com.lf.model.SecurityContext;
 import com.lf.controller.util.ResponseEntityHelper;
 import com.lf.service.AccountService;
+import com.lf.service.PasswordHasher;
 import com.lf.service.SecurityService;
 import com.lf.service.UserService;
+import com.lf.util.ContinuationTokens;
+import com.lf.util.InvalidContinuationTokenException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyList;
@@ -45,6 +59,15 @@ public class UserControllerTest {
     @Mock
     private SecurityService securityService;
 
+    @Mock
+    private PasswordHasher passwordHasher;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private Paging paging = new Paging();
+
     @InjectMocks
     private UserController controller;
 
@@ -52,7 +75,8 @@ public class UserControllerTest {
     private static final String ACCOUNT_ID = "d4dfdaf6-02a2-11e7-93ae-92361f002671";
     private static final String PARENT_ACCOUNT_ID = "parentAccountId";
     private static final String LOGGED_IN_USER_USERNAME = "testUsername";
-    private static final String SECURITY_CONTEXT = "some-security-context";
+    private static final String SECURITY_CONTEXT_HEADER = TestHelper.securityContextHeader(USER_ID, ACCOUNT_ID, LOGGED_IN_USER_USERNAME);
+    private static final SecurityContext SECURITY_CONTEXT = new SecurityContext(SECURITY_CONTEXT_HEADER);
 
     @Before
     public void setupSecurityContext() {
@@ -60,7 +84,8 @@ public class UserControllerTest {
         when(securityService.isLoggedInUserActive(any())).thenReturn(true);
         when(securityService.getAccountIdForLoggedInUser(any())).thenReturn(ACCOUNT_ID);
         when(securityService.getUserNameForUserId(any())).thenReturn(LOGGED_IN_USER_USERNAME);
-        when(securityService.validate(any())).thenReturn(Optional.of(new SecurityContext(SECURITY_CONTEXT)));
+        when(securityService.validate(any())).thenReturn(Optional.of(SECURITY_CONTEXT));
+        when(accountService.accountExists(ACCOUNT_ID)).thenReturn(true);
     }
 
     @Test
@@ -68,35 +93,76 @@ public class UserControllerTest {
         Account account = new Account().withId(ACCOUNT_ID);
         when(accountService.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
 
-        when(service.list(ACCOUNT_ID)).thenReturn(emptyList());
-        ResponseEntity<List<User>> result = controller.listUsers(ACCOUNT_ID, null, SECURITY_CONTEXT);
+        when(service.stream(ACCOUNT_ID, null)).thenReturn(Stream.empty());
+        ResponseEntity<StreamingResponseBody> result = controller.listUsers(ACCOUNT_ID, null, null, null, null, null);
         assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(OK)));
+        assertThat(ResponseEntityHelper.streamedBody(result), is("[]"));
     }
 
     @Test
-    public void listShouldSayForbiddenWhenLoggedInUserIsNotActive() throws Exception {
-        when(securityService.isLoggedInUserActive(any())).thenReturn(false);
+    public void listShouldSayOkAndGiveUsersIfUsersExist() throws Exception {
+        User user1 = new User().withId("testUserId1");
+        User user2 = new User().withId("testUserId2");
+
         Account account = new Account().withId(ACCOUNT_ID);
         when(accountService.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
 
-        when(service.list(ACCOUNT_ID)).thenReturn(emptyList());
-        ResponseEntity<List<User>> result = controller.listUsers(ACCOUNT_ID, null, SECURITY_CONTEXT);
-        assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(FORBIDDEN)));
+        when(service.stream(ACCOUNT_ID, null)).thenReturn(Stream.of(user1, user2));
+        ResponseEntity<StreamingResponseBody> result = controller.listUsers(ACCOUNT_ID, null, null, null, null, null);
+        assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(OK)));
+        List<User> users = objectMapper.readValue(ResponseEntityHelper.streamedBody(result), new TypeReference<List<User>>() {});
+        assertThat(users.stream().map(User::getId).collect(Collectors.toList()), contains("testUserId1", "testUserId2"));
     }
 
     @Test
-    public void listShouldSayOkAndGiveUsersIfUsersExist() throws Exception {
+    public void listShouldWriteOneUserPerLineWhenNdjsonIsAccepted() throws Exception {
         User user1 = new User().withId("testUserId1");
         User user2 = new User().withId("testUserId2");
 
-        Account account = new Account().withId(ACCOUNT_ID);
-        when(accountService.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
+        when(service.stream(ACCOUNT_ID, null)).thenReturn(Stream.of(user1, user2));
+        ResponseEntity<StreamingResponseBody> result = controller.listUsers(ACCOUNT_ID, null, null, null, null, "application/x-ndjson");
+        assertThat(result.getHeaders().getContentType().toString(), is("application/x-ndjson"));
+        String[] lines = ResponseEntityHelper.streamedBody(result).split("\n");
+        assertThat(lines.length, is(2));
+        assertThat(objectMapper.readValue(lines[1], User.class).getId(), is("testUserId2"));
+    }
 
-        when(service.list(ACCOUNT_ID)).thenReturn(asList(user1, user2));
-        ResponseEntity<List<User>> result = controller.listUsers(ACCOUNT_ID, null, SECURITY_CONTEXT);
-        assertThat(result, is(allOf(
-                ResponseEntityHelper.responseEntityWithStatus(OK),
-                ResponseEntityHelper.responseEntityThat(containsInAnyOrder(user1, user2)))));
+    @Test
+    public void listShouldReturnASinglePageWhenALimitIsGiven() throws Exception {
+        User active = new User().withId("testUserId1");
+        String continuation = ContinuationTokens.encode(ContinuationTokens.scope("users", ACCOUNT_ID, true), "{\"token\":\"next\"}");
+
+        // the is-active filter is part of the query, not applied to the page afterwards
+        when(service.list(ACCOUNT_ID, true, 2, null)).thenReturn(new PagedResult<>(asList(active), continuation));
+        ResponseEntity<PagedResult<User>> result = controller.listUsers(ACCOUNT_ID, true, 2, null, null, null);
+        assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(OK)));
+        assertThat(result.getBody().getItems(), contains(active));
+        assertThat(result.getBody().getContinuationToken(), is(continuation));
+    }
+
+    @Test
+    public void listShouldSayBadRequestForAnOutOfRangeLimitOrBadContinuation() throws Exception {
+        assertThat(controller.listUsers(ACCOUNT_ID, null, 0, null, null, null), is(ResponseEntityHelper.responseEntityWithStatus(BAD_REQUEST)));
+        assertThat(controller.listUsers(ACCOUNT_ID, null, null, "not*base64", null, null), is(ResponseEntityHelper.responseEntityWithStatus(BAD_REQUEST)));
+    }
+
+    @Test
+    public void listShouldSayBadRequestForAContinuationTheListOrCosmosRefuses() throws Exception {
+        String continuation = ContinuationTokens.encode(ContinuationTokens.scope("users", "otherAccountId", null), "{\"token\":\"next\"}");
+
+        when(service.list(ACCOUNT_ID, null, 100, continuation)).thenThrow(new InvalidContinuationTokenException("The continuation belongs to a different list"));
+        assertThat(controller.listUsers(ACCOUNT_ID, null, null, continuation, null, null), is(ResponseEntityHelper.responseEntityWithStatus(BAD_REQUEST)));
+    }
+
+    @Test
+    public void createShouldSayTooManyRequestsWhenPasswordHashingIsSaturated() throws Exception {
+        User user = new User().withUsername("new@lf.com");
+        user.setPassword("password");
+        when(passwordHasher.hash("password")).thenThrow(new RejectedExecutionException());
+
+        ResponseEntity<String> result = controller.createUser(user, ACCOUNT_ID, SECURITY_CONTEXT);
+        assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(TOO_MANY_REQUESTS)));
+        Mockito.verifyZeroInteractions(service);
     }
 
     @Test
@@ -109,8 +175,8 @@ public class UserControllerTest {
         User user = new User().withId(USER_ID);
         user.setUserRoles(userRoles);
 
-        when(service.getUserRolesById(USER_ID)).thenReturn(Optional.of(userRoles));
-        ResponseEntity<List<UserRole>> result = controller.getUserRoles(ACCOUNT_ID, USER_ID, SECURITY_CONTEXT);
+        when(service.getUserRolesById(ACCOUNT_ID, USER_ID)).thenReturn(Optional.of(userRoles));
+        ResponseEntity<List<UserRole>> result = controller.getUserRoles(ACCOUNT_ID, USER_ID);
         assertThat(result, is(allOf(
                 ResponseEntityHelper.responseEntityWithStatus(OK),
                 ResponseEntityHelper.responseEntityThat(equalTo(userRoles)))));
@@ -121,31 +187,18 @@ public class UserControllerTest {
         Account account = new Account().withId(ACCOUNT_ID);
         when(accountService.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
 
-        when(service.getUserById(USER_ID)).thenReturn(Optional.empty());
-        ResponseEntity<Optional<User>> result = controller.getById(ACCOUNT_ID, USER_ID, false, SECURITY_CONTEXT);
+        when(service.getUserById(ACCOUNT_ID, USER_ID)).thenReturn(Optional.empty());
+        ResponseEntity<Optional<User>> result = controller.getById(ACCOUNT_ID, USER_ID, false, null);
         assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(NOT_FOUND)));
     }
 
-    @Test
-    public void readShouldSayForbiddenWhenAccountIdForLoggedInUserIsNotSameOrParentOfGivenAccount() throws Exception {
-        when(securityService.isLoggedInUserActive(any())).thenReturn(false);
-
-        Account account = new Account().withId(ACCOUNT_ID);
-        when(accountService.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
-
-        User user = new User().withId(USER_ID);
-        when(service.getUserById(USER_ID)).thenReturn(Optional.of(user));
-        ResponseEntity<User> result = controller.getById(ACCOUNT_ID, USER_ID, false, SECURITY_CONTEXT);
-        assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(FORBIDDEN)));
-    }
-
     @Test
     public void readShouldReturnUserWhenAccountIdForLoggedInUserIsSameAsGivenAccount() throws Exception {
         Account account = new Account().withId(ACCOUNT_ID).withParentAccountId(PARENT_ACCOUNT_ID);
         when(accountService.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
         User user = new User().withId(USER_ID);
-        when(service.getUserById(USER_ID)).thenReturn(Optional.of(user));
-        ResponseEntity<User> result = controller.getById(ACCOUNT_ID, USER_ID, false, SECURITY_CONTEXT);
+        when(service.getUserById(ACCOUNT_ID, USER_ID)).thenReturn(Optional.of(user));
+        ResponseEntity<User> result = controller.getById(ACCOUNT_ID, USER_ID, false, null);
         assertThat(result, is(allOf(
                 ResponseEntityHelper.responseEntityWithStatus(OK),
                 ResponseEntityHelper.responseEntityThat(equalTo(user)))));
@@ -158,21 +211,41 @@ public class UserControllerTest {
         when(accountService.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
 
         User user = new User().withId(USER_ID);
-        when(service.getUserById(USER_ID)).thenReturn(Optional.of(user));
-        ResponseEntity<User> result = controller.getById(ACCOUNT_ID, USER_ID, false, SECURITY_CONTEXT);
+        when(service.getUserById(ACCOUNT_ID, USER_ID)).thenReturn(Optional.of(user));
+        ResponseEntity<User> result = controller.getById(ACCOUNT_ID, USER_ID, false, null);
         assertThat(result, is(allOf(
                 ResponseEntityHelper.responseEntityWithStatus(OK),
                 ResponseEntityHelper.responseEntityThat(equalTo(user)))));
     }
 
+    @Test
+    public void readShouldReturnOnlyTheRequestedFields() throws Exception {
+        User user = new User().withId(USER_ID).withName("testName");
+        user.setPassword("$2a$10$hash");
+        when(service.getUserById(ACCOUNT_ID, USER_ID)).thenReturn(Optional.of(user));
+
+        ResponseEntity<ObjectNode> result = controller.getById(ACCOUNT_ID, USER_ID, false, "id, name");
+        assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(OK)));
+        assertThat(result.getBody().get("id").asText(), is(USER_ID));
+        assertThat(result.getBody().get("name").asText(), is("testName"));
+        assertThat(result.getBody().size(), is(2));
+    }
+
+    @Test
+    public void readShouldSayBadRequestWhenAFieldIsNotProjectable() throws Exception {
+        ResponseEntity<String> result = controller.getById(ACCOUNT_ID, USER_ID, false, "id,password");
+        assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(BAD_REQUEST)));
+        assertThat(result.getBody(), is("Unknown field: password"));
+    }
+
     @Test
     public void readShouldReturnUserWhenUserExists() throws Exception {
         Account account = new Account().withId(ACCOUNT_ID);
         when(accountService.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
 
         User user = new User().withId(USER_ID);
-        when(service.getUserById(USER_ID)).thenReturn(Optional.of(user));
-        ResponseEntity<User> result = controller.getById(ACCOUNT_ID, USER_ID, false, SECURITY_CONTEXT);
+        when(service.getUserById(ACCOUNT_ID, USER_ID)).thenReturn(Optional.of(user));
+        ResponseEntity<User> result = controller.getById(ACCOUNT_ID, USER_ID, false, null);
         assertThat(result, is(allOf(
                 ResponseEntityHelper.responseEntityWithStatus(OK),
                 ResponseEntityHelper.responseEntityThat(equalTo(user)))));
@@ -221,7 +294,7 @@ public class UserControllerTest {
         when(accountService.getAccountById(ACCOUNT_ID)).thenReturn(Optional.of(account));
 
         when(service.delete(ACCOUNT_ID,USER_ID)).thenReturn(Optional.empty());
-        ResponseEntity<Void> result = controller.deleteUser(ACCOUNT_ID, USER_ID, SECURITY_CONTEXT);
+        ResponseEntity<Void> result = controller.deleteUser(ACCOUNT_ID, USER_ID);
         assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(NOT_FOUND)));
     }
 
@@ -233,7 +306,7 @@ public class UserControllerTest {
         User deletedUser = new User().withId(USER_ID);
         deletedUser.setIsActive(false);
         when(service.delete(ACCOUNT_ID, USER_ID)).thenReturn(Optional.of(deletedUser));
-        ResponseEntity<Void> result = controller.deleteUser(ACCOUNT_ID, USER_ID, SECURITY_CONTEXT);
+        ResponseEntity<Void> result = controller.deleteUser(ACCOUNT_ID, USER_ID);
         assertThat(result, is(ResponseEntityHelper.responseEntityWithStatus(OK)));
     }
 }
\ No newline at end of file
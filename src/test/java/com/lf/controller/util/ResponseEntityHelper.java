@@ -5,6 +5,11 @@ import org.hamcrest.Matcher;
 import org.hamcrest.TypeSafeMatcher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 public final class ResponseEntityHelper {
 
@@ -27,6 +32,13 @@ public final class ResponseEntityHelper {
         };
     }
 
+    public static String streamedBody(ResponseEntity<?> entity) throws IOException {
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ((StreamingResponseBody) entity.getBody()).writeTo(body);
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
     public static <T> Matcher<ResponseEntity<? extends T>> responseEntityThat(Matcher<T> categoryMatcher) {
 
         return new TypeSafeMatcher<ResponseEntity<? extends T>>() {
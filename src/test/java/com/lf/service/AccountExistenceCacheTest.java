@@ -0,0 +1,52 @@
+package com.lf.service;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AccountExistenceCacheTest {
+
+  private final AccountExistenceCache cache = new AccountExistenceCache(100, 300, 30, 1000, 0.01, new InMemoryInvalidationBroadcaster());
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @Test
+  public void aPrimedFilterShouldRejectUnknownIdsWithoutALookup() throws Exception {
+
+    cache.prime(() -> Arrays.asList("account-1", "account-2"));
+
+    assertThat(cache.exists("never-created", this::load), is(false));
+    assertThat(loads.get(), is(0));
+    assertThat(cache.exists("account-1", this::load), is(true));
+    assertThat(loads.get(), is(1));
+  }
+
+  @Test
+  public void anAccountCreatedWhilePrimingShouldNotBeRejected() throws Exception {
+
+    cache.prime(() -> {
+      cache.accountChanged("account-created-meanwhile");
+      return Arrays.asList("account-1");
+    });
+
+    assertThat(cache.exists("account-created-meanwhile", this::load), is(true));
+  }
+
+  @Test
+  public void aCreatedAccountShouldReplaceACachedMiss() throws Exception {
+
+    cache.prime(() -> Arrays.asList("account-1"));
+    assertThat(cache.exists("account-2", id -> false), is(false));
+
+    cache.accountChanged("account-2");
+    assertThat(cache.exists("account-2", this::load), is(true));
+  }
+
+  private boolean load(final String id) {
+    loads.incrementAndGet();
+    return true;
+  }
+}
@@ -1,24 +1,34 @@
 package com.lf.service;
 
 import com.lf.model.Account;
+import com.lf.model.PagedResult;
 import com.lf.repository.AccountRepository;
+import com.lf.repository.CosmosPage;
+import com.lf.repository.CosmosPagedQueries;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.collection.IsEmptyCollection.emptyCollectionOf;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.Silent.class)
@@ -30,6 +40,18 @@ public class AccountServiceTest {
   @Mock
   private AccountRepository repository;
 
+  @Spy
+  private AccountExistenceCache existenceCache = new AccountExistenceCache(100, 300, 30, 1000, 0.01, new InMemoryInvalidationBroadcaster());
+
+  @Mock
+  private AccountTreeCache treeCache;
+
+  @Mock
+  private Executor lookupExecutor;
+
+  @Mock
+  private CosmosPagedQueries pagedQueries;
+
   @InjectMocks
   private AccountServiceImpl service;
 
@@ -43,6 +65,20 @@ public class AccountServiceTest {
     assertThat(result, containsInAnyOrder(account1, account2));
   }
 
+  @Test
+  public void pagedListShouldRoundTripTheContinuationToken() throws Exception {
+
+    Account account = new Account().withId("testId1");
+    when(pagedQueries.accounts(null, 1)).thenReturn(new CosmosPage<>(asList(account), "cosmos-token"));
+    PagedResult<Account> first = service.list(1, null);
+    assertThat(first.getItems(), contains(account));
+
+    when(pagedQueries.accounts("cosmos-token", 1)).thenReturn(new CosmosPage<>(emptyList(), null));
+    PagedResult<Account> last = service.list(1, first.getContinuationToken());
+    assertThat(last.getItems().isEmpty(), is(true));
+    assertThat(last.getContinuationToken(), is((String) null));
+  }
+
   @Test
   public void getNameShouldReturnEmptyOptionalWhenNoAccountFound() throws Exception {
 
@@ -126,4 +162,189 @@ public class AccountServiceTest {
     Account result = service.delete(ACCOUNT_ID).get();
     assertFalse(result.getIsActive());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void accountExistsShouldOnlyReadCosmosOnceForAnExistingAccount() throws Exception {
+
+    when(repository.existsById(ACCOUNT_ID)).thenReturn(true);
+    assertTrue(service.accountExists(ACCOUNT_ID));
+    assertTrue(service.accountExists(ACCOUNT_ID));
+    verify(repository, times(1)).existsById(ACCOUNT_ID);
+  }
+
+  @Test
+  public void accountExistsShouldRejectUnknownIdsWithoutReadingCosmosOncePrimed() throws Exception {
+
+    existenceCache.prime(() -> asList("knownAccountId"));
+    assertFalse(service.accountExists(ACCOUNT_ID));
+    verify(repository, never()).existsById(ACCOUNT_ID);
+  }
+
+  @Test
+  public void primeExistenceFilterShouldNotPrimeWithAReplicaLocalBroadcasterUnlessEnabled() throws Exception {
+
+    service.primeExistenceFilter();
+    verify(repository, never()).findAllIds();
+    when(repository.existsById(ACCOUNT_ID)).thenReturn(true);
+    assertTrue(service.accountExists(ACCOUNT_ID));
+  }
+
+  @Test
+  public void accountExistsShouldSeeAccountsSavedAfterPriming() throws Exception {
+
+    existenceCache.prime(() -> asList("knownAccountId"));
+    service.save(new Account().withId(ACCOUNT_ID));
+    when(repository.existsById(ACCOUNT_ID)).thenReturn(true);
+    assertTrue(service.accountExists(ACCOUNT_ID));
+  }
+
+  @Test
+  public void getAllDescendantsShouldWalkEveryLevelWithOneQueryPerLevel() throws Exception {
+
+    Account child = new Account().withId("child").withParentAccountId(ACCOUNT_ID);
+    Account grandchild = new Account().withId("grandchild").withParentAccountId("child");
+    Account greatGrandchild = new Account().withId("greatGrandchild").withParentAccountId("grandchild");
+    when(repository.findByParentAccountIdIn(asList(ACCOUNT_ID))).thenReturn(asList(child));
+    when(repository.findByParentAccountIdIn(asList("child"))).thenReturn(asList(grandchild));
+    when(repository.findByParentAccountIdIn(asList("grandchild"))).thenReturn(asList(greatGrandchild));
+    when(repository.findByParentAccountIdIn(asList("greatGrandchild"))).thenReturn(emptyList());
+
+    List<Account> result = service.getAllDescendantsForAccount(ACCOUNT_ID);
+    assertThat(result, contains(child, grandchild, greatGrandchild));
+    verify(repository, times(4)).findByParentAccountIdIn(anyCollection());
+    verify(repository, never()).findByParentAccountId(anyString());
+  }
+
+  @Test
+  public void getAllChildrenAccountIdsShouldStopAtCycles() throws Exception {
+
+    Account child = new Account().withId("child").withParentAccountId(ACCOUNT_ID);
+    Account cycle = new Account().withId(ACCOUNT_ID).withParentAccountId("child");
+    when(repository.findByParentAccountIdIn(asList(ACCOUNT_ID))).thenReturn(asList(child));
+    when(repository.findByParentAccountIdIn(asList("child"))).thenReturn(asList(cycle));
+
+    List<String> result = service.getAllChildrenAccountIds(asList(ACCOUNT_ID));
+    assertThat(result, contains(ACCOUNT_ID, "child"));
+  }
+
+  @Test
+  public void saveShouldExtendTheParentsAncestorPath() throws Exception {
+
+    Account parent = new Account().withId("parent").withParentAccountId("root");
+    parent.setAncestorIds(asList("root"));
+    when(repository.findById("parent")).thenReturn(Optional.of(parent));
+
+    Account result = service.save(new Account().withId(ACCOUNT_ID).withParentAccountId("parent")).get();
+    assertThat(result.getAncestorIds(), contains("root", "parent"));
+  }
+
+  @Test
+  public void saveShouldRefuseAParentWhoseStoredPathIsAlreadyAtTheDepthLimit() throws Exception {
+
+    ReflectionTestUtils.setField(service, "maxHierarchyDepth", 2);
+    Account parent = new Account().withId("parent").withParentAccountId("middle");
+    parent.setAncestorIds(asList("root", "middle"));
+    when(repository.findById("parent")).thenReturn(Optional.of(parent));
+
+    Account account = new Account().withId(ACCOUNT_ID).withParentAccountId("parent");
+    try {
+      service.save(account);
+      fail("Expected the account to be refused");
+    } catch (AccountHierarchyLimitException e) {
+      assertThat(e.getLimit(), is(2));
+    }
+    verify(repository, never()).save(account);
+  }
+
+  @Test
+  public void updateShouldRefuseToMoveAnAccountUnderItsOwnDescendant() throws Exception {
+
+    Account existing = new Account().withId(ACCOUNT_ID);
+    existing.setAncestorIds(emptyList());
+    Account child = new Account().withId("child").withParentAccountId(ACCOUNT_ID);
+    child.setAncestorIds(asList(ACCOUNT_ID));
+    when(repository.findById(ACCOUNT_ID)).thenReturn(Optional.of(existing));
+    when(repository.findById("child")).thenReturn(Optional.of(child));
+
+    Account moved = new Account().withId(ACCOUNT_ID).withParentAccountId("child");
+    try {
+      service.update(ACCOUNT_ID, moved);
+      fail("Expected the move to be refused");
+    } catch (AccountHierarchyCycleException e) {
+      assertThat(e.getMessage(), is(equalTo("Account " + ACCOUNT_ID + " would be its own ancestor through " + ACCOUNT_ID)));
+    }
+    verify(repository, never()).save(moved);
+  }
+
+  @Test
+  public void updateShouldRewriteDescendantPathsWhenReparented() throws Exception {
+
+    Account existing = new Account().withId(ACCOUNT_ID).withParentAccountId("oldParent");
+    existing.setAncestorIds(asList("oldParent"));
+    Account newParent = new Account().withId("newParent");
+    newParent.setAncestorIds(emptyList());
+    Account child = new Account().withId("child").withParentAccountId(ACCOUNT_ID);
+    child.setAncestorIds(asList("oldParent", ACCOUNT_ID));
+    when(repository.findById(ACCOUNT_ID)).thenReturn(Optional.of(existing));
+    when(repository.findById("newParent")).thenReturn(Optional.of(newParent));
+    when(repository.findByParentAccountIdIn(asList(ACCOUNT_ID))).thenReturn(asList(child));
+    when(repository.findByParentAccountIdIn(asList("child"))).thenReturn(emptyList());
+
+    service.update(ACCOUNT_ID, new Account().withId(ACCOUNT_ID).withParentAccountId("newParent"));
+    assertThat(child.getAncestorIds(), contains("newParent", ACCOUNT_ID));
+    verify(repository).saveAll(asList(child));
+  }
+
+  @Test
+  public void updateShouldRefuseAMoveWhoseSubtreeExceedsTheHierarchyLimitBeforeWriting() throws Exception {
+
+    ReflectionTestUtils.setField(service, "maxHierarchyNodes", 1);
+    Account existing = new Account().withId(ACCOUNT_ID).withParentAccountId("oldParent");
+    existing.setAncestorIds(asList("oldParent"));
+    Account newParent = new Account().withId("newParent");
+    newParent.setAncestorIds(emptyList());
+    when(repository.findById(ACCOUNT_ID)).thenReturn(Optional.of(existing));
+    when(repository.findById("newParent")).thenReturn(Optional.of(newParent));
+    when(repository.findByParentAccountIdIn(asList(ACCOUNT_ID))).thenReturn(asList(
+        new Account().withId("child").withParentAccountId(ACCOUNT_ID),
+        new Account().withId("otherChild").withParentAccountId(ACCOUNT_ID)));
+
+    Account moved = new Account().withId(ACCOUNT_ID).withParentAccountId("newParent");
+    try {
+      service.update(ACCOUNT_ID, moved);
+      fail("Expected the move to be refused");
+    } catch (AccountHierarchyLimitException e) {
+      assertThat(e.getLimit(), is(1));
+      assertTrue(e.getMessage().contains("limit of 1 accounts"));
+    }
+    verify(repository, never()).save(moved);
+  }
+
+  @Test
+  public void getAllChildrenAccountIdsShouldBeServedFromTheTreeSnapshotOnceLoaded() throws Exception {
+
+    Account child = new Account().withId("child").withParentAccountId(ACCOUNT_ID);
+    Account grandchild = new Account().withId("grandchild").withParentAccountId("child");
+    Account unrelated = new Account().withId("unrelated");
+    when(treeCache.isLoaded()).thenReturn(true);
+    when(treeCache.snapshot()).thenReturn(AccountTreeSnapshot.of(asList(new Account().withId(ACCOUNT_ID), child, grandchild, unrelated)));
+
+    List<String> result = service.getAllChildrenAccountIds(asList(ACCOUNT_ID));
+    assertThat(result, contains(ACCOUNT_ID, "child", "grandchild"));
+    verify(repository, never()).findByParentAccountIdIn(anyCollection());
+  }
+
+  @Test
+  public void accountExistsAsyncShouldRunTheLookupOnTheLookupExecutor() throws Exception {
+
+    doAnswer(invocation -> {
+      ((Runnable) invocation.getArguments()[0]).run();
+      return null;
+    }).when(lookupExecutor).execute(any(Runnable.class));
+    when(repository.existsById(ACCOUNT_ID)).thenReturn(true);
+
+    CompletableFuture<Boolean> result = service.accountExistsAsync(ACCOUNT_ID);
+    assertTrue(result.get());
+    verify(lookupExecutor).execute(any(Runnable.class));
+  }
+}
@@ -0,0 +1,55 @@
+package com.lf.service;
+
+import com.lf.model.Account;
+import org.junit.Test;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+public class AccountTreeSnapshotTest {
+
+  @Test
+  public void changesToAccountsPassedInOrReturnedShouldNotReachTheSnapshot() throws Exception {
+
+    Account root = new Account().withId("root");
+    Account child = new Account().withId("child").withParentAccountId("root");
+    AccountTreeSnapshot snapshot = AccountTreeSnapshot.of(asList(root, child));
+
+    child.setParentAccountId("elsewhere");
+    child.setName("renamed");
+    snapshot.descendants(singletonList("root")).get(0).setName("renamed");
+
+    List<Account> descendants = snapshot.descendants(singletonList("root"));
+    assertThat(descendants.size(), is(1));
+    assertThat(descendants.get(0).getParentAccountId(), is(equalTo("root")));
+    assertThat(descendants.get(0).getName(), is((String) null));
+  }
+
+  @Test
+  public void withChangesShouldApplyRenamesAndMoves() throws Exception {
+
+    AccountTreeSnapshot snapshot = AccountTreeSnapshot.of(asList(
+        new Account().withId("root"),
+        new Account().withId("child").withParentAccountId("root"),
+        new Account().withId("other")));
+
+    Account renamed = new Account().withId("child").withParentAccountId("root");
+    renamed.setName("renamed");
+    AccountTreeSnapshot afterRename = snapshot.withChanges(singletonList(renamed));
+    assertThat(afterRename.descendants(singletonList("root")).get(0).getName(), is(equalTo("renamed")));
+    assertThat(snapshot.descendants(singletonList("root")).get(0).getName(), is((String) null));
+
+    AccountTreeSnapshot afterMove = afterRename.withChanges(asList(
+        new Account().withId("child").withParentAccountId("other"),
+        new Account().withId("grandchild").withParentAccountId("child")));
+    assertThat(afterMove.descendantIds(singletonList("root")).isEmpty(), is(true));
+    assertThat(afterMove.descendantIds(singletonList("other")), contains("child", "grandchild"));
+    assertThat(afterRename.descendantIds(singletonList("root")), contains("child"));
+  }
+}
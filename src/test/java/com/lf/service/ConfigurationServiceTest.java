@@ -1,5 +1,6 @@
 package com.lf.service;
 
+import com.azure.cosmos.models.PartitionKey;
 import com.lf.model.Configuration;
 import com.lf.repository.AccountRepository;
 import com.lf.repository.ConfigurationRepository;
@@ -64,16 +65,16 @@ public class ConfigurationServiceTest {
 
   @Test
   public void readShouldReturnEmptyOptionalWhenNoConfigurationFound() throws Exception {
-    when(repository.findById(CONFIGURATION_ID)).thenReturn(Optional.empty());
-    Optional<Configuration> result = service.getConfigurationById(CONFIGURATION_ID);
+    when(repository.findById(eq(CONFIGURATION_ID), any(PartitionKey.class))).thenReturn(Optional.empty());
+    Optional<Configuration> result = service.getConfigurationById(ACCOUNT_ID, CONFIGURATION_ID);
     assertThat(result, is(Optional.empty()));
   }
 
   @Test
   public void readShouldReturnResultWhenConfigurationFound() throws Exception {
     Configuration configuration = new Configuration().withId(CONFIGURATION_ID);
-    when(repository.findById(CONFIGURATION_ID)).thenReturn(Optional.of(configuration));
-    Configuration result = service.getConfigurationById(CONFIGURATION_ID).get();
+    when(repository.findById(eq(CONFIGURATION_ID), any(PartitionKey.class))).thenReturn(Optional.of(configuration));
+    Configuration result = service.getConfigurationById(ACCOUNT_ID, CONFIGURATION_ID).get();
     assertThat(result, is(equalTo(configuration)));
   }
 
@@ -83,8 +84,8 @@ public class ConfigurationServiceTest {
     Configuration newConfigurationWithName = newConfiguration;
     newConfiguration.setName(CONFIGURATION_ID);
 
-    when(repository.findById(CONFIGURATION_ID)).thenReturn(Optional.empty());
-    when(repository.findById(CONFIGURATION_ID)).thenReturn(Optional.of(newConfiguration));
+    when(repository.findById(eq(CONFIGURATION_ID), any(PartitionKey.class))).thenReturn(Optional.empty());
+    when(repository.findById(eq(CONFIGURATION_ID), any(PartitionKey.class))).thenReturn(Optional.of(newConfiguration));
     Configuration result = service.save(ACCOUNT_ID, newConfiguration).get();
     assertThat(result, is(equalTo(newConfigurationWithName)));
     verify(repository, atLeastOnce()).save(newConfiguration);
@@ -93,7 +94,7 @@ public class ConfigurationServiceTest {
   @Test
   public void updateShouldReturnEmptyOptionalWhenConfigurationNotFound() throws Exception {
     Configuration newConfigurationData = new Configuration().withId(CONFIGURATION_ID).withName("new-name");
-    when(repository.findById(CONFIGURATION_ID)).thenReturn(Optional.empty());
+    when(repository.findById(eq(CONFIGURATION_ID), any(PartitionKey.class))).thenReturn(Optional.empty());
     Optional<Configuration> result = service.update(ACCOUNT_ID, CONFIGURATION_ID, newConfigurationData);
     assertThat(result, is(Optional.empty()));
     verify(repository, never()).save(newConfigurationData);
@@ -106,7 +107,7 @@ public class ConfigurationServiceTest {
 
     Configuration newConfigurationData = new Configuration().withId(CONFIGURATION_ID).withName("new-name");
     newConfigurationData.setName(CONFIGURATION_ID);
-    when(repository.findByName(CONFIGURATION_ID)).thenReturn(Optional.of(oldConfigurationData));
+    when(repository.findByAccountIdAndName(ACCOUNT_ID, CONFIGURATION_ID)).thenReturn(asList(oldConfigurationData));
     Configuration result = service.update(ACCOUNT_ID, CONFIGURATION_ID, newConfigurationData).get();
     assertThat(result.getName(), is(equalTo(newConfigurationData.getName())));
   }
@@ -114,8 +115,8 @@ public class ConfigurationServiceTest {
   @Test
   public void deleteShouldReturnEmptyOptionalWhenConfigurationNotFound() throws Exception {
     Configuration configuration = new Configuration().withId(CONFIGURATION_ID);
-    when(repository.findById(CONFIGURATION_ID)).thenReturn(Optional.empty());
-    Optional<Configuration> result = service.delete(CONFIGURATION_ID, false);
+    when(repository.findById(eq(CONFIGURATION_ID), any(PartitionKey.class))).thenReturn(Optional.empty());
+    Optional<Configuration> result = service.delete(ACCOUNT_ID, CONFIGURATION_ID, false);
     assertThat(result, is(Optional.empty()));
     verify(repository, never()).save(configuration);
   }
@@ -123,8 +124,8 @@ public class ConfigurationServiceTest {
   @Test
   public void deleteShouldSetActiveFlagToFalseWhenConfigurationFound() throws Exception {
     Configuration configuration = new Configuration().withId(CONFIGURATION_ID);
-    when(repository.findById(CONFIGURATION_ID)).thenReturn(Optional.of(configuration));
-    Configuration result = service.delete(CONFIGURATION_ID, false).get();
+    when(repository.findById(eq(CONFIGURATION_ID), any(PartitionKey.class))).thenReturn(Optional.of(configuration));
+    Configuration result = service.delete(ACCOUNT_ID, CONFIGURATION_ID, false).get();
     assertFalse(result.getConfigurationEnabled());
   }
 }
\ No newline at end of file
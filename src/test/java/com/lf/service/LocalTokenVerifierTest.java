@@ -0,0 +1,133 @@
+package com.lf.service;
+
+import com.lf.model.UserRole;
+import com.lf.service.LocalTokenVerifier.Result.Status;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class LocalTokenVerifierTest {
+
+  private static final String ACCOUNT_ID = "d4dfdaf6-02a2-11e7-93ae-92361f002671";
+  private static final String USER_ID = "d4dfdaf6-02a2-11e7-93ae-92361f002672";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private KeyPair keyPair;
+  private File jwks;
+  private LocalTokenVerifier verifier;
+
+  @Before
+  public void writeKeySetFile() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    keyPair = generator.generateKeyPair();
+
+    jwks = folder.newFile("jwks.json");
+    writeKeySet("key-1");
+
+    JwksKeySet keySet = new JwksKeySet(jwks.toURI().toString(), 30, new DefaultResourceLoader(), new RestTemplate());
+    keySet.refresh();
+    verifier = new LocalTokenVerifier(keySet, "", 30);
+  }
+
+  @Test
+  public void verifyShouldBuildTheSecurityContextFromTheClaims() throws Exception {
+
+    LocalTokenVerifier.Result result = verifier.verify(token("key-1", expiresIn(60)));
+    assertThat(result.getStatus(), is(Status.VERIFIED));
+    assertThat(result.getSecurityContext().getUserId(), is(equalTo(USER_ID)));
+    assertThat(result.getSecurityContext().getAccountId(), is(equalTo(ACCOUNT_ID)));
+    assertTrue(result.getSecurityContext().hasRole(UserRole.ROLE_RETRIEVE_USER));
+  }
+
+  @Test
+  public void verifyShouldRejectExpiredAndTamperedTokens() throws Exception {
+
+    assertThat(verifier.verify(token("key-1", expiresIn(-120))).getStatus(), is(Status.REJECTED));
+
+    String token = token("key-1", expiresIn(60));
+    String tampered = token.substring(0, token.lastIndexOf('.') - 2) + "AA" + token.substring(token.lastIndexOf('.'));
+    assertThat(verifier.verify(tampered).getStatus(), is(Status.REJECTED));
+  }
+
+  @Test
+  public void verifyShouldLeaveOpaqueTokensAndUnknownKeysToTheOAuthServer() throws Exception {
+
+    assertThat(verifier.verify("2YotnFZFEjr1zCsicMWpAA").getStatus(), is(Status.UNVERIFIABLE));
+    assertThat(verifier.verify(token("key-2", expiresIn(60))).getStatus(), is(Status.UNVERIFIABLE));
+  }
+
+  @Test
+  public void verifyShouldPickUpARotatedKeyInTheBackground() throws Exception {
+
+    JwksKeySet keySet = new JwksKeySet(jwks.toURI().toString(), 0, new DefaultResourceLoader(), new RestTemplate());
+    keySet.refresh();
+    LocalTokenVerifier rotatingVerifier = new LocalTokenVerifier(keySet, "", 30);
+    writeKeySet("key-1", "key-2");
+
+    try {
+      String token = token("key-2", expiresIn(60));
+      assertThat(rotatingVerifier.verify(token).getStatus(), is(Status.UNVERIFIABLE));
+
+      long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+      Status status = Status.UNVERIFIABLE;
+      while (status != Status.VERIFIED && System.currentTimeMillis() < deadline) {
+        Thread.sleep(20);
+        status = rotatingVerifier.verify(token).getStatus();
+      }
+      assertThat(status, is(Status.VERIFIED));
+    } finally {
+      keySet.shutdown();
+    }
+  }
+
+  private void writeKeySet(final String... keyIds) throws Exception {
+    RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+    StringBuilder keys = new StringBuilder();
+    for (String keyId : keyIds) {
+      keys.append(keys.length() == 0 ? "" : ",").append("{\"kty\":\"RSA\",\"use\":\"sig\",\"kid\":\"").append(keyId)
+          .append("\",\"n\":\"").append(base64Url(publicKey.getModulus().toByteArray()))
+          .append("\",\"e\":\"").append(base64Url(publicKey.getPublicExponent().toByteArray())).append("\"}");
+    }
+    Files.write(jwks.toPath(), ("{\"keys\":[" + keys + "]}").getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static long expiresIn(final long seconds) {
+    return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + seconds;
+  }
+
+  private String token(final String keyId, final long expiresAt) throws Exception {
+    String header = base64Url(("{\"alg\":\"RS256\",\"kid\":\"" + keyId + "\"}").getBytes(StandardCharsets.UTF_8));
+    String claims = base64Url(("{\"user_id\":\"" + USER_ID + "\",\"account_id\":\"" + ACCOUNT_ID + "\",\"name\":\"testName\",\"exp\":" + expiresAt
+        + ",\"authorities\":[\"" + UserRole.ROLE_RETRIEVE_USER.value() + "\"]}").getBytes(StandardCharsets.UTF_8));
+    Signature signature = Signature.getInstance("SHA256withRSA");
+    signature.initSign(keyPair.getPrivate());
+    signature.update((header + "." + claims).getBytes(StandardCharsets.US_ASCII));
+    return header + "." + claims + "." + base64Url(signature.sign());
+  }
+
+  private static String base64Url(final byte[] bytes) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+}
@@ -0,0 +1,74 @@
+package com.lf.service;
+
+import com.lf.util.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class OAuthServerClientTest {
+
+  private static final String BASE_URL = "http://oauth.test";
+
+  private MockRestServiceServer server;
+  private OAuthServerClient client;
+
+  @Before
+  public void createClient() {
+    RestTemplate restTemplate = new RestTemplate();
+    server = MockRestServiceServer.bindTo(restTemplate).build();
+    client = new OAuthServerClient(restTemplate, BASE_URL, 10, 100, 2, 60, new SimpleMeterRegistry());
+  }
+
+  @Test
+  public void validateShouldReturnTheSecurityContextHeader() throws Exception {
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.add("X-Security-Context", "header");
+    server.expect(requestTo(BASE_URL + "/oauth/validate?access_token=token")).andExpect(method(HttpMethod.POST))
+        .andRespond(withSuccess().headers(headers));
+
+    assertThat(client.validate("token"), is(equalTo(Optional.of("header"))));
+    server.verify();
+  }
+
+  @Test
+  public void validateShouldStopCallingTheServerAfterConsecutiveFailures() throws Exception {
+
+    server.expect(requestTo(BASE_URL + "/oauth/validate?access_token=token")).andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+    server.expect(requestTo(BASE_URL + "/oauth/validate?access_token=token")).andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+    for (int i = 0; i < 2; i++) {
+      try {
+        client.validate("token");
+        fail("Expected the 503 to be thrown");
+      } catch (HttpServerErrorException e) {
+        assertThat(e.getStatusCode(), is(HttpStatus.SERVICE_UNAVAILABLE));
+      }
+    }
+
+    assertThat(client.getCircuitState(), is(CircuitBreaker.State.OPEN));
+    try {
+      client.validate("token");
+      fail("Expected the open circuit to refuse the call");
+    } catch (RejectedExecutionException e) {
+      server.verify();
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package com.lf.service;
+
+import com.lf.model.ResolvedPrincipal;
+import com.lf.model.User;
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class PrincipalCacheTest {
+
+  private static final String USER_ID = "testUserId";
+
+  private final InMemoryInvalidationBroadcaster broadcaster = new InMemoryInvalidationBroadcaster();
+  private final PrincipalCache cache = new PrincipalCache(100, 30, broadcaster);
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @Test
+  public void getShouldLoadOnceUntilInvalidated() throws Exception {
+
+    cache.get(USER_ID, this::load);
+    cache.get(USER_ID, this::load);
+    assertThat(loads.get(), is(1));
+
+    broadcaster.publish(PrincipalCache.TOPIC, USER_ID);
+    cache.get(USER_ID, this::load);
+    assertThat(loads.get(), is(2));
+  }
+
+  @Test
+  public void getShouldNotKeepAPrincipalInvalidatedWhileItWasLoading() throws Exception {
+
+    // The user is deactivated while the stale principal is being read
+    Optional<ResolvedPrincipal> stale = cache.get(USER_ID, id -> {
+      Optional<ResolvedPrincipal> principal = load(id);
+      cache.invalidate(id);
+      return principal;
+    });
+    assertTrue(stale.isPresent());
+
+    cache.get(USER_ID, this::load);
+    assertThat(loads.get(), is(2));
+  }
+
+  private Optional<ResolvedPrincipal> load(final String userId) {
+    loads.incrementAndGet();
+    User user = new User().withId(userId).withName("testName");
+    user.setIsActive(true);
+    return Optional.of(ResolvedPrincipal.from(user));
+  }
+}
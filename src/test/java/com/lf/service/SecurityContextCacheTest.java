@@ -0,0 +1,72 @@
+package com.lf.service;
+
+import com.lf.TestHelper;
+import com.lf.model.SecurityContext;
+import com.lf.util.OauthSerializerUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+
+public class SecurityContextCacheTest {
+
+  private static final String ACCOUNT_ID = "d4dfdaf6-02a2-11e7-93ae-92361f002671";
+  private static final String HEADER = TestHelper.securityContextHeader("d4dfdaf6-02a2-11e7-93ae-92361f002672", ACCOUNT_ID, "testName");
+  private static final String OTHER_HEADER = TestHelper.securityContextHeader("d4dfdaf6-02a2-11e7-93ae-92361f002673", ACCOUNT_ID, "otherName");
+
+  private final MeterRegistry registry = new SimpleMeterRegistry();
+  private SecurityContextCache cache;
+
+  @Before
+  public void createCache() {
+    cache = new SecurityContextCache(1, 60, true);
+    cache.bindTo(registry);
+  }
+
+  @Test
+  public void getShouldDecodeEachHeaderOnce() throws Exception {
+
+    SecurityContext first = cache.get(HEADER).get();
+    assertThat(cache.get(HEADER).get(), is(sameInstance(first)));
+    assertThat(registry.get("cache.gets").tag("cache", "security.context").tag("result", "hit").functionCounter().count(), is(1.0));
+  }
+
+  @Test
+  public void getShouldNotCacheHeadersThatDoNotDecode() throws Exception {
+
+    assertFalse(cache.get(null).isPresent());
+    assertFalse(cache.get("").isPresent());
+    assertFalse(cache.get("bm90IGEgc2VjdXJpdHkgY29udGV4dA==").isPresent());
+    assertFalse(cache.get("not base64 at all").isPresent());
+    assertThat(registry.get("cache.size").tag("cache", "security.context").gauge().value(), is(0.0));
+  }
+
+  @Test
+  public void getShouldRefuseLegacyHeadersOnlyWhenTheyAreSwitchedOff() throws Exception {
+
+    String legacyHeader = new String(Base64.getEncoder().encode(new OauthSerializerUtils().serialize(new SecurityContext(HEADER))),
+        StandardCharsets.US_ASCII);
+
+    assertFalse(new SecurityContextCache(10, 60, false).get(legacyHeader).isPresent());
+    assertThat(new SecurityContextCache(10, 60, true).get(legacyHeader).isPresent(), is(true));
+  }
+
+  @Test
+  public void getShouldEvictBeyondTheMaximumSize() throws Exception {
+
+    Optional<SecurityContext> first = cache.get(HEADER);
+    cache.get(OTHER_HEADER);
+    assertThat(cache.get(HEADER).get(), is(not(sameInstance(first.get()))));
+    assertThat(registry.get("cache.evictions").tag("cache", "security.context").functionCounter().count() >= 1.0, is(true));
+  }
+}
@@ -0,0 +1,119 @@
+package com.lf.service;
+
+import com.lf.TestHelper;
+import com.lf.model.SecurityContext;
+import com.lf.model.User;
+import com.lf.model.UserRole;
+import com.lf.util.SecurityContextCodec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Optional;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class SecurityServiceTest {
+
+  private static final String ACCOUNT_ID = "d4dfdaf6-02a2-11e7-93ae-92361f002671";
+  private static final String USER_ID = "d4dfdaf6-02a2-11e7-93ae-92361f002672";
+  private static final SecurityContext SECURITY_CONTEXT = new SecurityContext(TestHelper.securityContextHeader(USER_ID, ACCOUNT_ID, "testName"));
+
+  @Mock
+  private UserService userService;
+
+  @Mock
+  private AccountService accountService;
+
+  @Spy
+  private RequestPrincipal requestPrincipal = new RequestPrincipal();
+
+  private InMemoryInvalidationBroadcaster broadcaster = new InMemoryInvalidationBroadcaster();
+
+  @Spy
+  private PrincipalCache principalCache = new PrincipalCache(100, 30, broadcaster);
+
+  @InjectMocks
+  private SecurityServiceImpl service;
+
+  @Before
+  public void bindRequest() {
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+  }
+
+  @After
+  public void unbindRequest() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Test
+  public void securityChecksShouldLookUpTheLoggedInUserOncePerRequest() throws Exception {
+
+    User user = new User(ACCOUNT_ID, "testName", "test@lf.com", "password", true, asList(UserRole.ROLE_CREATE_USER), null, null).withId(USER_ID);
+    when(userService.getUserById(ACCOUNT_ID, USER_ID)).thenReturn(Optional.of(user));
+
+    assertTrue(service.isLoggedInUserActive(SECURITY_CONTEXT));
+    assertTrue(service.userHasRoles(SECURITY_CONTEXT));
+    assertThat(service.getUserNameForUserId(SECURITY_CONTEXT), is(equalTo("testName")));
+    assertThat(service.getAccountIdForLoggedInUser(SECURITY_CONTEXT), is(equalTo(ACCOUNT_ID)));
+    verify(userService, times(1)).getUserById(ACCOUNT_ID, USER_ID);
+  }
+
+  @Test
+  public void securityContextShouldCheckKnownAndUnknownRoles() throws Exception {
+
+    SecurityContext context = new SecurityContext(new String(SecurityContextCodec.encode(USER_ID, ACCOUNT_ID,
+        asList(UserRole.ROLE_RETRIEVE_USER.value(), "ROLE_FROM_A_NEWER_SERVER"), "testName")));
+
+    assertTrue(context.hasRole(UserRole.ROLE_RETRIEVE_USER));
+    assertFalse(context.hasRole(UserRole.ROLE_CREATE_USER));
+    assertTrue(context.hasRole("ROLE_FROM_A_NEWER_SERVER"));
+    assertTrue(context.hasAny(UserRole.ROLE_CREATE_USER, UserRole.ROLE_RETRIEVE_USER));
+    assertFalse(context.hasAll(UserRole.ROLE_CREATE_USER, UserRole.ROLE_RETRIEVE_USER));
+    assertThat(context.getRoles(), is(equalTo(asList(UserRole.ROLE_RETRIEVE_USER.value(), "ROLE_FROM_A_NEWER_SERVER"))));
+  }
+
+  @Test
+  public void isLoggedInUserActiveShouldReturnFalseWhenUserNotFound() throws Exception {
+
+    when(userService.getUserById(ACCOUNT_ID, USER_ID)).thenReturn(Optional.empty());
+    assertFalse(service.isLoggedInUserActive(SECURITY_CONTEXT));
+    assertThat(service.getUserNameForUserId(SECURITY_CONTEXT), is(equalTo("")));
+    verify(userService, times(1)).getUserById(ACCOUNT_ID, USER_ID);
+  }
+
+  @Test
+  public void principalShouldBeReloadedAfterInvalidationBroadcast() throws Exception {
+
+    // without a bound request every call goes straight to the principal cache
+    unbindRequest();
+    User user = new User(ACCOUNT_ID, "testName", "test@lf.com", "password", true, asList(UserRole.ROLE_CREATE_USER), null, null).withId(USER_ID);
+    when(userService.getUserById(ACCOUNT_ID, USER_ID)).thenReturn(Optional.of(user));
+    assertTrue(service.isLoggedInUserActive(SECURITY_CONTEXT));
+    assertTrue(service.isLoggedInUserActive(SECURITY_CONTEXT));
+    verify(userService, times(1)).getUserById(ACCOUNT_ID, USER_ID);
+
+    // another replica deactivates the user and broadcasts the invalidation
+    User deactivated = new User(ACCOUNT_ID, "testName", "test@lf.com", "password", false, asList(UserRole.ROLE_CREATE_USER), null, null).withId(USER_ID);
+    when(userService.getUserById(ACCOUNT_ID, USER_ID)).thenReturn(Optional.of(deactivated));
+    broadcaster.publish(PrincipalCache.TOPIC, USER_ID);
+
+    assertFalse(service.isLoggedInUserActive(SECURITY_CONTEXT));
+    verify(userService, times(2)).getUserById(ACCOUNT_ID, USER_ID);
+  }
+}
@@ -0,0 +1,133 @@
+package com.lf.service;
+
+import com.azure.cosmos.models.PartitionKey;
+import com.azure.spring.data.cosmos.core.CosmosOperations;
+import com.lf.model.User;
+import com.lf.model.UserImportResult;
+import com.lf.model.UserImportResult.Status;
+import com.lf.model.UserRole;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class UserImporterTest {
+
+  private static final String ACCOUNT_ID = "testAccountId";
+  private static final String CREATED_BY = "admin@lf.com";
+
+  @Mock
+  private UsernameIndex usernameIndex;
+
+  @Mock
+  private CosmosOperations cosmosOperations;
+
+  @Mock
+  private PrincipalCache principalCache;
+
+  @Mock
+  private Executor importExecutor;
+
+  @Mock
+  private PasswordHasher passwordHasher;
+
+  @InjectMocks
+  private UserImporter importer;
+
+  @Before
+  public void runCreatesInline() {
+    doAnswer(invocation -> {
+      ((Runnable) invocation.getArguments()[0]).run();
+      return null;
+    }).when(importExecutor).execute(any(Runnable.class));
+    when(usernameIndex.reserve(any(), any(), any())).thenReturn(true);
+    when(passwordHasher.hash(anyString())).thenAnswer(invocation -> "hashed:" + invocation.getArguments()[0]);
+  }
+
+  @Test
+  public void importShouldReportEveryUserInOrder() throws Exception {
+
+    User created = user("new@lf.com");
+    User repeated = user("NEW@lf.com");
+    User taken = user("taken@lf.com");
+    User invalid = user("not-an-email");
+    when(usernameIndex.findReserved(asList("new@lf.com", "taken@lf.com"))).thenReturn(Collections.singleton("taken@lf.com"));
+
+    List<UserImportResult> results = importer.importUsers(ACCOUNT_ID, asList(created, repeated, taken, invalid), CREATED_BY);
+    assertThat(results.stream().map(UserImportResult::getStatus).collect(Collectors.toList()),
+        contains(Status.CREATED, Status.CONFLICT, Status.CONFLICT, Status.INVALID));
+    assertThat(results.get(0).getId(), is(notNullValue()));
+
+    // Only the one new user is written, with its password hashed
+    verify(cosmosOperations).insert(eq(User.CONTAINER_NAME), eq(created), any(PartitionKey.class));
+    verify(cosmosOperations, times(1)).insert(anyString(), any(), any(PartitionKey.class));
+    verify(usernameIndex, times(1)).reserve(any(), any(), any());
+    assertThat(created.getPassword(), is("hashed:password"));
+    assertThat(created.getCreatedBy(), is(CREATED_BY));
+  }
+
+  @Test
+  public void importShouldReleaseTheUsernameWhenTheInsertFails() throws Exception {
+
+    User user = user("new@lf.com");
+    when(usernameIndex.findReserved(any())).thenReturn(Collections.emptySet());
+    when(cosmosOperations.insert(anyString(), any(), any(PartitionKey.class))).thenThrow(new IllegalStateException("unavailable"));
+
+    List<UserImportResult> results = importer.importUsers(ACCOUNT_ID, asList(user), CREATED_BY);
+    assertThat(results.get(0).getStatus(), is(Status.FAILED));
+    verify(usernameIndex).release("new@lf.com", user.getId());
+  }
+
+  @Test
+  public void importShouldKeepAtMostMaxConcurrentCreatesInFlight() throws Exception {
+
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    ReflectionTestUtils.setField(importer, "importExecutor", pool);
+    ReflectionTestUtils.setField(importer, "maxConcurrentCreates", 2);
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger mostInFlight = new AtomicInteger();
+    when(usernameIndex.findReserved(any())).thenReturn(Collections.emptySet());
+    when(passwordHasher.hash(anyString())).thenAnswer(invocation -> {
+      mostInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      Thread.sleep(5);
+      inFlight.decrementAndGet();
+      return "hashed";
+    });
+
+    try {
+      List<User> users = IntStream.range(0, 20).mapToObj(i -> user("user" + i + "@lf.com")).collect(Collectors.toList());
+      List<UserImportResult> results = importer.importUsers(ACCOUNT_ID, users, CREATED_BY);
+      assertThat(results.stream().allMatch(result -> result.getStatus() == Status.CREATED), is(true));
+      assertThat(mostInFlight.get() <= 2, is(true));
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private static User user(final String username) {
+    User user = new User().withName("testName").withUsername(username);
+    user.setPassword("password");
+    user.setUserRoles(asList(UserRole.ROLE_RETRIEVE_USER));
+    return user;
+  }
+}
@@ -1,8 +1,12 @@
 package com.lf.service;
 
+import com.azure.cosmos.models.PartitionKey;
 import com.lf.model.User;
 import com.lf.model.UserRole;
+import com.lf.repository.CosmosPage;
+import com.lf.repository.CosmosPagedQueries;
 import com.lf.repository.UserRepository;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
@@ -11,11 +15,13 @@ import org.mockito.junit.MockitoJUnitRunner;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.collection.IsEmptyCollection.emptyCollectionOf;
 import static org.junit.Assert.assertFalse;
@@ -32,9 +38,23 @@ public class UserServiceTest {
   @Mock
   private UserRepository repository;
 
+  @Mock
+  private PrincipalCache principalCache;
+
+  @Mock
+  private UsernameIndex usernameIndex;
+
+  @Mock
+  private CosmosPagedQueries pagedQueries;
+
   @InjectMocks
   private UserServiceImpl service;
 
+  @Before
+  public void reserveUsernames() {
+    when(usernameIndex.reserve(any(), any(), any())).thenReturn(true);
+  }
+
   @Test
   public void listShouldReturnEmptyListWhenNoUsersFound() throws Exception {
 
@@ -56,8 +76,8 @@ public class UserServiceTest {
   @Test
   public void readShouldReturnEmptyOptionalWhenNoUserFound() throws Exception {
 
-    when(repository.findById("testUserId")).thenReturn(Optional.empty());
-    Optional<User> result = service.getUserById(USER_ID);
+    when(repository.findById(eq("testUserId"), any(PartitionKey.class))).thenReturn(Optional.empty());
+    Optional<User> result = service.getUserById(ACCOUNT_ID, USER_ID);
     assertThat(result, is(Optional.empty()));
   }
 
@@ -65,8 +85,8 @@ public class UserServiceTest {
   public void readShouldReturnResultWhenUserFound() throws Exception {
 
     User user = new User().withId("testUserId");
-    when(repository.findById("testUserId")).thenReturn(Optional.of(user));
-    User result = service.getUserById(USER_ID).get();
+    when(repository.findById(eq("testUserId"), any(PartitionKey.class))).thenReturn(Optional.of(user));
+    User result = service.getUserById(ACCOUNT_ID, USER_ID).get();
     assertThat(result, is(equalTo(user)));
   }
 
@@ -79,8 +99,8 @@ public class UserServiceTest {
     user.setUserRoles(userRoles);
     user.withId("testUserId");
 
-    when(repository.findById("testUserId")).thenReturn(Optional.of(user));
-    List<UserRole> result = service.getUserRolesById(USER_ID).get();
+    when(repository.findById(eq("testUserId"), any(PartitionKey.class))).thenReturn(Optional.of(user));
+    List<UserRole> result = service.getUserRolesById(ACCOUNT_ID, USER_ID).get();
     assertThat(result, is(equalTo(userRoles)));
   }
 
@@ -88,7 +108,7 @@ public class UserServiceTest {
   public void saveShouldReturnNewUserWhenUserDoesNotExist() throws Exception {
 
     User newUser = new User().withId(USER_ID);
-    when(repository.findById(USER_ID)).thenReturn(Optional.empty());
+    when(repository.findById(eq(USER_ID), any(PartitionKey.class))).thenReturn(Optional.empty());
     User result = service.save(ACCOUNT_ID, newUser).get();
     assertThat(result, is(equalTo(newUser)));
     verify(repository).save(newUser);
@@ -98,7 +118,7 @@ public class UserServiceTest {
   public void updateShouldReturnEmptyOptionalWhenUserNotFound() throws Exception {
 
     User newUserData = new User().withId(USER_ID).withName("testName");
-    when(repository.findById(USER_ID)).thenReturn(Optional.empty());
+    when(repository.findById(eq(USER_ID), any(PartitionKey.class))).thenReturn(Optional.empty());
     Optional<User> result = service.update(ACCOUNT_ID, USER_ID, newUserData);
     assertThat(result, is(Optional.empty()));
     verify(repository, never()).save(newUserData);
@@ -109,7 +129,7 @@ public class UserServiceTest {
 
     User oldUserData = new User().withId(USER_ID).withUsername(USERNAME).withName("testName");
     User newUserData = new User().withId(USER_ID).withUsername(USERNAME).withName("updatedTestName");
-    when(repository.findById(USER_ID)).thenReturn(Optional.of(oldUserData));
+    when(repository.findById(eq(USER_ID), any(PartitionKey.class))).thenReturn(Optional.of(oldUserData));
     User result = service.update(ACCOUNT_ID, USER_ID, newUserData).get();
     assertThat(result.getName(), is(equalTo(newUserData.getName())));
   }
@@ -119,8 +139,7 @@ public class UserServiceTest {
 
     User oldUserData = new User().withId(USER_ID).withUsername(USERNAME).withName("testName");
     User newUserData = new User().withId(USER_ID).withUsername("updatedUsername").withName("updatedTestName");
-    when(repository.findByUsername("updatedUsername")).thenReturn(null);
-    when(repository.findById(USER_ID)).thenReturn(Optional.of(oldUserData));
+    when(repository.findById(eq(USER_ID), any(PartitionKey.class))).thenReturn(Optional.of(oldUserData));
     User result = service.update(ACCOUNT_ID, USER_ID, newUserData).get();
     assertThat(result.getName(), is(equalTo(newUserData.getName())));
   }
@@ -130,10 +149,8 @@ public class UserServiceTest {
 
     User oldUserData = new User().withId(USER_ID).withUsername(USERNAME).withName("testName");
     User newUserData = new User().withId(USER_ID).withUsername("updatedUsername").withName("updatedTestName");
-    List<User> userList = new ArrayList<>();
-    userList.add(new User().withId("existingUserId").withUsername("updatedUsername"));
-    when(repository.findByUsername("updatedUsername")).thenReturn(userList);
-    when(repository.findById(USER_ID)).thenReturn(Optional.of(oldUserData));
+    when(usernameIndex.reserve(eq("updatedUsername"), any(), eq(USER_ID))).thenReturn(false);
+    when(repository.findById(eq(USER_ID), any(PartitionKey.class))).thenReturn(Optional.of(oldUserData));
     Optional<User> result = service.update(ACCOUNT_ID, USER_ID, newUserData);
     assertThat(result, is(Optional.empty()));
     verify(repository, never()).save(newUserData);
@@ -144,10 +161,8 @@ public class UserServiceTest {
 
     User oldUserData = new User().withId(USER_ID).withUsername(USERNAME).withName("testName");
     User newUserData = new User().withId(USER_ID).withUsername("updatedUsername").withName("updatedTestName");
-    List<User> userList = new ArrayList<>();
-    userList.add(new User().withId("existingUserId").withUsername("updatedUsername"));
-    when(repository.findByUsername("updatedUsername")).thenReturn(userList);
-    when(repository.findById(USER_ID)).thenReturn(Optional.of(oldUserData));
+    when(usernameIndex.reserve(eq("updatedUsername"), any(), eq(USER_ID))).thenReturn(false);
+    when(repository.findById(eq(USER_ID), any(PartitionKey.class))).thenReturn(Optional.of(oldUserData));
     Optional<User> result = service.updateWithOverwrite(ACCOUNT_ID, USER_ID, newUserData);
     assertThat(result, is(Optional.empty()));
     verify(repository, never()).save(newUserData);
@@ -157,7 +172,7 @@ public class UserServiceTest {
   public void deleteShouldReturnEmptyOptionalWhenUserNotFound() throws Exception {
 
     User newUserData = new User().withId(USER_ID).withName("testName");
-    when(repository.findById(USER_ID)).thenReturn(Optional.empty());
+    when(repository.findById(eq(USER_ID), any(PartitionKey.class))).thenReturn(Optional.empty());
     Optional<User> result = service.delete(ACCOUNT_ID, USER_ID);
     assertThat(result, is(Optional.empty()));
     verify(repository, never()).save(newUserData);
@@ -167,8 +182,74 @@ public class UserServiceTest {
   public void deleteShouldReturnDeletedUserWhenUserFound() throws Exception {
 
     User userData = new User().withId(USER_ID).withName("testName");
-    when(repository.findById(USER_ID)).thenReturn(Optional.of(userData));
+    when(repository.findById(eq(USER_ID), any(PartitionKey.class))).thenReturn(Optional.of(userData));
     User result = service.delete(ACCOUNT_ID, USER_ID).get();
     assertFalse(result.getIsActive());
+    verify(principalCache).invalidate(USER_ID);
+  }
+
+  @Test
+  public void writesShouldInvalidateTheCachedPrincipal() throws Exception {
+
+    when(repository.findById(eq(USER_ID), any(PartitionKey.class))).thenReturn(Optional.of(new User().withId(USER_ID).withUsername(USERNAME)));
+
+    service.save(ACCOUNT_ID, new User().withId(USER_ID).withUsername(USERNAME));
+    service.update(ACCOUNT_ID, USER_ID, new User().withName("updatedTestName"));
+    service.updateWithOverwrite(ACCOUNT_ID, USER_ID, new User().withUsername(USERNAME).withName("overwrittenName"));
+    verify(principalCache, times(3)).invalidate(USER_ID);
+  }
+
+  @Test
+  public void readShouldPassTheAccountAsThePartitionKey() throws Exception {
+
+    User user = new User().withId(USER_ID);
+    when(repository.findById(USER_ID, new PartitionKey(ACCOUNT_ID))).thenReturn(Optional.of(user));
+    assertThat(service.getUserById(ACCOUNT_ID, USER_ID).get(), is(equalTo(user)));
+    verify(repository, never()).findById(USER_ID);
+  }
+
+  @Test
+  public void saveShouldReturnEmptyOptionalWhenUsernameIsAlreadyReserved() throws Exception {
+
+    User newUser = new User().withId(USER_ID).withUsername(USERNAME);
+    when(usernameIndex.reserve(USERNAME, ACCOUNT_ID, USER_ID)).thenReturn(false);
+    assertThat(service.save(ACCOUNT_ID, newUser), is(Optional.empty()));
+    verify(repository, never()).save(newUser);
+  }
+
+  @Test
+  public void updateShouldReleaseThePreviousUsernameOnceSaved() throws Exception {
+
+    User oldUserData = new User().withId(USER_ID).withUsername(USERNAME).withName("testName");
+    User newUserData = new User().withId(USER_ID).withUsername("updatedUsername").withName("testName");
+    when(repository.findById(eq(USER_ID), any(PartitionKey.class))).thenReturn(Optional.of(oldUserData));
+    service.update(ACCOUNT_ID, USER_ID, newUserData);
+    verify(usernameIndex).release(USERNAME, USER_ID);
+    verify(usernameIndex, never()).release("updatedUsername", USER_ID);
+  }
+
+  @Test
+  public void getUserByUsernameShouldUseTheUsernameIndex() throws Exception {
+
+    User user = new User().withId(USER_ID).withUsername(USERNAME);
+    when(usernameIndex.findUser(USERNAME)).thenReturn(Optional.of(user));
+    assertThat(service.getUserByUsername(USERNAME).get(), is(equalTo(user)));
+    verify(repository, never()).findByUsername(anyString());
+  }
+
+  @Test
+  public void streamShouldFollowContinuationTokensOnlyAsFarAsTheStreamIsConsumed() throws Exception {
+
+    User user1 = new User().withId("testUserId1");
+    User user2 = new User().withId("testUserId2");
+    User user3 = new User().withId("testUserId3");
+    when(pagedQueries.usersByAccount(eq(ACCOUNT_ID), isNull(), isNull(), anyInt())).thenReturn(new CosmosPage<>(asList(user1, user2), "page2"));
+    when(pagedQueries.usersByAccount(eq(ACCOUNT_ID), isNull(), eq("page2"), anyInt())).thenReturn(new CosmosPage<>(emptyList(), "page3"));
+    when(pagedQueries.usersByAccount(eq(ACCOUNT_ID), isNull(), eq("page3"), anyInt())).thenReturn(new CosmosPage<>(asList(user3), null));
+
+    assertThat(service.stream(ACCOUNT_ID, null).limit(1).collect(Collectors.toList()), contains(user1));
+    verify(pagedQueries, never()).usersByAccount(eq(ACCOUNT_ID), isNull(), eq("page2"), anyInt());
+
+    assertThat(service.stream(ACCOUNT_ID, null).collect(Collectors.toList()), contains(user1, user2, user3));
   }
-}
\ No newline at end of file
+}
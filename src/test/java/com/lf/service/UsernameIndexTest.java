@@ -0,0 +1,184 @@
+package com.lf.service;
+
+import com.azure.cosmos.CosmosAsyncClient;
+import com.azure.cosmos.CosmosAsyncContainer;
+import com.azure.cosmos.CosmosAsyncDatabase;
+import com.azure.cosmos.CosmosException;
+import com.azure.cosmos.models.CosmosItemRequestOptions;
+import com.azure.cosmos.models.PartitionKey;
+import com.azure.spring.data.cosmos.core.CosmosOperations;
+import com.lf.model.User;
+import com.lf.model.UsernameReservation;
+import com.lf.repository.UserRepository;
+import com.lf.repository.UsernameReservationRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.Optional;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class UsernameIndexTest {
+
+  private static final String USERNAME = "Test.User@lf.com";
+  private static final String RESERVATION_ID = UsernameReservation.idFor(USERNAME);
+  private static final String ACCOUNT_ID = "testAccountId";
+  private static final String USER_ID = "testUserId";
+  private static final String OTHER_USER_ID = "otherUserId";
+
+  @Mock
+  private UsernameReservationRepository reservations;
+
+  @Mock
+  private UserRepository users;
+
+  @Mock
+  private CosmosOperations cosmosOperations;
+
+  @Mock
+  private CosmosAsyncClient client;
+
+  @Mock
+  private CosmosAsyncDatabase database;
+
+  @Mock
+  private CosmosAsyncContainer container;
+
+  @InjectMocks
+  private UsernameIndex index;
+
+  private CosmosException conflict;
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(index, "legacyFallback", false);
+    conflict = mock(CosmosException.class);
+    when(conflict.getStatusCode()).thenReturn(409);
+    when(client.getDatabase(anyString())).thenReturn(database);
+    when(database.getContainer(UsernameReservation.CONTAINER_NAME)).thenReturn(container);
+    when(container.deleteItem(anyString(), any(PartitionKey.class), any(CosmosItemRequestOptions.class))).thenReturn(Mono.empty());
+  }
+
+  @Test
+  public void reservationIdsShouldBeSafeForAnyUsername() throws Exception {
+
+    UsernameReservation reservation = new UsernameReservation(" A/b?c#d@LF.com ", ACCOUNT_ID, USER_ID);
+    assertThat(reservation.getId().matches("[0-9a-f]{64}"), is(true));
+    assertThat(reservation.getId(), is(UsernameReservation.idFor("a/b?c#d@lf.com")));
+    assertThat(reservation.getUsername(), is("a/b?c#d@lf.com"));
+  }
+
+  @Test
+  public void reserveShouldClaimAFreeUsername() throws Exception {
+
+    assertThat(index.reserve(USERNAME, ACCOUNT_ID, USER_ID), is(true));
+    verify(cosmosOperations).insert(eq(UsernameReservation.CONTAINER_NAME), any(UsernameReservation.class), eq(new PartitionKey(RESERVATION_ID)));
+    verify(users, never()).findByUsername(anyString());
+  }
+
+  @Test
+  public void reserveShouldRefuseAUsernameHeldByAnotherUser() throws Exception {
+
+    when(cosmosOperations.insert(anyString(), any(), any(PartitionKey.class))).thenThrow(conflict);
+    when(reservations.findById(RESERVATION_ID, new PartitionKey(RESERVATION_ID)))
+        .thenReturn(Optional.of(new UsernameReservation(USERNAME, ACCOUNT_ID, OTHER_USER_ID)));
+
+    assertThat(index.reserve(USERNAME, ACCOUNT_ID, USER_ID), is(false));
+    verify(container, never()).deleteItem(anyString(), any(PartitionKey.class), any(CosmosItemRequestOptions.class));
+  }
+
+  @Test
+  public void reserveShouldSucceedAgainForTheUserAlreadyHoldingTheUsername() throws Exception {
+
+    when(cosmosOperations.insert(anyString(), any(), any(PartitionKey.class))).thenThrow(conflict);
+    when(reservations.findById(RESERVATION_ID, new PartitionKey(RESERVATION_ID)))
+        .thenReturn(Optional.of(new UsernameReservation(USERNAME, ACCOUNT_ID, USER_ID)));
+
+    assertThat(index.reserve(USERNAME, ACCOUNT_ID, USER_ID), is(true));
+  }
+
+  @Test
+  public void reserveShouldReclaimAStaleReservationWhoseUserWasNeverCreated() throws Exception {
+
+    UsernameReservation stale = new UsernameReservation(USERNAME, ACCOUNT_ID, OTHER_USER_ID);
+    stale.setCreatedDate(new Date(System.currentTimeMillis() - 3_600_000));
+    when(cosmosOperations.insert(anyString(), any(), any(PartitionKey.class))).thenThrow(conflict).thenReturn(null);
+    when(reservations.findById(RESERVATION_ID, new PartitionKey(RESERVATION_ID))).thenReturn(Optional.of(stale));
+    when(users.findById(OTHER_USER_ID, new PartitionKey(ACCOUNT_ID))).thenReturn(Optional.empty());
+
+    assertThat(index.reserve(USERNAME, ACCOUNT_ID, USER_ID), is(true));
+    verify(container).deleteItem(eq(RESERVATION_ID), eq(new PartitionKey(RESERVATION_ID)), any(CosmosItemRequestOptions.class));
+  }
+
+  @Test
+  public void reserveShouldLoseAStaleReservationReclaimedConcurrently() throws Exception {
+
+    UsernameReservation stale = new UsernameReservation(USERNAME, ACCOUNT_ID, OTHER_USER_ID);
+    stale.setCreatedDate(new Date(System.currentTimeMillis() - 3_600_000));
+    stale.setEtag("\"stale-etag\"");
+    CosmosException preconditionFailed = mock(CosmosException.class);
+    when(preconditionFailed.getStatusCode()).thenReturn(412);
+    when(cosmosOperations.insert(anyString(), any(), any(PartitionKey.class))).thenThrow(conflict);
+    when(reservations.findById(RESERVATION_ID, new PartitionKey(RESERVATION_ID))).thenReturn(Optional.of(stale));
+    when(users.findById(OTHER_USER_ID, new PartitionKey(ACCOUNT_ID))).thenReturn(Optional.empty());
+    when(container.deleteItem(anyString(), any(PartitionKey.class), any(CosmosItemRequestOptions.class))).thenReturn(Mono.error(preconditionFailed));
+
+    assertThat(index.reserve(USERNAME, ACCOUNT_ID, USER_ID), is(false));
+    ArgumentCaptor<CosmosItemRequestOptions> options = ArgumentCaptor.forClass(CosmosItemRequestOptions.class);
+    verify(container).deleteItem(eq(RESERVATION_ID), eq(new PartitionKey(RESERVATION_ID)), options.capture());
+    assertThat(options.getValue().getIfMatchETag(), is("\"stale-etag\""));
+  }
+
+  @Test
+  public void reserveShouldNotReclaimAStaleReservationBackedByAUser() throws Exception {
+
+    UsernameReservation old = new UsernameReservation(USERNAME, ACCOUNT_ID, OTHER_USER_ID);
+    old.setCreatedDate(new Date(System.currentTimeMillis() - 3_600_000));
+    when(cosmosOperations.insert(anyString(), any(), any(PartitionKey.class))).thenThrow(conflict);
+    when(reservations.findById(RESERVATION_ID, new PartitionKey(RESERVATION_ID))).thenReturn(Optional.of(old));
+    when(users.findById(OTHER_USER_ID, new PartitionKey(ACCOUNT_ID))).thenReturn(Optional.of(new User()));
+
+    assertThat(index.reserve(USERNAME, ACCOUNT_ID, USER_ID), is(false));
+    verify(container, never()).deleteItem(anyString(), any(PartitionKey.class), any(CosmosItemRequestOptions.class));
+  }
+
+  @Test
+  public void releaseShouldOnlyDeleteTheCallersReservation() throws Exception {
+
+    when(reservations.findById(RESERVATION_ID, new PartitionKey(RESERVATION_ID)))
+        .thenReturn(Optional.of(new UsernameReservation(USERNAME, ACCOUNT_ID, OTHER_USER_ID)));
+
+    index.release(USERNAME, USER_ID);
+    verify(container, never()).deleteItem(anyString(), any(PartitionKey.class), any(CosmosItemRequestOptions.class));
+
+    index.release(USERNAME, OTHER_USER_ID);
+    verify(container).deleteItem(eq(RESERVATION_ID), eq(new PartitionKey(RESERVATION_ID)), any(CosmosItemRequestOptions.class));
+  }
+
+  @Test
+  public void legacyFallbackShouldRefuseAnUnreservedUsernameOfAnExistingUserAndReserveItForThem() throws Exception {
+
+    ReflectionTestUtils.setField(index, "legacyFallback", true);
+    User owner = new User();
+    owner.setId(OTHER_USER_ID);
+    owner.setAccountId(ACCOUNT_ID);
+    owner.setUsername(USERNAME);
+    when(reservations.findById(RESERVATION_ID, new PartitionKey(RESERVATION_ID))).thenReturn(Optional.empty());
+    when(users.findByUsername(USERNAME)).thenReturn(singletonList(owner));
+
+    assertThat(index.reserve(USERNAME, ACCOUNT_ID, USER_ID), is(false));
+    verify(cosmosOperations).insert(eq(UsernameReservation.CONTAINER_NAME), any(UsernameReservation.class), eq(new PartitionKey(RESERVATION_ID)));
+  }
+}
@@ -0,0 +1,140 @@
+package com.lf.service;
+
+import com.lf.TestHelper;
+import com.lf.model.SecurityContext;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ValidatedTokenCacheTest {
+
+  private static final SecurityContext SECURITY_CONTEXT = new SecurityContext(TestHelper.securityContextHeader(
+      "d4dfdaf6-02a2-11e7-93ae-92361f002672", "d4dfdaf6-02a2-11e7-93ae-92361f002671", "testName"));
+
+  private final ValidatedTokenCache cache = new ValidatedTokenCache(100, 60);
+
+  @Test
+  public void getShouldValidateAnAcceptedTokenOnce() throws Exception {
+
+    AtomicInteger validations = new AtomicInteger();
+    for (int i = 0; i < 3; i++) {
+      Optional<SecurityContext> context = cache.get("opaque-token", () -> {
+        validations.incrementAndGet();
+        return Optional.of(SECURITY_CONTEXT);
+      });
+      assertTrue(context.isPresent());
+    }
+    assertThat(validations.get(), is(1));
+  }
+
+  @Test
+  public void getShouldNotCacheRejectedOrExpiredTokens() throws Exception {
+
+    AtomicInteger validations = new AtomicInteger();
+    assertFalse(cache.get("opaque-token", () -> {
+      validations.incrementAndGet();
+      return Optional.empty();
+    }).isPresent());
+    cache.get("opaque-token", () -> {
+      validations.incrementAndGet();
+      return Optional.of(SECURITY_CONTEXT);
+    });
+    assertThat(validations.get(), is(2));
+
+    String expired = jwtExpiringAt(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) - 10);
+    for (int i = 0; i < 2; i++) {
+      cache.get(expired, () -> {
+        validations.incrementAndGet();
+        return Optional.of(SECURITY_CONTEXT);
+      });
+    }
+    assertThat(validations.get(), is(4));
+  }
+
+  @Test
+  public void getShouldValidateATokenOnceForConcurrentRequests() throws Exception {
+
+    int requests = 8;
+    AtomicInteger validations = new AtomicInteger();
+    CountDownLatch ready = new CountDownLatch(requests);
+    CountDownLatch validating = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(requests);
+    try {
+      List<Future<Optional<SecurityContext>>> results = new ArrayList<>();
+      for (int i = 0; i < requests; i++) {
+        results.add(executor.submit(() -> {
+          ready.countDown();
+          return cache.get("opaque-token", () -> {
+            validations.incrementAndGet();
+            validating.countDown();
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            return Optional.of(SECURITY_CONTEXT);
+          });
+        }));
+      }
+      assertTrue(ready.await(5, TimeUnit.SECONDS));
+      assertTrue(validating.await(5, TimeUnit.SECONDS));
+      // Give the other requests time to reach the cache while the validation is held
+      Thread.sleep(100);
+      release.countDown();
+
+      for (Future<Optional<SecurityContext>> result : results) {
+        assertTrue(result.get(5, TimeUnit.SECONDS).isPresent());
+      }
+      assertThat(validations.get(), is(1));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void getShouldCapTheTtlOfAJwtAtItsExpiry() throws Exception {
+
+    long expiresAt = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 2;
+    String token = jwtExpiringAt(expiresAt);
+    AtomicInteger validations = new AtomicInteger();
+    for (int i = 0; i < 2; i++) {
+      cache.get(token, () -> {
+        validations.incrementAndGet();
+        return Optional.of(SECURITY_CONTEXT);
+      });
+    }
+    assertThat(validations.get(), is(1));
+
+    // Well within the 60 second max TTL, but past the token's exp
+    while (System.currentTimeMillis() <= TimeUnit.SECONDS.toMillis(expiresAt) + 50) {
+      Thread.sleep(50);
+    }
+    cache.get(token, () -> {
+      validations.incrementAndGet();
+      return Optional.of(SECURITY_CONTEXT);
+    });
+    assertThat(validations.get(), is(2));
+  }
+
+  private static String jwtExpiringAt(final long expiresAt) {
+    Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    return encoder.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+        + encoder.encodeToString(("{\"exp\":" + expiresAt + "}").getBytes(StandardCharsets.UTF_8)) + ".c2lnbmF0dXJl";
+  }
+}
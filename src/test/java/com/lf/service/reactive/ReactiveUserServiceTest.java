@@ -0,0 +1,93 @@
+package com.lf.service.reactive;
+
+import com.azure.cosmos.models.PartitionKey;
+import com.lf.model.User;
+import com.lf.model.UserRole;
+import com.lf.repository.reactive.ReactiveUserRepository;
+import com.lf.service.UserService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class ReactiveUserServiceTest {
+
+  private static final String ACCOUNT_ID = "testAccountId";
+  private static final String USER_ID = "testUserId";
+
+  @Mock
+  private ReactiveUserRepository repository;
+
+  @Mock
+  private UserService userService;
+
+  @InjectMocks
+  private ReactiveUserServiceImpl service;
+
+  @Before
+  public void runBlockingCallsInline() {
+    ReflectionTestUtils.setField(service, "blockingScheduler", Schedulers.immediate());
+  }
+
+  @Test
+  public void listShouldStreamTheAccountsUsersFromTheReactiveRepository() throws Exception {
+
+    User user1 = new User().withId("testUserId1");
+    User user2 = new User().withId("testUserId2");
+    when(repository.findByAccountId(ACCOUNT_ID)).thenReturn(Flux.just(user1, user2));
+    assertThat(service.list(ACCOUNT_ID, null).collectList().block(), contains(user1, user2));
+    verifyZeroInteractions(userService);
+  }
+
+  @Test
+  public void listShouldFilterOnIsActiveInTheQuery() throws Exception {
+
+    User user = new User().withId("testUserId1");
+    when(repository.findByAccountIdAndIsActive(ACCOUNT_ID, true)).thenReturn(Flux.just(user));
+    assertThat(service.list(ACCOUNT_ID, true).collectList().block(), contains(user));
+    verify(repository, never()).findByAccountId(ACCOUNT_ID);
+  }
+
+  @Test
+  public void getUserRolesByIdShouldBeEmptyWhenUserNotFound() throws Exception {
+
+    when(repository.findById(USER_ID, new PartitionKey(ACCOUNT_ID))).thenReturn(Mono.empty());
+    List<UserRole> result = service.getUserRolesById(ACCOUNT_ID, USER_ID).block();
+    assertThat(result, is(nullValue()));
+  }
+
+  @Test
+  public void saveShouldDelegateToTheBlockingServiceSoUsernamesAreReserved() throws Exception {
+
+    User user = new User().withId(USER_ID);
+    when(userService.save(ACCOUNT_ID, user)).thenReturn(Optional.of(user));
+    assertThat(service.save(ACCOUNT_ID, user).block(), is(equalTo(user)));
+    verify(userService).save(ACCOUNT_ID, user);
+  }
+
+  @Test
+  public void saveShouldBeEmptyWhenTheBlockingServiceRefuses() throws Exception {
+
+    User user = new User().withId(USER_ID);
+    when(userService.save(ACCOUNT_ID, user)).thenReturn(Optional.empty());
+    assertThat(service.save(ACCOUNT_ID, user).block(), is(nullValue()));
+  }
+}
@@ -0,0 +1,42 @@
+package com.lf.util;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ContinuationTokensTest {
+
+    private static final String COSMOS_TOKEN = "{\"token\":\"-RID:~abc==#RT:1#TRC:2\",\"range\":{\"min\":\"\",\"max\":\"FF\"}}";
+
+    @Test
+    public void decodeShouldReturnTheCosmosTokenForTheScopeItWasIssuedFor() throws Exception {
+
+        String scope = ContinuationTokens.scope("users", "testAccountId", true);
+        String token = ContinuationTokens.encode(scope, COSMOS_TOKEN);
+        assertThat(ContinuationTokens.isWellFormed(token), is(true));
+        assertThat(ContinuationTokens.decode(scope, token), is(equalTo(COSMOS_TOKEN)));
+        assertThat(ContinuationTokens.decode(scope, null), is((String) null));
+    }
+
+    @Test
+    public void decodeShouldRefuseATokenIssuedForAnotherList() throws Exception {
+
+        String token = ContinuationTokens.encode(ContinuationTokens.scope("users", "otherAccountId", true), COSMOS_TOKEN);
+        try {
+            ContinuationTokens.decode(ContinuationTokens.scope("users", "testAccountId", true), token);
+            fail("Expected a token from another account's list to be refused");
+        } catch (InvalidContinuationTokenException e) {
+            assertThat(e.getMessage(), is(equalTo("The continuation belongs to a different list")));
+        }
+    }
+
+    @Test
+    public void isWellFormedShouldRefuseTokensThisApiDidNotIssue() throws Exception {
+
+        assertThat(ContinuationTokens.isWellFormed("not*base64"), is(false));
+        assertThat(ContinuationTokens.isWellFormed("c29tZXRoaW5nIGVsc2U"), is(false));
+    }
+}
@@ -0,0 +1,43 @@
+package com.lf.util;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PatternMatcherTest {
+
+    @Test
+    public void isUuidShouldAgreeWithTheUuidPattern() throws Exception {
+        String[] values = {
+                "d4dfdaf6-02a2-11e7-93ae-92361f002672",
+                "D4DFDAF6-02A2-11E7-93AE-92361F002672",
+                "d4dfdaf602a211e793ae92361f002672",
+                "d4dfdaf6-02a211e7-93ae92361f002672",
+                "d4dfdaf6-02a2-11e7-93ae-92361f00267",
+                "d4dfdaf6-02a2-11e7-93ae-92361f0026722",
+                "d4dfdaf6-02a2-11e7-93ae-92361f00267g",
+                "d4dfdaf6--02a2-11e7-93ae-92361f002672",
+                "d4dfdaf60-2a2-11e7-93ae-92361f002672",
+                "-d4dfdaf6-02a2-11e7-93ae-92361f00267",
+                "d4dfdaf6-02a2-11e7-93ae-92361f002672-",
+                "",
+                "testAccountName"
+        };
+        for (String value : values) {
+            assertThat(value, PatternMatcher.isUuid(value), is(value.matches(PatternMatcher.UUID_PATTERN)));
+        }
+        assertThat(PatternMatcher.isUuid(null), is(false));
+    }
+
+    @Test
+    public void isEmailShouldAcceptAddressesAndRejectOtherUsernames() throws Exception {
+        assertThat(PatternMatcher.isEmail("alpha@dlvr.com"), is(true));
+        assertThat(PatternMatcher.isEmail("first.last+tag@sub.example.co.uk"), is(true));
+        assertThat(PatternMatcher.isEmail("notAnEmailAddress"), is(false));
+        assertThat(PatternMatcher.isEmail("two@@example.com"), is(false));
+        assertThat(PatternMatcher.isEmail("dot.@example.com"), is(false));
+        assertThat(PatternMatcher.isEmail("name@localhost"), is(false));
+        assertThat(PatternMatcher.isEmail(null), is(false));
+    }
+}
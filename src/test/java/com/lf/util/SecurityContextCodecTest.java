@@ -0,0 +1,100 @@
+package com.lf.util;
+
+import com.google.common.base.Strings;
+import com.lf.model.SecurityContext;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class SecurityContextCodecTest {
+
+    private static final String USER_ID = "d4dfdaf6-02a2-11e7-93ae-92361f002672";
+    private static final String ACCOUNT_ID = "d4dfdaf6-02a2-11e7-93ae-92361f002671";
+    private static final List<String> ROLES = asList("ROLE_RETRIEVE_USER", "ROLE_UPDATE_USER");
+
+    @Test
+    public void decodeShouldReturnWhatWasEncoded() throws Exception {
+
+        SecurityContextCodec.Decoded decoded = SecurityContextCodec.decode(SecurityContextCodec.encode(USER_ID, ACCOUNT_ID, ROLES, "Zo\u00eb Name"));
+        assertThat(decoded.getUserId(), is(equalTo(USER_ID)));
+        assertThat(decoded.getAccountId(), is(equalTo(ACCOUNT_ID)));
+        assertThat(decoded.getName(), is(equalTo("Zo\u00eb Name")));
+        assertThat(decoded.getRoles(), is(equalTo(ROLES)));
+    }
+
+    @Test
+    public void decodeShouldRejectMalformedHeaders() throws Exception {
+
+        byte[] valid = Base64.getDecoder().decode(SecurityContextCodec.encode(USER_ID, ACCOUNT_ID, ROLES, "testName"));
+
+        assertRejected(Arrays.copyOf(valid, valid.length - 3), "Truncated");
+        assertRejected(Arrays.copyOf(valid, valid.length + 1), "trailing bytes");
+
+        byte[] badMagic = valid.clone();
+        badMagic[0] = 'X';
+        assertRejected(badMagic, "Unrecognised");
+
+        byte[] badVersion = valid.clone();
+        badVersion[2] = 2;
+        assertRejected(badVersion, "Unsupported");
+    }
+
+    @Test
+    public void encodeShouldRejectFieldsLongerThanTheLengthPrefix() throws Exception {
+
+        try {
+            SecurityContextCodec.encode(USER_ID, ACCOUNT_ID, ROLES, Strings.repeat("n", 0x10000));
+            fail("Expected a name of 65536 bytes to be refused");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is(equalTo("The security context name is too long")));
+        }
+    }
+
+    @Test
+    public void decodeShouldAcceptLegacyHeadersUnlessSwitchedOff() throws Exception {
+
+        SecurityContext context = new SecurityContext(new String(SecurityContextCodec.encode(USER_ID, ACCOUNT_ID, ROLES, "testName")));
+        byte[] legacyHeader = Base64.getEncoder().encode(new OauthSerializerUtils().serialize(context));
+
+        SecurityContextCodec.Decoded decoded = SecurityContextCodec.decode(legacyHeader);
+        assertThat(decoded.getUserId(), is(equalTo(USER_ID)));
+        assertThat(decoded.getRoles(), is(equalTo(ROLES)));
+
+        try {
+            SecurityContextCodec.decode(legacyHeader, false);
+            fail("Expected the legacy header to be refused");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is(equalTo("Legacy X-Security-Context headers are no longer accepted")));
+        }
+    }
+
+    @Test
+    public void decodeShouldRefuseLegacyHeadersHoldingOtherClasses() throws Exception {
+
+        byte[] header = Base64.getEncoder().encode(new OauthSerializerUtils().serialize(new HashMap<String, String>()));
+        try {
+            SecurityContextCodec.decode(header);
+            fail("Expected a serialized HashMap to be refused");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is(equalTo("Unreadable legacy X-Security-Context header")));
+        }
+    }
+
+    private static void assertRejected(final byte[] bytes, final String messagePart) {
+        try {
+            SecurityContextCodec.decode(Base64.getEncoder().encode(bytes));
+            fail("Expected the header to be rejected: " + messagePart);
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), e.getMessage().contains(messagePart), is(true));
+        }
+    }
+}